@@ -20,9 +20,20 @@
  */
 package net.sourceforge.metrics.ant;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 
+import net.sourceforge.metrics.core.IExporter;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.ResultPack;
+import net.sourceforge.metrics.internal.export.DeltaExporter;
+import net.sourceforge.metrics.internal.export.IObservableExporter;
+import net.sourceforge.metrics.internal.export.SnapshotStore;
+import net.sourceforge.metrics.internal.export.ThresholdCheck;
 import net.sourceforge.metrics.internal.xml.MetricsFirstExporter;
 
 import org.apache.tools.ant.BuildException;
@@ -44,6 +55,14 @@ public class ExportMetricsTask extends Task {
 	private String projectName;
 
 	private File outFile;
+	private File packFile;
+	private String format;
+	private File baselineFile;
+	private String baselineSnapshot;
+	private ThresholdCheck thresholds = new ThresholdCheck();
+	private File violationsFile;
+	private int maxViolations;
+	private boolean failOnViolation = true;
 
 	/*
 	 * (non-Javadoc)
@@ -68,21 +87,223 @@ public class ExportMetricsTask extends Task {
 			displayError(TASKNAME + projectName + " is not open");
 			return;
 		}
-		if (outFile != null) {
-			MetricsFirstExporter exporter = new MetricsFirstExporter();
-			IJavaProject p = JavaCore.create(project);
-			if (p != null) {
-				AntConsoleProgressMonitor monitor = new AntConsoleProgressMonitor(this);
+		if ((outFile == null) && (packFile == null) && !thresholds.hasRules()) {
+			throw new BuildException("Must specify an output file using file= or pack=, or thresholds using rules= or checkRanges=");
+		}
+		thresholds.setBudget(failOnViolation ? maxViolations : -1);
+		Writer report = null;
+		try {
+			if (thresholds.hasRules() && (violationsFile != null)) {
+				report = new BufferedWriter(new FileWriter(violationsFile));
+				thresholds.setReport(report);
+			}
+			if ((outFile != null) && ((baselineFile != null) || (baselineSnapshot != null))) {
+				exportDelta(project);
+			} else if (outFile != null) {
+				export(project);
+			} else {
+				checkThresholds(project);
+			}
+		} catch (IOException e) {
+			displayError("Error checking metric thresholds " + e.getMessage());
+			return;
+		} finally {
+			if (report != null) {
 				try {
-					exporter.export(p, outFile, monitor);
-				} catch (InvocationTargetException e) {
-					displayError("Error exporting metrics" + e.getMessage());
+					report.close();
+				} catch (IOException e) {
+					displayError("Error writing " + violationsFile.getAbsolutePath());
 				}
+			}
+		}
+		if (thresholds.isBudgetExceeded()) {
+			// the export ended at the first violation over the budget
+			if (outFile != null) {
+				outFile.delete();
+			}
+			failOnViolations();
+			return;
+		}
+		if (packFile != null) {
+			exportPack(project);
+		}
+		if (thresholds.getCount() > maxViolations) {
+			failOnViolations();
+		}
+	}
+
+	/**
+	 * Export with the exporter of the format. The thresholds are checked in the pass of the export if the exporter supports it, in a pass of their own before the export otherwise.
+	 * 
+	 * @param project
+	 * @throws IOException
+	 *             if the thresholds could not be checked
+	 */
+	private void export(IProject project) throws IOException {
+		IExporter exporter = createExporter();
+		if (exporter == null) {
+			displayError(TASKNAME + " unknown format " + format);
+			return;
+		}
+		IJavaProject p = JavaCore.create(project);
+		if (p == null) {
+			displayError("Project is not a Java project.");
+			return;
+		}
+		AntConsoleProgressMonitor monitor = new AntConsoleProgressMonitor(this);
+		if (thresholds.hasRules()) {
+			if (exporter instanceof IObservableExporter) {
+				((IObservableExporter) exporter).setObserver(thresholds.createObserver());
 			} else {
-				displayError("Project is not a Java project.");
+				thresholds.check(p, monitor);
+				if (thresholds.isBudgetExceeded()) {
+					return;
+				}
+			}
+		}
+		try {
+			exporter.export(p, outFile, monitor);
+		} catch (InvocationTargetException e) {
+			if (!thresholds.isBudgetExceeded()) {
+				displayError("Error exporting metrics" + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Check the thresholds without exporting
+	 * 
+	 * @param project
+	 * @throws IOException
+	 */
+	private void checkThresholds(IProject project) throws IOException {
+		IJavaProject p = JavaCore.create(project);
+		if (p == null) {
+			displayError("Project is not a Java project.");
+			return;
+		}
+		if (thresholds.hasRules()) {
+			thresholds.check(p, new AntConsoleProgressMonitor(this));
+		}
+	}
+
+	private void failOnViolations() throws BuildException {
+		for (String violation : thresholds.getViolations()) {
+			log(violation);
+		}
+		String summary = thresholds.getSummary();
+		if (failOnViolation) {
+			throw new BuildException(summary, getLocation());
+		}
+		log(summary);
+	}
+
+	/**
+	 * write only the differences with the baseline (a columnar export or a stored snapshot) to the output file, checking the thresholds in the same pass
+	 * 
+	 * @param project
+	 * @throws IOException
+	 *             if the thresholds could not be checked
+	 */
+	private void exportDelta(IProject project) throws IOException {
+		IJavaProject p = JavaCore.create(project);
+		if (p == null) {
+			displayError("Project is not a Java project.");
+			return;
+		}
+		File baseline = baselineFile;
+		if (baselineSnapshot != null) {
+			baseline = writeSnapshot(p);
+			if (baseline == null) {
+				return;
+			}
+		} else if (!baselineFile.exists()) {
+			displayError(TASKNAME + " baseline " + baselineFile.getAbsolutePath() + " not found");
+			return;
+		}
+		DeltaExporter exporter = new DeltaExporter();
+		try {
+			if (thresholds.hasRules()) {
+				exporter.setObserver(thresholds.createObserver());
+			}
+			exporter.export(p, baseline, outFile, new AntConsoleProgressMonitor(this));
+			log(exporter.getAdded() + " added, " + exporter.getRemoved() + " removed, " + exporter.getChanged() + " changed");
+		} catch (InvocationTargetException e) {
+			if (!thresholds.isBudgetExceeded()) {
+				displayError("Error exporting metrics delta " + e.getTargetException().getMessage());
+			}
+		} finally {
+			if (baseline != baselineFile) {
+				baseline.delete();
 			}
+		}
+	}
+
+	/**
+	 * Rebuild the snapshot named by baselineSnapshot in a temporary columnar file
+	 * 
+	 * @param project
+	 * @return the file, null if the snapshot was not found
+	 */
+	private File writeSnapshot(IJavaProject project) {
+		SnapshotStore store = SnapshotStore.getStore(project);
+		long[] times = store.getTimes();
+		long time;
+		if ("latest".equals(baselineSnapshot)) {
+			if (times.length == 0) {
+				displayError(TASKNAME + " no snapshots stored for " + projectName);
+				return null;
+			}
+			time = times[times.length - 1];
 		} else {
-			throw new BuildException("Must specify an output file using file=");
+			try {
+				time = Long.parseLong(baselineSnapshot);
+			} catch (NumberFormatException e) {
+				displayError(TASKNAME + " invalid baselineSnapshot=" + baselineSnapshot + ", must be a snapshot time or \"latest\"");
+				return null;
+			}
+		}
+		try {
+			File result = File.createTempFile("metrics-baseline", ".mcol");
+			try {
+				store.writeState(time, result);
+			} catch (IOException e) {
+				result.delete();
+				throw e;
+			}
+			return result;
+		} catch (IOException e) {
+			displayError("Error reading metrics snapshot " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return the exporter registered for the format (class name), the metrics first exporter if none given
+	 */
+	private IExporter createExporter() {
+		if (format == null) {
+			return new MetricsFirstExporter();
+		}
+		return MetricsPlugin.getDefault().createExporter(format);
+	}
+
+	/**
+	 * write the stored compilation unit results to a pack other workspaces can import (see ProjectBuild.setPack)
+	 * 
+	 * @param project
+	 */
+	private void exportPack(IProject project) {
+		IJavaProject p = JavaCore.create(project);
+		if (p == null) {
+			displayError("Project is not a Java project.");
+			return;
+		}
+		try {
+			int count = ResultPack.write(p, packFile, new AntConsoleProgressMonitor(this));
+			log("Wrote results for " + count + " compilation units to " + packFile.getAbsolutePath());
+		} catch (IOException e) {
+			displayError("Error exporting result pack " + e.getMessage());
 		}
 	}
 
@@ -108,6 +329,78 @@ public class ExportMetricsTask extends Task {
 		this.outFile = outFile;
 	}
 
+	/**
+	 * @param format
+	 *            class name of a registered exporter
+	 */
+	public void setFormat(String format) {
+		this.format = format;
+	}
+
+	/**
+	 * @param baselineFile
+	 *            a previous export in the columnar format, file= then receives only the differences
+	 */
+	public void setBaseline(File baselineFile) {
+		this.baselineFile = baselineFile;
+	}
+
+	/**
+	 * @param baselineSnapshot
+	 *            time of a snapshot kept by the snapshot history of the project, or "latest"; file= then receives only the differences
+	 */
+	public void setBaselineSnapshot(String baselineSnapshot) {
+		this.baselineSnapshot = baselineSnapshot;
+	}
+
+	/**
+	 * @param rules
+	 *            limits such as "VG&lt;=10;NBD.max&lt;=5", separated by ';' or ','
+	 */
+	public void setRules(String rules) {
+		try {
+			thresholds.addRules(rules);
+		} catch (IllegalArgumentException e) {
+			throw new BuildException(e.getMessage(), getLocation());
+		}
+	}
+
+	/**
+	 * @param checkRanges
+	 *            true to check the values against the safe ranges of the metrics preferences
+	 */
+	public void setCheckRanges(boolean checkRanges) {
+		thresholds.setCheckRanges(checkRanges);
+	}
+
+	/**
+	 * @param violationsFile
+	 *            receives one tab separated line per violation
+	 */
+	public void setViolations(File violationsFile) {
+		this.violationsFile = violationsFile;
+	}
+
+	/**
+	 * @param maxViolations
+	 *            number of violations tolerated, 0 by default
+	 */
+	public void setMaxViolations(int maxViolations) {
+		this.maxViolations = maxViolations;
+	}
+
+	/**
+	 * @param failOnViolation
+	 *            false to only log the violations, true by default
+	 */
+	public void setFailOnViolation(boolean failOnViolation) {
+		this.failOnViolation = failOnViolation;
+	}
+
+	public void setPack(File packFile) {
+		this.packFile = packFile;
+	}
+
 	public void setProjectName(String projectName) {
 		this.projectName = projectName;
 	}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ant;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import net.sourceforge.metrics.builder.MetricsBuilder;
+import net.sourceforge.metrics.builder.ParallelCalculation;
+import net.sourceforge.metrics.core.sources.ResultPack;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Calculates the metrics of several projects in one task. The projects are calculated on a pool of threads (see ParallelCalculation), each holding only its own project as scheduling rule, and a project is started only after the projects it
+ * references (within the set) are done, so independent projects run in parallel. With compile="true" the java builders run first, sequentially in reference order, since a workspace build always holds the workspace lock.
+ * The metrics themselves are calculated outside of the workspace build (see MetricsBuilder.calculate), which is what allows the per project rules. The wall time of each project is logged.
+ * 
+ * <pre>
+ * &lt;metrics.build projectNames="core,ui,tests" threads="4" buildType="incremental"/&gt;
+ * </pre>
+ * 
+ * @author Metrics2 contributors
+ */
+public class ParallelProjectBuild extends Task {
+
+	private static final String TASKNAME = "metrics.build: ";
+
+	private String projectNames;
+	private boolean full;
+	private boolean compile;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean failOnError = true;
+	private File pack;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.tools.ant.Task#execute()
+	 */
+	@Override
+	public void execute() throws BuildException {
+		List<IProject> projects = getProjects();
+		if (projects.isEmpty()) {
+			displayError(TASKNAME + "no projects to build");
+			return;
+		}
+		long start = System.currentTimeMillis();
+		AntConsoleProgressMonitor monitor = new AntConsoleProgressMonitor(this);
+		MetricsBuilder.setHeadless(true);
+		if (pack != null) {
+			int count = ResultPack.seed(pack);
+			log("Imported results for " + count + " compilation units from " + pack.getAbsolutePath());
+		}
+		ParallelCalculation calculation = new ParallelCalculation(projects, full, threads);
+		if (compile) {
+			compile(calculation.getOrder(), monitor);
+		}
+		calculate(calculation);
+		log("Calculated metrics for " + projects.size() + " projects in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * @return the named projects, or all open java projects if no names were given
+	 */
+	private List<IProject> getProjects() {
+		List<IProject> result = new ArrayList<IProject>();
+		if (projectNames == null) {
+			for (IProject next : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+				if (next.isOpen() && (JavaCore.create(next) != null) && hasJavaNature(next)) {
+					result.add(next);
+				}
+			}
+			return result;
+		}
+		for (String name : projectNames.split(",")) {
+			IProject next = ResourcesPlugin.getWorkspace().getRoot().getProject(name.trim());
+			if (!next.exists()) {
+				displayError(TASKNAME + name.trim() + " not found in Workspace.");
+			} else if (!next.isOpen()) {
+				displayError(TASKNAME + name.trim() + " is not open");
+			} else if (!result.contains(next)) {
+				result.add(next);
+			}
+		}
+		return result;
+	}
+
+	private boolean hasJavaNature(IProject project) {
+		try {
+			return project.hasNature(JavaCore.NATURE_ID);
+		} catch (CoreException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Run the java builders of the projects, referenced projects first. The metrics builder is left out, the metrics are calculated afterwards.
+	 * 
+	 * @param order
+	 * @param monitor
+	 */
+	private void compile(List<IProject> order, IProgressMonitor monitor) {
+		int kind = full ? IncrementalProjectBuilder.FULL_BUILD : IncrementalProjectBuilder.INCREMENTAL_BUILD;
+		for (IProject next : order) {
+			long start = System.currentTimeMillis();
+			try {
+				next.build(kind, JavaCore.BUILDER_ID, null, monitor);
+			} catch (CoreException e) {
+				displayError(TASKNAME + next.getName() + " Exception=" + e.getMessage());
+			}
+			log(next.getName() + " compiled in " + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	/**
+	 * Calculate the projects on the thread pool, submitting each project once the projects it references are done
+	 * 
+	 * @param calculation
+	 */
+	private void calculate(ParallelCalculation calculation) {
+		final List<String> failures = new ArrayList<String>();
+		try {
+			calculation.run(new ParallelCalculation.IListener() {
+
+				public void calculated(IProject project, long time, boolean skipped, String error) {
+					if (error != null) {
+						failures.add(project.getName() + ": " + error);
+					} else if (skipped) {
+						log(project.getName() + " skipped, it has compile errors");
+					} else {
+						log(project.getName() + " calculated in " + time + " ms");
+					}
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			displayError(TASKNAME + "interrupted");
+		} catch (ExecutionException e) {
+			displayError(TASKNAME + "Exception=" + e.getCause());
+		}
+		for (String failure : failures) {
+			displayError(TASKNAME + failure);
+		}
+	}
+
+	protected void displayError(String msg) throws BuildException {
+		System.out.println(msg);
+		if (failOnError) {
+			throw new BuildException(msg, getLocation());
+		}
+	}
+
+	/**
+	 * @param projectNames
+	 *            comma separated, all open java projects if not given
+	 */
+	public void setProjectNames(String projectNames) {
+		this.projectNames = projectNames;
+	}
+
+	/**
+	 * @param type
+	 *            INCREMENTAL (default) or FULL
+	 */
+	public void setBuildType(String type) {
+		if ("FULL".equalsIgnoreCase(type)) {
+			full = true;
+		} else if ("INCREMENTAL".equalsIgnoreCase(type)) {
+			full = false;
+		} else {
+			displayError("Invalid BuildType=" + type + ", must be INCREMENTAL or FULL");
+		}
+	}
+
+	/**
+	 * @param compile
+	 *            true to run the java builders before calculating
+	 */
+	public void setCompile(boolean compile) {
+		this.compile = compile;
+	}
+
+	/**
+	 * @param threads
+	 *            number of projects calculated at the same time, the number of processors by default
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public void setFailonerror(boolean failOnError) {
+		this.failOnError = failOnError;
+	}
+
+	/**
+	 * a result pack (or a directory of packs) written by metrics.export to import before calculating
+	 * 
+	 * @param pack
+	 */
+	public void setPack(File pack) {
+		this.pack = pack;
+	}
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.Hashtable;
 
+import net.sourceforge.metrics.core.sources.ResultPack;
 import net.sourceforge.metrics.internal.xml.XMLPrintStream;
 
 import org.apache.tools.ant.BuildException;
@@ -52,6 +53,7 @@ public class ProjectBuild extends Task {
 	private int buildTypeInt = IncrementalProjectBuilder.INCREMENTAL_BUILD;
 	private File compileErrorsOut;
 	private String compileErrorsFormat;
+	private File pack;
 
 	/**
 	 * Execute this Ant task. Builds the given project according to the given parameters
@@ -77,8 +79,12 @@ public class ProjectBuild extends Task {
 			AntConsoleProgressMonitor monitor = new AntConsoleProgressMonitor(this);
 			monitor.beginTask(projectName, 1);
 			setDebugOptions(debugcompilation);
+			if (pack != null) {
+				int count = ResultPack.seed(pack);
+				monitor.displayMsg("Imported results for " + count + " compilation units from " + pack.getAbsolutePath());
+			}
 			ProjectBuildWorkspaceModifyOperation op = new ProjectBuildWorkspaceModifyOperation(project, buildTypeInt);
-			op.execute(monitor);
+			op.run(monitor);
 			// get/export errors and fail if needed
 			int errors = getJavacErrorCount(project, monitor);
 			if (errors > 0) {
@@ -248,6 +254,15 @@ public class ProjectBuild extends Task {
 		}
 	}
 
+	/**
+	 * a result pack (or a directory of packs) written by metrics.export to import before building. Compilation units whose content matches a unit in the pack are not recalculated.
+	 * 
+	 * @param pack
+	 */
+	public void setPack(File pack) {
+		this.pack = pack;
+	}
+
 	public void setCompileErrorsFormat(String outFormat) {
 		compileErrorsFormat = outFormat;
 	}
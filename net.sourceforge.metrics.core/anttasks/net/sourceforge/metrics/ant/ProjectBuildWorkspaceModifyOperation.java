@@ -15,11 +15,14 @@
 package net.sourceforge.metrics.ant;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.ui.actions.WorkspaceModifyOperation;
 
-public class ProjectBuildWorkspaceModifyOperation extends WorkspaceModifyOperation {
+/**
+ * Builds a project. A workspace runnable rather than the WorkspaceModifyOperation of org.eclipse.ui.ide, so the ant tasks also run in a headless workspace.
+ */
+public class ProjectBuildWorkspaceModifyOperation implements IWorkspaceRunnable {
 	private IProject project;
 	private int buildTypeInt;
 
@@ -36,8 +39,7 @@ public class ProjectBuildWorkspaceModifyOperation extends WorkspaceModifyOperati
 	 * @exception CoreException
 	 *                if the operation fails due to a CoreException
 	 */
-	@Override
-	protected void execute(IProgressMonitor monitor) throws CoreException {
+	public void run(IProgressMonitor monitor) throws CoreException {
 		String projectName = "unknown";
 		try {
 			projectName = project.getDescription().getName();
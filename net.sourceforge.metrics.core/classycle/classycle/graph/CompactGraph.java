@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package classycle.graph;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A directed graph of int vertices stored in compressed sparse row form: the heads of the arcs leaving vertex v are heads[offsets[v]] up to heads[offsets[v + 1]]. Uses a few bytes per arc instead of the objects and lists of
+ * {@link Vertex}, so that graphs with millions of arcs (type dependencies) can be analyzed.
+ * 
+ * @author Metrics2 contributors
+ */
+public class CompactGraph {
+
+	private final int size;
+	private final int[] offsets;
+	private final int[] heads;
+
+	/**
+	 * @param size
+	 *            number of vertices
+	 * @param offsets
+	 *            size + 1 offsets into heads, offsets[size] being the number of arcs
+	 * @param heads
+	 *            head vertex of each arc, grouped by tail vertex
+	 */
+	public CompactGraph(int size, int[] offsets, int[] heads) {
+		this.size = size;
+		this.offsets = offsets;
+		this.heads = heads;
+	}
+
+	/**
+	 * Create the compact form of the given graph. Vertex i of the result is graph[i], arcs to vertices not in the array are dropped.
+	 * 
+	 * @param graph
+	 * @return CompactGraph
+	 */
+	public static CompactGraph fromVertices(Vertex[] graph) {
+		Map<Vertex, Integer> index = new IdentityHashMap<Vertex, Integer>(graph.length * 2);
+		for (int i = 0; i < graph.length; i++) {
+			index.put(graph[i], Integer.valueOf(i));
+		}
+		int[] offsets = new int[graph.length + 1];
+		int arcs = 0;
+		for (int i = 0; i < graph.length; i++) {
+			offsets[i] = arcs;
+			arcs += graph[i].getNumberOfOutgoingArcs();
+		}
+		offsets[graph.length] = arcs;
+		int[] heads = new int[arcs];
+		int next = 0;
+		for (Vertex element : graph) {
+			for (int j = 0, n = element.getNumberOfOutgoingArcs(); j < n; j++) {
+				Integer head = index.get(element.getHeadVertex(j));
+				if (head != null) {
+					heads[next++] = head.intValue();
+				}
+			}
+		}
+		if (next < arcs) {
+			// some arcs left the graph, compact the rows
+			return fromVertices(graph, index, next);
+		}
+		return new CompactGraph(graph.length, offsets, heads);
+	}
+
+	private static CompactGraph fromVertices(Vertex[] graph, Map<Vertex, Integer> index, int arcs) {
+		int[] offsets = new int[graph.length + 1];
+		int[] heads = new int[arcs];
+		int next = 0;
+		for (int i = 0; i < graph.length; i++) {
+			offsets[i] = next;
+			for (int j = 0, n = graph[i].getNumberOfOutgoingArcs(); j < n; j++) {
+				Integer head = index.get(graph[i].getHeadVertex(j));
+				if (head != null) {
+					heads[next++] = head.intValue();
+				}
+			}
+		}
+		offsets[graph.length] = next;
+		return new CompactGraph(graph.length, offsets, heads);
+	}
+
+	/**
+	 * Create a {@link Vertex} graph with the same arcs. The rows must not contain duplicate arcs.
+	 * 
+	 * @param attributes
+	 *            the attributes of each vertex
+	 * @return AtomicVertex[]
+	 */
+	public AtomicVertex[] createVertices(Attributes[] attributes) {
+		AtomicVertex[] result = new AtomicVertex[size];
+		for (int v = 0; v < size; v++) {
+			result[v] = new AtomicVertex(attributes[v]);
+		}
+		for (int v = 0; v < size; v++) {
+			for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+				result[v].appendArcTo(result[heads[a]]);
+			}
+		}
+		return result;
+	}
+
+	/** Returns the number of vertices. */
+	public int size() {
+		return size;
+	}
+
+	/** Returns the number of arcs. */
+	public int getNumberOfArcs() {
+		return offsets[size];
+	}
+
+	/** Returns the index of the first arc leaving the vertex. */
+	public int getFirstArc(int vertex) {
+		return offsets[vertex];
+	}
+
+	/** Returns the index after the last arc leaving the vertex. */
+	public int getEndArc(int vertex) {
+		return offsets[vertex + 1];
+	}
+
+	/** Returns the head vertex of the arc. */
+	public int getHead(int arc) {
+		return heads[arc];
+	}
+
+	/**
+	 * Tarjan's algorithm without recursion, so deep graphs cannot overflow the stack. Components are numbered in the order they are completed, which is a reverse topological order of the condensation. Vertices are visited
+	 * and arcs followed in index order, so the result is the same as that of the recursive {@link StrongComponentProcessor}.
+	 * 
+	 * @return the strong components
+	 */
+	public Components calculateStrongComponents() {
+		int[] order = new int[size];
+		int[] low = new int[size];
+		int[] nextArc = new int[size];
+		int[] stack = new int[size];
+		int[] calls = new int[size];
+		BitSet onStack = new BitSet(size);
+		Components result = new Components(size);
+		int counter = 0;
+		int top = 0;
+		for (int v = 0; v < size; v++) {
+			order[v] = -1;
+		}
+		for (int root = 0; root < size; root++) {
+			if (order[root] != -1) {
+				continue;
+			}
+			int depth = 0;
+			order[root] = low[root] = counter++;
+			nextArc[root] = offsets[root];
+			stack[top++] = root;
+			onStack.set(root);
+			calls[depth++] = root;
+			while (depth > 0) {
+				int v = calls[depth - 1];
+				if (nextArc[v] < offsets[v + 1]) {
+					int w = heads[nextArc[v]++];
+					if (order[w] == -1) {
+						order[w] = low[w] = counter++;
+						nextArc[w] = offsets[w];
+						stack[top++] = w;
+						onStack.set(w);
+						calls[depth++] = w;
+					} else if (onStack.get(w) && (order[w] < low[v])) {
+						low[v] = order[w];
+					}
+				} else {
+					depth--;
+					if (low[v] == order[v]) {
+						int bottom = top - 1;
+						while (stack[bottom] != v) {
+							bottom--;
+						}
+						result.add(stack, bottom, top);
+						for (int i = bottom; i < top; i++) {
+							onStack.clear(stack[i]);
+						}
+						top = bottom;
+					}
+					if (depth > 0) {
+						int u = calls[depth - 1];
+						if (low[v] < low[u]) {
+							low[u] = low[v];
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The strong components of a CompactGraph. The members of each component are stored consecutively, in the order they were visited.
+	 */
+	public static class Components {
+
+		private int count;
+		private int[] component;
+		private int[] members;
+		private int[] starts;
+
+		Components(int size) {
+			component = new int[size];
+			members = new int[size];
+			starts = new int[size + 1];
+		}
+
+		void add(int[] stack, int from, int to) {
+			int start = starts[count];
+			for (int i = from; i < to; i++) {
+				component[stack[i]] = count;
+				members[start + i - from] = stack[i];
+			}
+			starts[++count] = start + to - from;
+		}
+
+		/** Returns the number of components. */
+		public int getCount() {
+			return count;
+		}
+
+		/** Returns the component containing the vertex. */
+		public int getComponent(int vertex) {
+			return component[vertex];
+		}
+
+		/** Returns the number of vertices in the component. */
+		public int getSize(int component) {
+			return starts[component + 1] - starts[component];
+		}
+
+		/** Returns the index'th vertex of the component. */
+		public int getMember(int component, int index) {
+			return members[starts[component] + index];
+		}
+	}
+}
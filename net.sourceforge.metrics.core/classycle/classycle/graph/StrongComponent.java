@@ -28,6 +28,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A strong component is a subgraph of a directed graph where every two vertices are mutually reachable.
@@ -74,9 +79,13 @@ public class StrongComponent extends Vertex {
 		}
 	}
 
+	/** Components with at least this many vertices calculate their attributes on several threads. */
+	public static final int PARALLEL_THRESHOLD = 256;
+
 	private final List<AtomicVertex> _vertices = new ArrayList<AtomicVertex>();
 	private boolean _active;
 	private int _longestWalk;
+	private boolean _calculated;
 
 	/**
 	 * Default constructor. The {@link Attributes} of a strong component will a <tt>null</tt> pointer.
@@ -91,60 +100,37 @@ public class StrongComponent extends Vertex {
 	}
 
 	/**
-	 * Calculates all geometric graph properties of this component. These properties can be obtained from <tt>getAttributes</tt> casted as {@link GraphAttributes}.
+	 * Calculates all geometric graph properties of this component. These properties can be obtained from <tt>getAttributes</tt> casted as {@link GraphAttributes}. Does nothing if they were calculated before.
+	 * <p>
+	 * Runs a breadth first search from every vertex, O(n * m) time and O(n + m) space per thread. Components of at least {@link #PARALLEL_THRESHOLD} vertices are searched on several threads.
 	 */
-	public void calculateAttributes() {
-		// Calculate the adjacency matrix
-		Map<AtomicVertex, Integer> indexMap = calculateIndexMap();
-		int n = getNumberOfVertices();
-		int[][] distances = new int[n][n];
-		for (int i = 0; i < n; i++) {
-			int[] row = distances[i];
-			AtomicVertex vertex = getVertex(i);
-			for (int j = 0; j < n; j++) {
-				row[j] = Integer.MAX_VALUE / 2;
-			}
-			for (int j = 0, m = vertex.getNumberOfOutgoingArcs(); j < m; j++) {
-				Integer index = indexMap.get(vertex.getHeadVertex(j));
-				if (index != null) {
-					row[index.intValue()] = 1;
-				}
-			}
+	public synchronized void calculateAttributes() {
+		if (_calculated) {
+			return;
 		}
-
-		// Floyd-Warshall algorithm for the distances
-		for (int k = 0; k < n; k++) {
-			for (int i = 0; i < n; i++) {
-				for (int j = 0; j < n; j++) {
-					if (distances[i][k] + distances[k][j] < distances[i][j]) {
-						distances[i][j] = distances[i][k] + distances[k][j];
-					}
-				}
-			}
-		}
-
-		// Calculate girth and eccentricity
-		GeometryAttributes attributes = (GeometryAttributes) getAttributes();
-		int girth = Integer.MAX_VALUE;
+		int n = getNumberOfVertices();
+		int[] offsets = new int[n + 1];
+		int[] heads = calculateArcs(offsets);
 		int[] eccentricities = new int[n];
-		for (int i = 0; i < n; i++) {
-			girth = Math.min(girth, distances[i][i]);
-			eccentricities[i] = 0;
-			for (int j = 0; j < n; j++) {
-				if (i != j) {
-					eccentricities[i] = Math.max(eccentricities[i], distances[i][j]);
-				}
-			}
+		int[] girths = new int[n];
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(), n / (PARALLEL_THRESHOLD / 2));
+		if ((n < PARALLEL_THRESHOLD) || (threads <= 1)) {
+			new Search(offsets, heads, eccentricities, girths, 0, n).run();
+		} else {
+			searchInParallel(offsets, heads, eccentricities, girths, threads);
 		}
-		attributes.setGirth(girth);
 
-		// Calculate radius and diameter
+		// Calculate girth, radius and diameter
+		GeometryAttributes attributes = (GeometryAttributes) super.getAttributes();
+		int girth = Integer.MAX_VALUE;
 		int radius = Integer.MAX_VALUE;
 		int diameter = 0;
 		for (int i = 0; i < n; i++) {
+			girth = Math.min(girth, girths[i]);
 			radius = Math.min(radius, eccentricities[i]);
 			diameter = Math.max(diameter, eccentricities[i]);
 		}
+		attributes.setGirth(girth);
 		attributes.setRadius(radius);
 		attributes.setDiameter(diameter);
 
@@ -154,6 +140,135 @@ public class StrongComponent extends Vertex {
 				attributes.addVertex(getVertex(i));
 			}
 		}
+		_calculated = true;
+	}
+
+	/**
+	 * The arcs between vertices of this component in compressed sparse row form
+	 * 
+	 * @param offsets
+	 *            filled with the offsets of each vertex's arcs
+	 * @return heads
+	 */
+	private int[] calculateArcs(int[] offsets) {
+		Map<AtomicVertex, Integer> indexMap = calculateIndexMap();
+		int n = getNumberOfVertices();
+		int[] heads = new int[16];
+		int arcs = 0;
+		for (int i = 0; i < n; i++) {
+			offsets[i] = arcs;
+			AtomicVertex vertex = getVertex(i);
+			for (int j = 0, m = vertex.getNumberOfOutgoingArcs(); j < m; j++) {
+				Integer index = indexMap.get(vertex.getHeadVertex(j));
+				if (index != null) {
+					if (arcs == heads.length) {
+						int[] grown = new int[arcs * 2];
+						System.arraycopy(heads, 0, grown, 0, arcs);
+						heads = grown;
+					}
+					heads[arcs++] = index.intValue();
+				}
+			}
+		}
+		offsets[n] = arcs;
+		return heads;
+	}
+
+	private void searchInParallel(int[] offsets, int[] heads, int[] eccentricities, int[] girths, int threads) {
+		int n = eccentricities.length;
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Strong component attributes");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			List<Future<?>> searches = new ArrayList<Future<?>>();
+			// more ranges than threads, so a thread finishing early takes another
+			int chunk = Math.max(1, n / (threads * 4));
+			for (int from = 0; from < n; from += chunk) {
+				searches.add(executor.submit(new Search(offsets, heads, eccentricities, girths, from, Math.min(n, from + chunk))));
+			}
+			for (Future<?> next : searches) {
+				next.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted calculating strong component attributes", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error calculating strong component attributes", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Breadth first searches from a range of source vertices. For each source s it stores the eccentricity (the largest distance from s, Integer.MAX_VALUE / 2 if some vertex is unreachable) and the length of the
+	 * shortest cycle through s (Integer.MAX_VALUE / 2 if there is none).
+	 */
+	private static class Search implements Runnable {
+
+		private static final int INFINITE = Integer.MAX_VALUE / 2;
+
+		private int[] offsets;
+		private int[] heads;
+		private int[] eccentricities;
+		private int[] girths;
+		private int from;
+		private int to;
+
+		Search(int[] offsets, int[] heads, int[] eccentricities, int[] girths, int from, int to) {
+			this.offsets = offsets;
+			this.heads = heads;
+			this.eccentricities = eccentricities;
+			this.girths = girths;
+			this.from = from;
+			this.to = to;
+		}
+
+		public void run() {
+			int n = eccentricities.length;
+			int[] distances = new int[n];
+			int[] queue = new int[n];
+			for (int source = from; source < to; source++) {
+				for (int i = 0; i < n; i++) {
+					distances[i] = -1;
+				}
+				distances[source] = 0;
+				queue[0] = source;
+				int head = 0;
+				int tail = 1;
+				int girth = INFINITE;
+				int eccentricity = 0;
+				while (head < tail) {
+					int u = queue[head++];
+					int d = distances[u];
+					eccentricity = d;
+					for (int a = offsets[u]; a < offsets[u + 1]; a++) {
+						int v = heads[a];
+						if (v == source) {
+							girth = Math.min(girth, d + 1);
+						} else if (distances[v] == -1) {
+							distances[v] = d + 1;
+							queue[tail++] = v;
+						}
+					}
+				}
+				eccentricities[source] = (tail < n) ? INFINITE : eccentricity;
+				girths[source] = girth;
+			}
+		}
+	}
+
+	/**
+	 * Returns the geometry attributes, calculating them first if necessary.
+	 */
+	@Override
+	public Attributes getAttributes() {
+		calculateAttributes();
+		return super.getAttributes();
 	}
 
 	private Map<AtomicVertex, Integer> calculateIndexMap() {
@@ -176,6 +291,13 @@ public class StrongComponent extends Vertex {
 		_vertices.add(0, vertex);
 	}
 
+	/**
+	 * Adds the specified vertex at the end of the list of vertices.
+	 */
+	void appendVertex(AtomicVertex vertex) {
+		_vertices.add(vertex);
+	}
+
 	/**
 	 * Reset this component. Calls reset of the superclass. Sets the activity flag to false and the longest walk to -1.
 	 */
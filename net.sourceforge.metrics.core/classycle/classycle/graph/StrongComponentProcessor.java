@@ -24,25 +24,31 @@
  */
 package classycle.graph;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.Stack;
-import java.util.Map.Entry;
-
 /**
- * A processor which extracts the strong components of a directed graph. A strong component is a maximal strongly connected subgraph of a directed graph. The implementation is based on Tarjan's algorithm.
+ * A processor which extracts the strong components of a directed graph. A strong component is a maximal strongly connected subgraph of a directed graph. The implementation is based on Tarjan's algorithm, run without
+ * recursion on a {@link CompactGraph}.
  * 
  * @author Franz-Josef Elmer
  */
-public class StrongComponentProcessor extends GraphProcessor {
-	private int _counter;
-	private Stack<AtomicVertex> _vertexStack = new Stack<AtomicVertex>();
-	private List<StrongComponent> _strongComponents = new ArrayList<StrongComponent>();
-	private Map<AtomicVertex, StrongComponent> _vertexToComponents = new HashMap<AtomicVertex, StrongComponent>();
+public class StrongComponentProcessor {
+	private final boolean _lazyAttributes;
 	private StrongComponent[] _graph;
+	private int[] _componentIndices;
+
+	/**
+	 * Creates a processor calculating the attributes of all components it finds.
+	 */
+	public StrongComponentProcessor() {
+		this(false);
+	}
+
+	/**
+	 * @param lazyAttributes
+	 *            if true the attributes of a component are only calculated when they are first asked for, see {@link StrongComponent#getAttributes()}
+	 */
+	public StrongComponentProcessor(boolean lazyAttributes) {
+		_lazyAttributes = lazyAttributes;
+	}
 
 	/**
 	 * Returns the result of {@link deepSearchFirst}.
@@ -51,86 +57,74 @@ public class StrongComponentProcessor extends GraphProcessor {
 		return _graph;
 	}
 
-	@Override
-	protected void initializeProcessing(Vertex[] graph) {
-		_counter = 0;
-		_vertexStack.clear();
-		_strongComponents.clear();
-		_vertexToComponents.clear();
-	}
-
 	/**
-	 * @throws IllegalArgumentException
-	 *             if <tt>vertex</tt> is not an instance of {@link AtomicVertex} .
+	 * Returns the index in {@link #getStrongComponents()} of the component containing the index'th vertex of the processed graph.
 	 */
-	@Override
-	protected void processBefore(Vertex vertex) {
-		final AtomicVertex atomicVertex = castAsAtomicVertex(vertex);
-		atomicVertex.setOrder(_counter);
-		atomicVertex.setLow(_counter++);
-		_vertexStack.push(atomicVertex);
+	public int getComponentIndex(int vertex) {
+		return _componentIndices[vertex];
 	}
 
 	/**
+	 * Extracts the strong components of the specified graph. Arcs to vertices not in the array are ignored.
+	 * 
 	 * @throws IllegalArgumentException
-	 *             if <tt>tail</tt> and <tt>head</tt> are not an instances of {@link AtomicVertex}.
+	 *             if a vertex is not an instance of {@link AtomicVertex} .
 	 */
-	@Override
-	protected void processArc(Vertex tail, Vertex head) {
-		final AtomicVertex t = castAsAtomicVertex(tail);
-		final AtomicVertex h = castAsAtomicVertex(head);
-		if (h.isGraphVertex()) {
-			if (!h.isVisited()) {
-				process(h);
-				t.setLow(Math.min(t.getLow(), h.getLow()));
-			} else if (h.getOrder() < t.getOrder() && _vertexStack.contains(h)) {
-				t.setLow(Math.min(t.getLow(), h.getOrder()));
-			}
+	public void deepSearchFirst(Vertex[] graph) {
+		AtomicVertex[] vertices = new AtomicVertex[graph.length];
+		for (int i = 0; i < graph.length; i++) {
+			vertices[i] = castAsAtomicVertex(graph[i]);
+			vertices[i].reset();
 		}
+		process(vertices, CompactGraph.fromVertices(graph));
 	}
 
 	/**
-	 * Processes the specified vertex after all its outgoing arcs are processed.
+	 * Extracts the strong components of a graph already in compact form.
 	 * 
-	 * @throws IllegalArgumentException
-	 *             if <tt>vertex</tt> is not an instance of {@link AtomicVertex} .
+	 * @param vertices
+	 *            the vertex for each index of the compact graph
+	 * @param graph
 	 */
-	@Override
-	protected void processAfter(Vertex vertex) {
-		final AtomicVertex atomicVertex = castAsAtomicVertex(vertex);
-		if (atomicVertex.getLow() == atomicVertex.getOrder()) {
+	public void process(AtomicVertex[] vertices, CompactGraph graph) {
+		CompactGraph.Components components = graph.calculateStrongComponents();
+		int count = components.getCount();
+		_graph = new StrongComponent[count];
+		_componentIndices = new int[graph.size()];
+		for (int c = 0; c < count; c++) {
 			StrongComponent component = new StrongComponent();
-			while (!_vertexStack.isEmpty() && (_vertexStack.peek()).getOrder() >= atomicVertex.getOrder()) {
-				AtomicVertex vertexOfComponent = _vertexStack.pop();
-				component.addVertex(vertexOfComponent);
-				_vertexToComponents.put(vertexOfComponent, component);
+			for (int i = 0, n = components.getSize(c); i < n; i++) {
+				component.appendVertex(vertices[components.getMember(c, i)]);
+			}
+			_graph[c] = component;
+		}
+		for (int v = 0; v < _componentIndices.length; v++) {
+			_componentIndices[v] = components.getComponent(v);
+		}
+		addArcs(graph, components);
+		if (!_lazyAttributes) {
+			for (StrongComponent element : _graph) {
+				element.calculateAttributes();
 			}
-			_strongComponents.add(component);
 		}
 	}
 
 	/**
 	 * Adds all arcs to the strong components. There is an arc from a strong component to another one if there is at least one arc from a vertex of one component to the other one.
 	 */
-	@Override
-	protected void finishProcessing(Vertex[] graph) {
-		_graph = new StrongComponent[_strongComponents.size()];
-		for (int i = 0; i < _graph.length; i++) {
-			_graph[i] = _strongComponents.get(i);
-			_graph[i].calculateAttributes();
+	private void addArcs(CompactGraph graph, CompactGraph.Components components) {
+		int[] lastTail = new int[_graph.length];
+		for (int c = 0; c < lastTail.length; c++) {
+			lastTail[c] = -1;
 		}
-
-		Iterator<Entry<AtomicVertex, StrongComponent>> iterEntry = _vertexToComponents.entrySet().iterator();
-		while (iterEntry.hasNext()) {
-			Entry<AtomicVertex, StrongComponent> entry = iterEntry.next(); 
-			AtomicVertex vertex = entry.getKey();
-			StrongComponent tail = entry.getValue();
-			for (int i = 0, n = vertex.getNumberOfOutgoingArcs(); i < n; i++) {
-				AtomicVertex h = (AtomicVertex) vertex.getHeadVertex(i);
-				if (h.isGraphVertex()) {
-					StrongComponent head = _vertexToComponents.get(h);
-					if (head != tail) {
-						tail.addOutgoingArcTo(head);
+		for (int tail = 0; tail < _graph.length; tail++) {
+			for (int i = 0, n = components.getSize(tail); i < n; i++) {
+				int v = components.getMember(tail, i);
+				for (int a = graph.getFirstArc(v), end = graph.getEndArc(v); a < end; a++) {
+					int head = components.getComponent(graph.getHead(a));
+					if ((head != tail) && (lastTail[head] != tail)) {
+						lastTail[head] = tail;
+						_graph[tail].appendArcTo(_graph[head]);
 					}
 				}
 			}
@@ -150,4 +144,4 @@ public class StrongComponentProcessor extends GraphProcessor {
 		throw new IllegalArgumentException(vertex + " is not an instance of AtomicVertex");
 		/* } */
 	}
-} // class
\ No newline at end of file
+} // class
@@ -80,6 +80,14 @@ public class Vertex {
 		}
 	}
 
+	/**
+	 * Adds an arc to the specified vertex without looking for an existing one. For builders that know the arcs are distinct, avoids the linear search of {@link #addOutgoingArcTo}.
+	 */
+	void appendArcTo(Vertex headVertex) {
+		_heads.add(headVertex);
+		headVertex._tails.add(this);
+	}
+
 	/**
 	 * Returns the number of incoming arcs. This is equivalent to the number of tail vertices.
 	 */
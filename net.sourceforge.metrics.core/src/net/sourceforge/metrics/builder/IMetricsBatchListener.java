@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.builder;
+
+/**
+ * A progress listener that receives the pending and completed events in batches. Batch listeners are not called for every single pending and completed event, which lets them update a user interface at a fixed rate no
+ * matter how fast the calculations are.
+ * 
+ * @author Metrics2 contributors
+ */
+public interface IMetricsBatchListener extends IMetricsProgressListener {
+
+	/**
+	 * announces the calculations started and completed since the previous batch
+	 * 
+	 * @param batch
+	 */
+	public void progress(ProgressBatch batch);
+
+}
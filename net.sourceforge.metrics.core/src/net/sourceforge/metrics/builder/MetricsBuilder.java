@@ -32,7 +32,10 @@ import net.sourceforge.metrics.core.Constants;
 import net.sourceforge.metrics.core.Log;
 import net.sourceforge.metrics.core.sources.AbstractMetricSource;
 import net.sourceforge.metrics.core.sources.Cache;
+import net.sourceforge.metrics.core.sources.ContentCache;
 import net.sourceforge.metrics.core.sources.Dispatcher;
+import net.sourceforge.metrics.core.sources.ResultPack;
+import net.sourceforge.metrics.internal.export.SnapshotStore;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
@@ -47,6 +50,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaModelMarker;
 import org.eclipse.jdt.core.IJavaProject;
@@ -72,6 +76,9 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 
 	private static Boolean headless = null;
 
+	// false during a full (clean) build, which must recalculate everything
+	private boolean reuseStoredResults = true;
+
 	public MetricsBuilder() {
 		super();
 	}
@@ -112,6 +119,11 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 			// Log.logMessage("New build started for " +
 			// currentProject.getElementName());
 			startCalculatorThread();
+			reuseStoredResults = (kind != IncrementalProjectBuilder.FULL_BUILD);
+			if (reuseStoredResults) {
+				// pick up results shared by other workspaces (e.g. a CI build)
+				ResultPack.seed();
+			}
 			if (kind == IncrementalProjectBuilder.FULL_BUILD) {
 				fullBuild(currentProject, monitor);
 			} else {
@@ -186,6 +198,43 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 		return headless.booleanValue();
 	}
 
+	/**
+	 * Calculate in the calling thread (true) or queue the calculations for the background thread (false), regardless of the command line. Used by the command line application.
+	 * 
+	 * @param value
+	 */
+	public static void setHeadless(boolean value) {
+		headless = Boolean.valueOf(value);
+	}
+
+	/**
+	 * Calculate the metrics of all java resources in the project in the calling thread, outside of a workspace build. Unlike a build this only needs the project itself as scheduling rule, so several projects can be
+	 * calculated at the same time (see the metrics.build Ant task). Unless full is true, compilation units with unchanged content are restored instead of recalculated.
+	 * 
+	 * @param project
+	 * @param full
+	 *            true to recalculate everything
+	 * @param monitor
+	 * @return false if the project was skipped because it has compile errors
+	 * @throws CoreException
+	 */
+	public static boolean calculate(IJavaProject project, boolean full, IProgressMonitor monitor) throws CoreException {
+		MetricsBuilder builder = new MetricsBuilder();
+		if (builder.hasErrors(project.getProject())) {
+			return false;
+		}
+		builder.reuseStoredResults = !full;
+		if (!full) {
+			ResultPack.seed();
+		}
+		MetricsBuildVisitor v = builder.new MetricsBuildVisitor(monitor);
+		Cache.singleton.clear(project.getElementName());
+		project.getProject().accept(v);
+		builder.checkCancel(monitor);
+		v.executeHeadless();
+		return true;
+	}
+
 	/**
 	 * Do a full build and recalculate metrics for all java resources in the project
 	 * 
@@ -247,12 +296,12 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 		 * @param stack
 		 */
 		private void pushChangedCommands(Stack<Command> stack) {
-			stack.push(new ChangedCommand(element));
+			stack.push(new ChangedCommand(element, reuseStoredResults));
 			if (defaultSourceFolder != null) {
-				stack.push(new ChangedCommand(defaultSourceFolder));
+				stack.push(new ChangedCommand(defaultSourceFolder, reuseStoredResults));
 			}
 			if (defaultPackage != null) {
-				stack.push(new ChangedCommand(defaultPackage));
+				stack.push(new ChangedCommand(defaultPackage, reuseStoredResults));
 			}
 		}
 
@@ -428,10 +477,14 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 				}
 				try {
 					next.execute();
+					if (next.getElement().getElementType() == IJavaElement.JAVA_PROJECT) {
+						projectCalculated((IJavaProject) next.getElement(), true);
+					}
 				} catch (Throwable t) {
 					Log.logError("(headless) error calculating metrics for " + next.getHandleIdentifier(), t);
 				}
 			}
+			Log.logMessage(ContentCache.singleton.getStatistics());
 		}
 
 		/**
@@ -524,6 +577,29 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 			return null;
 		}
 
+		/**
+		 * calculate the metrics for the element. For a compilation unit, first try to restore the metrics stored for identical content
+		 * 
+		 * @param reuse
+		 *            false to force a recalculation
+		 * @return AbstractMetricSource
+		 */
+		protected AbstractMetricSource calculate(boolean reuse) {
+			if (element.getElementType() != IJavaElement.COMPILATION_UNIT) {
+				return Dispatcher.calculateAbstractMetricSource(element);
+			}
+			ICompilationUnit unit = (ICompilationUnit) element;
+			String key = ContentCache.singleton.getKey(unit);
+			if (reuse && ContentCache.singleton.restore(unit, key)) {
+				return Cache.singleton.get(element);
+			}
+			AbstractMetricSource result = Dispatcher.calculateAbstractMetricSource(element);
+			if (!Thread.currentThread().isInterrupted()) {
+				ContentCache.singleton.store(unit, key);
+			}
+			return result;
+		}
+
 		public void removeMetricsFromCache() {
 			if (element.getElementType() == IJavaElement.COMPILATION_UNIT) {
 				Cache.singleton.removeSubtree(element.getHandleIdentifier());
@@ -545,14 +621,17 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 	 */
 	static class ChangedCommand extends Command {
 
-		ChangedCommand(IJavaElement element) {
+		private boolean reuse;
+
+		ChangedCommand(IJavaElement element, boolean reuse) {
 			super(element);
+			this.reuse = reuse;
 		}
 
 		@Override
 		void execute() {
 			removeMetricsFromCache();
-			setResult(Dispatcher.calculateAbstractMetricSource(element));
+			setResult(calculate(reuse));
 		}
 
 	}
@@ -581,7 +660,7 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 		@Override
 		void execute() {
 			removeMetricsFromCache();
-			setResult(Dispatcher.calculateAbstractMetricSource(element));
+			setResult(calculate(true));
 		}
 
 		@Override
@@ -721,6 +800,22 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 		currentProjects.clear();
 	}
 
+	/**
+	 * The post-build hook. Called once the metrics of a project are complete by every build path: the calculator thread of workspace builds, and executeHeadless for headless builds (the Ant tasks, MetricsApplication)
+	 * and calculate (ParallelCalculation).
+	 * 
+	 * @param project
+	 * @param headless
+	 *            true if called on the thread that calculated the project, which may end the application when it returns
+	 */
+	private static void projectCalculated(IJavaProject project, boolean headless) {
+		if (headless) {
+			SnapshotStore.store(project, new NullProgressMonitor());
+		} else {
+			SnapshotStore.schedule(project);
+		}
+	}
+
 	public static boolean isBuilding(String projectHandle) {
 		synchronized (currentProjects) {
 			return currentProjects.contains(projectHandle);
@@ -788,6 +883,7 @@ public class MetricsBuilder extends IncrementalProjectBuilder {
 									currentProjects.remove(currentElm.getHandleIdentifier());
 								}
 								notifier.fireProjectCompleted((IJavaProject) currentElm, false);
+								projectCalculated((IJavaProject) currentElm, false);
 							}
 						}
 					}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Calculates the metrics of several projects on a pool of threads (see MetricsBuilder.calculate). Each calculation holds only its own project as scheduling rule, and a project is started only after the projects it
+ * references (within the set) are done, so independent projects run in parallel. Used by the metrics.build Ant task and the command line application.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ParallelCalculation {
+
+	/**
+	 * Notified on the calling thread of run() as each project completes
+	 */
+	public interface IListener {
+
+		/**
+		 * @param project
+		 * @param time
+		 *            wall time of the calculation in milliseconds
+		 * @param skipped
+		 *            true if the project has compile errors
+		 * @param error
+		 *            the error message, null if the calculation succeeded
+		 */
+		void calculated(IProject project, long time, boolean skipped, String error);
+	}
+
+	private List<IProject> projects;
+	private boolean full;
+	private int threads;
+
+	/**
+	 * @param projects
+	 * @param full
+	 *            true to recalculate everything
+	 * @param threads
+	 *            number of projects calculated at the same time
+	 */
+	public ParallelCalculation(List<IProject> projects, boolean full, int threads) {
+		this.projects = projects;
+		this.full = full;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * @return all projects, referenced projects before the projects referencing them (except within cycles)
+	 */
+	public List<IProject> getOrder() {
+		Schedule schedule = new Schedule(projects);
+		List<IProject> result = new ArrayList<IProject>();
+		while (!schedule.isDone()) {
+			List<IProject> ready = schedule.takeReady(true);
+			for (IProject next : ready) {
+				schedule.completed(next);
+			}
+			result.addAll(ready);
+		}
+		return result;
+	}
+
+	/**
+	 * Calculate the projects, submitting each project once the projects it references are done
+	 * 
+	 * @param listener
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public void run(IListener listener) throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Metrics project build");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		CompletionService<Result> completion = new ExecutorCompletionService<Result>(executor);
+		Schedule schedule = new Schedule(projects);
+		try {
+			int running = 0;
+			while (!schedule.isDone()) {
+				for (IProject next : schedule.takeReady(running == 0)) {
+					completion.submit(new Calculation(next));
+					running++;
+				}
+				Result result = completion.take().get();
+				running--;
+				schedule.completed(result.project);
+				listener.calculated(result.project, result.time, result.skipped, result.error);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The project reference graph restricted to the projects being calculated
+	 */
+	static class Schedule {
+
+		private List<IProject> waiting = new ArrayList<IProject>();
+		private Map<IProject, Integer> pending = new HashMap<IProject, Integer>();
+		private Map<IProject, List<IProject>> dependents = new HashMap<IProject, List<IProject>>();
+		private int remaining;
+
+		Schedule(List<IProject> projects) {
+			remaining = projects.size();
+			for (IProject next : projects) {
+				dependents.put(next, new ArrayList<IProject>());
+			}
+			for (IProject next : projects) {
+				int count = 0;
+				for (IProject referenced : getReferencedProjects(next)) {
+					if (dependents.containsKey(referenced) && (referenced != next)) {
+						dependents.get(referenced).add(next);
+						count++;
+					}
+				}
+				pending.put(next, new Integer(count));
+				waiting.add(next);
+			}
+		}
+
+		private static IProject[] getReferencedProjects(IProject project) {
+			try {
+				return project.getReferencedProjects();
+			} catch (CoreException e) {
+				return new IProject[] {};
+			}
+		}
+
+		/**
+		 * @param idle
+		 *            true if nothing is running, a project in a reference cycle is then started anyway
+		 * @return the projects whose referenced projects are all done
+		 */
+		List<IProject> takeReady(boolean idle) {
+			List<IProject> result = new ArrayList<IProject>();
+			for (IProject next : waiting) {
+				if (pending.get(next).intValue() == 0) {
+					result.add(next);
+				}
+			}
+			if (result.isEmpty() && idle && !waiting.isEmpty()) {
+				result.add(waiting.get(0));
+			}
+			waiting.removeAll(result);
+			return result;
+		}
+
+		void completed(IProject project) {
+			remaining--;
+			for (IProject next : dependents.get(project)) {
+				pending.put(next, new Integer(pending.get(next).intValue() - 1));
+			}
+		}
+
+		boolean isDone() {
+			return remaining == 0;
+		}
+	}
+
+	private static class Result {
+		IProject project;
+		long time;
+		boolean skipped;
+		String error;
+	}
+
+	/**
+	 * Calculates one project, holding the project as scheduling rule
+	 */
+	private class Calculation implements Callable<Result> {
+
+		private IProject project;
+
+		Calculation(IProject project) {
+			this.project = project;
+		}
+
+		public Result call() throws Exception {
+			final Result result = new Result();
+			result.project = project;
+			long start = System.currentTimeMillis();
+			final IJavaProject javaProject = JavaCore.create(project);
+			IWorkspace workspace = ResourcesPlugin.getWorkspace();
+			try {
+				workspace.run(new IWorkspaceRunnable() {
+
+					public void run(IProgressMonitor monitor) throws CoreException {
+						result.skipped = !MetricsBuilder.calculate(javaProject, full, monitor);
+					}
+				}, project, IWorkspace.AVOID_UPDATE, new NullProgressMonitor());
+			} catch (Throwable e) {
+				result.error = e.getMessage();
+			}
+			result.time = System.currentTimeMillis() - start;
+			return result;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.core.IJavaElement;
+
+/**
+ * The pending and completed events of a short period, coalesced by the ProgressQueue. A batch is handed to the listeners once it is complete and does not change afterwards.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ProgressBatch {
+
+	private long startTime = System.currentTimeMillis();
+	private int pendingCount;
+	private IJavaElement latestPending;
+	private List<IJavaElement> completed = new ArrayList<IJavaElement>();
+	private List<Object> data = new ArrayList<Object>();
+
+	ProgressBatch() {
+	}
+
+	void addPending(IJavaElement element) {
+		pendingCount++;
+		latestPending = element;
+	}
+
+	void addCompleted(IJavaElement element, Object result) {
+		completed.add(element);
+		data.add(result);
+	}
+
+	/**
+	 * @return time the first event of this batch was fired
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return number of calculations started in this batch
+	 */
+	public int getPendingCount() {
+		return pendingCount;
+	}
+
+	/**
+	 * @return the element whose calculation started last, null if none
+	 */
+	public IJavaElement getLatestPending() {
+		return latestPending;
+	}
+
+	/**
+	 * @return number of calculations completed in this batch
+	 */
+	public int getCompletedCount() {
+		return completed.size();
+	}
+
+	/**
+	 * @param index
+	 *            in order of completion
+	 * @return the completed element
+	 */
+	public IJavaElement getCompleted(int index) {
+		return completed.get(index);
+	}
+
+	/**
+	 * @param index
+	 *            in order of completion
+	 * @return the result of the completed calculation
+	 */
+	public Object getData(int index) {
+		return data.get(index);
+	}
+
+	/**
+	 * @return the element completed last, null if none
+	 */
+	public IJavaElement getLatestCompleted() {
+		return completed.isEmpty() ? null : completed.get(completed.size() - 1);
+	}
+
+	/**
+	 * @param element
+	 * @return the latest result for the element if it was completed in this batch, null otherwise
+	 */
+	public Object getData(IJavaElement element) {
+		for (int i = completed.size() - 1; i >= 0; i--) {
+			if (completed.get(i).equals(element)) {
+				return data.get(i);
+			}
+		}
+		return null;
+	}
+}
@@ -34,6 +34,9 @@ import org.eclipse.jdt.core.IJavaProject;
 
 /**
  * Decouples the calculation thread from the others. Internal use only
+ * <p>
+ * Pending and completed events are not queued one by one but collected in a ProgressBatch, delivered when it is BATCH_INTERVAL ms old or holds BATCH_SIZE completions, and before any other event. Batch listeners receive
+ * the batch, other listeners all its completed events and the latest pending one.
  * 
  * @author Frank Sauer
  */
@@ -41,11 +44,16 @@ public class ProgressQueue extends LinkedList<ProgressQueueCommand> {
 
 	private static final long serialVersionUID = 1L;
 
+	public static final long BATCH_INTERVAL = 100;
+	public static final int BATCH_SIZE = 500;
+
 	private boolean paused;
 	private Collection<Command> items;
 	private List<IMetricsProgressListener> listeners = new ArrayList<IMetricsProgressListener>();
 	private Semaphore sem = new Semaphore(0);
 	private Thread notifier = new NotifierThread();
+	// collects pending and completed events until delivered, null if there were none since
+	private ProgressBatch batch;
 
 	public ProgressQueue(Collection<Command> c) {
 		this.items = c;
@@ -78,11 +86,38 @@ public class ProgressQueue extends LinkedList<ProgressQueueCommand> {
 	}
 
 	public void firePending(IJavaElement element) {
-		queue(new PendingCommand(element));
+		synchronized (this) {
+			if (!paused) {
+				getBatch().addPending(element);
+			}
+		}
 	}
 
 	public void fireCompleted(IJavaElement element, Object data) {
-		queue(new CompletedCommand(element, data));
+		synchronized (this) {
+			if (!paused) {
+				ProgressBatch b = getBatch();
+				b.addCompleted(element, data);
+				if (b.getCompletedCount() >= BATCH_SIZE) {
+					// full, deliver now
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Start a new batch, and queue its delivery, unless one is open. Caller must hold the lock.
+	 * 
+	 * @return the open batch
+	 */
+	private ProgressBatch getBatch() {
+		if (batch == null) {
+			batch = new ProgressBatch();
+			addLast(new BatchCommand(batch));
+			sem.V();
+		}
+		return batch;
 	}
 
 	public void fireProjectCompleted(IJavaProject project, boolean aborted) {
@@ -116,6 +151,8 @@ public class ProgressQueue extends LinkedList<ProgressQueueCommand> {
 			if (command.isResume()) {
 				paused = false;
 			}
+			// events fired after this command must be delivered after it
+			closeBatch();
 			if (!paused) {
 				addLast(command);
 			}
@@ -167,39 +204,58 @@ public class ProgressQueue extends LinkedList<ProgressQueueCommand> {
 		}
 	}
 
-	private class PendingCommand extends ProgressQueueCommand {
-
-		private IJavaElement element;
-
-		PendingCommand(IJavaElement element) {
-			this.element = element;
-		}
-
-		@Override
-		void execute() {
-			for (Object element2 : listeners) {
-				IMetricsProgressListener next = (IMetricsProgressListener) element2;
-				next.pending(element);
-			}
+	/**
+	 * Stop adding events to the open batch and wake up its delivery. Caller must hold the lock.
+	 */
+	private void closeBatch() {
+		if (batch != null) {
+			batch = null;
+			notifyAll();
 		}
 	}
 
-	private class CompletedCommand extends ProgressQueueCommand {
+	/**
+	 * Waits until its batch is due, then delivers it
+	 */
+	private class BatchCommand extends ProgressQueueCommand {
 
-		private Object data;
+		private ProgressBatch events;
 
-		private IJavaElement element;
-
-		CompletedCommand(IJavaElement element, Object data) {
-			this.element = element;
-			this.data = data;
+		BatchCommand(ProgressBatch events) {
+			this.events = events;
 		}
 
 		@Override
 		void execute() {
-			for (Object element2 : listeners) {
-				IMetricsProgressListener next = (IMetricsProgressListener) element2;
-				next.completed(element, data);
+			synchronized (ProgressQueue.this) {
+				try {
+					long due = events.getStartTime() + BATCH_INTERVAL;
+					long now = System.currentTimeMillis();
+					while ((batch == events) && (events.getCompletedCount() < BATCH_SIZE) && (now < due)) {
+						ProgressQueue.this.wait(due - now);
+						now = System.currentTimeMillis();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if (batch == events) {
+					batch = null;
+				}
+			}
+			IJavaElement pending = events.getLatestPending();
+			boolean running = (pending != null) && !pending.equals(events.getLatestCompleted());
+			for (Object element : listeners) {
+				IMetricsProgressListener next = (IMetricsProgressListener) element;
+				if (next instanceof IMetricsBatchListener) {
+					((IMetricsBatchListener) next).progress(events);
+				} else {
+					for (int i = 0; i < events.getCompletedCount(); i++) {
+						next.completed(events.getCompleted(i), events.getData(i));
+					}
+					if (running) {
+						next.pending(pending);
+					}
+				}
 			}
 		}
 	}
@@ -287,6 +343,7 @@ public class ProgressQueue extends LinkedList<ProgressQueueCommand> {
 	public void clear() {
 		synchronized (this) {
 			super.clear();
+			closeBatch();
 			sem.reset();
 		}
 	}
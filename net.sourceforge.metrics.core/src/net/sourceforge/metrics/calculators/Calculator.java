@@ -25,10 +25,9 @@ import net.sourceforge.metrics.core.Constants;
 import net.sourceforge.metrics.core.ICalculator;
 import net.sourceforge.metrics.core.Metric;
 import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.MetricsPreferences;
 import net.sourceforge.metrics.core.sources.AbstractMetricSource;
 
-import org.eclipse.jface.preference.IPreferenceStore;
-
 /**
  * Abstract base class for all metrics calculators. Real calculators must implement the calculate method and a no argument default constructor.
  * 
@@ -99,7 +98,7 @@ public abstract class Calculator implements Constants, ICalculator {
 		return num / den;
 	}
 
-	protected static IPreferenceStore getPreferences() {
-		return MetricsPlugin.getDefault().getPreferenceStore();
+	protected static MetricsPreferences getPreferences() {
+		return MetricsPlugin.getDefault().getPreferences();
 	}
 }
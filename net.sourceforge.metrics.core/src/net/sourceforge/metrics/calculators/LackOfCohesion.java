@@ -23,6 +23,7 @@ package net.sourceforge.metrics.calculators;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import net.sourceforge.metrics.core.Constants;
@@ -30,6 +31,8 @@ import net.sourceforge.metrics.core.Log;
 import net.sourceforge.metrics.core.Metric;
 import net.sourceforge.metrics.core.sources.AbstractMetricSource;
 
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IMethod;
@@ -39,18 +42,15 @@ import org.eclipse.jdt.core.ToolFactory;
 import org.eclipse.jdt.core.compiler.IScanner;
 import org.eclipse.jdt.core.compiler.ITerminalSymbols;
 import org.eclipse.jdt.core.compiler.InvalidInputException;
-import org.eclipse.jface.util.IPropertyChangeListener;
-import org.eclipse.jface.util.PropertyChangeEvent;
 
 /**
  * Calculates the Lack of Cohesion of Methods (LCOM*) metric using the Henderson-Sellers method (See book page 147): (avg(m(a)) - m)/(1 - m) where m(a) is the number of methods that access a. Note that whether static attributes and static
- * methods are considered is configurable from preferences.
+ * methods are considered is configurable from preferences. The one instance is shared by all threads calculating projects (see ParallelCalculation), so the attribute buckets are local to each calculation.
  * 
  * @author Frank Sauer
  */
 public class LackOfCohesion extends Calculator implements Constants {
 
-	private HashMap<String, Set<String>> buckets = new HashMap<String, Set<String>>();
 	private static Preferences prefs;
 
 	/**
@@ -62,13 +62,6 @@ public class LackOfCohesion extends Calculator implements Constants {
 		super(LCOM);
 	}
 
-	private void add(String field, String method) {
-		if (buckets.containsKey(field)) {
-			Set<String> methods = buckets.get(field);
-			methods.add(method);
-		}
-	}
-
 	/**
 	 * @see net.sourceforge.metrics.calculators.Calculator#calculate(net.sourceforge.metrics.core.sources.AbstractMetricSource)
 	 */
@@ -79,25 +72,40 @@ public class LackOfCohesion extends Calculator implements Constants {
 		}
 		try {
 			IType type = (IType) source.getJavaElement();
-			IMethod[] methods = type.getMethods();
-			IField[] fields = type.getFields();
-			double value = 0;
-			if ((fields.length > 1) && (methods.length > 1)) {
-				initBuckets(fields);
-				if (buckets.size() > 0) {
-					visitMethods(methods);
-					value = calculateResult();
-				}
-			}
+			Preferences p = getPrefs();
+			double value = calculate(type.getMethods(), type.getFields(), p.countStaticMethods(), p.countStaticAttributes());
 			source.setValue(new Metric(LCOM, value));
 		} catch (JavaModelException e) {
 		}
 	}
 
 	/**
+	 * @param methods
+	 *            the methods of a type
+	 * @param fields
+	 *            the attributes of the type
+	 * @param countStaticMethods
+	 * @param countStaticAttributes
+	 * @return the LCOM of the type, 0 unless it has more than one method and attribute
+	 */
+	public static double calculate(IMethod[] methods, IField[] fields, boolean countStaticMethods, boolean countStaticAttributes) {
+		if ((fields.length <= 1) || (methods.length <= 1)) {
+			return 0;
+		}
+		Map<String, Set<String>> buckets = initBuckets(fields, countStaticAttributes);
+		if (buckets.isEmpty()) {
+			return 0;
+		}
+		visitMethods(buckets, methods, countStaticMethods);
+		return calculateResult(buckets);
+	}
+
+	/**
+	 * @param buckets
+	 *            the methods accessing each attribute
 	 * @return double (avg(m(a)) - m)/(1 - m) where m(a) is the number of methods that access a
 	 */
-	private double calculateResult() {
+	public static double calculateResult(Map<String, Set<String>> buckets) {
 		int sum = 0;
 		int a = 0;
 		Set<String> allMethods = new HashSet<String>();
@@ -114,23 +122,12 @@ public class LackOfCohesion extends Calculator implements Constants {
 		return Math.abs((avg - m) / (1 - m));
 	}
 
-	private void visitMethods(IMethod[] methods) {
-		boolean countStatics = getPrefs().countStaticMethods();
+	private static void visitMethods(Map<String, Set<String>> buckets, IMethod[] methods, boolean countStatics) {
 		for (IMethod method2 : methods) {
 			String methodName = method2.getElementName();
 			try {
 				if ((countStatics) || ((method2.getFlags() & Flags.AccStatic) == 0)) {
-					IScanner s = ToolFactory.createScanner(false, false, false, false);
-					s.setSource(method2.getSource().toCharArray());
-					while (true) {
-						int token = s.getNextToken();
-						if (token == ITerminalSymbols.TokenNameEOF) {
-							break;
-						}
-						if (token == ITerminalSymbols.TokenNameIdentifier) {
-							add(new String(s.getCurrentTokenSource()), methodName);
-						}
-					}
+					scan(buckets, methodName, method2.getSource());
 				}
 			} catch (JavaModelException e) {
 				Log.logError("LCOM:Can't get source for method " + methodName, e);
@@ -141,14 +138,43 @@ public class LackOfCohesion extends Calculator implements Constants {
 	}
 
 	/**
-	 * create a map of HashSets to store methods for each attribute. Ask preferences whether static attributes have to be considered
+	 * Add the method to the buckets of the attributes whose names occur in its source
+	 * 
+	 * @param buckets
+	 *            the methods accessing each attribute
+	 * @param methodName
+	 * @param source
+	 *            source of the method
+	 * @throws InvalidInputException
+	 */
+	public static void scan(Map<String, Set<String>> buckets, String methodName, String source) throws InvalidInputException {
+		IScanner s = ToolFactory.createScanner(false, false, false, false);
+		s.setSource(source.toCharArray());
+		while (true) {
+			int token = s.getNextToken();
+			if (token == ITerminalSymbols.TokenNameEOF) {
+				break;
+			}
+			if (token == ITerminalSymbols.TokenNameIdentifier) {
+				Set<String> methods = buckets.get(new String(s.getCurrentTokenSource()));
+				if (methods != null) {
+					methods.add(methodName);
+				}
+			}
+		}
+	}
+
+	/**
+	 * create a map of HashSets to store methods for each attribute (a new one for each type, BUG #867594)
 	 * 
 	 * @param fields
+	 * @param countStatics
+	 *            true if static attributes have to be considered
+	 * @return the empty bucket of each attribute
 	 */
-	private void initBuckets(IField[] fields) {
-		buckets.clear(); // BUG #867594
+	private static Map<String, Set<String>> initBuckets(IField[] fields, boolean countStatics) {
+		Map<String, Set<String>> buckets = new HashMap<String, Set<String>>();
 		try {
-			boolean countStatics = getPrefs().countStaticAttributes();
 			for (IField field : fields) {
 				if (countStatics || ((field.getFlags() & Flags.AccStatic) == 0)) {
 					buckets.put(field.getElementName(), new HashSet<String>());
@@ -156,19 +182,20 @@ public class LackOfCohesion extends Calculator implements Constants {
 			}
 		} catch (JavaModelException e) {
 		}
+		return buckets;
 	}
 
 	/**
 	 * Statically cache preference values, yet register for change events so they get updated when they change.
 	 */
-	public static class Preferences implements IPropertyChangeListener {
+	public static class Preferences implements IPreferenceChangeListener {
 
 		private boolean countStaticMethods;
 		private boolean countStaticAttributes;
 
 		public Preferences() {
 			init();
-			getPreferences().addPropertyChangeListener(this);
+			getPreferences().addPreferenceChangeListener(this);
 		}
 
 		protected void init() {
@@ -185,10 +212,10 @@ public class LackOfCohesion extends Calculator implements Constants {
 		}
 
 		/**
-		 * @see org.eclipse.jface.util.IPropertyChangeListener#propertyChange(org.eclipse.jface.util.PropertyChangeEvent)
+		 * @see org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener#preferenceChange(org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent)
 		 */
-		public void propertyChange(PropertyChangeEvent event) {
-			if (event.getProperty().startsWith("LCOM")) {
+		public void preferenceChange(PreferenceChangeEvent event) {
+			if (event.getKey().startsWith("LCOM")) {
 				init();
 			}
 		}
@@ -199,7 +226,7 @@ public class LackOfCohesion extends Calculator implements Constants {
 	 * 
 	 * @return Preferences
 	 */
-	public static Preferences getPrefs() {
+	public static synchronized Preferences getPrefs() {
 		if (prefs == null) {
 			prefs = new Preferences();
 		}
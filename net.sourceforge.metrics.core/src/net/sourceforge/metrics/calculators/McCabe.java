@@ -81,12 +81,24 @@ public class McCabe extends Calculator implements Constants {
 		} catch (JavaModelException e) {
 			Log.logError("No sourcecode for " + source.getHandle(), e);
 		}
-		McCabeVisitor mcb = new McCabeVisitor(sourceCode);
-		astNode.accept(mcb);
-		source.setValue(new Metric(getName(), mcb.cyclomatic));
+		source.setValue(new Metric(getName(), getComplexity(astNode, sourceCode)));
 	}
 
-	private class McCabeVisitor extends ASTVisitor {
+	/**
+	 * Calculate the complexity of a method without a metric source, e.g. from a standalone parse
+	 * 
+	 * @param method
+	 * @param source
+	 *            source of the compilation unit containing the method, needed to count &amp;&amp; and ||
+	 * @return cyclomatic complexity
+	 */
+	public static int getComplexity(MethodDeclaration method, String source) {
+		McCabeVisitor mcb = new McCabeVisitor(source);
+		method.accept(mcb);
+		return mcb.cyclomatic;
+	}
+
+	private static class McCabeVisitor extends ASTVisitor {
 
 		private int cyclomatic = 1;
 		private String source;
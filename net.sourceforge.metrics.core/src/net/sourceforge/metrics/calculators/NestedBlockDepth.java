@@ -58,15 +58,25 @@ public class NestedBlockDepth extends Calculator implements Constants {
 		if (body == null) {
 			source.setValue(getZero());
 		}
+		source.setValue(new Metric(getName(), getDepth(astNode)));
+	}
+
+	/**
+	 * Calculate the depth of a method without a metric source, e.g. from a standalone parse
+	 * 
+	 * @param method
+	 * @return max nested block depth
+	 */
+	public static int getDepth(MethodDeclaration method) {
 		LevelCounter lc = new LevelCounter();
-		astNode.accept(lc);
-		source.setValue(new Metric(getName(), lc.maxDepth));
+		method.accept(lc);
+		return lc.maxDepth;
 	}
 
 	/**
 	 * counts the maximum block depth by visiting Blocks
 	 */
-	private class LevelCounter extends ASTVisitor {
+	private static class LevelCounter extends ASTVisitor {
 
 		int maxDepth = 0;
 		int depth = 0;
@@ -28,13 +28,13 @@ import net.sourceforge.metrics.core.Metric;
 import net.sourceforge.metrics.core.sources.AbstractMetricSource;
 import net.sourceforge.metrics.core.sources.TypeMetrics;
 
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jface.util.IPropertyChangeListener;
-import org.eclipse.jface.util.PropertyChangeEvent;
 
 /**
  * Calculates number of overridden methods for a class. Note that if the inherited method is abstract or if the method under investigation calls the superclass' implementation, it is <EM>not</EM> counted. A better name for this metric would
@@ -133,7 +133,7 @@ public class Norm extends Calculator implements Constants {
 	/**
 	 * Statically cache preference values, yet register for change events so they get updated when they change.
 	 */
-	public static class Preferences implements IPropertyChangeListener {
+	public static class Preferences implements IPreferenceChangeListener {
 
 		private boolean countAbstract;
 		private boolean supers;
@@ -141,7 +141,7 @@ public class Norm extends Calculator implements Constants {
 
 		public Preferences() {
 			init();
-			getPreferences().addPropertyChangeListener(this);
+			getPreferences().addPreferenceChangeListener(this);
 		}
 
 		protected void init() {
@@ -167,11 +167,11 @@ public class Norm extends Calculator implements Constants {
 		}
 
 		/**
-		 * @see org.eclipse.jface.util.IPropertyChangeListener#propertyChange(org.eclipse.jface.util.PropertyChangeEvent)
+		 * @see org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener#preferenceChange(org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent)
 		 */
-		public void propertyChange(PropertyChangeEvent event) {
+		public void preferenceChange(PreferenceChangeEvent event) {
 			// System.err.println("NORM.prefs resetting!!!");
-			if (event.getProperty().startsWith("NORM")) {
+			if (event.getKey().startsWith("NORM")) {
 				init();
 			}
 		}
@@ -182,7 +182,7 @@ public class Norm extends Calculator implements Constants {
 	 * 
 	 * @return Preferences
 	 */
-	public static Preferences getPrefs() {
+	public static synchronized Preferences getPrefs() {
 		if (prefs == null) {
 			prefs = new Preferences();
 		}
@@ -25,6 +25,8 @@ import net.sourceforge.metrics.core.sources.AbstractMetricSource;
 
 /**
  * Public interface all calculators must implement.
+ * <p>
+ * One instance of each calculator is shared by all threads calculating metrics (projects are calculated in parallel, see ParallelCalculation), so calculate must not keep state in the calculator itself.
  * 
  * @author Frank Sauer
  * @see net.sourceforge.metrics.calculators.Calculator
@@ -7,6 +7,7 @@
 package net.sourceforge.metrics.core;
 
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 
 /**
@@ -19,15 +20,33 @@ public class Log {
 	public final static String PLUGIN_ID = "net.sourceforge.metrics";
 
 	public static void logError(String message, Throwable t) {
-		MetricsPlugin.getDefault().getLog().log(new Status(IStatus.ERROR, PLUGIN_ID, IStatus.ERROR, message, t));
+		log(new Status(IStatus.ERROR, PLUGIN_ID, IStatus.ERROR, message, t));
 	}
 
 	public static void logWarrning(String message, Throwable t) {
-		MetricsPlugin.getDefault().getLog().log(new Status(IStatus.WARNING, PLUGIN_ID, IStatus.WARNING, message, t));
+		log(new Status(IStatus.WARNING, PLUGIN_ID, IStatus.WARNING, message, t));
 	}
 
 	public static void logMessage(String message) {
-		MetricsPlugin.getDefault().getLog().log(new Status(IStatus.INFO, PLUGIN_ID, IStatus.INFO, message, null));
+		log(new Status(IStatus.INFO, PLUGIN_ID, IStatus.INFO, message, null));
+	}
+
+	/**
+	 * Log to the plugin log, or to standard error if the platform is not running (see SourceMetrics). The plugin class is not touched then, its dependencies need not be on the classpath.
+	 * 
+	 * @param status
+	 */
+	private static void log(IStatus status) {
+		MetricsPlugin plugin = Platform.isRunning() ? MetricsPlugin.getDefault() : null;
+		if (plugin != null) {
+			plugin.getLog().log(status);
+			return;
+		}
+		String severity = (status.getSeverity() == IStatus.ERROR) ? "ERROR" : (status.getSeverity() == IStatus.WARNING) ? "WARNING" : "INFO";
+		System.err.println(severity + ": " + status.getMessage());
+		if (status.getException() != null) {
+			status.getException().printStackTrace();
+		}
 	}
 
 }
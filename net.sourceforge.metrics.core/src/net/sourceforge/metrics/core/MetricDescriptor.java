@@ -30,7 +30,6 @@ import net.sourceforge.metrics.propagators.Propagator;
 import net.sourceforge.metrics.propagators.Sum;
 
 import org.eclipse.core.runtime.IConfigurationElement;
-import org.eclipse.jface.preference.IPreferenceStore;
 
 /**
  * Contains the specification of a metric as provided by a plugin manifest.
@@ -340,7 +339,7 @@ public class MetricDescriptor {
 	 */
 	public Double getMax() {
 		double max = getPreferences().getDouble(getPrefName("MAX"));
-		if (max == IPreferenceStore.DOUBLE_DEFAULT_DEFAULT) {
+		if (max == MetricsPreferences.DOUBLE_DEFAULT_DEFAULT) {
 			return null;
 		}
 		return max;
@@ -351,7 +350,7 @@ public class MetricDescriptor {
 	 */
 	public Double getMin() {
 		double min = getPreferences().getDouble(getPrefName("MIN"));
-		if (min == IPreferenceStore.DOUBLE_DEFAULT_DEFAULT) {
+		if (min == MetricsPreferences.DOUBLE_DEFAULT_DEFAULT) {
 			return null;
 		}
 		return min;
@@ -431,8 +430,8 @@ public class MetricDescriptor {
 	/**
 	 * @return
 	 */
-	private IPreferenceStore getPreferences() {
-		return MetricsPlugin.getDefault().getPreferenceStore();
+	private MetricsPreferences getPreferences() {
+		return MetricsPlugin.getDefault().getPreferences();
 	}
 
 	public void resetToDefaults() {
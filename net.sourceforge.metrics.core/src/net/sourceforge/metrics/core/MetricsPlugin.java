@@ -20,8 +20,6 @@
  */
 package net.sourceforge.metrics.core;
 
-import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -38,31 +36,30 @@ import net.sourceforge.metrics.core.sources.Cache;
 import net.sourceforge.metrics.propagators.Propagator;
 import net.sourceforge.metrics.propagators.Sum;
 
-import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
 import org.eclipse.core.runtime.ListenerList;
-import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
-import org.eclipse.jface.resource.ImageDescriptor;
-import org.eclipse.jface.util.IPropertyChangeListener;
-import org.eclipse.jface.util.PropertyChangeEvent;
-import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.eclipse.core.runtime.Plugin;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.osgi.framework.BundleContext;
 
 /**
- * The main plugin class providing access to the metrics framework.
+ * The main plugin class providing access to the metrics framework. It needs no UI bundle, so the builder and the headless runner work without a workbench; the images and the preference store of the UI are in
+ * net.sourceforge.metrics.ui.MetricsUI.
  * 
  * @author Frank Sauer
  */
-public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeListener, Constants {
+public class MetricsPlugin extends Plugin implements IPreferenceChangeListener, Constants {
 
 	private Map<String, List<String>> metricsDependencies;
 	private String[] descriptions;
 	private String[] ids;
 	// The shared instance.
 	private static MetricsPlugin plugin;
+	private static volatile int preferenceVersion;
 	// Resource bundle.
 	private ResourceBundle resourceBundle;
 
@@ -70,19 +67,7 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 	private Map<String, MetricDescriptor> metrics = new LinkedHashMap<String, MetricDescriptor>();
 	private Map<String, ExportDescriptor> exporters = new HashMap<String, ExportDescriptor>();
 	private ListenerList listeners = new ListenerList(ListenerList.IDENTITY);
-
-	public static ImageDescriptor createImage(String name) {
-		return ImageDescriptor.createFromURL(makeImageURL(name));
-	}
-
-	private static URL makeImageURL(String name) {
-		try {
-			return FileLocator.resolve(FileLocator.find(getDefault().getBundle(), new Path("icons/" + name), null));
-		} catch (IOException e) {
-			Log.logError("Can't find image with name " + name, e);
-			return null;
-		}
-	}
+	private MetricsPreferences preferences;
 
 	public MetricsPlugin() {
 		super();
@@ -103,6 +88,16 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 		return plugin;
 	}
 
+	/**
+	 * @return the preferences of the plugin
+	 */
+	public synchronized MetricsPreferences getPreferences() {
+		if (preferences == null) {
+			preferences = new MetricsPreferences(getBundle().getSymbolicName());
+		}
+		return preferences;
+	}
+
 	/**
 	 * get a list of all installed metric ids
 	 * 
@@ -132,7 +127,7 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 	}
 
 	private String[] parsePrefString(boolean description) {
-		String stringList = getPreferenceStore().getString("METRICS.displayOrder");
+		String stringList = getPreferences().getString("METRICS.displayOrder");
 		StringTokenizer t = new StringTokenizer(stringList, ",");
 		int length = t.countTokens();
 		String[] items = new String[length];
@@ -168,7 +163,7 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 	}
 
 	public static long lastTimePreferencesChanged() {
-		return getDefault().getPreferenceStore().getLong("METRICS.lastPrefChange");
+		return getDefault().getPreferences().getLong("METRICS.lastPrefChange");
 	}
 
 	/**
@@ -176,16 +171,24 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 	 */
 	public static void recordTimeAndClearCache() {
 		// System.err.println("Recording preference change timestamp.");
-		getDefault().getPreferenceStore().setValue("METRICS.lastPrefChange", String.valueOf(new Date().getTime()));
+		getDefault().getPreferences().setValue("METRICS.lastPrefChange", String.valueOf(new Date().getTime()));
 		// Cache.singleton.clear();
 	}
 
 	public static boolean isWarningsEnabled() {
-		return getDefault().getPreferenceStore().getBoolean("METRICS.enablewarnings");
+		return getDefault().getPreferences().getBoolean("METRICS.enablewarnings");
+	}
+
+	/**
+	 * @return a number that changes whenever any preference of the plugin changes, for caches of values derived from them (formats, colors)
+	 */
+	public static int getPreferenceVersion() {
+		return preferenceVersion;
 	}
 
-	public void propertyChange(PropertyChangeEvent event) {
-		if (!event.getProperty().startsWith("METRICS")) {
+	public void preferenceChange(PreferenceChangeEvent event) {
+		preferenceVersion++;
+		if (!event.getKey().startsWith("METRICS")) {
 			recordTimeAndClearCache();
 		} else {
 			ids = null;
@@ -193,8 +196,8 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 		}
 		Object[] l = listeners.getListeners();
 		for (Object element : l) {
-			if (element instanceof IPropertyChangeListener) {
-				((IPropertyChangeListener) element).propertyChange(event);
+			if (element instanceof IPreferenceChangeListener) {
+				((IPreferenceChangeListener) element).preferenceChange(event);
 			}
 		}
 	}
@@ -260,7 +263,7 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 	}
 
 	public boolean showProjectOnCompletion() {
-		return getPreferenceStore().getBoolean("METRICS.showProject");
+		return getPreferences().getBoolean("METRICS.showProject");
 	}
 
 	public IExporter createExporter(String className) {
@@ -282,10 +285,10 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 			list.append(id).append(" - ").append(desc).append(',');
 		}
 		String def = list.substring(0, list.length() - 1);
-		getPreferenceStore().setDefault("METRICS.displayOrder", def);
+		getPreferences().setDefault("METRICS.displayOrder", def);
 		// if metrics were added/removed, reset the value
 		if (getMetricIds().length != metrics.size()) {
-			getPreferenceStore().setToDefault("METRICS.displayOrder");
+			getPreferences().setToDefault("METRICS.displayOrder");
 		}
 	}
 
@@ -326,7 +329,7 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 	}
 
 	public IExporter getCurrentExporter() {
-		String format = getPreferenceStore().getString("METRICS.xmlformat");
+		String format = getPreferences().getString("METRICS.xmlformat");
 		return createExporter(format);
 	}
 
@@ -404,16 +407,17 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 	}
 
 	/**
-	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop()
+	 * @see org.eclipse.core.runtime.Plugin#stop()
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
 		Cache.singleton.close();
+		getPreferences().save();
 		super.stop(context);
 	}
 
 	/**
-	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#start()
+	 * @see org.eclipse.core.runtime.Plugin#start()
 	 */
 	@Override
 	public void start(BundleContext context) throws Exception {
@@ -432,15 +436,16 @@ public class MetricsPlugin extends AbstractUIPlugin implements IPropertyChangeLi
 
 	/**
 	 * @param listener
+	 *            notified after the plugin has seen a change of its preferences
 	 */
-	public void addPropertyChangeListener(IPropertyChangeListener listener) {
+	public void addPreferenceChangeListener(IPreferenceChangeListener listener) {
 		listeners.add(listener);
 	}
 
 	/**
 	 * @param listener
 	 */
-	public void removePropertyChangeListener(IPropertyChangeListener listener) {
+	public void removePreferenceChangeListener(IPreferenceChangeListener listener) {
 		listeners.remove(listener);
 	}
 
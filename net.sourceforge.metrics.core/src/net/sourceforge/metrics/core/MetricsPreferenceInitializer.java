@@ -1,7 +1,6 @@
 package net.sourceforge.metrics.core;
 
 import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
-import org.eclipse.jface.preference.IPreferenceStore;
 
 /**
  * To comply with Eclipse 3.0 API this class is needed to initialize the default values for the metrics preferences. It is references in the plugin.xml.
@@ -17,7 +16,7 @@ public class MetricsPreferenceInitializer extends AbstractPreferenceInitializer
 	 */
 	@Override
 	public void initializeDefaultPreferences() {
-		IPreferenceStore prefStore = MetricsPlugin.getDefault().getPreferenceStore();
+		MetricsPreferences prefStore = MetricsPlugin.getDefault().getPreferences();
 		prefStore.setDefault("METRICS.decimals", Constants.FRACTION_DIGITS);
 		prefStore.setDefault("METRICS.xmlformat", "net.sourceforge.metrics.internal.xml.MetricsFirstExporter");
 		prefStore.setDefault("METRICS.enablewarnings", false);
@@ -26,7 +25,15 @@ public class MetricsPreferenceInitializer extends AbstractPreferenceInitializer
 		prefStore.setDefault("METRICS.outOfRangeColor", "255,0,0");
 		prefStore.setDefault("METRICS.depGR_background", "1,17,68");
 		prefStore.setDefault("METRICS.showProject", true);
-		prefStore.addPropertyChangeListener(MetricsPlugin.getDefault());
+		prefStore.setDefault("METRICS.packDirectory", System.getProperty("net.sourceforge.metrics.packs", ""));
+		prefStore.setDefault("METRICS.exportThreads", Runtime.getRuntime().availableProcessors());
+		prefStore.setDefault("METRICS.exportBufferKB", 16 * 1024);
+		prefStore.setDefault("METRICS.snapshots", false);
+		prefStore.setDefault("METRICS.snapshotRetentionDays", 365);
+		prefStore.setDefault("METRICS.snapshotDailyAfterDays", 30);
+		prefStore.setDefault("METRICS.cutBudget", 2000);
+		prefStore.setDefault("METRICS.cutMoves", 0);
+		prefStore.addPreferenceChangeListener(MetricsPlugin.getDefault());
 	}
 
 }
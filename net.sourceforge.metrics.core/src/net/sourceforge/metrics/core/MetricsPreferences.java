@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.core;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.osgi.service.prefs.BackingStoreException;
+
+/**
+ * The preferences of the plugin, without the UI bundles, so the calculations and the headless runner can read them. Values are kept in the instance scope and defaults in the default scope, in the nodes the preference
+ * pages edit through the ScopedPreferenceStore of MetricsUI, so both always see the same values. As in a preference store, a value equal to its default is removed rather than stored.
+ * 
+ * @author Metrics2 contributors
+ */
+public class MetricsPreferences {
+
+	public static final double DOUBLE_DEFAULT_DEFAULT = 0.0;
+
+	private String qualifier;
+
+	/**
+	 * @param qualifier
+	 *            symbolic name of the bundle, the node of its preferences
+	 */
+	public MetricsPreferences(String qualifier) {
+		this.qualifier = qualifier;
+	}
+
+	private IEclipsePreferences getInstanceNode() {
+		return InstanceScope.INSTANCE.getNode(qualifier);
+	}
+
+	private IEclipsePreferences getDefaultNode() {
+		return DefaultScope.INSTANCE.getNode(qualifier);
+	}
+
+	public String getString(String name) {
+		return Platform.getPreferencesService().getString(qualifier, name, "", null);
+	}
+
+	public int getInt(String name) {
+		return Platform.getPreferencesService().getInt(qualifier, name, 0, null);
+	}
+
+	public long getLong(String name) {
+		return Platform.getPreferencesService().getLong(qualifier, name, 0L, null);
+	}
+
+	public double getDouble(String name) {
+		return Platform.getPreferencesService().getDouble(qualifier, name, DOUBLE_DEFAULT_DEFAULT, null);
+	}
+
+	public boolean getBoolean(String name) {
+		return Platform.getPreferencesService().getBoolean(qualifier, name, false, null);
+	}
+
+	public String getDefaultString(String name) {
+		return getDefaultNode().get(name, "");
+	}
+
+	public void setDefault(String name, String value) {
+		getDefaultNode().put(name, value);
+	}
+
+	public void setDefault(String name, int value) {
+		getDefaultNode().putInt(name, value);
+	}
+
+	public void setDefault(String name, double value) {
+		getDefaultNode().putDouble(name, value);
+	}
+
+	public void setDefault(String name, boolean value) {
+		getDefaultNode().putBoolean(name, value);
+	}
+
+	public void setValue(String name, String value) {
+		if (value.equals(getDefaultString(name))) {
+			getInstanceNode().remove(name);
+		} else {
+			getInstanceNode().put(name, value);
+		}
+	}
+
+	public void setValue(String name, double value) {
+		setValue(name, Double.toString(value));
+	}
+
+	public void setToDefault(String name) {
+		getInstanceNode().remove(name);
+	}
+
+	/**
+	 * @param listener
+	 *            notified of every change of a value, not of the defaults
+	 */
+	public void addPreferenceChangeListener(IPreferenceChangeListener listener) {
+		getInstanceNode().addPreferenceChangeListener(listener);
+	}
+
+	public void removePreferenceChangeListener(IPreferenceChangeListener listener) {
+		getInstanceNode().removePreferenceChangeListener(listener);
+	}
+
+	/**
+	 * write the changed values to disk
+	 */
+	public void save() {
+		try {
+			getInstanceNode().flush();
+		} catch (BackingStoreException e) {
+			Log.logError("Could not save the metrics preferences", e);
+		}
+	}
+}
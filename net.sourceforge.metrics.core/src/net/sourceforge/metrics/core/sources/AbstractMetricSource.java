@@ -37,13 +37,12 @@ import net.sourceforge.metrics.core.MetricDescriptor;
 import net.sourceforge.metrics.core.MetricsPlugin;
 import net.sourceforge.metrics.internal.xml.IXMLExporter;
 
-import org.eclipse.core.resources.IMarker;
-import org.eclipse.core.resources.IResource;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
@@ -195,7 +194,8 @@ public abstract class AbstractMetricSource implements Constants, Serializable {
 	}
 
 	/**
-	 * Used by Calculators to store their result metrics. As a side effect, adds a marker of type net.sourceforge.metrics.outofrangemarker if enabled and the value is out of the range indicated by the metric's descriptor
+	 * Used by Calculators to store their result metrics. As a side effect, records a RangeViolation if enabled and the value is out of the range indicated by the metric's descriptor. The markers are created when the owning
+	 * compilation unit or container is done (see recurse).
 	 * 
 	 * @param value
 	 */
@@ -208,6 +208,17 @@ public abstract class AbstractMetricSource implements Constants, Serializable {
 		}
 	}
 
+	/**
+	 * record range violations for all values calculated at this level. Used when values are restored instead of calculated
+	 */
+	void checkRanges() {
+		for (Metric value : values.values()) {
+			if (!value.isPropagated()) {
+				checkRange(value);
+			}
+		}
+	}
+
 	/**
 	 * @param value
 	 */
@@ -215,37 +226,40 @@ public abstract class AbstractMetricSource implements Constants, Serializable {
 		MetricDescriptor md = MetricsPlugin.getDefault().getMetricDescriptor(value.getName());
 		if (!md.isValueInRange(value.doubleValue())) {
 			try {
-				IResource resource = getJavaElement().getUnderlyingResource();
-				if (resource != null) {
-					configureOutOfRangeMarker(value, md, resource);
+				IJavaElement element = getJavaElement();
+				String owner = getViolationOwner(element);
+				if (owner != null) {
+					RangeViolations.singleton.add(owner, createViolation(value, md, element));
 				}
 			} catch (Throwable e) {
-				Log.logError("could not get resource to add marker", e);
+				Log.logError("could not record range violation", e);
 			}
 		}
 	}
 
-	private void configureOutOfRangeMarker(Metric value, MetricDescriptor md, IResource resource) throws CoreException {
-		IMarker marker = resource.createMarker("net.sourceforge.metrics.outofrangemarker");
-		if ((marker != null) && (marker.exists())) {
-			JavaCore.getJavaCore().configureJavaElementMarker(marker, getJavaElement());
-			marker.setAttribute("metric", value.getName());
-			marker.setAttribute("value", "" + value.doubleValue());
-			String message = createMessage(value, md);
-			marker.setAttribute(IMarker.MESSAGE, message);
-			marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_WARNING);
-			if (getJavaElement() instanceof IMember) {
-				IMember m = (IMember) getJavaElement();
-				int offset = m.getNameRange().getOffset();
-				int length = m.getNameRange().getLength();
-				marker.setAttribute(IMarker.CHAR_START, offset);
-				marker.setAttribute(IMarker.CHAR_END, offset + length);
+	/**
+	 * @param element
+	 * @return handle of the element whose resource carries the markers for the given element
+	 */
+	private static String getViolationOwner(IJavaElement element) {
+		if (element.getElementType() <= IJavaElement.COMPILATION_UNIT) {
+			return element.getHandleIdentifier();
+		}
+		IJavaElement unit = element.getAncestor(IJavaElement.COMPILATION_UNIT);
+		return (unit == null) ? null : unit.getHandleIdentifier();
+	}
+
+	private RangeViolations.Violation createViolation(Metric value, MetricDescriptor md, IJavaElement element) throws JavaModelException {
+		RangeViolations.Violation result = new RangeViolations.Violation(element.getHandleIdentifier(), value.getName(), "" + value.doubleValue(), createMessage(value, md));
+		if (element instanceof IMember) {
+			ISourceRange range = ((IMember) element).getNameRange();
+			if (range != null) {
+				int offset = range.getOffset();
 				CompilationUnit cu = getParsedCompilationUnit();
-				if (cu != null) {
-					marker.setAttribute(IMarker.LINE_NUMBER, cu.lineNumber(offset));
-				}
+				result.setRange(offset, offset + range.getLength(), (cu == null) ? -1 : cu.lineNumber(offset));
 			}
 		}
+		return result;
 	}
 
 	/**
@@ -312,6 +326,11 @@ public abstract class AbstractMetricSource implements Constants, Serializable {
 	 */
 	public void recurse(AbstractMetricSource parent) {
 		if (doRecurse) {
+			IJavaElement element = getJavaElement();
+			String owner = ((element != null) && (element.getElementType() <= IJavaElement.COMPILATION_UNIT)) ? element.getHandleIdentifier() : null;
+			if (owner != null) {
+				RangeViolations.singleton.begin(owner);
+			}
 			initializeChildren(parent);
 			if (children != null) {
 				for (Object element : children) {
@@ -323,6 +342,9 @@ public abstract class AbstractMetricSource implements Constants, Serializable {
 				}
 			}
 			calculate();
+			if (owner != null) {
+				RangeViolations.singleton.flush(owner);
+			}
 			save();
 			doRecurse = false;
 		}
@@ -537,6 +559,52 @@ public abstract class AbstractMetricSource implements Constants, Serializable {
 		return handle;
 	}
 
+	/**
+	 * Strip the given base from the start of all handles (own, children and maxima) so the data can be stored independent of its location
+	 * 
+	 * @param base
+	 *            handle of the enclosing compilation unit
+	 */
+	void relativize(String base) {
+		handle = relativize(handle, base);
+		for (int i = 0; i < childHandles.size(); i++) {
+			childHandles.set(i, relativize(childHandles.get(i), base));
+		}
+		for (Max max : maxima.values()) {
+			max.setHandle(relativize(max.getHandle(), base));
+		}
+	}
+
+	/**
+	 * Inverse of relativize(base). Absolute handles (they all start with the project) are left alone
+	 * 
+	 * @param base
+	 *            handle of the enclosing compilation unit
+	 */
+	void resolve(String base) {
+		handle = resolve(handle, base);
+		for (int i = 0; i < childHandles.size(); i++) {
+			childHandles.set(i, resolve(childHandles.get(i), base));
+		}
+		for (Max max : maxima.values()) {
+			max.setHandle(resolve(max.getHandle(), base));
+		}
+	}
+
+	private static String relativize(String handle, String base) {
+		if ((handle != null) && handle.startsWith(base)) {
+			return handle.substring(base.length());
+		}
+		return handle;
+	}
+
+	private static String resolve(String handle, String base) {
+		if ((handle != null) && !handle.startsWith("=")) {
+			return base + handle;
+		}
+		return handle;
+	}
+
 	/**
 	 * @param store
 	 * @param list
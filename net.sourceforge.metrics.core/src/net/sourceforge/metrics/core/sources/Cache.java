@@ -21,9 +21,12 @@
 package net.sourceforge.metrics.core.sources;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -49,7 +52,17 @@ import org.eclipse.jdt.core.JavaCore;
 public class Cache {
 
 	private static final String DBNAME = "/metricsdb";
+	// not a legal project name, so it can't clash with one
+	private static final String CONTENTS = "/contents";
+	// content key -> time of the last store or restore, to evict the least recently used results
+	private static final String CONTENTS_USED = "/contents-used";
+	// a stored result is a few kilobytes, so this bounds the content store to some hundred megabytes
+	private static final int MAX_STORED_RESULTS = 50000;
+	// stored results written since the last commit after which putStoredResult commits itself
+	private static final int STORED_RESULTS_PER_COMMIT = 200;
 	private RecordManager recman;
+	// held while changing an HTree and while committing or closing, since an HTree change spans several records and a commit in between would write half of it
+	private final Object writeLock = new Object();
 
 	private String pluginDir;
 
@@ -58,6 +71,9 @@ public class Cache {
 	// keep roots (projectName -> HTree)
 	private Map<String, HTree> projects = new HashMap<String, HTree>();
 	private Map<String, Set<String>> keys = new HashMap<String, Set<String>>();
+	// number of stored results, -1 until counted
+	private int storedResults = -1;
+	private int uncommittedResults;
 
 	private Cache() {
 		super();
@@ -80,7 +96,8 @@ public class Cache {
 		}
 	}
 
-	private HTree getHashtableForProject(String projectName) {
+	// synchronized since projects may be calculated in parallel (see MetricsBuilder.calculate)
+	private synchronized HTree getHashtableForProject(String projectName) {
 		HTree hashtable = projects.get(projectName);
 		if (hashtable == null) {
 			try {
@@ -124,10 +141,19 @@ public class Cache {
 		}
 		try {
 			String handle = source.getHandle();
-			getHashtableForHandle(handle).put(handle, source);
-			getKeysForHandle(handle).add(handle);
+			HTree hashtable = getHashtableForHandle(handle);
+			synchronized (writeLock) {
+				synchronized (hashtable) {
+					hashtable.put(handle, source);
+				}
+			}
+			Set<String> handles = getKeysForHandle(handle);
+			synchronized (handles) {
+				handles.add(handle);
+			}
+			HotspotIndex.singleton.put(source);
 			if (source.getLevel() >= Constants.PACKAGEFRAGMENT) {
-				recman.commit();
+				commit();
 			}
 		} catch (Throwable e) {
 			Log.logError("Could not store " + source.getHandle(), e);
@@ -135,9 +161,11 @@ public class Cache {
 	}
 
 	/**
+	 * The returned set is shared and updated by put and remove, synchronize on it while iterating.
+	 * 
 	 * @param handle
 	 */
-	public Set<String> getKeysForHandle(String handle) {
+	public synchronized Set<String> getKeysForHandle(String handle) {
 		IJavaElement element = JavaCore.create(handle);
 		String projectName = getProjectName(element);
 		Set<String> s = keys.get(projectName);
@@ -149,6 +177,23 @@ public class Cache {
 
 	}
 
+	/**
+	 * @param handle
+	 * @return a copy of the stored handles of the element and its descendants, including the handle itself if stored
+	 */
+	public List<String> getHandlesUnder(String handle) {
+		Set<String> handles = getKeysForHandle(handle);
+		List<String> result = new ArrayList<String>();
+		synchronized (handles) {
+			for (String next : handles) {
+				if (HotspotIndex.isUnder(next, handle)) {
+					result.add(next);
+				}
+			}
+		}
+		return result;
+	}
+
 	private Set<String> getKeys(String handle) {
 		HTree map = getHashtableForHandle(handle);
 		Set<String> result = new HashSet<String>();
@@ -174,35 +219,178 @@ public class Cache {
 
 	public AbstractMetricSource get(String handle) {
 		try {
-			return (AbstractMetricSource) getHashtableForHandle(handle).get(handle);
+			HTree hashtable = getHashtableForHandle(handle);
+			// HTree is not thread safe, and exports read from several threads (see PackageExportPipeline)
+			synchronized (hashtable) {
+				return (AbstractMetricSource) hashtable.get(handle);
+			}
 		} catch (Throwable e) {
 			Log.logError("Error fetching data for " + handle, e);
 			return null;
 		}
 	}
 
+	/**
+	 * get the serialized compilation unit results stored under the given content key
+	 * 
+	 * @param key
+	 * @return byte[] or null if not found
+	 * @see ContentCache
+	 */
+	public byte[] getStoredResult(String key) {
+		try {
+			HTree contents = getHashtableForProject(CONTENTS);
+			HTree used = getHashtableForProject(CONTENTS_USED);
+			// shared by all projects
+			synchronized (writeLock) {
+				synchronized (contents) {
+					byte[] result = (byte[]) contents.get(key);
+					if (result != null) {
+						used.put(key, new Long(System.currentTimeMillis()));
+					}
+					return result;
+				}
+			}
+		} catch (Throwable e) {
+			Log.logError("Error fetching stored result " + key, e);
+			return null;
+		}
+	}
+
+	/**
+	 * store serialized compilation unit results under the given content key. The results are committed with the next package (see put), or after STORED_RESULTS_PER_COMMIT of them. Once there are more than
+	 * MAX_STORED_RESULTS, the least recently stored or restored tenth is removed.
+	 * 
+	 * @param key
+	 * @param result
+	 * @see ContentCache
+	 */
+	public void putStoredResult(String key, byte[] result) {
+		boolean commit;
+		try {
+			HTree contents = getHashtableForProject(CONTENTS);
+			HTree used = getHashtableForProject(CONTENTS_USED);
+			synchronized (writeLock) {
+				synchronized (contents) {
+					if (storedResults == -1) {
+						storedResults = countStoredResults(contents, used);
+					}
+					if (contents.get(key) == null) {
+						storedResults++;
+					}
+					contents.put(key, result);
+					used.put(key, new Long(System.currentTimeMillis()));
+					if (storedResults > MAX_STORED_RESULTS) {
+						evictStoredResults(contents, used, MAX_STORED_RESULTS * 9 / 10);
+					}
+					commit = ++uncommittedResults >= STORED_RESULTS_PER_COMMIT;
+				}
+			}
+		} catch (Throwable e) {
+			Log.logError("Could not store result " + key, e);
+			return;
+		}
+		if (commit) {
+			commit();
+		}
+	}
+
+	/**
+	 * Count the stored results. Results stored before their use was recorded count as never used.
+	 * 
+	 * @param contents
+	 * @param used
+	 * @return number of stored results
+	 * @throws Exception
+	 */
+	private int countStoredResults(HTree contents, HTree used) throws Exception {
+		int count = 0;
+		FastIterator it = contents.keys();
+		for (String next = (String) it.next(); next != null; next = (String) it.next()) {
+			count++;
+			if (used.get(next) == null) {
+				used.put(next, new Long(0));
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Remove the least recently used stored results
+	 * 
+	 * @param contents
+	 * @param used
+	 * @param keep
+	 *            number of results to keep
+	 * @throws Exception
+	 */
+	private void evictStoredResults(HTree contents, HTree used, int keep) throws Exception {
+		List<String> usedKeys = new ArrayList<String>();
+		FastIterator it = used.keys();
+		for (String next = (String) it.next(); next != null; next = (String) it.next()) {
+			usedKeys.add(next);
+		}
+		long[] times = new long[usedKeys.size()];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = ((Long) used.get(usedKeys.get(i))).longValue();
+		}
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		int remove = sorted.length - keep;
+		if (remove <= 0) {
+			return;
+		}
+		// remove everything used before the cutoff, and at the cutoff until enough are gone
+		long cutoff = sorted[remove - 1];
+		for (int i = 0; (i < times.length) && (remove > 0); i++) {
+			if (times[i] <= cutoff) {
+				String key = usedKeys.get(i);
+				contents.remove(key);
+				used.remove(key);
+				storedResults--;
+				remove--;
+			}
+		}
+	}
+
 	public void remove(String handle) {
 		try {
-			getHashtableForHandle(handle).remove(handle);
-			getKeysForHandle(handle).remove(handle);
+			HTree hashtable = getHashtableForHandle(handle);
+			synchronized (writeLock) {
+				synchronized (hashtable) {
+					hashtable.remove(handle);
+				}
+			}
+			Set<String> handles = getKeysForHandle(handle);
+			synchronized (handles) {
+				handles.remove(handle);
+			}
+			HotspotIndex.singleton.invalidate(handle);
 		} catch (Throwable e) {
 			Log.logError("Could not remove " + handle, e);
 		}
 	}
 
 	public void removeSubtree(String handle) {
+		HotspotIndex.singleton.invalidateSubtree(handle);
 		HTree h = getHashtableForHandle(handle);
 		if (h != null) {
 			Set<String> handles = getKeysForHandle(handle);
-			for (Iterator<String> i = handles.iterator(); i.hasNext();) {
-				String next = i.next();
-				if (next.startsWith(handle)) {
-					try {
-						h.remove(next);
-						i.remove();
-					} catch (Throwable e) {
-						// doesn't seem to be a severe problem, don't log
-						Log.logError("Could not remove " + next, e);
+			synchronized (writeLock) {
+				synchronized (h) {
+					synchronized (handles) {
+						for (Iterator<String> i = handles.iterator(); i.hasNext();) {
+							String next = i.next();
+							if (HotspotIndex.isUnder(next, handle)) {
+								try {
+									h.remove(next);
+									i.remove();
+								} catch (Throwable e) {
+									// doesn't seem to be a severe problem, don't log
+									Log.logError("Could not remove " + next, e);
+								}
+							}
+						}
 					}
 				}
 			}
@@ -211,7 +399,9 @@ public class Cache {
 
 	public void close() {
 		try {
-			recman.close();
+			synchronized (writeLock) {
+				recman.close();
+			}
 			keys.clear();
 			projects.clear();
 		} catch (Throwable e) {
@@ -224,15 +414,19 @@ public class Cache {
 	 * 
 	 * @param projectName
 	 */
-	public void clear(String projectName) {
+	public synchronized void clear(String projectName) {
 		try {
 			keys.remove(projectName);
-			long id = recman.getNamedObject(projectName);
-			if (id != 0) {
-				recman.delete(id);
-				HTree hashtable = HTree.createInstance(recman);
-				recman.setNamedObject(projectName, hashtable.getRecid());
-				recman.commit();
+			HotspotIndex.singleton.invalidateSubtree("=" + projectName);
+			synchronized (writeLock) {
+				long id = recman.getNamedObject(projectName);
+				if (id != 0) {
+					recman.delete(id);
+					HTree hashtable = HTree.createInstance(recman);
+					recman.setNamedObject(projectName, hashtable.getRecid());
+					uncommittedResults = 0;
+					recman.commit();
+				}
 			}
 		} catch (Throwable e) {
 			Log.logError("Could not clear project " + projectName, e);
@@ -244,11 +438,17 @@ public class Cache {
 	 */
 	public void clear() {
 		try {
-			recman.close();
-			File db = new File(pluginDir + DBNAME);
-			db.delete();
-			initRecordManager();
-			keys.clear();
+			synchronized (writeLock) {
+				recman.close();
+				File db = new File(pluginDir + DBNAME);
+				db.delete();
+				initRecordManager();
+				keys.clear();
+				projects.clear();
+				storedResults = -1;
+				uncommittedResults = 0;
+			}
+			HotspotIndex.singleton.clear();
 		} catch (Throwable e) {
 			Log.logError("Error deleting database", e);
 		}
@@ -256,11 +456,14 @@ public class Cache {
 	}
 
 	/**
-	 * 
+	 * commit the changes so far. Waits for puts and removes in progress, so only complete changes are written.
 	 */
 	public void commit() {
 		try {
-			recman.commit();
+			synchronized (writeLock) {
+				uncommittedResults = 0;
+				recman.commit();
+			}
 		} catch (Throwable e) {
 			Log.logError("Could not commit latest changes.", e);
 		}
@@ -32,7 +32,6 @@ import net.sourceforge.metrics.core.Metric;
 import net.sourceforge.metrics.core.MetricsPlugin;
 import net.sourceforge.metrics.internal.xml.IXMLExporter;
 
-import org.eclipse.core.resources.IResource;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IType;
@@ -72,11 +71,6 @@ public class CompilationUnitMetrics extends AbstractMetricSource {
 	@Override
 	protected void initializeChildren(AbstractMetricSource parentMetric) {
 		ICompilationUnit unit = (ICompilationUnit) getJavaElement();
-		try {
-			unit.getUnderlyingResource().deleteMarkers("net.sourceforge.metrics.outofrangemarker", true, IResource.DEPTH_INFINITE);
-		} catch (Throwable e) {
-			Log.logError("Could not delete markers", e);
-		}
 		astNode = getAST();
 		if (metricsInterruptus()) {
 			return;
@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.core.sources;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sourceforge.metrics.core.ICalculator;
+import net.sourceforge.metrics.core.Log;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.MetricsPreferences;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+
+/**
+ * Stores the calculated metrics of a compilation unit and its types and methods under a hash of the normalized source, the content of the superclasses and the calculator configuration. A unit whose content did not really
+ * change (a touch, a whitespace-only reformat, a checkout restoring identical content, a copy in another project) can then be restored without parsing or running any calculator.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ContentCache {
+
+	public final static ContentCache singleton = new ContentCache();
+
+	private static final String[] LEVELS = new String[] { "compilationUnit", "type", "method" };
+	// incremented when the stored sources gain data older results lack (2: type references) or the key changes (3: hierarchies, 4: superclass content)
+	private static final int FORMAT = 4;
+	private static final int MAX_SOURCE_HASHES = 4096;
+	private static final String[] PREFERENCES = new String[] { "LCOM.StaticMethods", "LCOM.StaticAttributes", "NORM.Abstract", "NORM.Super", "NORM.ExludeList" };
+
+	private String configuration;
+	private long configurationTime = -1;
+	private int hits;
+	private int misses;
+	// unit handle -> modification stamp and hash of the normalized source of recently seen superclass units
+	private final Map<String, Object[]> sourceHashes = new LinkedHashMap<String, Object[]>(256, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Object[]> eldest) {
+			return size() > MAX_SOURCE_HASHES;
+		}
+	};
+
+	private ContentCache() {
+		super();
+	}
+
+	/**
+	 * Calculate the key for the current content of the given unit, or null if its source is not available
+	 * 
+	 * @param unit
+	 * @return hexadecimal content hash
+	 */
+	public String getKey(ICompilationUnit unit) {
+		try {
+			String source = unit.getSource();
+			if (source == null) {
+				return null;
+			}
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(getConfiguration().getBytes("UTF-8"));
+			digest.update((byte) 0);
+			digest.update(normalize(source).getBytes("UTF-8"));
+			digest.update((byte) 0);
+			digestSuperclasses(unit, digest);
+			return toHex(digest.digest());
+		} catch (Throwable e) {
+			Log.logError("Could not hash " + unit.getHandleIdentifier(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * DIT, NORM and SIX depend on superclasses declared in other units or on the classpath. Hash the qualified name of every superclass of the top level and member types of the unit, with the normalized source of its unit
+	 * (or, for a binary class, the methods NORM compares with), so that a change to a superclass invalidates the stored result of this unit. The superclasses are resolved by name, no type hierarchy is built, and nothing
+	 * specific to the project goes into the key, so identical code on identical superclasses shares a result across projects. Local and anonymous types are skipped. NSC depends on subtypes elsewhere in the project; like
+	 * any metric of a unit that did not change, it is only updated when the unit itself is recalculated.
+	 * 
+	 * @param unit
+	 * @param digest
+	 * @throws JavaModelException
+	 * @throws UnsupportedEncodingException
+	 */
+	private void digestSuperclasses(ICompilationUnit unit, MessageDigest digest) throws JavaModelException, UnsupportedEncodingException {
+		IJavaProject project = unit.getJavaProject();
+		List<IType> types = new ArrayList<IType>();
+		collectTypes(unit.getTypes(), types);
+		StringBuffer b = new StringBuffer();
+		for (IType type : types) {
+			b.append('|');
+			Set<String> seen = new HashSet<String>();
+			IType current = type;
+			while (true) {
+				String name = getSuperclassName(current);
+				if (name == null) {
+					break;
+				}
+				b.append(';').append(name);
+				IType next = project.findType(name);
+				if ((next == null) || !seen.add(name)) {
+					// unresolved or circular
+					break;
+				}
+				b.append('=');
+				if (next.isBinary()) {
+					digestMethods(next, b);
+				} else {
+					b.append(getSourceHash(next.getCompilationUnit()));
+				}
+				current = next;
+			}
+		}
+		digest.update(b.toString().getBytes("UTF-8"));
+	}
+
+	/**
+	 * Collect the given types and their member types, depth first
+	 * 
+	 * @param parents
+	 * @param types
+	 * @throws JavaModelException
+	 */
+	private static void collectTypes(IType[] parents, List<IType> types) throws JavaModelException {
+		for (IType type : parents) {
+			types.add(type);
+			collectTypes(type.getTypes(), types);
+		}
+	}
+
+	/**
+	 * @param type
+	 * @return the fully qualified name of the superclass of the type (member types separated by '.'), the name as written if it cannot be resolved, or null for interfaces and java.lang.Object
+	 * @throws JavaModelException
+	 */
+	private static String getSuperclassName(IType type) throws JavaModelException {
+		String name = type.getSuperclassName();
+		if ((name == null) || type.isBinary()) {
+			return name;
+		}
+		String[][] resolved = type.resolveType(name);
+		if ((resolved == null) || (resolved.length != 1)) {
+			return name;
+		}
+		return (resolved[0][0].length() == 0) ? resolved[0][1] : resolved[0][0] + '.' + resolved[0][1];
+	}
+
+	private static void digestMethods(IType type, StringBuffer b) throws JavaModelException {
+		for (IMethod method : type.getMethods()) {
+			b.append(',').append(method.getElementName()).append('/').append(method.getFlags());
+			for (String parameter : method.getParameterTypes()) {
+				b.append(':').append(parameter);
+			}
+		}
+	}
+
+	/**
+	 * Hash the normalized source of a superclass unit, reusing the hash while the file keeps its modification stamp
+	 * 
+	 * @param unit
+	 * @return hexadecimal hash, empty if the source is not available
+	 * @throws JavaModelException
+	 * @throws UnsupportedEncodingException
+	 */
+	private String getSourceHash(ICompilationUnit unit) throws JavaModelException, UnsupportedEncodingException {
+		if (unit == null) {
+			return "";
+		}
+		String handle = unit.getHandleIdentifier();
+		IResource resource = unit.getResource();
+		Long stamp = new Long((resource == null) ? IResource.NULL_STAMP : resource.getModificationStamp());
+		synchronized (sourceHashes) {
+			Object[] known = sourceHashes.get(handle);
+			if ((known != null) && known[0].equals(stamp)) {
+				return (String) known[1];
+			}
+		}
+		String source = unit.getSource();
+		if (source == null) {
+			return "";
+		}
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+		String hash = toHex(digest.digest(normalize(source).getBytes("UTF-8")));
+		if (stamp.longValue() != IResource.NULL_STAMP) {
+			synchronized (sourceHashes) {
+				sourceHashes.put(handle, new Object[] { stamp, hash });
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Reduce the source to its tokens (comments included) and line breaks. Indentation, trailing whitespace, blank lines and line delimiters do not influence any metric and are dropped.
+	 * 
+	 * @param source
+	 * @return normalized source
+	 */
+	static String normalize(String source) {
+		char[] chars = source.toCharArray();
+		StringBuffer b = new StringBuffer(chars.length);
+		IScanner scanner = ToolFactory.createScanner(true, false, true, true);
+		scanner.setSource(chars);
+		int line = 1;
+		try {
+			while (true) {
+				int token = scanner.getNextToken();
+				if (token == ITerminalSymbols.TokenNameEOF) {
+					break;
+				}
+				int tokenLine = scanner.getLineNumber(scanner.getCurrentTokenStartPosition());
+				b.append(tokenLine != line ? '\n' : ' ');
+				line = tokenLine;
+				b.append(scanner.getCurrentTokenSource());
+			}
+		} catch (InvalidInputException e) {
+			// not lexically valid, fall back to the raw source
+			return source;
+		}
+		return b.toString();
+	}
+
+	/**
+	 * The calculator classes for the unit, type and method levels and the preferences they read. A different plugin version, storage format or preference setting produces different keys.
+	 * 
+	 * @return String
+	 */
+	private synchronized String getConfiguration() {
+		long changed = MetricsPlugin.lastTimePreferencesChanged();
+		if ((configuration == null) || (changed != configurationTime)) {
+			MetricsPlugin plugin = MetricsPlugin.getDefault();
+			StringBuffer b = new StringBuffer();
+			b.append(plugin.getBundle().getVersion()).append('/').append(FORMAT);
+			for (String level : LEVELS) {
+				b.append('|').append(level);
+				for (ICalculator c : plugin.getCalculators(level)) {
+					if (c != null) {
+						b.append(',').append(c.getClass().getName()).append(':').append(c.getName());
+					}
+				}
+			}
+			MetricsPreferences prefs = plugin.getPreferences();
+			for (String pref : PREFERENCES) {
+				b.append('|').append(pref).append('=').append(prefs.getString(pref));
+			}
+			configuration = b.toString();
+			configurationTime = changed;
+		}
+		return configuration;
+	}
+
+	/**
+	 * Restore the stored metrics for the unit into the Cache if its content was seen before
+	 * 
+	 * @param unit
+	 * @param key
+	 *            as returned by getKey(unit)
+	 * @return true if the metrics were restored, false if they must be calculated
+	 */
+	public boolean restore(ICompilationUnit unit, String key) {
+		if (key == null) {
+			return false;
+		}
+
+		byte[] stored = Cache.singleton.getStoredResult(key);
+		List<AbstractMetricSource> sources = (stored == null) ? null : deserialize(stored);
+		if (sources == null) {
+			countMiss();
+			return false;
+		}
+		String handle = unit.getHandleIdentifier();
+		RangeViolations.singleton.begin(handle);
+		boolean warnings = MetricsPlugin.isWarningsEnabled();
+		for (AbstractMetricSource next : sources) {
+			next.resolve(handle);
+			if (warnings) {
+				next.checkRanges();
+			}
+			Cache.singleton.put(next);
+		}
+		RangeViolations.singleton.flush(handle);
+		countHit();
+		return true;
+	}
+
+	/**
+	 * Store the metrics just calculated for the unit and all its descendants under the given key
+	 * 
+	 * @param unit
+	 * @param key
+	 *            as returned by getKey(unit)
+	 */
+	public void store(ICompilationUnit unit, String key) {
+		if (key == null) {
+			return;
+		}
+		String handle = unit.getHandleIdentifier();
+		List<AbstractMetricSource> sources = collect(handle);
+		if (sources == null) {
+			return;
+		}
+		byte[] stored = serialize(sources, handle);
+		if (stored != null) {
+			Cache.singleton.putStoredResult(key, stored);
+		}
+	}
+
+	/**
+	 * Walk the child handles starting at the unit
+	 * 
+	 * @param handle
+	 * @return the unit followed by its descendants, or null if any of them is missing
+	 */
+	private List<AbstractMetricSource> collect(String handle) {
+		List<AbstractMetricSource> result = new ArrayList<AbstractMetricSource>();
+		AbstractMetricSource root = Cache.singleton.get(handle);
+		if (root == null) {
+			return null;
+		}
+		result.add(root);
+		for (int i = 0; i < result.size(); i++) {
+			for (String child : result.get(i).getChildHandles()) {
+				AbstractMetricSource next = Cache.singleton.get(child);
+				if (next == null) {
+					return null;
+				}
+				result.add(next);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Serialize copies of the sources with handles relative to the unit so they can be restored under another path or project
+	 * 
+	 * @param sources
+	 * @param handle
+	 * @return byte[]
+	 */
+	private byte[] serialize(List<AbstractMetricSource> sources, String handle) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(sources);
+			out.close();
+			// work on a private copy, the Cache may hand out shared instances
+			List<AbstractMetricSource> copy = deserialize(bytes.toByteArray());
+			if (copy == null) {
+				return null;
+			}
+			for (AbstractMetricSource next : copy) {
+				next.relativize(handle);
+			}
+			bytes = new ByteArrayOutputStream();
+			out = new ObjectOutputStream(bytes);
+			out.writeObject(copy);
+			out.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			Log.logError("Could not serialize metrics for " + handle, e);
+			return null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static List<AbstractMetricSource> deserialize(byte[] stored) {
+		try {
+			ObjectInputStream in = new ResultInputStream(new ByteArrayInputStream(stored));
+			try {
+				return (List<AbstractMetricSource>) in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (Throwable e) {
+			// written by an incompatible version, recalculate
+			return null;
+		}
+	}
+
+	/**
+	 * Stored results may come from result packs other people can write to. Only resolve the classes a stored result is made of: the metric sources and values of this plugin, and java.lang and java.util (but not their
+	 * subpackages).
+	 */
+	private static class ResultInputStream extends ObjectInputStream {
+
+		ResultInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (!isAllowed(desc.getName())) {
+				throw new InvalidClassException(desc.getName(), "not allowed in stored metrics");
+			}
+			return super.resolveClass(desc);
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+			throw new InvalidClassException("proxy", "not allowed in stored metrics");
+		}
+
+		private static boolean isAllowed(String name) {
+			String component = name;
+			if (component.startsWith("[")) {
+				component = component.substring(component.lastIndexOf('[') + 1);
+				if (component.length() == 1) {
+					// primitive array
+					return true;
+				}
+				if (!component.startsWith("L") || !component.endsWith(";")) {
+					return false;
+				}
+				component = component.substring(1, component.length() - 1);
+			}
+			if (component.startsWith("net.sourceforge.metrics.core.")) {
+				return true;
+			}
+			int dot = component.lastIndexOf('.');
+			String pkg = (dot == -1) ? "" : component.substring(0, dot);
+			return pkg.equals("java.lang") || pkg.equals("java.util");
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuffer b = new StringBuffer(bytes.length * 2);
+		for (byte element : bytes) {
+			b.append(Character.forDigit((element >> 4) & 0xF, 16));
+			b.append(Character.forDigit(element & 0xF, 16));
+		}
+		return b.toString();
+	}
+
+	private synchronized void countHit() {
+		hits++;
+	}
+
+	private synchronized void countMiss() {
+		misses++;
+	}
+
+	/**
+	 * @return number of compilation units restored from stored content
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of lookups that required a calculation
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * @return a short human readable summary of the hit/miss counters
+	 */
+	public synchronized String getStatistics() {
+		int total = hits + misses;
+		StringBuffer b = new StringBuffer();
+		b.append("Unchanged units reused: ").append(hits).append('/').append(total);
+		if (total > 0) {
+			b.append(" (").append(hits * 100 / total).append("%)");
+		}
+		return b.toString();
+	}
+}
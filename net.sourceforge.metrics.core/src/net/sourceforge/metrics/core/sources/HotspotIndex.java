@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.core.sources;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import net.sourceforge.metrics.core.Log;
+import net.sourceforge.metrics.core.Metric;
+import net.sourceforge.metrics.core.MetricDescriptor;
+import net.sourceforge.metrics.core.MetricsPlugin;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * In-memory index of the metric values of all elements in the Cache, answering "the K elements with the highest values of a metric" without deserializing any element. Every element has a slot, every metric a column with
+ * the value per slot. The index is filled from the Cache on the first query. Afterwards the Cache passes every element it stores, whose values are copied into the slot without reading the Cache again, and marks the
+ * handles it removes as stale; the next query drops those (and removed subtrees) before answering. Until the first query the Cache writes cost nothing, so builds do not pay for the index while nobody queries it.
+ * <p>
+ * A query is a single pass over one column with a bounded heap, the scope and package filters are only evaluated for values that would enter the heap.
+ * 
+ * @author Metrics2 contributors
+ */
+public class HotspotIndex {
+
+	public final static HotspotIndex singleton = new HotspotIndex();
+
+	// characters starting the next element of a java element handle, see JavaElement.JEM_*. An escaped character ('\\') is part of the name.
+	private static final String HANDLE_DELIMITERS = "=/<{([]~^!|#@&%})";
+
+	private Map<String, Integer> slots = new HashMap<String, Integer>();
+	private String[] handles = new String[1024];
+	private byte[] levels = new byte[1024];
+	private int size;
+	private int[] free = new int[16];
+	private int freeCount;
+	private Map<String, Column> columns = new HashMap<String, Column>();
+	private boolean loaded;
+	// true from the start of the first load, writes are only recorded then
+	private volatile boolean tracking;
+	private Set<String> stale = new HashSet<String>();
+	private List<String> staleSubtrees = new ArrayList<String>();
+
+	private HotspotIndex() {
+	}
+
+	/**
+	 * Record the values of a stored element. Until the index is loaded it is only marked stale, since the load may still read the previous values from the Cache.
+	 * 
+	 * @param source
+	 */
+	public void put(AbstractMetricSource source) {
+		if (!tracking) {
+			return;
+		}
+		synchronized (this) {
+			if (!loaded) {
+				stale.add(source.getHandle());
+				return;
+			}
+		}
+		update(source);
+	}
+
+	/**
+	 * Mark the element as changed or removed, it is reloaded from the Cache on the next query
+	 * 
+	 * @param handle
+	 */
+	public void invalidate(String handle) {
+		if (!tracking || (handle == null)) {
+			return;
+		}
+		synchronized (this) {
+			stale.add(handle);
+		}
+	}
+
+	/**
+	 * Mark the element and all its descendants as removed
+	 * 
+	 * @param prefix
+	 *            handle of the topmost element
+	 */
+	public void invalidateSubtree(String prefix) {
+		if (!tracking) {
+			return;
+		}
+		synchronized (this) {
+			staleSubtrees.add(prefix);
+		}
+	}
+
+	/**
+	 * Record the values of the source, replacing any values recorded for its handle before
+	 * 
+	 * @param source
+	 */
+	private synchronized void update(AbstractMetricSource source) {
+		String handle = source.getHandle();
+		if (handle == null) {
+			return;
+		}
+		Integer existing = slots.get(handle);
+		int slot;
+		if (existing != null) {
+			slot = existing.intValue();
+			clearValues(slot);
+		} else {
+			slot = allocate(handle);
+		}
+		levels[slot] = (byte) source.getLevel();
+		for (Map.Entry<String, Metric> entry : source.getValues().entrySet()) {
+			Column column = columns.get(entry.getKey());
+			if (column == null) {
+				column = new Column();
+				columns.put(entry.getKey(), column);
+			}
+			column.set(slot, entry.getValue().doubleValue());
+		}
+	}
+
+	private synchronized void remove(String handle) {
+		Integer slot = slots.remove(handle);
+		if (slot != null) {
+			release(slot.intValue());
+		}
+	}
+
+	/**
+	 * Remove the elements under any of the prefixes, in one pass over the slots
+	 * 
+	 * @param prefixes
+	 *            handles of the topmost elements
+	 */
+	private synchronized void removeSubtrees(List<String> prefixes) {
+		for (int slot = 0; slot < size; slot++) {
+			if (handles[slot] == null) {
+				continue;
+			}
+			for (String prefix : prefixes) {
+				if (isUnder(handles[slot], prefix)) {
+					slots.remove(handles[slot]);
+					release(slot);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * forget everything, the index is filled again on the next query
+	 */
+	public synchronized void clear() {
+		slots.clear();
+		handles = new String[1024];
+		levels = new byte[1024];
+		size = 0;
+		freeCount = 0;
+		columns.clear();
+		loaded = false;
+		tracking = false;
+		stale.clear();
+		staleSubtrees.clear();
+	}
+
+	/**
+	 * Answer the query, filling the index from the Cache first if this is the first query since startup, and reloading the elements written since the last query otherwise
+	 * 
+	 * @param query
+	 * @param monitor
+	 * @return the matching elements, highest value first
+	 */
+	public List<Hotspot> query(Query query, IProgressMonitor monitor) {
+		load(monitor);
+		refresh();
+		return query(query);
+	}
+
+	synchronized List<Hotspot> query(Query query) {
+		List<Hotspot> result = new ArrayList<Hotspot>();
+		Column column = columns.get(query.metric);
+		if ((column == null) || (query.count <= 0)) {
+			return result;
+		}
+		MetricDescriptor descriptor = query.outOfRange ? MetricsPlugin.getDefault().getMetricDescriptor(query.metric) : null;
+		PriorityQueue<Hotspot> heap = new PriorityQueue<Hotspot>(query.count + 1);
+		for (int slot = column.present.nextSetBit(0); slot >= 0; slot = column.present.nextSetBit(slot + 1)) {
+			double value = column.values[slot];
+			if ((heap.size() == query.count) && (value <= heap.peek().value)) {
+				continue;
+			}
+			if ((query.level != 0) && (levels[slot] != query.level)) {
+				continue;
+			}
+			if ((descriptor != null) && descriptor.isValueInRange(value)) {
+				continue;
+			}
+			String handle = handles[slot];
+			if ((query.scope != null) && !isUnder(handle, query.scope)) {
+				continue;
+			}
+			if ((query.packagePrefix != null) && !getPackageName(handle).startsWith(query.packagePrefix)) {
+				continue;
+			}
+			heap.add(new Hotspot(handle, levels[slot], value));
+			if (heap.size() > query.count) {
+				heap.poll();
+			}
+		}
+		while (!heap.isEmpty()) {
+			result.add(0, heap.poll());
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of elements in the index
+	 */
+	public synchronized int size() {
+		return slots.size();
+	}
+
+	/**
+	 * Fill the index from the Cache, for all java projects in the workspace
+	 * 
+	 * @param monitor
+	 */
+	private void load(IProgressMonitor monitor) {
+		synchronized (this) {
+			if (loaded) {
+				return;
+			}
+			// elements written while loading are reloaded by the next refresh
+			tracking = true;
+		}
+		try {
+			IJavaProject[] projects = JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+			monitor.beginTask("Indexing metrics", projects.length);
+			for (IJavaProject project : projects) {
+				for (String handle : Cache.singleton.getHandlesUnder(project.getHandleIdentifier())) {
+					if (monitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+					AbstractMetricSource source = Cache.singleton.get(handle);
+					if (source != null) {
+						update(source);
+					}
+				}
+				monitor.worked(1);
+			}
+			synchronized (this) {
+				loaded = true;
+			}
+		} catch (OperationCanceledException e) {
+			throw e;
+		} catch (Throwable e) {
+			Log.logError("Could not index metrics", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Apply the removals and reload the elements marked stale since the last query
+	 */
+	private void refresh() {
+		List<String> subtrees;
+		Set<String> handles;
+		synchronized (this) {
+			if (!loaded || (stale.isEmpty() && staleSubtrees.isEmpty())) {
+				return;
+			}
+			subtrees = staleSubtrees;
+			handles = stale;
+			staleSubtrees = new ArrayList<String>();
+			stale = new HashSet<String>();
+		}
+		if (!subtrees.isEmpty()) {
+			removeSubtrees(subtrees);
+		}
+		for (String handle : handles) {
+			AbstractMetricSource source = Cache.singleton.get(handle);
+			if (source != null) {
+				update(source);
+			} else {
+				remove(handle);
+			}
+		}
+	}
+
+	/**
+	 * @param handle
+	 * @param ancestor
+	 * @return true if handle is the ancestor or one of its descendants. A plain prefix is not enough, "=p" is not an ancestor of "=p2" nor "=p/src<com.foo" of "=p/src<com.foobar".
+	 */
+	public static boolean isUnder(String handle, String ancestor) {
+		if (!handle.startsWith(ancestor)) {
+			return false;
+		}
+		return (handle.length() == ancestor.length()) || (HANDLE_DELIMITERS.indexOf(handle.charAt(ancestor.length())) != -1);
+	}
+
+	/**
+	 * @param handle
+	 * @return the name of the package the element is in, "" if none
+	 */
+	static String getPackageName(String handle) {
+		int start = handle.indexOf('<');
+		if (start == -1) {
+			return "";
+		}
+		int end = start + 1;
+		while ((end < handle.length()) && "{([~^!|#@&".indexOf(handle.charAt(end)) == -1) {
+			end++;
+		}
+		return handle.substring(start + 1, end);
+	}
+
+	private int allocate(String handle) {
+		int slot;
+		if (freeCount > 0) {
+			slot = free[--freeCount];
+		} else {
+			if (size == handles.length) {
+				String[] grownHandles = new String[size * 2];
+				System.arraycopy(handles, 0, grownHandles, 0, size);
+				handles = grownHandles;
+				byte[] grownLevels = new byte[size * 2];
+				System.arraycopy(levels, 0, grownLevels, 0, size);
+				levels = grownLevels;
+			}
+			slot = size++;
+		}
+		handles[slot] = handle;
+		slots.put(handle, new Integer(slot));
+		return slot;
+	}
+
+	private void release(int slot) {
+		clearValues(slot);
+		handles[slot] = null;
+		if (freeCount == free.length) {
+			int[] grown = new int[freeCount * 2];
+			System.arraycopy(free, 0, grown, 0, freeCount);
+			free = grown;
+		}
+		free[freeCount++] = slot;
+	}
+
+	private void clearValues(int slot) {
+		for (Column column : columns.values()) {
+			column.present.clear(slot);
+		}
+	}
+
+	/**
+	 * the values of one metric by slot
+	 */
+	private static class Column {
+
+		double[] values = new double[1024];
+		BitSet present = new BitSet();
+
+		void set(int slot, double value) {
+			if (slot >= values.length) {
+				double[] grown = new double[Math.max(values.length * 2, slot + 1)];
+				System.arraycopy(values, 0, grown, 0, values.length);
+				values = grown;
+			}
+			values[slot] = value;
+			present.set(slot);
+		}
+	}
+
+	/**
+	 * What to look for. Only the metric is required.
+	 */
+	public static class Query {
+
+		String metric;
+		int count = 50;
+		int level;
+		String scope;
+		String packagePrefix;
+		boolean outOfRange;
+
+		/**
+		 * @param metric
+		 *            id of the metric
+		 */
+		public Query(String metric) {
+			this.metric = metric;
+		}
+
+		/**
+		 * @param count
+		 *            maximum number of elements returned, 50 by default
+		 */
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		/**
+		 * @param level
+		 *            only elements of this level (Constants.METHOD etc.), 0 for all levels
+		 */
+		public void setLevel(int level) {
+			this.level = level;
+		}
+
+		/**
+		 * @param scope
+		 *            handle of an element, only the element and its descendants are considered
+		 */
+		public void setScope(String scope) {
+			this.scope = scope;
+		}
+
+		/**
+		 * @param packagePrefix
+		 *            only elements in packages whose name starts with this
+		 */
+		public void setPackagePrefix(String packagePrefix) {
+			this.packagePrefix = ((packagePrefix == null) || (packagePrefix.length() == 0)) ? null : packagePrefix;
+		}
+
+		/**
+		 * @param outOfRange
+		 *            true for only values outside the safe range of the metric
+		 */
+		public void setOutOfRange(boolean outOfRange) {
+			this.outOfRange = outOfRange;
+		}
+	}
+
+	/**
+	 * One element found by a query
+	 */
+	public static class Hotspot implements Comparable<Hotspot> {
+
+		private String handle;
+		private int level;
+		private double value;
+
+		Hotspot(String handle, int level, double value) {
+			this.handle = handle;
+			this.level = level;
+			this.value = value;
+		}
+
+		public String getHandle() {
+			return handle;
+		}
+
+		public int getLevel() {
+			return level;
+		}
+
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * lowest value first, so the heap drops the lowest
+		 */
+		public int compareTo(Hotspot o) {
+			return Double.compare(value, o.value);
+		}
+	}
+}
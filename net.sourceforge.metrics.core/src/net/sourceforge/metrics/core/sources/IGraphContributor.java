@@ -28,4 +28,9 @@ import java.util.Set;
 public interface IGraphContributor {
 
 	Map<String, Set<String>> getEfferent();
+
+	/**
+	 * @return the dependencies between the types of the packages in getEfferent(), merged from the packages in the cache on each call, null if a package was stored before they were computed
+	 */
+	TypeDependencies getTypeDependencies();
 }
@@ -20,6 +20,7 @@
  */
 package net.sourceforge.metrics.core.sources;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -44,6 +45,7 @@ public class PackageFragmentMetrics extends AbstractMetricSource {
 	static final long serialVersionUID = 552400421568822970L;
 
 	private Set<String> efferent;
+	private TypeDependencies types;
 
 	public PackageFragmentMetrics() {
 		super();
@@ -77,6 +79,56 @@ public class PackageFragmentMetrics extends AbstractMetricSource {
 		save();
 	}
 
+	/**
+	 * @see net.sourceforge.metrics.core.sources.AbstractMetricSource#calculate()
+	 */
+	@Override
+	public void calculate() {
+		super.calculate();
+		createTypeDependencies();
+	}
+
+	/**
+	 * collect the references of all types in my compilation units and their member types. Methods are skipped by their handle before they are read from the cache, the references of their local types are already part
+	 * of those of the enclosing type.
+	 */
+	private void createTypeDependencies() {
+		types = new TypeDependencies();
+		String name = getName();
+		List<String> handles = new ArrayList<String>(getChildHandles());
+		for (int i = 0; i < handles.size(); i++) {
+			if (!isTypeOrUnit(handles.get(i))) {
+				continue;
+			}
+			AbstractMetricSource next = Cache.singleton.get(handles.get(i));
+			if (next == null) {
+				continue;
+			}
+			if (next instanceof TypeMetrics) {
+				types.add(name, (TypeMetrics) next);
+			}
+			handles.addAll(next.getChildHandles());
+		}
+	}
+
+	/**
+	 * @param handle
+	 *            a handle identifier
+	 * @return true if the last element of the handle is a compilation unit or a type, not a method, initializer or field. Delimiters escaped in names and signatures are ignored.
+	 */
+	static boolean isTypeOrUnit(String handle) {
+		char last = 0;
+		for (int i = 0; i < handle.length(); i++) {
+			char c = handle.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if ((c == '{') || (c == '[') || (c == '~') || (c == '|') || (c == '^')) {
+				last = c;
+			}
+		}
+		return (last == '{') || (last == '[');
+	}
+
 	/**
 	 * @see net.sourceforge.metrics.core.sources.AbstractMetricSource#getLevel()
 	 */
@@ -117,6 +169,13 @@ public class PackageFragmentMetrics extends AbstractMetricSource {
 		return efferent;
 	}
 
+	/**
+	 * @return the dependencies between the types of this package and the types they reference, null if the package was stored by a version that did not compute them
+	 */
+	public TypeDependencies getTypeDependencies() {
+		return types;
+	}
+
 	@Override
 	public ASTNode getASTNode() {
 		return null;
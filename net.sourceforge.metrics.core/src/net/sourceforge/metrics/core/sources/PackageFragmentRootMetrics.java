@@ -139,6 +139,26 @@ public class PackageFragmentRootMetrics extends AbstractMetricSource implements
 		return efferent;
 	}
 
+	/**
+	 * The type dependencies are not stored with the source folder, a copy of all references of its packages would have to be read back with every load of it
+	 * 
+	 * @return the type dependencies of all packages, or null if a package was stored before they were computed
+	 */
+	public TypeDependencies getTypeDependencies() {
+		TypeDependencies result = new TypeDependencies();
+		for (String handle : getChildHandles()) {
+			AbstractMetricSource next = Cache.singleton.get(handle);
+			if (next instanceof PackageFragmentMetrics) {
+				TypeDependencies types = ((PackageFragmentMetrics) next).getTypeDependencies();
+				if (types == null) {
+					return null;
+				}
+				result.addAll(types);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public ASTNode getASTNode() {
 		return null;
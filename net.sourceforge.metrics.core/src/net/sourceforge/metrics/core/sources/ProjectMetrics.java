@@ -157,6 +157,26 @@ public class ProjectMetrics extends AbstractMetricSource implements IGraphContri
 		return efferent;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.sourceforge.metrics.core.sources.IGraphContributor#getTypeDependencies()
+	 */
+	public TypeDependencies getTypeDependencies() {
+		TypeDependencies result = new TypeDependencies();
+		for (String handle : getChildHandles()) {
+			AbstractMetricSource next = Cache.singleton.get(handle);
+			if (next instanceof PackageFragmentRootMetrics) {
+				TypeDependencies types = ((PackageFragmentRootMetrics) next).getTypeDependencies();
+				if (types == null) {
+					return null;
+				}
+				result.addAll(types);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public ASTNode getASTNode() {
 		return null;
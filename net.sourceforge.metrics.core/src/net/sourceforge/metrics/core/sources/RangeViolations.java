@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.core.sources;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.metrics.core.Log;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Collects the out of range values found while calculating, instead of creating a marker for each of them on the calculator thread. Violations are grouped by their owner, the compilation unit, package fragment, source
+ * folder or project whose resource carries the markers (types and methods belong to their compilation unit). When the owner is done, flush replaces its markers in a single workspace operation, keeping the markers that did
+ * not change so an unchanged unit causes no resource delta at all.
+ * 
+ * @author Metrics2 contributors
+ */
+public class RangeViolations {
+
+	public final static RangeViolations singleton = new RangeViolations();
+
+	public static final String MARKER_TYPE = "net.sourceforge.metrics.outofrangemarker";
+	static final String OWNER = "owner";
+
+	// owner handle -> violations found since begin
+	private Map<String, List<Violation>> pending = new HashMap<String, List<Violation>>();
+
+	private RangeViolations() {
+		super();
+	}
+
+	/**
+	 * Start collecting the violations of the given owner, forgetting whatever was collected for it before
+	 * 
+	 * @param owner
+	 *            handle of the compilation unit, package fragment, package fragment root or project
+	 */
+	public synchronized void begin(String owner) {
+		pending.put(owner, new ArrayList<Violation>());
+	}
+
+	/**
+	 * @param owner
+	 * @param violation
+	 */
+	public synchronized void add(String owner, Violation violation) {
+		List<Violation> list = pending.get(owner);
+		if (list == null) {
+			list = new ArrayList<Violation>();
+			pending.put(owner, list);
+		}
+		list.add(violation);
+	}
+
+	/**
+	 * Replace the markers of the owner by the violations collected since begin(owner). Does nothing if nothing was begun for the owner.
+	 * 
+	 * @param owner
+	 */
+	public void flush(String owner) {
+		List<Violation> violations;
+		synchronized (this) {
+			violations = pending.remove(owner);
+		}
+		if (violations == null) {
+			return;
+		}
+		IJavaElement element = JavaCore.create(owner);
+		try {
+			IResource resource = (element == null) ? null : element.getUnderlyingResource();
+			if ((resource != null) && resource.exists()) {
+				update(resource, owner, violations);
+			}
+		} catch (Throwable e) {
+			Log.logError("Could not update markers of " + owner, e);
+		}
+	}
+
+	/**
+	 * Forget all violations not flushed yet
+	 */
+	public synchronized void clear() {
+		pending.clear();
+	}
+
+	private void update(final IResource resource, final String owner, final List<Violation> violations) throws CoreException {
+		IMarker[] existing = resource.findMarkers(MARKER_TYPE, false, IResource.DEPTH_ZERO);
+		if ((existing.length == 0) && violations.isEmpty()) {
+			return;
+		}
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.run(new IWorkspaceRunnable() {
+
+			public void run(IProgressMonitor monitor) throws CoreException {
+				IMarker[] markers = resource.findMarkers(MARKER_TYPE, false, IResource.DEPTH_ZERO);
+				Map<String, IMarker> kept = new HashMap<String, IMarker>();
+				List<IMarker> obsolete = new ArrayList<IMarker>();
+				for (IMarker marker : markers) {
+					Object markerOwner = marker.getAttribute(OWNER);
+					if (owner.equals(markerOwner)) {
+						kept.put(getKey(marker), marker);
+					} else if (markerOwner == null) {
+						// created before markers had owners
+						obsolete.add(marker);
+					}
+				}
+				List<Violation> added = new ArrayList<Violation>();
+				for (Violation next : violations) {
+					if (kept.remove(next.getKey()) == null) {
+						added.add(next);
+					}
+				}
+				obsolete.addAll(kept.values());
+				if (!obsolete.isEmpty()) {
+					workspace.deleteMarkers(obsolete.toArray(new IMarker[] {}));
+				}
+				for (Violation next : added) {
+					IMarker marker = resource.createMarker(MARKER_TYPE);
+					IJavaElement element = JavaCore.create(next.handle);
+					if (element != null) {
+						JavaCore.getJavaCore().configureJavaElementMarker(marker, element);
+					}
+					next.configure(marker, owner);
+				}
+			}
+		}, workspace.getRuleFactory().markerRule(resource), IWorkspace.AVOID_UPDATE, null);
+	}
+
+	private static String getKey(IMarker marker) {
+		return getKey(marker.getAttribute(IMarker.MESSAGE, ""), marker.getAttribute(IMarker.CHAR_START, -1), marker.getAttribute(IMarker.CHAR_END, -1), marker.getAttribute(IMarker.LINE_NUMBER, -1));
+	}
+
+	private static String getKey(String message, int start, int end, int line) {
+		StringBuffer b = new StringBuffer(message);
+		b.append('|').append(start).append('|').append(end).append('|').append(line);
+		return b.toString();
+	}
+
+	/**
+	 * One value out of its safe range
+	 */
+	public static class Violation {
+
+		private String handle;
+		private String metric;
+		private String value;
+		private String message;
+		private int start = -1;
+		private int end = -1;
+		private int line = -1;
+
+		/**
+		 * @param handle
+		 *            handle of the element having the value
+		 * @param metric
+		 * @param value
+		 * @param message
+		 */
+		public Violation(String handle, String metric, String value, String message) {
+			this.handle = handle;
+			this.metric = metric;
+			this.value = value;
+			this.message = message;
+		}
+
+		/**
+		 * Set the source range of the element name and the line it starts on
+		 * 
+		 * @param start
+		 * @param end
+		 * @param line
+		 *            -1 if not known
+		 */
+		public void setRange(int start, int end, int line) {
+			this.start = start;
+			this.end = end;
+			this.line = line;
+		}
+
+		String getKey() {
+			return RangeViolations.getKey(message, start, end, line);
+		}
+
+		/**
+		 * Set all attributes with a single call so the marker causes one change only
+		 * 
+		 * @param marker
+		 * @param owner
+		 * @throws CoreException
+		 */
+		void configure(IMarker marker, String owner) throws CoreException {
+			List<String> names = new ArrayList<String>();
+			List<Object> values = new ArrayList<Object>();
+			names.add(OWNER);
+			values.add(owner);
+			names.add("metric");
+			values.add(metric);
+			names.add("value");
+			values.add(value);
+			names.add(IMarker.MESSAGE);
+			values.add(message);
+			names.add(IMarker.SEVERITY);
+			values.add(new Integer(IMarker.SEVERITY_WARNING));
+			if (start != -1) {
+				names.add(IMarker.CHAR_START);
+				values.add(new Integer(start));
+				names.add(IMarker.CHAR_END);
+				values.add(new Integer(end));
+			}
+			if (line != -1) {
+				names.add(IMarker.LINE_NUMBER);
+				values.add(new Integer(line));
+			}
+			marker.setAttributes(names.toArray(new String[] {}), values.toArray());
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.core.sources;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import net.sourceforge.metrics.core.Log;
+import net.sourceforge.metrics.core.MetricsPlugin;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * A portable set of stored compilation unit results (see ContentCache). A pack is a zip file with one entry per unit, named by its content key. Since the keys only depend on the normalized source, the content of the
+ * superclasses and the calculator configuration, a pack written by a CI build can be imported into any workspace running the same plugin version and preferences. Entries that are too large or do not deserialize into metric sources
+ * are skipped on import.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ResultPack {
+
+	public static final String EXTENSION = ".zip";
+	// larger entries are not results of a single compilation unit
+	private static final int MAX_ENTRY_SIZE = 8 * 1024 * 1024;
+
+	// pack path -> lastModified when it was imported
+	private static Map<String, Long> imported = new HashMap<String, Long>();
+
+	private ResultPack() {
+	}
+
+	/**
+	 * Write the stored results of all compilation units in the project to the given file. Units that were calculated before their results were stored by content are stored first.
+	 * 
+	 * @param project
+	 * @param pack
+	 * @param monitor
+	 * @return number of units written
+	 * @throws IOException
+	 */
+	public static int write(IJavaProject project, File pack, IProgressMonitor monitor) throws IOException {
+		List<ICompilationUnit> units = getCompilationUnits(project);
+		monitor.beginTask("Writing metrics result pack...", units.size());
+		Set<String> written = new HashSet<String>();
+		ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(pack)));
+		try {
+			for (ICompilationUnit unit : units) {
+				String key = ContentCache.singleton.getKey(unit);
+				if ((key != null) && written.add(key)) {
+					byte[] stored = Cache.singleton.getStoredResult(key);
+					if (stored == null) {
+						ContentCache.singleton.store(unit, key);
+						stored = Cache.singleton.getStoredResult(key);
+					}
+					if (stored != null) {
+						out.putNextEntry(new ZipEntry(key));
+						out.write(stored);
+						out.closeEntry();
+					} else {
+						written.remove(key);
+					}
+				}
+				monitor.worked(1);
+			}
+		} finally {
+			out.close();
+			monitor.done();
+		}
+		return written.size();
+	}
+
+	/**
+	 * Import all results from the given pack that are not already stored
+	 * 
+	 * @param pack
+	 * @return number of results imported
+	 * @throws IOException
+	 */
+	public static int read(File pack) throws IOException {
+		int count = 0;
+		ZipInputStream in = new ZipInputStream(new BufferedInputStream(new FileInputStream(pack)));
+		try {
+			ZipEntry entry = in.getNextEntry();
+			while (entry != null) {
+				String key = entry.getName();
+				if (isKey(key) && (Cache.singleton.getStoredResult(key) == null)) {
+					byte[] stored = readFully(in, MAX_ENTRY_SIZE);
+					if ((stored != null) && (ContentCache.deserialize(stored) != null)) {
+						Cache.singleton.putStoredResult(key, stored);
+						count++;
+					} else {
+						Log.logMessage("Skipped invalid entry " + key + " in metrics result pack " + pack);
+					}
+				}
+				entry = in.getNextEntry();
+			}
+		} finally {
+			in.close();
+		}
+		Cache.singleton.commit();
+		return count;
+	}
+
+	/**
+	 * Import the packs in the directory configured in the preferences (METRICS.packDirectory), if any. Packs already imported and unchanged since are skipped, so this is cheap enough to call before every build.
+	 * 
+	 * @return number of results imported
+	 */
+	public static int seed() {
+		String dir = MetricsPlugin.getDefault().getPreferences().getString("METRICS.packDirectory");
+		if ((dir == null) || (dir.trim().length() == 0)) {
+			return 0;
+		}
+		return seed(new File(dir.trim()));
+	}
+
+	/**
+	 * Import the packs at the given location that were not imported before or changed since
+	 * 
+	 * @param location
+	 *            a pack file or a directory containing pack files
+	 * @return number of results imported
+	 */
+	public static synchronized int seed(File location) {
+		int count = 0;
+		for (File pack : getPacks(location)) {
+			String path = pack.getAbsolutePath();
+			Long modified = new Long(pack.lastModified());
+			if (modified.equals(imported.get(path))) {
+				continue;
+			}
+			try {
+				count += read(pack);
+				imported.put(path, modified);
+			} catch (Throwable e) {
+				Log.logError("Could not import metrics result pack " + path, e);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param location
+	 *            a pack file or a directory containing pack files
+	 * @return the pack files at the given location
+	 */
+	public static File[] getPacks(File location) {
+		if (location.isDirectory()) {
+			List<File> result = new ArrayList<File>();
+			File[] files = location.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					if (file.isFile() && file.getName().endsWith(EXTENSION)) {
+						result.add(file);
+					}
+				}
+			}
+			return result.toArray(new File[] {});
+		}
+		if (location.isFile()) {
+			return new File[] { location };
+		}
+		return new File[] {};
+	}
+
+	/**
+	 * @param key
+	 * @return true if the entry name is a content key (hexadecimal SHA-1)
+	 */
+	private static boolean isKey(String key) {
+		if (key.length() != 40) {
+			return false;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (Character.digit(key.charAt(i), 16) == -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param in
+	 * @param limit
+	 * @return the remaining bytes of the stream, or null if there are more than limit
+	 * @throws IOException
+	 */
+	private static byte[] readFully(InputStream in, int limit) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read = in.read(buffer);
+		while (read != -1) {
+			if (bytes.size() + read > limit) {
+				return null;
+			}
+			bytes.write(buffer, 0, read);
+			read = in.read(buffer);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static List<ICompilationUnit> getCompilationUnits(IJavaProject project) {
+		List<ICompilationUnit> result = new ArrayList<ICompilationUnit>();
+		try {
+			for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+				if (root.getKind() != IPackageFragmentRoot.K_SOURCE) {
+					continue;
+				}
+				for (IJavaElement child : root.getChildren()) {
+					if (child instanceof IPackageFragment) {
+						for (ICompilationUnit unit : ((IPackageFragment) child).getCompilationUnits()) {
+							result.add(unit);
+						}
+					}
+				}
+			}
+		} catch (JavaModelException e) {
+			Log.logError("Could not list compilation units of " + project.getElementName(), e);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.core.sources;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+
+/**
+ * The type to type dependencies of a package, source folder or project, collected from the ASTs during the metrics calculation and stored with the package dependencies. References are kept as recorded by the types (see
+ * TypeReferenceCollector) and resolved against the known types when a subgraph is extracted, so a reference into another package or source folder resolves once both are merged.
+ * 
+ * @author Metrics2 contributors
+ */
+public class TypeDependencies implements Serializable {
+
+	static final long serialVersionUID = -6817427745035911562L;
+
+	/**
+	 * qualified type name -> IType-handle
+	 */
+	private Map<String, String> types = new HashMap<String, String>();
+
+	/**
+	 * IType-handle -> package name
+	 */
+	private Map<String, String> packages = new HashMap<String, String>();
+
+	/**
+	 * IType-handle -> {candidate list}*
+	 */
+	private Map<String, Set<String>> references = new HashMap<String, Set<String>>();
+
+	public TypeDependencies() {
+		super();
+	}
+
+	/**
+	 * Add a type and its references
+	 * 
+	 * @param packageName
+	 * @param type
+	 */
+	public void add(String packageName, TypeMetrics type) {
+		String qualifiedName = type.getQualifiedName();
+		if (qualifiedName == null) {
+			return;
+		}
+		String handle = type.getHandle();
+		types.put(qualifiedName, handle);
+		packages.put(handle, packageName);
+		Set<String> refs = type.getTypeReferences();
+		references.put(handle, (refs == null) ? new HashSet<String>() : refs);
+	}
+
+	/**
+	 * Add all types and references of another package, source folder or project
+	 * 
+	 * @param other
+	 *            may be null
+	 */
+	public void addAll(TypeDependencies other) {
+		if (other != null) {
+			types.putAll(other.types);
+			packages.putAll(other.packages);
+			references.putAll(other.references);
+		}
+	}
+
+	/**
+	 * @return number of types
+	 */
+	public int size() {
+		return packages.size();
+	}
+
+	/**
+	 * Extract the dependencies between the types of the given packages. Only references from and to types in these packages are included.
+	 * 
+	 * @param packageNames
+	 * @param dependencies
+	 *            receives IType-handle -> {IType-handle}*
+	 * @param typesPerPackage
+	 *            receives packageName -> {IType-handle}*
+	 */
+	public void extract(Collection<String> packageNames, Map<String, Set<String>> dependencies, Map<String, Set<String>> typesPerPackage) {
+		Set<String> scope = new HashSet<String>(packageNames);
+		for (Entry<String, String> entry : packages.entrySet()) {
+			if (scope.contains(entry.getValue())) {
+				dependencies.put(entry.getKey(), new HashSet<String>());
+				Set<String> typesInPackage = typesPerPackage.get(entry.getValue());
+				if (typesInPackage == null) {
+					typesInPackage = new HashSet<String>();
+					typesPerPackage.put(entry.getValue(), typesInPackage);
+				}
+				typesInPackage.add(entry.getKey());
+			}
+		}
+		for (Entry<String, Set<String>> entry : dependencies.entrySet()) {
+			String from = entry.getKey();
+			for (String reference : references.get(from)) {
+				String to = resolve(reference);
+				if ((to != null) && !to.equals(from) && dependencies.containsKey(to)) {
+					entry.getValue().add(to);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Count the type dependencies between the given packages, the weight of each package dependency among them
+	 * 
+	 * @param packageNames
+	 * @return from package -> to package -> number of type dependencies
+	 */
+	public Map<String, Map<String, Integer>> countReferences(Collection<String> packageNames) {
+		Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+		extract(packageNames, dependencies, new HashMap<String, Set<String>>());
+		Map<String, Map<String, Integer>> result = new HashMap<String, Map<String, Integer>>();
+		for (Entry<String, Set<String>> entry : dependencies.entrySet()) {
+			String from = packages.get(entry.getKey());
+			Map<String, Integer> counts = result.get(from);
+			if (counts == null) {
+				counts = new HashMap<String, Integer>();
+				result.put(from, counts);
+			}
+			for (String type : entry.getValue()) {
+				String to = packages.get(type);
+				if (!to.equals(from)) {
+					Integer count = counts.get(to);
+					counts.put(to, Integer.valueOf((count == null) ? 1 : count.intValue() + 1));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param reference
+	 *            candidate qualified names separated by '|'
+	 * @return the handle of the first candidate that is a known type, null if none is
+	 */
+	private String resolve(String reference) {
+		int start = 0;
+		while (start <= reference.length()) {
+			int end = reference.indexOf('|', start);
+			if (end == -1) {
+				end = reference.length();
+			}
+			String handle = types.get(reference.substring(start, end));
+			if (handle != null) {
+				return handle;
+			}
+			start = end + 1;
+		}
+		return null;
+	}
+}
@@ -42,6 +42,7 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.Signature;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
 import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
 import org.eclipse.jdt.core.dom.EnumDeclaration;
@@ -62,6 +63,8 @@ public class TypeMetrics extends AbstractMetricSource {
 	// AbstractTypeDeclaration or a
 	// AnonymousClassDeclaration
 	transient private ITypeHierarchy hierarchy = null;
+	private String qualifiedName = null;
+	private Set<String> typeReferences = null;
 
 	public TypeMetrics() {
 		super();
@@ -91,6 +94,10 @@ public class TypeMetrics extends AbstractMetricSource {
 
 	@Override
 	protected void initializeChildren(AbstractMetricSource parentMetric) {
+		if (astNode instanceof AbstractTypeDeclaration) {
+			qualifiedName = ((IType) getJavaElement()).getFullyQualifiedName('.');
+			typeReferences = TypeReferenceCollector.collect(qualifiedName, astNode);
+		}
 		initializeTypeChildren(astNode, parentMetric, this, (IType) getJavaElement());
 	}
 
@@ -268,6 +275,22 @@ public class TypeMetrics extends AbstractMetricSource {
 		return astNode;
 	}
 
+	/**
+	 * @return the fully qualified name, null for anonymous types
+	 */
+	public String getQualifiedName() {
+		return qualifiedName;
+	}
+
+	/**
+	 * Returns the names of the types referenced by this type (see TypeReferenceCollector)
+	 * 
+	 * @return Set, null for anonymous types
+	 */
+	public Set<String> getTypeReferences() {
+		return typeReferences;
+	}
+
 	/**
 	 * Returns the hierarchy.
 	 * 
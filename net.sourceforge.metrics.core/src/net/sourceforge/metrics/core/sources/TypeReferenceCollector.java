@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.core.sources;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.MarkerAnnotation;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.NormalAnnotation;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleType;
+import org.eclipse.jdt.core.dom.SingleMemberAnnotation;
+import org.eclipse.jdt.core.dom.TypeParameter;
+
+/**
+ * Collects the names of the types referenced in the body of a type declaration. The AST is not parsed with bindings, so each name is recorded together with the fully qualified names it could stand for, in the order the
+ * compiler would try them (member types of the enclosing types, the package, the name itself, on-demand imports), separated by '|'. TypeDependencies picks the first candidate that is a known type.
+ * 
+ * @author Metrics2 contributors
+ */
+class TypeReferenceCollector extends ASTVisitor {
+
+	private Map<String, String> singleImports = new HashMap<String, String>();
+	private List<String> demandImports = new ArrayList<String>();
+	private List<String> scopes = new ArrayList<String>();
+	private Set<String> names = new HashSet<String>();
+	private Set<String> typeParameters = new HashSet<String>();
+
+	/**
+	 * @param qualifiedName
+	 *            fully qualified name of the type whose references are collected
+	 * @param unit
+	 *            the enclosing compilation unit, for its imports
+	 */
+	TypeReferenceCollector(String qualifiedName, CompilationUnit unit) {
+		for (int dot = qualifiedName.length(); dot > 0; dot = qualifiedName.lastIndexOf('.', dot - 1)) {
+			scopes.add(qualifiedName.substring(0, dot) + ".");
+		}
+		if (unit != null) {
+			for (Iterator<?> i = unit.imports().iterator(); i.hasNext();) {
+				ImportDeclaration next = (ImportDeclaration) i.next();
+				String name = next.getName().getFullyQualifiedName();
+				if (next.isOnDemand()) {
+					if (next.isStatic()) {
+						names.add(name);
+					} else {
+						demandImports.add(name + ".");
+					}
+				} else if (next.isStatic()) {
+					names.add(name.substring(0, name.lastIndexOf('.')));
+				} else {
+					singleImports.put(name.substring(name.lastIndexOf('.') + 1), name);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collect the references of the given type declaration, its member and local types included
+	 * 
+	 * @param qualifiedName
+	 * @param type
+	 * @return the candidate lists of all referenced names
+	 */
+	static Set<String> collect(String qualifiedName, ASTNode type) {
+		ASTNode root = type.getRoot();
+		TypeReferenceCollector c = new TypeReferenceCollector(qualifiedName, (root instanceof CompilationUnit) ? (CompilationUnit) root : null);
+		type.accept(c);
+		return c.getReferences();
+	}
+
+	Set<String> getReferences() {
+		Set<String> result = new HashSet<String>();
+		for (String name : names) {
+			if (!typeParameters.contains(name)) {
+				result.add(getCandidates(name));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param name
+	 *            a simple or qualified type name as written in the source
+	 * @return the fully qualified names the given name may refer to, separated by '|'
+	 */
+	private String getCandidates(String name) {
+		int dot = name.indexOf('.');
+		String first = (dot == -1) ? name : name.substring(0, dot);
+		String imported = singleImports.get(first);
+		if (imported != null) {
+			return (dot == -1) ? imported : imported + name.substring(dot);
+		}
+		StringBuffer b = new StringBuffer();
+		for (String scope : scopes) {
+			b.append(scope).append(name).append('|');
+		}
+		b.append(name);
+		for (String demand : demandImports) {
+			b.append('|').append(demand).append(name);
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Record a name used as the qualifier of a static member access if it looks like a type name (starts with an upper case letter), fields and variables conventionally do not
+	 * 
+	 * @param name
+	 */
+	private void addQualifier(Name name) {
+		String id = name.isQualifiedName() ? ((QualifiedName) name).getName().getIdentifier() : name.getFullyQualifiedName();
+		if ((id.length() > 0) && Character.isUpperCase(id.charAt(0))) {
+			names.add(name.getFullyQualifiedName());
+		}
+	}
+
+	@Override
+	public boolean visit(SimpleType node) {
+		names.add(node.getName().getFullyQualifiedName());
+		return false;
+	}
+
+	@Override
+	public boolean visit(TypeParameter node) {
+		typeParameters.add(node.getName().getIdentifier());
+		return true;
+	}
+
+	@Override
+	public boolean visit(QualifiedName node) {
+		addQualifier(node.getQualifier());
+		return true;
+	}
+
+	@Override
+	public boolean visit(MethodInvocation node) {
+		if (node.getExpression() instanceof Name) {
+			addQualifier((Name) node.getExpression());
+		}
+		return true;
+	}
+
+	@Override
+	public boolean visit(MarkerAnnotation node) {
+		names.add(node.getTypeName().getFullyQualifiedName());
+		return true;
+	}
+
+	@Override
+	public boolean visit(NormalAnnotation node) {
+		names.add(node.getTypeName().getFullyQualifiedName());
+		return true;
+	}
+
+	@Override
+	public boolean visit(SingleMemberAnnotation node) {
+		names.add(node.getTypeName().getFullyQualifiedName());
+		return true;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.headless;
+
+import java.io.File;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.metrics.core.IExporter;
+import net.sourceforge.metrics.internal.export.JsonLinesExporter;
+import net.sourceforge.metrics.internal.xml.XMLSourceTreeExporter;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaElement;
+
+/**
+ * Exports an element repeatedly with each format into temporary files and reports the size, the best time and the throughput of each, for the runner's -benchmark option. The first export of each format only warms up
+ * and reads the metrics into the jdbm cache, it is not timed.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ExportBenchmark {
+
+	private int runs;
+	private List<String> names = new ArrayList<String>();
+	private List<IExporter> exporters = new ArrayList<IExporter>();
+	private List<String> suffixes = new ArrayList<String>();
+
+	/**
+	 * @param runs
+	 *            timed exports per format
+	 */
+	public ExportBenchmark(int runs) {
+		this.runs = runs;
+		add("xml", new XMLSourceTreeExporter(), ".xml");
+		add("jsonl", new JsonLinesExporter(), ".jsonl");
+		add("jsonl.gz", new JsonLinesExporter(), ".jsonl.gz");
+	}
+
+	/**
+	 * @param name
+	 *            name of the format in the report
+	 * @param exporter
+	 * @param suffix
+	 *            of the temporary file, some exporters choose their encoding by it
+	 */
+	public void add(String name, IExporter exporter, String suffix) {
+		names.add(name);
+		exporters.add(exporter);
+		suffixes.add(suffix);
+	}
+
+	/**
+	 * @return the header of the lines returned by run
+	 */
+	public static String getHeader() {
+		return "element\tformat\tMB\tms\tMB/s";
+	}
+
+	/**
+	 * Export the element with every format
+	 * 
+	 * @param element
+	 * @param monitor
+	 * @return one line per format
+	 * @throws Exception
+	 *             from an export
+	 */
+	public List<String> run(IJavaElement element, IProgressMonitor monitor) throws Exception {
+		NumberFormat nf = NumberFormat.getInstance();
+		nf.setMaximumFractionDigits(2);
+		nf.setGroupingUsed(false);
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < exporters.size(); i++) {
+			File file = File.createTempFile("metrics", suffixes.get(i));
+			try {
+				exporters.get(i).export(element, file, monitor);
+				long best = Long.MAX_VALUE;
+				for (int run = 0; run < runs; run++) {
+					long start = System.nanoTime();
+					exporters.get(i).export(element, file, monitor);
+					best = Math.min(best, System.nanoTime() - start);
+				}
+				double mb = file.length() / (1024.0 * 1024.0);
+				double ms = best / 1000000.0;
+				StringBuffer b = new StringBuffer();
+				b.append(element.getElementName()).append('\t').append(names.get(i));
+				b.append('\t').append(nf.format(mb)).append('\t').append(nf.format(ms));
+				b.append('\t').append((best > 0) ? nf.format(mb * 1000 / ms) : "-");
+				result.add(b.toString());
+			} finally {
+				file.delete();
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.headless;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import net.sourceforge.metrics.builder.MetricsBuilder;
+import net.sourceforge.metrics.builder.MetricsNature;
+import net.sourceforge.metrics.builder.ParallelCalculation;
+import net.sourceforge.metrics.core.Constants;
+import net.sourceforge.metrics.core.IExporter;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.ContentCache;
+import net.sourceforge.metrics.core.sources.ResultPack;
+import net.sourceforge.metrics.internal.export.IObservableExporter;
+import net.sourceforge.metrics.internal.export.ThresholdCheck;
+import net.sourceforge.metrics.internal.xml.MetricsFirstExporter;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Command line entry point (application net.sourceforge.metrics.core.runner) that imports projects into the workspace, calculates their metrics, exports them and checks thresholds, without a workbench:
+ * 
+ * <pre>
+ * eclipse -nosplash -application net.sourceforge.metrics.core.runner -data workspace
+ *   [-import dir]* [-project name]* [-full] [-compile] [-pack file]
+ *   [-output file] [-format exporterClass] [-threshold metric&lt;=limit]* [-ranges]
+ *   [-report file] [-budget n] [-threads n] [-benchmark runs]
+ * </pre>
+ * 
+ * The metrics are calculated outside of a workspace build, up to -threads projects at the same time (the number of processors by default, see ParallelCalculation). The java builders only run, sequentially and
+ * before, if -compile is given, the metrics do not need compiled classes. The output file name may contain {project}, which is replaced by the project name. The wall time of each phase is
+ * printed on standard output. Thresholds (-threshold rules and with -ranges the safe ranges of the preferences) are checked in the same pass as the export, -report writes every violation to a file. With
+ * -budget up to n violations are tolerated and the check stops, abandoning the export, as soon as there are more. -benchmark times the exports of each project (see ExportBenchmark). Exit code 0 means success, 1 an
+ * error and 2 that thresholds were violated.
+ * 
+ * @author Metrics2 contributors
+ */
+public class MetricsApplication implements IApplication {
+
+	public static final Integer EXIT_ERROR = new Integer(1);
+	public static final Integer EXIT_THRESHOLD = new Integer(2);
+
+	private List<File> imports = new ArrayList<File>();
+	private List<String> projectNames = new ArrayList<String>();
+	private boolean full;
+	private boolean compile;
+	private File pack;
+	private String output;
+	private String format;
+	private ThresholdCheck thresholds = new ThresholdCheck();
+	private File report;
+	private int budget = -1;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int benchmark;
+	private long phaseStart;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.equinox.app.IApplication#start(org.eclipse.equinox.app.IApplicationContext)
+	 */
+	public Object start(IApplicationContext context) throws Exception {
+		long start = System.currentTimeMillis();
+		try {
+			parse((String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS));
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return EXIT_ERROR;
+		}
+		context.applicationRunning();
+		MetricsBuilder.setHeadless(true);
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		IWorkspaceDescription description = workspace.getDescription();
+		boolean autoBuilding = description.isAutoBuilding();
+		// otherwise every import and nature change triggers a build of its own
+		description.setAutoBuilding(false);
+		workspace.setDescription(description);
+		try {
+			IProgressMonitor monitor = new NullProgressMonitor();
+			startPhase();
+			for (File next : imports) {
+				importProjects(next, monitor);
+			}
+			endPhase("import");
+			List<IJavaProject> projects = getProjects();
+			if (projects.isEmpty()) {
+				System.err.println("No Java projects to analyze");
+				return EXIT_ERROR;
+			}
+			startPhase();
+			for (IJavaProject next : projects) {
+				if (!next.getProject().hasNature(Constants.PLUGIN_ID + ".nature")) {
+					MetricsNature.addNatureToProject(next.getProject(), monitor);
+				}
+			}
+			if (pack != null) {
+				ResultPack.seed(pack);
+			}
+			endPhase("prepare");
+			List<IProject> resources = new ArrayList<IProject>();
+			for (IJavaProject next : projects) {
+				resources.add(next.getProject());
+			}
+			ParallelCalculation calculation = new ParallelCalculation(resources, full, threads);
+			if (compile) {
+				startPhase();
+				int kind = full ? IncrementalProjectBuilder.FULL_BUILD : IncrementalProjectBuilder.INCREMENTAL_BUILD;
+				for (IProject next : calculation.getOrder()) {
+					next.build(kind, JavaCore.BUILDER_ID, null, monitor);
+				}
+				endPhase("compile");
+			}
+			startPhase();
+			if (!calculate(calculation)) {
+				return EXIT_ERROR;
+			}
+			endPhase("calculate");
+			System.out.println(ContentCache.singleton.getStatistics());
+			if (benchmark > 0) {
+				startPhase();
+				benchmark(projects, monitor);
+				endPhase("benchmark");
+			}
+			if ((output != null) || thresholds.hasRules()) {
+				startPhase();
+				Integer exit = exportAndCheck(projects, monitor);
+				endPhase((output != null) ? "export" : "check");
+				if (exit != null) {
+					return exit;
+				}
+			}
+			if (thresholds.getCount() > Math.max(budget, 0)) {
+				return EXIT_THRESHOLD;
+			}
+			return EXIT_OK;
+		} catch (Throwable e) {
+			e.printStackTrace();
+			return EXIT_ERROR;
+		} finally {
+			description.setAutoBuilding(autoBuilding);
+			try {
+				workspace.setDescription(description);
+				workspace.save(true, null);
+			} catch (CoreException e) {
+				// keep the exit code of the run
+				System.err.println("Could not save the workspace: " + e.getMessage());
+			}
+			System.out.println("Metrics total: " + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.equinox.app.IApplication#stop()
+	 */
+	public void stop() {
+	}
+
+	/**
+	 * @param calculation
+	 * @return false if a project failed
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	private boolean calculate(ParallelCalculation calculation) throws InterruptedException, ExecutionException {
+		final boolean[] failed = new boolean[1];
+		calculation.run(new ParallelCalculation.IListener() {
+
+			public void calculated(IProject project, long time, boolean skipped, String error) {
+				if (error != null) {
+					System.err.println(project.getName() + ": " + error);
+					failed[0] = true;
+				} else if (skipped) {
+					System.out.println(project.getName() + " skipped, it has compile errors");
+				} else {
+					System.out.println(project.getName() + " calculated in " + time + " ms");
+				}
+			}
+		});
+		return !failed[0];
+	}
+
+	/**
+	 * Print the size, best time and throughput of the exports of each project
+	 * 
+	 * @param projects
+	 * @param monitor
+	 * @throws Exception
+	 */
+	private void benchmark(List<IJavaProject> projects, IProgressMonitor monitor) throws Exception {
+		ExportBenchmark exports = new ExportBenchmark(benchmark);
+		System.out.println(ExportBenchmark.getHeader());
+		for (IJavaProject next : projects) {
+			for (String line : exports.run(next, monitor)) {
+				System.out.println(line);
+			}
+		}
+	}
+
+	/**
+	 * Export each project if there is an output, checking the thresholds in the same pass, or only check them otherwise
+	 * 
+	 * @param projects
+	 * @param monitor
+	 * @return EXIT_ERROR or EXIT_THRESHOLD if the run should stop (the latter if the check stopped because the budget was exceeded), null to continue
+	 * @throws Exception
+	 */
+	private Integer exportAndCheck(List<IJavaProject> projects, IProgressMonitor monitor) throws Exception {
+		thresholds.setBudget(budget);
+		Writer out = null;
+		try {
+			if (thresholds.hasRules() && (report != null)) {
+				out = new BufferedWriter(new FileWriter(report));
+				thresholds.setReport(out);
+			}
+			for (IJavaProject next : projects) {
+				if (output == null) {
+					thresholds.check(next, monitor);
+				} else if (!export(next, monitor)) {
+					return EXIT_ERROR;
+				}
+				if (thresholds.isBudgetExceeded()) {
+					break;
+				}
+			}
+		} finally {
+			if (out != null) {
+				out.close();
+			}
+		}
+		for (String violation : thresholds.getViolations()) {
+			System.out.println(violation);
+		}
+		if (thresholds.getSummary() != null) {
+			System.out.println(thresholds.getSummary());
+		}
+		return thresholds.isBudgetExceeded() ? EXIT_THRESHOLD : null;
+	}
+
+	private void parse(String[] args) {
+		if (args == null) {
+			return;
+		}
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if ("-full".equals(arg)) {
+				full = true;
+			} else if ("-compile".equals(arg)) {
+				compile = true;
+			} else if ("-ranges".equals(arg)) {
+				thresholds.setCheckRanges(true);
+			} else if (i + 1 == args.length) {
+				throw new IllegalArgumentException("Unknown or incomplete argument " + arg);
+			} else if ("-import".equals(arg)) {
+				imports.add(new File(args[++i]));
+			} else if ("-project".equals(arg)) {
+				projectNames.add(args[++i]);
+			} else if ("-pack".equals(arg)) {
+				pack = new File(args[++i]);
+			} else if ("-output".equals(arg)) {
+				output = args[++i];
+			} else if ("-format".equals(arg)) {
+				format = args[++i];
+			} else if ("-threshold".equals(arg)) {
+				thresholds.addRule(args[++i]);
+			} else if ("-report".equals(arg)) {
+				report = new File(args[++i]);
+			} else if ("-budget".equals(arg)) {
+				try {
+					budget = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid budget " + args[i]);
+				}
+			} else if ("-threads".equals(arg)) {
+				try {
+					threads = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid thread count " + args[i]);
+				}
+			} else if ("-benchmark".equals(arg)) {
+				try {
+					benchmark = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid number of benchmark runs " + args[i]);
+				}
+			} else {
+				throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+	}
+
+	/**
+	 * Import the project in the directory, or the projects in its subdirectories if it is not a project itself. Projects already in the workspace are only opened.
+	 * 
+	 * @param dir
+	 * @param monitor
+	 * @throws Exception
+	 */
+	private void importProjects(File dir, IProgressMonitor monitor) throws Exception {
+		File dotProject = new File(dir, ".project");
+		if (!dotProject.isFile()) {
+			File[] children = dir.listFiles();
+			if (children == null) {
+				throw new IllegalArgumentException("Not a directory: " + dir);
+			}
+			for (File child : children) {
+				if (new File(child, ".project").isFile()) {
+					importProjects(child, monitor);
+				}
+			}
+			return;
+		}
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		IProjectDescription description = workspace.loadProjectDescription(new Path(dotProject.getAbsolutePath()));
+		IProject project = workspace.getRoot().getProject(description.getName());
+		if (!project.exists()) {
+			File defaultLocation = new File(workspace.getRoot().getLocation().toFile(), description.getName());
+			if (defaultLocation.getAbsoluteFile().equals(dir.getAbsoluteFile())) {
+				description.setLocation(null);
+			}
+			project.create(description, monitor);
+		}
+		if (!project.isOpen()) {
+			project.open(monitor);
+		}
+		projectNames.add(project.getName());
+	}
+
+	/**
+	 * @return the projects given by -project or -import, all open Java projects if none
+	 * @throws Exception
+	 */
+	private List<IJavaProject> getProjects() throws Exception {
+		List<IJavaProject> result = new ArrayList<IJavaProject>();
+		if (projectNames.isEmpty()) {
+			for (IProject next : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+				if (next.isOpen() && next.hasNature(JavaCore.NATURE_ID)) {
+					result.add(JavaCore.create(next));
+				}
+			}
+			return result;
+		}
+		for (String name : projectNames) {
+			IProject next = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+			if (!next.exists() || !next.isOpen() || !next.hasNature(JavaCore.NATURE_ID)) {
+				throw new IllegalArgumentException(name + " is not an open Java project");
+			}
+			IJavaProject project = JavaCore.create(next);
+			if (!result.contains(project)) {
+				result.add(project);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Export the project, checking the thresholds in the pass of the export if the exporter supports it and in a pass of their own before the export otherwise. If the budget is exceeded the export ends and its file is
+	 * removed.
+	 * 
+	 * @param project
+	 * @param monitor
+	 * @return false if the format is unknown
+	 * @throws Exception
+	 */
+	private boolean export(IJavaProject project, IProgressMonitor monitor) throws Exception {
+		IExporter exporter = (format == null) ? new MetricsFirstExporter() : MetricsPlugin.getDefault().createExporter(format);
+		if (exporter == null) {
+			System.err.println("Unknown format " + format);
+			return false;
+		}
+		File file = new File(output.replace("{project}", project.getElementName()));
+		if (thresholds.hasRules()) {
+			if (exporter instanceof IObservableExporter) {
+				((IObservableExporter) exporter).setObserver(thresholds.createObserver());
+			} else {
+				thresholds.check(project, monitor);
+			}
+		}
+		try {
+			if (!thresholds.isBudgetExceeded()) {
+				exporter.export(project, file, monitor);
+			}
+		} catch (InvocationTargetException e) {
+			if (!thresholds.isBudgetExceeded()) {
+				throw e;
+			}
+		}
+		if (thresholds.isBudgetExceeded()) {
+			file.delete();
+		}
+		return true;
+	}
+
+	private void startPhase() {
+		phaseStart = System.currentTimeMillis();
+	}
+
+	private void endPhase(String phase) {
+		System.out.println("Metrics " + phase + ": " + (System.currentTimeMillis() - phaseStart) + " ms");
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+import net.sourceforge.metrics.core.Avg;
+import net.sourceforge.metrics.core.Max;
+import net.sourceforge.metrics.core.Metric;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaElement;
+
+/**
+ * Export the selected element and its subtree in the columnar binary format (see ColumnarWriter), for analysis tools that only need a few metrics of many elements. Rows are in path order, which DeltaExporter relies on
+ * when the export is used as a baseline. The export is written to a temporary file that replaces the output file only when complete, so a cancelled or failed export never leaves a file that reads as a complete baseline.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ColumnarExporter implements IObservableExporter {
+
+	private IObserver observer;
+
+	public ColumnarExporter() {
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.sourceforge.metrics.internal.export.IObservableExporter#setObserver(net.sourceforge.metrics.internal.export.IObservableExporter.IObserver)
+	 */
+	public void setObserver(IObserver observer) {
+		this.observer = observer;
+	}
+
+	public void export(IJavaElement element, File outputFile, IProgressMonitor monitor) throws InvocationTargetException {
+		File partFile = new File(outputFile.getPath() + ".part");
+		try {
+			final String[] ids = MetricsPlugin.getDefault().getMetricIds();
+			final ColumnarWriter writer = new ColumnarWriter(new FileOutputStream(partFile), ids);
+			monitor.beginTask("Exporting metrics to columnar format...", IProgressMonitor.UNKNOWN);
+			boolean complete = false;
+			try {
+				MetricsTreeWalker.walk(element.getHandleIdentifier(), new MetricsTreeWalker.IVisitor() {
+
+					public void visit(int id, int parent, AbstractMetricSource source) throws IOException {
+						if (observer != null) {
+							observer.exported(source);
+						}
+						writer.addRow(id, parent, source.getLevel(), MetricsTreeWalker.getName(source), source.getHandle());
+						for (int i = 0; i < ids.length; i++) {
+							int column = i * ColumnarWriter.METRIC_SUFFIXES.length;
+							Metric value = source.getValue(ids[i]);
+							if (value != null) {
+								writer.setValue(column, value.doubleValue());
+							}
+							Avg avg = MetricsTreeWalker.getAverage(source, ids[i]);
+							if (avg != null) {
+								writer.setValue(column + 1, avg.doubleValue());
+								writer.setValue(column + 2, avg.getStandardDeviation());
+							}
+							Max max = MetricsTreeWalker.getMaximum(source, ids[i]);
+							if (max != null) {
+								writer.setValue(column + 3, max.doubleValue());
+							}
+						}
+					}
+				}, monitor);
+				writer.close();
+				complete = true;
+			} finally {
+				if (!complete) {
+					writer.abort();
+				}
+				monitor.done();
+			}
+			if (outputFile.exists() && !outputFile.delete()) {
+				throw new IOException("Could not replace " + outputFile);
+			}
+			if (!partFile.renameTo(outputFile)) {
+				throw new IOException("Could not rename " + partFile + " to " + outputFile);
+			}
+		} catch (Throwable e) {
+			partFile.delete();
+			throw new InvocationTargetException(e);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads files written by ColumnarWriter one group at a time. Rows are visited with next(), the values of the current row are read by column index.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ColumnarReader {
+
+	private DataInputStream in;
+	private String[] names;
+	private byte[] types;
+	private Object[] columns;
+	private boolean[][] present;
+	private int rows;
+	private int row;
+	private boolean done;
+
+	/**
+	 * Read the header
+	 * 
+	 * @param in
+	 * @throws IOException
+	 *             if this is not a columnar metrics file
+	 */
+	public ColumnarReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+		byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+		this.in.readFully(magic);
+		for (int i = 0; i < magic.length; i++) {
+			if (magic[i] != ColumnarWriter.MAGIC[i]) {
+				throw new IOException("Not a columnar metrics file");
+			}
+		}
+		int version = this.in.readInt();
+		if (version != ColumnarWriter.VERSION) {
+			throw new IOException("Unsupported version " + version);
+		}
+		int count = this.in.readInt();
+		names = new String[count];
+		types = new byte[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = this.in.readUTF();
+			types[i] = this.in.readByte();
+		}
+		columns = new Object[count];
+		present = new boolean[count][];
+	}
+
+	public String[] getColumnNames() {
+		return names;
+	}
+
+	public byte[] getColumnTypes() {
+		return types;
+	}
+
+	/**
+	 * @param name
+	 * @return index of the column or -1
+	 */
+	public int getColumn(String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Move to the next row
+	 * 
+	 * @return false at the end of the file
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		if (done) {
+			return false;
+		}
+		row++;
+		if (row >= rows) {
+			readGroup();
+		}
+		return !done;
+	}
+
+	private void readGroup() throws IOException {
+		rows = in.readInt();
+		row = 0;
+		if (rows == 0) {
+			done = true;
+			return;
+		}
+		for (int c = 0; c < names.length; c++) {
+			switch (types[c]) {
+			case ColumnarWriter.INT:
+				int[] ints = new int[rows];
+				for (int i = 0; i < rows; i++) {
+					ints[i] = in.readInt();
+				}
+				columns[c] = ints;
+				break;
+			case ColumnarWriter.BYTE:
+				byte[] bytes = new byte[rows];
+				in.readFully(bytes);
+				columns[c] = bytes;
+				break;
+			case ColumnarWriter.STRING:
+				String[] strings = new String[rows];
+				for (int i = 0; i < rows; i++) {
+					strings[i] = in.readUTF();
+				}
+				columns[c] = strings;
+				break;
+			case ColumnarWriter.DOUBLE:
+				byte[] bitmap = new byte[(rows + 7) / 8];
+				in.readFully(bitmap);
+				double[] doubles = new double[rows];
+				boolean[] set = new boolean[rows];
+				for (int i = 0; i < rows; i++) {
+					if ((bitmap[i >> 3] & (1 << (i & 7))) != 0) {
+						set[i] = true;
+						doubles[i] = in.readDouble();
+					}
+				}
+				columns[c] = doubles;
+				present[c] = set;
+				break;
+			default:
+				throw new IOException("Unknown column type " + types[c]);
+			}
+		}
+	}
+
+	public int getInt(int column) {
+		return ((int[]) columns[column])[row];
+	}
+
+	public int getByte(int column) {
+		return ((byte[]) columns[column])[row];
+	}
+
+	public String getString(int column) {
+		return ((String[]) columns[column])[row];
+	}
+
+	/**
+	 * @param column
+	 * @return false if the current row has no value in this (DOUBLE) column
+	 */
+	public boolean hasValue(int column) {
+		return present[column][row];
+	}
+
+	public double getDouble(int column) {
+		return ((double[]) columns[column])[row];
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+}
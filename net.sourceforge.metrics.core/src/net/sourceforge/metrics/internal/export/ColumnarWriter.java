@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the columnar metrics format. The file starts with a header describing all columns, followed by groups of at most ROWS_PER_GROUP rows. Within a group the values are stored column by column, so a reader can skip
+ * columns it does not need and values of the same metric compress well. Only one group is buffered at a time.
+ * 
+ * <pre>
+ * header:  "MCOL" version:int columns:int (name:UTF type:byte)*
+ * group:   rows:int column*
+ * column:  INT    rows * int
+ *          BYTE   rows * byte
+ *          STRING rows * UTF
+ *          DOUBLE presence bitmap of (rows + 7) / 8 bytes, then one double per present value
+ * end:     0:int
+ * </pre>
+ * 
+ * The first five columns are the element table: id, parent (-1 for the root), type (the Constants level), name and path (the handle). They are followed by value, avg, stddev and max columns for every metric.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ColumnarWriter {
+
+	public static final byte[] MAGIC = new byte[] { 'M', 'C', 'O', 'L' };
+	public static final int VERSION = 1;
+	public static final int ROWS_PER_GROUP = 4096;
+
+	public static final byte INT = 1;
+	public static final byte BYTE = 2;
+	public static final byte STRING = 3;
+	public static final byte DOUBLE = 4;
+
+	public static final String[] ELEMENT_COLUMNS = new String[] { "id", "parent", "type", "name", "path" };
+	public static final String[] METRIC_SUFFIXES = new String[] { "", ".avg", ".stddev", ".max" };
+
+	private DataOutputStream out;
+	private int metricColumns;
+	private int rows;
+	private int[] ids = new int[ROWS_PER_GROUP];
+	private int[] parents = new int[ROWS_PER_GROUP];
+	private byte[] types = new byte[ROWS_PER_GROUP];
+	private String[] names = new String[ROWS_PER_GROUP];
+	private String[] paths = new String[ROWS_PER_GROUP];
+	private double[][] values;
+	private boolean[][] present;
+
+	/**
+	 * Write the header
+	 * 
+	 * @param out
+	 * @param metricIds
+	 * @throws IOException
+	 */
+	public ColumnarWriter(OutputStream out, String[] metricIds) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+		metricColumns = metricIds.length * METRIC_SUFFIXES.length;
+		values = new double[metricColumns][ROWS_PER_GROUP];
+		present = new boolean[metricColumns][ROWS_PER_GROUP];
+		this.out.write(MAGIC);
+		this.out.writeInt(VERSION);
+		this.out.writeInt(ELEMENT_COLUMNS.length + metricColumns);
+		byte[] elementTypes = new byte[] { INT, INT, BYTE, STRING, STRING };
+		for (int i = 0; i < ELEMENT_COLUMNS.length; i++) {
+			this.out.writeUTF(ELEMENT_COLUMNS[i]);
+			this.out.writeByte(elementTypes[i]);
+		}
+		for (String id : metricIds) {
+			for (String suffix : METRIC_SUFFIXES) {
+				this.out.writeUTF(id + suffix);
+				this.out.writeByte(DOUBLE);
+			}
+		}
+	}
+
+	/**
+	 * Start a new row, the metric values are null until set
+	 * 
+	 * @param id
+	 * @param parent
+	 * @param type
+	 * @param name
+	 * @param path
+	 * @throws IOException
+	 */
+	public void addRow(int id, int parent, int type, String name, String path) throws IOException {
+		if (rows == ROWS_PER_GROUP) {
+			flushGroup();
+		}
+		ids[rows] = id;
+		parents[rows] = parent;
+		types[rows] = (byte) type;
+		names[rows] = name;
+		paths[rows] = path;
+		for (int c = 0; c < metricColumns; c++) {
+			present[c][rows] = false;
+		}
+		rows++;
+	}
+
+	/**
+	 * Set a metric value of the current row
+	 * 
+	 * @param column
+	 *            metric column, metric index * METRIC_SUFFIXES.length + suffix index
+	 * @param value
+	 */
+	public void setValue(int column, double value) {
+		values[column][rows - 1] = value;
+		present[column][rows - 1] = true;
+	}
+
+	private void flushGroup() throws IOException {
+		out.writeInt(rows);
+		for (int i = 0; i < rows; i++) {
+			out.writeInt(ids[i]);
+		}
+		for (int i = 0; i < rows; i++) {
+			out.writeInt(parents[i]);
+		}
+		out.write(types, 0, rows);
+		for (int i = 0; i < rows; i++) {
+			out.writeUTF(names[i]);
+		}
+		for (int i = 0; i < rows; i++) {
+			out.writeUTF(paths[i]);
+		}
+		byte[] bitmap = new byte[(rows + 7) / 8];
+		for (int c = 0; c < metricColumns; c++) {
+			for (int i = 0; i < bitmap.length; i++) {
+				bitmap[i] = 0;
+			}
+			for (int i = 0; i < rows; i++) {
+				if (present[c][i]) {
+					bitmap[i >> 3] |= 1 << (i & 7);
+				}
+			}
+			out.write(bitmap);
+			for (int i = 0; i < rows; i++) {
+				if (present[c][i]) {
+					out.writeDouble(values[c][i]);
+				}
+			}
+		}
+		rows = 0;
+	}
+
+	/**
+	 * Write the last group and the end marker and close the stream
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		if (rows > 0) {
+			flushGroup();
+		}
+		out.writeInt(0);
+		out.close();
+	}
+
+	/**
+	 * Close the stream without writing the buffered rows and the end marker, so that a reader fails on the incomplete output instead of taking it for a complete file
+	 */
+	public void abort() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			// already failed
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaElement;
+
+/**
+ * Compares the current metrics of an element and its subtree with a baseline written earlier by ColumnarExporter and writes only the differences as JSON Lines:
+ * 
+ * <pre>
+ * {"change":"added","path":"...","type":"Method","name":"m","metrics":{"VG":{"new":2.0}}}
+ * {"change":"changed","path":"...","type":"Type","name":"A","metrics":{"VG.avg":{"old":1.5,"new":2.0}}}
+ * {"change":"removed","path":"...","type":"Method","name":"n","metrics":{"VG":{"old":1.0}}}
+ * </pre>
+ * 
+ * Both sides are in path order (see MetricsTreeWalker), so the comparison is a single merge pass that holds one baseline row group and one current element at a time.
+ * 
+ * @author Metrics2 contributors
+ */
+public class DeltaExporter {
+
+	private static final String[] TYPES = new String[] { "", "Method", "Type", "CompilationUnit", "Package", "PackageRoot", "Project" };
+
+	private String[] ids;
+	private String[] columns;
+	// baseline column index for each current metric column, -1 if the baseline does not have it
+	private int[] baselineColumns;
+	private ColumnarReader baseline;
+	private boolean baselineDone;
+	private String lastPath;
+	private Writer out;
+	private int added;
+	private int removed;
+	private int changed;
+	private IObservableExporter.IObserver observer;
+
+	public DeltaExporter() {
+	}
+
+	/**
+	 * @param observer
+	 *            notified of every current element during the next export, null for none (see IObservableExporter)
+	 */
+	public void setObserver(IObservableExporter.IObserver observer) {
+		this.observer = observer;
+	}
+
+	/**
+	 * @param element
+	 *            root of the comparison, normally the one the baseline was exported for
+	 * @param baselineFile
+	 *            a columnar export
+	 * @param outputFile
+	 * @param monitor
+	 * @throws InvocationTargetException
+	 */
+	public void export(IJavaElement element, File baselineFile, File outputFile, IProgressMonitor monitor) throws InvocationTargetException {
+		try {
+			ColumnarReader reader = new ColumnarReader(new FileInputStream(baselineFile));
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"), 64 * 1024);
+			try {
+				monitor.beginTask("Comparing metrics with baseline...", IProgressMonitor.UNKNOWN);
+				start(reader, MetricsPlugin.getDefault().getMetricIds(), writer);
+				final double[] current = new double[columns.length];
+				final boolean[] present = new boolean[columns.length];
+				MetricsTreeWalker.walk(element.getHandleIdentifier(), new MetricsTreeWalker.IVisitor() {
+
+					public void visit(int id, int parent, AbstractMetricSource source) throws IOException {
+						if (observer != null) {
+							observer.exported(source);
+						}
+						MetricsTreeWalker.getValues(source, ids, current, present);
+						next(source.getHandle(), source.getExporter().getTagName(), MetricsTreeWalker.getName(source), current, present);
+					}
+				}, monitor);
+				finish();
+				monitor.subTask(added + " added, " + removed + " removed, " + changed + " changed");
+			} finally {
+				writer.close();
+				reader.close();
+				monitor.done();
+			}
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	/**
+	 * Start a comparison with the given baseline, export does this for the metrics in the cache. Pass every current element to next in path order and call finish after the last one.
+	 * 
+	 * @param baseline
+	 *            a columnar export, positioned before its first row
+	 * @param metricIds
+	 *            the values passed to next are indexed as MetricsTreeWalker.getColumnNames(metricIds)
+	 * @param output
+	 *            receives the differences, not closed
+	 * @throws IOException
+	 */
+	public void start(ColumnarReader baseline, String[] metricIds, Writer output) throws IOException {
+		ids = metricIds;
+		columns = MetricsTreeWalker.getColumnNames(ids);
+		this.baseline = baseline;
+		out = output;
+		baselineColumns = new int[columns.length];
+		for (int c = 0; c < columns.length; c++) {
+			baselineColumns[c] = baseline.getColumn(columns[c]);
+		}
+		baselineDone = false;
+		lastPath = null;
+		added = 0;
+		removed = 0;
+		changed = 0;
+		advanceBaseline();
+	}
+
+	/**
+	 * Compare the next current element, writing the baseline rows before it as removed
+	 * 
+	 * @param path
+	 *            handle of the element, greater than that of the element before
+	 * @param type
+	 *            tag name of the element
+	 * @param name
+	 * @param values
+	 *            the metric columns of the element
+	 * @param present
+	 *            which of the values are set
+	 * @throws IOException
+	 */
+	public void next(String path, String type, String name, double[] values, boolean[] present) throws IOException {
+		while (!baselineDone && (getBaselinePath().compareTo(path) < 0)) {
+			writeRemoved();
+			advanceBaseline();
+		}
+		if (!baselineDone && getBaselinePath().equals(path)) {
+			writeChanged(path, type, name, values, present);
+			advanceBaseline();
+		} else {
+			writeAdded(path, type, name, values, present);
+		}
+	}
+
+	/**
+	 * Write the baseline rows after the last current element as removed
+	 * 
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		while (!baselineDone) {
+			writeRemoved();
+			advanceBaseline();
+		}
+	}
+
+	private void advanceBaseline() throws IOException {
+		baselineDone = !baseline.next();
+		if (!baselineDone) {
+			String path = getBaselinePath();
+			if ((lastPath != null) && (lastPath.compareTo(path) >= 0)) {
+				throw new IOException("Baseline is not sorted by path, export it again with this version");
+			}
+			lastPath = path;
+		}
+	}
+
+	private String getBaselinePath() {
+		return baseline.getString(4);
+	}
+
+	private boolean hasBaselineValue(int column) {
+		int b = baselineColumns[column];
+		return (b != -1) && baseline.hasValue(b);
+	}
+
+	private void writeAdded(String path, String type, String name, double[] values, boolean[] present) throws IOException {
+		StringBuffer b = startLine("added", path, type, name);
+		boolean first = true;
+		for (int c = 0; c < columns.length; c++) {
+			if (present[c]) {
+				first = appendColumn(b, c, first);
+				b.append("\"new\":");
+				JsonLinesExporter.number(values[c], b);
+				b.append('}');
+			}
+		}
+		end(b);
+		added++;
+	}
+
+	private void writeRemoved() throws IOException {
+		int type = baseline.getByte(2);
+		StringBuffer b = startLine("removed", getBaselinePath(), (type > 0) && (type < TYPES.length) ? TYPES[type] : String.valueOf(type), baseline.getString(3));
+		boolean first = true;
+		for (int c = 0; c < columns.length; c++) {
+			if (hasBaselineValue(c)) {
+				first = appendColumn(b, c, first);
+				b.append("\"old\":");
+				JsonLinesExporter.number(baseline.getDouble(baselineColumns[c]), b);
+				b.append('}');
+			}
+		}
+		end(b);
+		removed++;
+	}
+
+	private void writeChanged(String path, String type, String name, double[] values, boolean[] present) throws IOException {
+		StringBuffer b = null;
+		boolean first = true;
+		for (int c = 0; c < columns.length; c++) {
+			boolean old = hasBaselineValue(c);
+			double oldValue = old ? baseline.getDouble(baselineColumns[c]) : 0;
+			if ((old == present[c]) && (!old || (Double.compare(oldValue, values[c]) == 0))) {
+				continue;
+			}
+			if (b == null) {
+				b = startLine("changed", path, type, name);
+			}
+			first = appendColumn(b, c, first);
+			String separator = "";
+			if (old) {
+				b.append("\"old\":");
+				JsonLinesExporter.number(oldValue, b);
+				separator = ",";
+			}
+			if (present[c]) {
+				b.append(separator).append("\"new\":");
+				JsonLinesExporter.number(values[c], b);
+			}
+			b.append('}');
+		}
+		if (b != null) {
+			end(b);
+			changed++;
+		}
+	}
+
+	private StringBuffer startLine(String change, String path, String type, String name) {
+		StringBuffer b = new StringBuffer(256);
+		b.append("{\"change\":\"").append(change).append("\",\"path\":");
+		JsonLinesExporter.quote(path, b);
+		b.append(",\"type\":");
+		JsonLinesExporter.quote(type, b);
+		b.append(",\"name\":");
+		JsonLinesExporter.quote(name, b);
+		b.append(",\"metrics\":{");
+		return b;
+	}
+
+	private boolean appendColumn(StringBuffer b, int column, boolean first) {
+		if (!first) {
+			b.append(',');
+		}
+		JsonLinesExporter.quote(columns[column], b);
+		b.append(":{");
+		return false;
+	}
+
+	private void end(StringBuffer b) throws IOException {
+		b.append("}}\n");
+		out.write(b.toString());
+	}
+
+	public int getAdded() {
+		return added;
+	}
+
+	public int getRemoved() {
+		return removed;
+	}
+
+	public int getChanged() {
+		return changed;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.IOException;
+
+import net.sourceforge.metrics.core.IExporter;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+
+/**
+ * An exporter that reports every element it exports to an observer, so that a check of the same metrics (see ThresholdCheck) shares the pass of the export instead of walking the elements again.
+ * 
+ * @author Metrics2 contributors
+ */
+public interface IObservableExporter extends IExporter {
+
+	public interface IObserver {
+
+		/**
+		 * Called once for the root and each exported descendant, before it is written. An exception ends the export, which then fails.
+		 * 
+		 * @param source
+		 * @throws IOException
+		 */
+		void exported(AbstractMetricSource source) throws IOException;
+	}
+
+	/**
+	 * @param observer
+	 *            notified during the next export, null for none
+	 */
+	public abstract void setObserver(IObserver observer);
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.zip.GZIPOutputStream;
+
+import net.sourceforge.metrics.core.Avg;
+import net.sourceforge.metrics.core.Max;
+import net.sourceforge.metrics.core.Metric;
+import net.sourceforge.metrics.core.MetricDescriptor;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+import net.sourceforge.metrics.internal.xml.XMLSourceTreeExporter;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaElement;
+
+/**
+ * Export the selected element and its subtree as JSON Lines, one object per element in the order of MetricsTreeWalker:
+ * 
+ * <pre>
+ * {"id":1,"parent":0,"type":"Package","name":"a.b","path":"=p/src&lt;a.b","metrics":{"VG":{"value":3.0,"avg":1.5,"stddev":0.5,"max":2.0,"maxhandle":"...","inrange":false}}}
+ * </pre>
+ * 
+ * Lines are written in chunks of about CHUNK_SIZE bytes. If the output file name ends with .gz every chunk is a separate gzip member, so the file is a normal gzip file for zcat and friends, while consumers can decompress
+ * chunks independently or follow the file as it grows. Nothing but the current chunk is kept in memory. The file is written as outputFile.part (the file to follow) and renamed once the export is complete, so a failed
+ * export does not leave a truncated file under the output name.
+ * 
+ * @author Metrics2 contributors
+ */
+public class JsonLinesExporter implements IObservableExporter {
+
+	public static final int CHUNK_SIZE = 1024 * 1024;
+
+	private String[] ids;
+	private MetricDescriptor[] descriptors;
+	private IObserver observer;
+
+	public JsonLinesExporter() {
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.sourceforge.metrics.internal.export.IObservableExporter#setObserver(net.sourceforge.metrics.internal.export.IObservableExporter.IObserver)
+	 */
+	public void setObserver(IObserver observer) {
+		this.observer = observer;
+	}
+
+	public void export(IJavaElement element, File outputFile, IProgressMonitor monitor) throws InvocationTargetException {
+		File partFile = new File(outputFile.getPath() + ".part");
+		try {
+			MetricsPlugin plugin = MetricsPlugin.getDefault();
+			ids = plugin.getMetricIds();
+			descriptors = new MetricDescriptor[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				descriptors[i] = plugin.getMetricDescriptor(ids[i]);
+			}
+			long start = System.currentTimeMillis();
+			final ChunkedOutput out = new ChunkedOutput(new FileOutputStream(partFile), outputFile.getName().endsWith(".gz"));
+			monitor.beginTask("Exporting metrics to JSON Lines...", IProgressMonitor.UNKNOWN);
+			try {
+				MetricsTreeWalker.walk(element.getHandleIdentifier(), new MetricsTreeWalker.IVisitor() {
+
+					public void visit(int id, int parent, AbstractMetricSource source) throws IOException {
+						if (observer != null) {
+							observer.exported(source);
+						}
+						out.writeLine(toJson(id, parent, source));
+					}
+				}, monitor);
+			} finally {
+				out.close();
+			}
+			if (outputFile.exists() && !outputFile.delete()) {
+				throw new IOException("Could not replace " + outputFile);
+			}
+			if (!partFile.renameTo(outputFile)) {
+				throw new IOException("Could not rename " + partFile + " to " + outputFile);
+			}
+			monitor.subTask(XMLSourceTreeExporter.getThroughput(out.getBytesWritten(), System.currentTimeMillis() - start));
+			monitor.done();
+		} catch (Throwable e) {
+			partFile.delete();
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private String toJson(int id, int parent, AbstractMetricSource source) {
+		StringBuffer b = new StringBuffer(256);
+		b.append("{\"id\":").append(id);
+		b.append(",\"parent\":").append(parent);
+		b.append(",\"type\":");
+		quote(source.getExporter().getTagName(), b);
+		b.append(",\"name\":");
+		quote(MetricsTreeWalker.getName(source), b);
+		b.append(",\"path\":");
+		quote(source.getHandle(), b);
+		b.append(",\"metrics\":{");
+		boolean first = true;
+		for (int i = 0; i < ids.length; i++) {
+			Metric value = source.getValue(ids[i]);
+			Avg avg = MetricsTreeWalker.getAverage(source, ids[i]);
+			Max max = MetricsTreeWalker.getMaximum(source, ids[i]);
+			if ((value == null) && (avg == null) && (max == null)) {
+				continue;
+			}
+			if (!first) {
+				b.append(',');
+			}
+			first = false;
+			quote(ids[i], b);
+			b.append(":{");
+			boolean inRange = true;
+			String separator = "";
+			if (value != null) {
+				b.append("\"value\":");
+				number(value.doubleValue(), b);
+				inRange = descriptors[i].isValueInRange(value.doubleValue());
+				separator = ",";
+			}
+			if (avg != null) {
+				b.append(separator).append("\"avg\":");
+				number(avg.doubleValue(), b);
+				b.append(",\"stddev\":");
+				number(avg.getStandardDeviation(), b);
+				separator = ",";
+			}
+			if (max != null) {
+				b.append(separator).append("\"max\":");
+				number(max.doubleValue(), b);
+				b.append(",\"maxhandle\":");
+				quote(max.getHandle(), b);
+				inRange = inRange && descriptors[i].isValueInRange(max.doubleValue());
+			}
+			if (!inRange) {
+				b.append(",\"inrange\":false");
+			}
+			b.append('}');
+		}
+		b.append("}}");
+		return b.toString();
+	}
+
+	public static void number(double value, StringBuffer b) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			b.append("null");
+		} else {
+			b.append(value);
+		}
+	}
+
+	public static void quote(String value, StringBuffer b) {
+		b.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				b.append("\\\"");
+				break;
+			case '\\':
+				b.append("\\\\");
+				break;
+			case '\n':
+				b.append("\\n");
+				break;
+			case '\r':
+				b.append("\\r");
+				break;
+			case '\t':
+				b.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					String hex = Integer.toHexString(c);
+					b.append("\\u");
+					for (int j = hex.length(); j < 4; j++) {
+						b.append('0');
+					}
+					b.append(hex);
+				} else {
+					b.append(c);
+				}
+			}
+		}
+		b.append('"');
+	}
+
+	/**
+	 * Collects lines into a chunk and writes it, compressed as a gzip member of its own if requested, once it reaches CHUNK_SIZE
+	 */
+	public static class ChunkedOutput {
+
+		private OutputStream out;
+		private boolean gzip;
+		private ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_SIZE + 4096);
+		private long written;
+
+		public ChunkedOutput(OutputStream out, boolean gzip) {
+			this.out = new BufferedOutputStream(out, 64 * 1024);
+			this.gzip = gzip;
+		}
+
+		public void writeLine(String line) throws IOException {
+			chunk.write(line.getBytes("UTF-8"));
+			chunk.write('\n');
+			if (chunk.size() >= CHUNK_SIZE) {
+				flushChunk();
+			}
+		}
+
+		private void flushChunk() throws IOException {
+			if (chunk.size() == 0) {
+				return;
+			}
+			if (gzip) {
+				GzipMember member = new GzipMember(out);
+				try {
+					chunk.writeTo(member);
+					// ends the member without closing the file
+					member.finish();
+				} finally {
+					member.end();
+				}
+			} else {
+				chunk.writeTo(out);
+			}
+			written += chunk.size();
+			chunk.reset();
+			out.flush();
+		}
+
+		/**
+		 * @return uncompressed bytes written so far
+		 */
+		public long getBytesWritten() {
+			return written;
+		}
+
+		public void close() throws IOException {
+			try {
+				flushChunk();
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * A gzip member that is finished but never closed, since that would close the file. The native memory of its Deflater is released by end() rather than when it is garbage collected.
+	 */
+	private static class GzipMember extends GZIPOutputStream {
+
+		GzipMember(OutputStream out) throws IOException {
+			super(out, 64 * 1024);
+		}
+
+		void end() {
+			def.end();
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sourceforge.metrics.core.Avg;
+import net.sourceforge.metrics.core.Constants;
+import net.sourceforge.metrics.core.Max;
+import net.sourceforge.metrics.core.Metric;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+import net.sourceforge.metrics.core.sources.Cache;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Visits an element and all its descendants one at a time in handle order. A handle sorts after the handle of its parent, so parents are always visited before their children, and two walks (or exports based on
+ * them) can be compared with a single merge pass. Besides the sorted handles of the subtree only the chain of enclosing elements is kept in memory, so exporters built on it stream regardless of the size of the project.
+ * 
+ * @author Metrics2 contributors
+ */
+public class MetricsTreeWalker implements Constants {
+
+	public interface IVisitor {
+
+		/**
+		 * @param id
+		 *            sequence number of the element in this walk, starting at 0
+		 * @param parent
+		 *            id of the parent element, -1 for the root
+		 * @param source
+		 * @throws IOException
+		 */
+		void visit(int id, int parent, AbstractMetricSource source) throws IOException;
+	}
+
+	private MetricsTreeWalker() {
+	}
+
+	/**
+	 * @param handle
+	 *            handle of the root element
+	 * @param visitor
+	 * @param monitor
+	 *            receives one unit of work per element
+	 * @return number of elements visited
+	 * @throws IOException
+	 */
+	public static int walk(String handle, IVisitor visitor, IProgressMonitor monitor) throws IOException {
+		List<String> handles = Cache.singleton.getHandlesUnder(handle);
+		Collections.sort(handles);
+		// handles and ids of the visited elements whose handle is a prefix of the current one
+		List<String> open = new ArrayList<String>();
+		List<Integer> openIds = new ArrayList<Integer>();
+		int id = 0;
+		for (String next : handles) {
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			while (!open.isEmpty() && !next.startsWith(open.get(open.size() - 1))) {
+				open.remove(open.size() - 1);
+				openIds.remove(openIds.size() - 1);
+			}
+			int parent = -1;
+			if (!next.equals(handle)) {
+				// a prefix of the handle is not necessarily the parent (package a.b starts with a)
+				IJavaElement element = JavaCore.create(next);
+				IJavaElement parentElement = (element == null) ? null : element.getParent();
+				int index = (parentElement == null) ? -1 : open.lastIndexOf(parentElement.getHandleIdentifier());
+				if (index == -1) {
+					// not a descendant of the root
+					continue;
+				}
+				parent = openIds.get(index).intValue();
+			}
+			AbstractMetricSource source = Cache.singleton.get(next);
+			if (source == null) {
+				continue;
+			}
+			visitor.visit(id, parent, source);
+			monitor.worked(1);
+			open.add(next);
+			openIds.add(new Integer(id));
+			id++;
+		}
+		return id;
+	}
+
+	/**
+	 * @param ids
+	 *            metric ids
+	 * @return the names of the metric columns of the columnar and delta formats, metric index * METRIC_SUFFIXES.length + suffix index
+	 */
+	public static String[] getColumnNames(String[] ids) {
+		String[] result = new String[ids.length * ColumnarWriter.METRIC_SUFFIXES.length];
+		for (int i = 0; i < ids.length; i++) {
+			for (int j = 0; j < ColumnarWriter.METRIC_SUFFIXES.length; j++) {
+				result[i * ColumnarWriter.METRIC_SUFFIXES.length + j] = ids[i] + ColumnarWriter.METRIC_SUFFIXES[j];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Copy the value, average, standard deviation and maximum of each metric into the given metric columns
+	 * 
+	 * @param source
+	 * @param ids
+	 *            metric ids
+	 * @param values
+	 *            receives the values, indexed as the names returned by getColumnNames(ids)
+	 * @param present
+	 *            receives false for the columns without a value
+	 */
+	public static void getValues(AbstractMetricSource source, String[] ids, double[] values, boolean[] present) {
+		for (int i = 0; i < ids.length; i++) {
+			int column = i * ColumnarWriter.METRIC_SUFFIXES.length;
+			Metric value = source.getValue(ids[i]);
+			Avg avg = getAverage(source, ids[i]);
+			Max max = getMaximum(source, ids[i]);
+			present[column] = value != null;
+			present[column + 1] = avg != null;
+			present[column + 2] = avg != null;
+			present[column + 3] = max != null;
+			if (value != null) {
+				values[column] = value.doubleValue();
+			}
+			if (avg != null) {
+				values[column + 1] = avg.doubleValue();
+				values[column + 2] = avg.getStandardDeviation();
+			}
+			if (max != null) {
+				values[column + 3] = max.doubleValue();
+			}
+		}
+	}
+
+	/**
+	 * @param source
+	 * @return the element name as used in the XML exports
+	 */
+	public static String getName(AbstractMetricSource source) {
+		IJavaElement element = source.getJavaElement();
+		String name = element.getElementName();
+		if ("".equals(name)) {
+			if (element instanceof IType) {
+				name = "anonymous";
+			} else {
+				name = "(default package)";
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * The average exported for a metric, the one for the most specific level if averages are kept at several levels (as in XMLSourceTreeExporter)
+	 * 
+	 * @param source
+	 * @param id
+	 * @return Avg or null
+	 */
+	public static Avg getAverage(AbstractMetricSource source, String id) {
+		Avg result = null;
+		for (String per : PER_ARRAY) {
+			Avg next = source.getAverage(id, per);
+			if (next != null) {
+				result = next;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The maximum exported for a metric, the one for the most specific level if maxima are kept at several levels (as in XMLSourceTreeExporter)
+	 * 
+	 * @param source
+	 * @param id
+	 * @return Max or null
+	 */
+	public static Max getMaximum(AbstractMetricSource source, String id) {
+		Max result = null;
+		for (String per : PER_ARRAY) {
+			Max next = source.getMaximum(id, per);
+			if (next != null) {
+				result = next;
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One step of the snapshot history of a project (see SnapshotStore): the metric cells that changed between two consecutive snapshots, with their old and new values. Elements are written in path order, cells of an element in
+ * column order. The file is a gzip compressed sequence of
+ * 
+ * <pre>
+ * header:  "MDLT" version(int) time(long) columnCount(int) columnName(UTF)*
+ * element: path(UTF) type(byte) name(UTF) cellCount(short) cell*
+ * cell:    column(short) flags(byte, 1 = old, 2 = new) old(double)? new(double)?
+ * end:     ""(UTF)
+ * </pre>
+ * 
+ * A cell without an old value was added, one without a new value was removed.
+ * 
+ * @author Metrics2 contributors
+ */
+public class SnapshotDelta {
+
+	static final byte[] MAGIC = new byte[] { 'M', 'D', 'L', 'T' };
+	static final int VERSION = 1;
+	static final int OLD = 1;
+	static final int NEW = 2;
+
+	private SnapshotDelta() {
+	}
+
+	public static class Writer {
+
+		private DataOutputStream out;
+		private int cells;
+		private short[] columns = new short[64];
+		private byte[] flags = new byte[64];
+		private double[] olds = new double[64];
+		private double[] news = new double[64];
+		private int elements;
+
+		public Writer(File file, long time, String[] columnNames) throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 64 * 1024), 64 * 1024));
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(time);
+			out.writeInt(columnNames.length);
+			for (String name : columnNames) {
+				out.writeUTF(name);
+			}
+		}
+
+		/**
+		 * Collect a changed cell of the next element, call endElement once all of them are added
+		 * 
+		 * @param column
+		 * @param hasOld
+		 * @param oldValue
+		 * @param hasNew
+		 * @param newValue
+		 */
+		public void addCell(int column, boolean hasOld, double oldValue, boolean hasNew, double newValue) {
+			if (hasOld == hasNew && (!hasOld || (Double.compare(oldValue, newValue) == 0))) {
+				return;
+			}
+			if (cells == columns.length) {
+				columns = copy(columns, cells * 2);
+				flags = copy(flags, cells * 2);
+				olds = copy(olds, cells * 2);
+				news = copy(news, cells * 2);
+			}
+			columns[cells] = (short) column;
+			flags[cells] = (byte) ((hasOld ? OLD : 0) | (hasNew ? NEW : 0));
+			olds[cells] = oldValue;
+			news[cells] = newValue;
+			cells++;
+		}
+
+		/**
+		 * Write the cells collected since the last call, if any
+		 * 
+		 * @param path
+		 * @param type
+		 * @param name
+		 * @throws IOException
+		 */
+		public void endElement(String path, int type, String name) throws IOException {
+			if (cells == 0) {
+				return;
+			}
+			out.writeUTF(path);
+			out.writeByte(type);
+			out.writeUTF(name);
+			out.writeShort(cells);
+			for (int i = 0; i < cells; i++) {
+				out.writeShort(columns[i]);
+				out.writeByte(flags[i]);
+				if ((flags[i] & OLD) != 0) {
+					out.writeDouble(olds[i]);
+				}
+				if ((flags[i] & NEW) != 0) {
+					out.writeDouble(news[i]);
+				}
+			}
+			cells = 0;
+			elements++;
+		}
+
+		/**
+		 * @return number of elements written
+		 */
+		public int getElements() {
+			return elements;
+		}
+
+		public void close() throws IOException {
+			out.writeUTF("");
+			out.close();
+		}
+	}
+
+	public static class Reader {
+
+		private DataInputStream in;
+		private long time;
+		private String[] columnNames;
+		private String path;
+		private int type;
+		private String name;
+		private int cells;
+		private short[] columns = new short[64];
+		private byte[] flags = new byte[64];
+		private double[] olds = new double[64];
+		private double[] news = new double[64];
+
+		public Reader(File file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 64 * 1024), 64 * 1024));
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			for (int i = 0; i < magic.length; i++) {
+				if (magic[i] != MAGIC[i]) {
+					in.close();
+					throw new IOException("Not a metrics snapshot delta: " + file);
+				}
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				in.close();
+				throw new IOException("Unsupported version " + version);
+			}
+			time = in.readLong();
+			columnNames = new String[in.readInt()];
+			for (int i = 0; i < columnNames.length; i++) {
+				columnNames[i] = in.readUTF();
+			}
+		}
+
+		/**
+		 * Move to the next element
+		 * 
+		 * @return false at the end of the file
+		 * @throws IOException
+		 */
+		public boolean next() throws IOException {
+			if (path != null && path.length() == 0) {
+				return false;
+			}
+			path = in.readUTF();
+			if (path.length() == 0) {
+				return false;
+			}
+			type = in.readByte();
+			name = in.readUTF();
+			cells = in.readShort() & 0xFFFF;
+			if (cells > columns.length) {
+				columns = new short[cells];
+				flags = new byte[cells];
+				olds = new double[cells];
+				news = new double[cells];
+			}
+			for (int i = 0; i < cells; i++) {
+				columns[i] = in.readShort();
+				flags[i] = in.readByte();
+				olds[i] = ((flags[i] & OLD) != 0) ? in.readDouble() : 0;
+				news[i] = ((flags[i] & NEW) != 0) ? in.readDouble() : 0;
+			}
+			return true;
+		}
+
+		public long getTime() {
+			return time;
+		}
+
+		public String[] getColumnNames() {
+			return columnNames;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public int getType() {
+			return type;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCells() {
+			return cells;
+		}
+
+		public int getColumn(int cell) {
+			return columns[cell];
+		}
+
+		public boolean hasOld(int cell) {
+			return (flags[cell] & OLD) != 0;
+		}
+
+		public double getOld(int cell) {
+			return olds[cell];
+		}
+
+		public boolean hasNew(int cell) {
+			return (flags[cell] & NEW) != 0;
+		}
+
+		public double getNew(int cell) {
+			return news[cell];
+		}
+
+		/**
+		 * @param column
+		 * @return index of the cell for the column in the current element, or -1
+		 */
+		public int findCell(int column) {
+			for (int i = 0; i < cells; i++) {
+				if (columns[i] == column) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/**
+	 * Combine two consecutive deltas into one going from the state before the older to the state after the newer. Cells that end up unchanged are dropped.
+	 * 
+	 * @param older
+	 * @param newer
+	 * @param result
+	 * @throws IOException
+	 */
+	public static void merge(File older, File newer, File result) throws IOException {
+		Reader a = new Reader(older);
+		Reader b = new Reader(newer);
+		try {
+			List<String> names = new ArrayList<String>();
+			int[] aColumns = union(a.getColumnNames(), names);
+			int[] bColumns = union(b.getColumnNames(), names);
+			Writer out = new Writer(result, b.getTime(), names.toArray(new String[names.size()]));
+			try {
+				boolean aMore = a.next();
+				boolean bMore = b.next();
+				while (aMore || bMore) {
+					int order = !aMore ? 1 : !bMore ? -1 : a.getPath().compareTo(b.getPath());
+					if (order < 0) {
+						copy(a, aColumns, out);
+						aMore = a.next();
+					} else if (order > 0) {
+						copy(b, bColumns, out);
+						bMore = b.next();
+					} else {
+						combine(a, aColumns, b, bColumns, names.size(), out);
+						aMore = a.next();
+						bMore = b.next();
+					}
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			a.close();
+			b.close();
+		}
+	}
+
+	private static int[] union(String[] columnNames, List<String> names) {
+		int[] result = new int[columnNames.length];
+		for (int i = 0; i < columnNames.length; i++) {
+			int index = names.indexOf(columnNames[i]);
+			if (index == -1) {
+				index = names.size();
+				names.add(columnNames[i]);
+			}
+			result[i] = index;
+		}
+		return result;
+	}
+
+	private static void copy(Reader in, int[] mapping, Writer out) throws IOException {
+		for (int i = 0; i < in.getCells(); i++) {
+			out.addCell(mapping[in.getColumn(i)], in.hasOld(i), in.getOld(i), in.hasNew(i), in.getNew(i));
+		}
+		out.endElement(in.getPath(), in.getType(), in.getName());
+	}
+
+	private static void combine(Reader a, int[] aColumns, Reader b, int[] bColumns, int columns, Writer out) throws IOException {
+		int[] aCells = cellsByColumn(a, aColumns, columns);
+		int[] bCells = cellsByColumn(b, bColumns, columns);
+		for (int c = 0; c < columns; c++) {
+			int i = aCells[c];
+			int j = bCells[c];
+			if (i == -1 && j == -1) {
+				continue;
+			}
+			boolean hasOld = (i != -1) ? a.hasOld(i) : b.hasOld(j);
+			double oldValue = (i != -1) ? a.getOld(i) : b.getOld(j);
+			boolean hasNew = (j != -1) ? b.hasNew(j) : a.hasNew(i);
+			double newValue = (j != -1) ? b.getNew(j) : a.getNew(i);
+			out.addCell(c, hasOld, oldValue, hasNew, newValue);
+		}
+		out.endElement(b.getPath(), b.getType(), b.getName());
+	}
+
+	private static int[] cellsByColumn(Reader in, int[] mapping, int columns) {
+		int[] result = new int[columns];
+		for (int c = 0; c < columns; c++) {
+			result[c] = -1;
+		}
+		for (int i = 0; i < in.getCells(); i++) {
+			result[mapping[in.getColumn(i)]] = i;
+		}
+		return result;
+	}
+
+	private static short[] copy(short[] array, int capacity) {
+		short[] result = new short[capacity];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+	private static byte[] copy(byte[] array, int capacity) {
+		byte[] result = new byte[capacity];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+	private static double[] copy(double[] array, int capacity) {
+		double[] result = new double[capacity];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+}
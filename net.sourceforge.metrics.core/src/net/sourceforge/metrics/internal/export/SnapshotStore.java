@@ -0,0 +1,892 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.sourceforge.metrics.builder.MetricsBuilder;
+import net.sourceforge.metrics.core.Log;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.MetricsPreferences;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+
+/**
+ * Keeps the history of the metrics of a project as a series of snapshots, one per completed build. The store is a directory holding the latest snapshot in columnar format and, for every snapshot, a delta with the cells
+ * that changed since the previous one (see SnapshotDelta). Deltas are only ever added, merged or deleted, never rewritten, and since most builds change few elements they stay small. Older states are reconstructed by
+ * applying the deltas backwards from the latest snapshot.
+ * <p>
+ * Every build path announces a completed project through the post-build hook of MetricsBuilder. After a workspace build the metrics are read (see Rows) and written by a background thread, so the calculator thread never
+ * waits for the store; a snapshot whose project was queued or completed again while it was read is dropped, the next one follows. Headless builds take the snapshot on the building thread before they return. Deltas
+ * older than METRICS.snapshotRetentionDays are deleted, those older than METRICS.snapshotDailyAfterDays are merged into one per day. Any snapshot can be written out again in the columnar format (see writeState), for
+ * instance as the baseline of DeltaExporter.
+ * 
+ * @author Metrics2 contributors
+ */
+public class SnapshotStore {
+
+	public static final String LATEST = "latest.mcol.gz";
+	public static final String DELTA = ".delta.gz";
+
+	private static final String TEMP = ".tmp";
+	private static final String MERGED = ".merged";
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	private static Map<String, SnapshotStore> stores = new HashMap<String, SnapshotStore>();
+	// handles of the projects waiting for their snapshot
+	private static Set<String> pending = new HashSet<String>();
+	private static ExecutorService writer;
+
+	private File directory;
+
+	/**
+	 * @param directory
+	 *            created on the first append
+	 */
+	public SnapshotStore(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @param project
+	 * @return the store of the project in the plugin state location
+	 */
+	public static synchronized SnapshotStore getStore(IJavaProject project) {
+		String name = project.getElementName();
+		SnapshotStore result = stores.get(name);
+		if (result == null) {
+			File root = new File(MetricsPlugin.getDefault().getStateLocation().toFile(), "snapshots");
+			result = new SnapshotStore(new File(root, name));
+			stores.put(name, result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return true if snapshots are taken after each build (METRICS.snapshots)
+	 */
+	public static boolean isEnabled() {
+		return MetricsPlugin.getDefault().getPreferences().getBoolean("METRICS.snapshots");
+	}
+
+	/**
+	 * Read the metrics of the project and write them as a snapshot on the snapshot thread, if enabled. Returns at once, the calling thread does not read the Cache. A project already waiting for its snapshot is not
+	 * queued twice. The snapshot is dropped if the project is queued for calculation again, or completed again, before its metrics are read, the snapshot of that later build replaces it.
+	 * 
+	 * @param project
+	 */
+	public static void schedule(final IJavaProject project) {
+		if (!isEnabled()) {
+			return;
+		}
+		final String handle = project.getHandleIdentifier();
+		synchronized (pending) {
+			if (!pending.add(handle)) {
+				return;
+			}
+		}
+		getWriter().execute(new Runnable() {
+
+			public void run() {
+				synchronized (pending) {
+					pending.remove(handle);
+				}
+				try {
+					if (MetricsBuilder.isBuilding(handle)) {
+						return;
+					}
+					Rows rows = Rows.collect(handle, MetricsPlugin.getDefault().getMetricIds(), System.currentTimeMillis(), new NullProgressMonitor());
+					synchronized (pending) {
+						if (MetricsBuilder.isBuilding(handle) || pending.contains(handle)) {
+							// part of the rows may be from the next build
+							return;
+						}
+					}
+					getStore(project).append(rows, new NullProgressMonitor());
+					compactStore(project);
+				} catch (Throwable e) {
+					Log.logError("Could not store metrics snapshot of " + project.getElementName(), e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Read the metrics of the project and write them as a snapshot on the calling thread, if enabled. For headless builds, which calculate on the calling thread and may end the application when they return.
+	 * 
+	 * @param project
+	 * @param monitor
+	 */
+	public static void store(IJavaProject project, IProgressMonitor monitor) {
+		if (!isEnabled()) {
+			return;
+		}
+		try {
+			getStore(project).append(project, System.currentTimeMillis(), monitor);
+			compactStore(project);
+		} catch (Throwable e) {
+			Log.logError("Could not store metrics snapshot of " + project.getElementName(), e);
+		}
+	}
+
+	private static void compactStore(IJavaProject project) throws IOException {
+		MetricsPreferences prefs = MetricsPlugin.getDefault().getPreferences();
+		getStore(project).compact(System.currentTimeMillis(), prefs.getInt("METRICS.snapshotRetentionDays"), prefs.getInt("METRICS.snapshotDailyAfterDays"));
+	}
+
+	private static synchronized ExecutorService getWriter() {
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "Metrics Snapshot Thread");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+		}
+		return writer;
+	}
+
+	/**
+	 * Append a snapshot of the current metrics of the project. Reads the Cache on the calling thread.
+	 * 
+	 * @param project
+	 * @param time
+	 *            time of the snapshot, moved after the last one if it is not
+	 * @param monitor
+	 * @return number of elements that changed since the last snapshot
+	 * @throws IOException
+	 */
+	public int append(IJavaProject project, long time, IProgressMonitor monitor) throws IOException {
+		return append(Rows.collect(project.getHandleIdentifier(), MetricsPlugin.getDefault().getMetricIds(), time, monitor), monitor);
+	}
+
+	/**
+	 * Append a snapshot of metrics copied earlier
+	 * 
+	 * @param rows
+	 *            the metrics of the project, their time is moved after the last snapshot if it is not
+	 * @param monitor
+	 * @return number of elements that changed since the last snapshot
+	 * @throws IOException
+	 */
+	public synchronized int append(Rows rows, IProgressMonitor monitor) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+		recover();
+		long time = rows.getTime();
+		long[] times = getTimes();
+		if ((times.length > 0) && (time <= times[times.length - 1])) {
+			time = times[times.length - 1] + 1;
+		}
+		String[] ids = rows.getIds();
+		File latest = new File(directory, LATEST);
+		File latestTemp = new File(directory, LATEST + TEMP);
+		File delta = getDeltaFile(time);
+		File deltaTemp = new File(directory, delta.getName() + TEMP);
+		Snapshot snapshot = new Snapshot(ids, latest.exists() ? new ColumnarReader(new GZIPInputStream(new FileInputStream(latest))) : null);
+		boolean done = false;
+		try {
+			snapshot.open(latestTemp, deltaTemp, time);
+			monitor.beginTask("Storing metrics snapshot...", rows.size());
+			rows.replay(snapshot, monitor);
+			snapshot.finish();
+			done = true;
+		} finally {
+			snapshot.close();
+			monitor.done();
+			if (!done) {
+				latestTemp.delete();
+				deltaTemp.delete();
+			}
+		}
+		// the delta first, an interrupted append then leaves the old latest snapshot which the next one is compared to
+		if (!deltaTemp.renameTo(delta) || !replace(latestTemp, latest)) {
+			throw new IOException("Could not store snapshot in " + directory);
+		}
+		return snapshot.getChanged();
+	}
+
+	/**
+	 * @return the times of the stored snapshots, oldest first
+	 */
+	public synchronized long[] getTimes() {
+		List<Long> result = new ArrayList<Long>();
+		String[] names = directory.list();
+		if (names != null) {
+			for (String name : names) {
+				if (name.endsWith(DELTA)) {
+					try {
+						result.add(Long.valueOf(name.substring(0, name.length() - DELTA.length())));
+					} catch (NumberFormatException e) {
+						// not ours
+					}
+				}
+			}
+		}
+		long[] times = new long[result.size()];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = result.get(i).longValue();
+		}
+		Arrays.sort(times);
+		return times;
+	}
+
+	/**
+	 * The history of one metric column of an element, for instance "VG" of a method or "VG.avg" of a package
+	 * 
+	 * @param path
+	 *            handle of the element
+	 * @param column
+	 *            metric id, optionally followed by one of ColumnarWriter.METRIC_SUFFIXES
+	 * @return History
+	 * @throws IOException
+	 */
+	public History getHistory(String path, String column) throws IOException {
+		return getHistory(path, new String[] { column })[0];
+	}
+
+	/**
+	 * The history of the aggregates of a metric for a package, source folder or project element
+	 * 
+	 * @param path
+	 *            handle of the element
+	 * @param metricId
+	 * @return the histories of the value, average, standard deviation and maximum (the order of ColumnarWriter.METRIC_SUFFIXES)
+	 * @throws IOException
+	 */
+	public History[] getAggregateHistory(String path, String metricId) throws IOException {
+		return getHistory(path, MetricsTreeWalker.getColumnNames(new String[] { metricId }));
+	}
+
+	/**
+	 * The history of several metric columns of an element. Reads the latest snapshot and every delta once, newest first.
+	 * 
+	 * @param path
+	 *            handle of the element
+	 * @param columns
+	 * @return one History per column
+	 * @throws IOException
+	 */
+	public synchronized History[] getHistory(String path, String[] columns) throws IOException {
+		recover();
+		long[] times = getTimes();
+		History[] result = new History[columns.length];
+		for (int c = 0; c < columns.length; c++) {
+			result[c] = new History(columns[c], times.length);
+		}
+		boolean[] present = new boolean[columns.length];
+		double[] values = new double[columns.length];
+		File latest = new File(directory, LATEST);
+		if (latest.exists()) {
+			ColumnarReader reader = new ColumnarReader(new GZIPInputStream(new FileInputStream(latest)));
+			try {
+				while (reader.next()) {
+					int order = reader.getString(4).compareTo(path);
+					if (order == 0) {
+						for (int c = 0; c < columns.length; c++) {
+							int column = reader.getColumn(columns[c]);
+							present[c] = (column != -1) && reader.hasValue(column);
+							values[c] = present[c] ? reader.getDouble(column) : 0;
+						}
+					}
+					if (order >= 0) {
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		for (int k = times.length - 1; k >= 0; k--) {
+			for (int c = 0; c < columns.length; c++) {
+				result[c].set(k, times[k], present[c], values[c]);
+			}
+			SnapshotDelta.Reader delta = new SnapshotDelta.Reader(getDeltaFile(times[k]));
+			try {
+				while (delta.next()) {
+					int order = delta.getPath().compareTo(path);
+					if (order == 0) {
+						List<String> names = Arrays.asList(delta.getColumnNames());
+						for (int c = 0; c < columns.length; c++) {
+							int cell = delta.findCell(names.indexOf(columns[c]));
+							if (cell != -1) {
+								present[c] = delta.hasOld(cell);
+								values[c] = delta.getOld(cell);
+							}
+						}
+					}
+					if (order >= 0) {
+						break;
+					}
+				}
+			} finally {
+				delta.close();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Apply the retention policy
+	 * 
+	 * @param now
+	 * @param retentionDays
+	 *            delete the snapshots older than this, 0 keeps all
+	 * @param dailyAfterDays
+	 *            keep only the last snapshot of each day for snapshots older than this, 0 keeps all
+	 * @return number of snapshots deleted or merged away
+	 * @throws IOException
+	 */
+	public synchronized int compact(long now, int retentionDays, int dailyAfterDays) throws IOException {
+		recover();
+		int result = 0;
+		long[] times = getTimes();
+		if (retentionDays > 0) {
+			long limit = now - retentionDays * DAY;
+			// never delete the latest, the history would no longer start at a stored snapshot
+			for (int i = 0; (i < times.length - 1) && (times[i] < limit); i++) {
+				if (getDeltaFile(times[i]).delete()) {
+					result++;
+				}
+			}
+			times = getTimes();
+		}
+		if (dailyAfterDays > 0) {
+			long limit = now - dailyAfterDays * DAY;
+			int i = 0;
+			while ((i < times.length) && (times[i] < limit)) {
+				long day = getDay(times[i]);
+				int j = i;
+				while ((j + 1 < times.length) && (times[j + 1] < limit) && (getDay(times[j + 1]) == day)) {
+					j++;
+				}
+				for (int k = i + 1; k <= j; k++) {
+					merge(times[k - 1], times[k]);
+					result++;
+				}
+				i = j + 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Replace two consecutive deltas by their merge, stored under the time of the newer one. The merge is written completely, and renamed to older-newer.merged to mark it complete, before any input is deleted. An
+	 * interruption before that leaves both inputs, one after that is finished by recover.
+	 * 
+	 * @param older
+	 * @param newer
+	 * @throws IOException
+	 */
+	private void merge(long older, long newer) throws IOException {
+		String name = older + "-" + newer + MERGED;
+		File temp = new File(directory, name + TEMP);
+		SnapshotDelta.merge(getDeltaFile(older), getDeltaFile(newer), temp);
+		File merged = new File(directory, name);
+		if (!temp.renameTo(merged)) {
+			throw new IOException("Could not rename " + temp);
+		}
+		finishMerge(merged);
+	}
+
+	/**
+	 * Delete the older input of a complete merge, then move the merge in place of the newer input
+	 * 
+	 * @param merged
+	 * @throws IOException
+	 */
+	private void finishMerge(File merged) throws IOException {
+		String name = merged.getName();
+		String[] inputs = name.substring(0, name.length() - MERGED.length()).split("-");
+		File older = getDeltaFile(Long.parseLong(inputs[0]));
+		File newer = getDeltaFile(Long.parseLong(inputs[1]));
+		if (older.exists() && !older.delete()) {
+			throw new IOException("Could not delete " + older);
+		}
+		if (!replace(merged, newer)) {
+			throw new IOException("Could not replace " + newer);
+		}
+	}
+
+	/**
+	 * Finish the merges that were complete when interrupted, remove incomplete files
+	 * 
+	 * @throws IOException
+	 */
+	private void recover() throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(TEMP)) {
+				file.delete();
+			} else if (name.endsWith(MERGED)) {
+				finishMerge(file);
+			}
+		}
+	}
+
+	/**
+	 * Write the metrics as they were stored by the snapshot at the given time, in the columnar format, so they can serve as the baseline of DeltaExporter. The history does not keep the id and parent columns: rows are
+	 * numbered in path order and have parent -1.
+	 * 
+	 * @param time
+	 *            one of getTimes()
+	 * @param output
+	 * @throws IOException
+	 *             if there is no snapshot at that time
+	 */
+	public synchronized void writeState(long time, File output) throws IOException {
+		recover();
+		long[] times = getTimes();
+		if (Arrays.binarySearch(times, time) < 0) {
+			throw new IOException("No metrics snapshot at " + time + " in " + directory);
+		}
+		// combine the deltas of the later snapshots into one leading back from the latest snapshot
+		File changes = null;
+		List<File> temps = new ArrayList<File>();
+		try {
+			for (long next : times) {
+				if (next <= time) {
+					continue;
+				}
+				if (changes == null) {
+					changes = getDeltaFile(next);
+				} else {
+					File merged = new File(directory, next + DELTA + TEMP);
+					temps.add(merged);
+					SnapshotDelta.merge(changes, getDeltaFile(next), merged);
+					changes = merged;
+				}
+			}
+			ColumnarReader latest = new ColumnarReader(new GZIPInputStream(new FileInputStream(new File(directory, LATEST))));
+			try {
+				SnapshotDelta.Reader delta = (changes == null) ? null : new SnapshotDelta.Reader(changes);
+				try {
+					writeState(latest, delta, output);
+				} finally {
+					if (delta != null) {
+						delta.close();
+					}
+				}
+			} finally {
+				latest.close();
+			}
+		} finally {
+			for (File temp : temps) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Write the latest snapshot with the old values of the changed cells put back
+	 * 
+	 * @param latest
+	 * @param delta
+	 *            from the wanted snapshot to the latest, null if it is the latest
+	 * @param output
+	 * @throws IOException
+	 */
+	private static void writeState(ColumnarReader latest, SnapshotDelta.Reader delta, File output) throws IOException {
+		String[] names = latest.getColumnNames();
+		int first = ColumnarWriter.ELEMENT_COLUMNS.length;
+		String[] ids = new String[(names.length - first) / ColumnarWriter.METRIC_SUFFIXES.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = names[first + i * ColumnarWriter.METRIC_SUFFIXES.length];
+		}
+		int columns = names.length - first;
+		// metric column of the latest snapshot for each delta column, -1 if no longer calculated
+		int[] mapping = new int[0];
+		if (delta != null) {
+			String[] deltaNames = delta.getColumnNames();
+			mapping = new int[deltaNames.length];
+			for (int i = 0; i < deltaNames.length; i++) {
+				int column = latest.getColumn(deltaNames[i]);
+				mapping[i] = (column == -1) ? -1 : column - first;
+			}
+		}
+		double[] values = new double[columns];
+		boolean[] present = new boolean[columns];
+		ColumnarWriter out = new ColumnarWriter(new FileOutputStream(output), ids);
+		boolean complete = false;
+		try {
+			boolean latestMore = latest.next();
+			boolean deltaMore = (delta != null) && delta.next();
+			int row = 0;
+			while (latestMore || deltaMore) {
+				int order = !latestMore ? 1 : !deltaMore ? -1 : latest.getString(4).compareTo(delta.getPath());
+				String path;
+				int type;
+				String name;
+				if (order <= 0) {
+					for (int c = 0; c < columns; c++) {
+						present[c] = latest.hasValue(first + c);
+						values[c] = present[c] ? latest.getDouble(first + c) : 0;
+					}
+					path = latest.getString(4);
+					type = latest.getByte(2);
+					name = latest.getString(3);
+				} else {
+					Arrays.fill(present, false);
+					path = delta.getPath();
+					type = delta.getType();
+					name = delta.getName();
+				}
+				if (order >= 0) {
+					for (int i = 0; i < delta.getCells(); i++) {
+						int c = mapping[delta.getColumn(i)];
+						if (c != -1) {
+							present[c] = delta.hasOld(i);
+							values[c] = delta.getOld(i);
+						}
+					}
+				}
+				// an element without any old value was added later
+				boolean existed = false;
+				for (int c = 0; c < columns; c++) {
+					existed |= present[c];
+				}
+				if (existed) {
+					out.addRow(row++, -1, type, name, path);
+					for (int c = 0; c < columns; c++) {
+						if (present[c]) {
+							out.setValue(c, values[c]);
+						}
+					}
+				}
+				if (order <= 0) {
+					latestMore = latest.next();
+				}
+				if (order >= 0) {
+					deltaMore = delta.next();
+				}
+			}
+			out.close();
+			complete = true;
+		} finally {
+			if (!complete) {
+				out.abort();
+				output.delete();
+			}
+		}
+	}
+
+	/**
+	 * Delete all snapshots
+	 */
+	public synchronized void clear() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	private File getDeltaFile(long time) {
+		return new File(directory, time + DELTA);
+	}
+
+	private static boolean replace(File from, File to) {
+		if (from.renameTo(to)) {
+			return true;
+		}
+		// File.renameTo does not overwrite on all platforms
+		return to.delete() && from.renameTo(to);
+	}
+
+	private static long getDay(long time) {
+		return (time + TimeZone.getDefault().getOffset(time)) / DAY;
+	}
+
+	/**
+	 * The values of one metric column of one element at each stored snapshot, oldest first
+	 */
+	public static class History {
+
+		private String column;
+		private long[] times;
+		private double[] values;
+		private boolean[] present;
+
+		History(String column, int size) {
+			this.column = column;
+			times = new long[size];
+			values = new double[size];
+			present = new boolean[size];
+		}
+
+		void set(int index, long time, boolean hasValue, double value) {
+			times[index] = time;
+			present[index] = hasValue;
+			values[index] = value;
+		}
+
+		public String getColumn() {
+			return column;
+		}
+
+		public int size() {
+			return times.length;
+		}
+
+		public long getTime(int index) {
+			return times[index];
+		}
+
+		/**
+		 * @param index
+		 * @return false if the element or the metric did not exist at that time
+		 */
+		public boolean hasValue(int index) {
+			return present[index];
+		}
+
+		public double getValue(int index) {
+			return values[index];
+		}
+	}
+
+	/**
+	 * A copy of the metrics of a project in walk order, read before the snapshot is compared with the previous one. Only the cells with a value are kept.
+	 */
+	public static class Rows implements MetricsTreeWalker.IVisitor {
+
+		private String[] ids;
+		private long time;
+		private int size;
+		private int[] elementIds = new int[256];
+		private int[] parents = new int[256];
+		private byte[] levels = new byte[256];
+		private String[] names = new String[256];
+		private String[] paths = new String[256];
+		// the cells of row i are cellColumns and cellValues [starts[i], starts[i + 1])
+		private int[] starts = new int[257];
+		private int cells;
+		private int[] cellColumns = new int[4096];
+		private double[] cellValues = new double[4096];
+		private double[] values;
+		private boolean[] present;
+
+		Rows(String[] ids, long time) {
+			this.ids = ids;
+			this.time = time;
+			values = new double[ids.length * ColumnarWriter.METRIC_SUFFIXES.length];
+			present = new boolean[values.length];
+		}
+
+		/**
+		 * @param handle
+		 *            the project
+		 * @param ids
+		 *            metric ids
+		 * @param time
+		 *            time of the snapshot
+		 * @param monitor
+		 * @return a copy of the metrics of the project
+		 * @throws IOException
+		 */
+		public static Rows collect(String handle, String[] ids, long time, IProgressMonitor monitor) throws IOException {
+			Rows result = new Rows(ids, time);
+			MetricsTreeWalker.walk(handle, result, monitor);
+			return result;
+		}
+
+		public void visit(int id, int parent, AbstractMetricSource source) {
+			if (size == paths.length) {
+				int capacity = size * 2;
+				elementIds = Arrays.copyOf(elementIds, capacity);
+				parents = Arrays.copyOf(parents, capacity);
+				levels = Arrays.copyOf(levels, capacity);
+				names = Arrays.copyOf(names, capacity);
+				paths = Arrays.copyOf(paths, capacity);
+				starts = Arrays.copyOf(starts, capacity + 1);
+			}
+			MetricsTreeWalker.getValues(source, ids, values, present);
+			for (int c = 0; c < values.length; c++) {
+				if (present[c]) {
+					if (cells == cellColumns.length) {
+						cellColumns = Arrays.copyOf(cellColumns, cells * 2);
+						cellValues = Arrays.copyOf(cellValues, cells * 2);
+					}
+					cellColumns[cells] = c;
+					cellValues[cells] = values[c];
+					cells++;
+				}
+			}
+			elementIds[size] = id;
+			parents[size] = parent;
+			levels[size] = (byte) source.getLevel();
+			names[size] = MetricsTreeWalker.getName(source);
+			paths[size] = source.getHandle();
+			size++;
+			starts[size] = cells;
+		}
+
+		void replay(Snapshot snapshot, IProgressMonitor monitor) throws IOException {
+			for (int i = 0; i < size; i++) {
+				Arrays.fill(present, false);
+				for (int k = starts[i]; k < starts[i + 1]; k++) {
+					values[cellColumns[k]] = cellValues[k];
+					present[cellColumns[k]] = true;
+				}
+				snapshot.add(elementIds[i], parents[i], levels[i], names[i], paths[i], values, present);
+				monitor.worked(1);
+			}
+		}
+
+		public String[] getIds() {
+			return ids;
+		}
+
+		public long getTime() {
+			return time;
+		}
+
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * Writes the new latest snapshot while comparing it with the previous one, both in path order
+	 */
+	private static class Snapshot {
+
+		private String[] ids;
+		private String[] columns;
+		private ColumnarReader previous;
+		private boolean previousDone;
+		// column of the previous snapshot for each current column, -1 if it did not have it
+		private int[] previousColumns;
+		private ColumnarWriter latest;
+		private SnapshotDelta.Writer delta;
+
+		Snapshot(String[] ids, ColumnarReader previous) throws IOException {
+			this.ids = ids;
+			this.previous = previous;
+			columns = MetricsTreeWalker.getColumnNames(ids);
+			previousColumns = new int[columns.length];
+			for (int c = 0; c < columns.length; c++) {
+				previousColumns[c] = (previous == null) ? -1 : previous.getColumn(columns[c]);
+			}
+			previousDone = (previous == null) || !previous.next();
+		}
+
+		void open(File latestFile, File deltaFile, long time) throws IOException {
+			latest = new ColumnarWriter(new GZIPOutputStream(new FileOutputStream(latestFile), 64 * 1024), ids);
+			delta = new SnapshotDelta.Writer(deltaFile, time, columns);
+		}
+
+		void add(int id, int parent, int level, String name, String path, double[] values, boolean[] present) throws IOException {
+			while (!previousDone && (previous.getString(4).compareTo(path) < 0)) {
+				removed();
+			}
+			boolean existed = !previousDone && previous.getString(4).equals(path);
+			for (int c = 0; c < columns.length; c++) {
+				boolean old = existed && hasPrevious(c);
+				delta.addCell(c, old, old ? previous.getDouble(previousColumns[c]) : 0, present[c], values[c]);
+			}
+			delta.endElement(path, level, name);
+			if (existed) {
+				previousDone = !previous.next();
+			}
+			latest.addRow(id, parent, level, name, path);
+			for (int c = 0; c < columns.length; c++) {
+				if (present[c]) {
+					latest.setValue(c, values[c]);
+				}
+			}
+		}
+
+		private boolean hasPrevious(int column) {
+			return (previousColumns[column] != -1) && previous.hasValue(previousColumns[column]);
+		}
+
+		private void removed() throws IOException {
+			for (int c = 0; c < columns.length; c++) {
+				if (hasPrevious(c)) {
+					delta.addCell(c, true, previous.getDouble(previousColumns[c]), false, 0);
+				}
+			}
+			delta.endElement(previous.getString(4), previous.getByte(2), previous.getString(3));
+			previousDone = !previous.next();
+		}
+
+		void finish() throws IOException {
+			while (!previousDone) {
+				removed();
+			}
+		}
+
+		int getChanged() {
+			return (delta == null) ? 0 : delta.getElements();
+		}
+
+		void close() throws IOException {
+			try {
+				if (previous != null) {
+					previous.close();
+				}
+			} finally {
+				try {
+					if (latest != null) {
+						latest.close();
+					}
+				} finally {
+					if (delta != null) {
+						delta.close();
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.metrics.core.MetricDescriptor;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaElement;
+
+/**
+ * Checks the metrics of an element and its subtree against the ranges of the metric descriptors (the safe ranges of the preferences) and against custom limits such as "VG&lt;=10" or "VG.avg&lt;=3.5". The left side of a
+ * limit is a metric id, optionally followed by one of ColumnarWriter.METRIC_SUFFIXES, the right side a number. Elements without a value for a column are not checked. Ranges only apply to the values themselves, a maximum
+ * out of range is reported at the element that has it.
+ * <p>
+ * The check streams over the elements like the exporters, and runs in the pass of the export itself when given to an IObservableExporter (see createObserver). If a budget is set it stops as soon as the number of
+ * violations exceeds it, ending that export, so a failing build does not wait for a complete pass.
+ * 
+ * @author Metrics2 contributors
+ */
+public class ThresholdCheck {
+
+	private List<Rule> rules = new ArrayList<Rule>();
+	private boolean ranges;
+	private int budget = -1;
+	private Writer report;
+	private List<String> violations = new ArrayList<String>();
+	private int count;
+	private int maxReported = 100;
+	private boolean budgetExceeded;
+	private Map<String, Summary> summaries = new LinkedHashMap<String, Summary>();
+
+	public ThresholdCheck() {
+	}
+
+	/**
+	 * @param spec
+	 *            column&lt;=limit or column&gt;=limit
+	 * @throws IllegalArgumentException
+	 *             if the spec can not be parsed
+	 */
+	public void addRule(String spec) {
+		int index = spec.indexOf("<=");
+		boolean upper = true;
+		if (index == -1) {
+			index = spec.indexOf(">=");
+			upper = false;
+		}
+		if (index <= 0) {
+			throw new IllegalArgumentException("Expected metric<=limit or metric>=limit: " + spec);
+		}
+		try {
+			rules.add(new Rule(spec.substring(0, index).trim(), upper, Double.parseDouble(spec.substring(index + 2).trim())));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid limit in " + spec);
+		}
+	}
+
+	/**
+	 * @param specs
+	 *            rules separated by ';' or ','
+	 */
+	public void addRules(String specs) {
+		String[] parts = specs.split("[;,]");
+		for (String part : parts) {
+			if (part.trim().length() > 0) {
+				addRule(part.trim());
+			}
+		}
+	}
+
+	/**
+	 * @param ranges
+	 *            true to check the values against the min/max of the metric descriptors
+	 */
+	public void setCheckRanges(boolean ranges) {
+		this.ranges = ranges;
+	}
+
+	/**
+	 * @return true if there is anything to check
+	 */
+	public boolean hasRules() {
+		return ranges || !rules.isEmpty();
+	}
+
+	/**
+	 * @param budget
+	 *            stop checking once there are more violations than this, -1 (the default) checks everything
+	 */
+	public void setBudget(int budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * @param report
+	 *            receives one tab separated line per violation: path, column, value, limit
+	 */
+	public void setReport(Writer report) {
+		this.report = report;
+	}
+
+	/**
+	 * @param maxReported
+	 *            number of violations for which a message is kept
+	 */
+	public void setMaxReported(int maxReported) {
+		this.maxReported = maxReported;
+	}
+
+	/**
+	 * Check the element and all its descendants in a pass of its own, or until the budget is exceeded
+	 * 
+	 * @param element
+	 * @param monitor
+	 * @return number of violations found by this call
+	 * @throws IOException
+	 */
+	public int check(IJavaElement element, IProgressMonitor monitor) throws IOException {
+		if (budgetExceeded) {
+			return 0;
+		}
+		final IObservableExporter.IObserver observer = createObserver();
+		int before = count;
+		monitor.beginTask("Checking metric thresholds...", IProgressMonitor.UNKNOWN);
+		try {
+			MetricsTreeWalker.walk(element.getHandleIdentifier(), new MetricsTreeWalker.IVisitor() {
+
+				public void visit(int id, int parent, AbstractMetricSource source) throws IOException {
+					observer.exported(source);
+				}
+			}, monitor);
+		} catch (BudgetExceededException e) {
+			// the walk ends here
+		} finally {
+			if (report != null) {
+				report.flush();
+			}
+			monitor.done();
+		}
+		return count - before;
+	}
+
+	/**
+	 * @return an observer checking every element it is given, for an IObservableExporter. It throws an IOException once the budget is exceeded, which ends the export.
+	 * @throws IOException
+	 *             if a rule names an unknown metric
+	 */
+	public IObservableExporter.IObserver createObserver() throws IOException {
+		MetricsPlugin plugin = MetricsPlugin.getDefault();
+		final String[] ids = plugin.getMetricIds();
+		final String[] columns = MetricsTreeWalker.getColumnNames(ids);
+		final List<Rule> all = new ArrayList<Rule>();
+		final List<Integer> ruleColumns = new ArrayList<Integer>();
+		for (Rule rule : rules) {
+			int column = indexOf(columns, rule.column);
+			if (column == -1) {
+				throw new IOException("Unknown metric " + rule.column);
+			}
+			all.add(rule);
+			ruleColumns.add(new Integer(column));
+		}
+		if (ranges) {
+			for (int i = 0; i < ids.length; i++) {
+				MetricDescriptor descriptor = plugin.getMetricDescriptor(ids[i]);
+				if (descriptor == null) {
+					continue;
+				}
+				int column = i * ColumnarWriter.METRIC_SUFFIXES.length;
+				if (descriptor.getMin() != null) {
+					all.add(new Rule(ids[i], false, descriptor.getMin().doubleValue()));
+					ruleColumns.add(new Integer(column));
+				}
+				if (descriptor.getMax() != null) {
+					all.add(new Rule(ids[i], true, descriptor.getMax().doubleValue()));
+					ruleColumns.add(new Integer(column));
+				}
+			}
+		}
+		final double[] values = new double[columns.length];
+		final boolean[] present = new boolean[columns.length];
+		return new IObservableExporter.IObserver() {
+
+			public void exported(AbstractMetricSource source) throws IOException {
+				if (budgetExceeded) {
+					throw new BudgetExceededException();
+				}
+				MetricsTreeWalker.getValues(source, ids, values, present);
+				for (int r = 0; r < all.size(); r++) {
+					int c = ruleColumns.get(r).intValue();
+					if (present[c] && all.get(r).isViolated(values[c])) {
+						violated(source.getHandle(), all.get(r), values[c]);
+					}
+				}
+			}
+		};
+	}
+
+	private void violated(String path, Rule rule, double value) throws IOException {
+		count++;
+		if (violations.size() < maxReported) {
+			violations.add(path + ": " + rule.column + " = " + value + " violates " + rule);
+		}
+		if (report != null) {
+			report.write(path + "\t" + rule.column + "\t" + value + "\t" + rule + "\n");
+		}
+		Summary summary = summaries.get(rule.toString());
+		if (summary == null) {
+			summary = new Summary();
+			summaries.put(rule.toString(), summary);
+		}
+		summary.add(path, value, rule.upper);
+		if ((budget >= 0) && (count > budget)) {
+			budgetExceeded = true;
+			throw new BudgetExceededException();
+		}
+	}
+
+	private static int indexOf(String[] columns, String column) {
+		for (int c = 0; c < columns.length; c++) {
+			if (columns[c].equals(column)) {
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return total number of violations found
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return true if checking stopped early because the budget was exceeded
+	 */
+	public boolean isBudgetExceeded() {
+		return budgetExceeded;
+	}
+
+	/**
+	 * @return messages for the first violations found, see setMaxReported
+	 */
+	public List<String> getViolations() {
+		return violations;
+	}
+
+	/**
+	 * @return one line per violated limit with the number of violations and the worst value, null if there were none
+	 */
+	public String getSummary() {
+		if (count == 0) {
+			return null;
+		}
+		StringBuffer b = new StringBuffer();
+		b.append(count).append(" metric threshold violations");
+		if (budgetExceeded) {
+			b.append(" (stopped after exceeding the budget of ").append(budget).append(')');
+		}
+		for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+			Summary summary = entry.getValue();
+			b.append("\n  ").append(entry.getKey()).append(": ").append(summary.count);
+			b.append(", worst ").append(summary.worst).append(" at ").append(summary.worstPath);
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Thrown by the observer to end the walk or export
+	 */
+	private static class BudgetExceededException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		BudgetExceededException() {
+			super("Metric threshold violations exceed the budget");
+		}
+	}
+
+	private static class Summary {
+
+		int count;
+		double worst;
+		String worstPath;
+
+		void add(String path, double value, boolean upper) {
+			if ((count == 0) || (upper ? value > worst : value < worst)) {
+				worst = value;
+				worstPath = path;
+			}
+			count++;
+		}
+	}
+
+	private static class Rule {
+
+		String column;
+		boolean upper;
+		double limit;
+
+		Rule(String column, boolean upper, double limit) {
+			this.column = column;
+			this.upper = upper;
+			this.limit = limit;
+		}
+
+		boolean isViolated(double value) {
+			return upper ? value > limit : value < limit;
+		}
+
+		@Override
+		public String toString() {
+			return column + (upper ? "<=" : ">=") + limit;
+		}
+	}
+}
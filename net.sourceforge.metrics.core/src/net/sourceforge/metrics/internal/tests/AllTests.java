@@ -33,6 +33,16 @@ public class AllTests {
 		// $JUnit-BEGIN$
 		suite.addTest(new TestSuite(AvgTests.class));
 		suite.addTest(new TestSuite(MaxTests.class));
+		suite.addTest(new TestSuite(ColumnarTests.class));
+		suite.addTest(new TestSuite(MetricColumnsTests.class));
+		suite.addTest(new TestSuite(LackOfCohesionTests.class));
+		suite.addTest(new TestSuite(StrongComponentTests.class));
+		suite.addTest(new TestSuite(PathFinderTests.class));
+		suite.addTest(new TestSuite(FeedbackArcSetTests.class));
+		suite.addTest(new TestSuite(SnapshotDeltaTests.class));
+		suite.addTest(new TestSuite(DeltaExporterTests.class));
+		suite.addTest(new TestSuite(HotspotIndexTests.class));
+		suite.addTest(new TestSuite(SourceMetricsTests.class));
 		// $JUnit-END$
 		return suite;
 	}
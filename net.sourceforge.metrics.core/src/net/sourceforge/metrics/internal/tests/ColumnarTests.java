@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.internal.export.ColumnarReader;
+import net.sourceforge.metrics.internal.export.ColumnarWriter;
+
+/**
+ * @author Metrics2 contributors
+ */
+public class ColumnarTests extends TestCase {
+
+	private static String[] ids = new String[] { "VG", "NOM" };
+
+	/**
+	 * Constructor for ColumnarTests.
+	 * 
+	 * @param arg0
+	 */
+	public ColumnarTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(ColumnarTests.class);
+	}
+
+	private ColumnarReader write(int rows) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ColumnarWriter writer = new ColumnarWriter(bytes, ids);
+		for (int i = 0; i < rows; i++) {
+			writer.addRow(i, i - 1, i % 6 + 1, "name" + i, "=p/src<" + i);
+			writer.setValue(0, i);
+			if (i % 3 == 0) {
+				writer.setValue(2, i / 2.0);
+			}
+		}
+		writer.close();
+		return new ColumnarReader(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	public void testHeader() throws IOException {
+		ColumnarReader reader = write(0);
+		String[] names = reader.getColumnNames();
+		assertEquals(5 + 2 * 4, names.length);
+		assertEquals("path", names[4]);
+		assertEquals("VG.stddev", names[7]);
+		assertEquals("NOM.max", names[12]);
+		assertEquals(ColumnarWriter.DOUBLE, reader.getColumnTypes()[5]);
+		assertFalse(reader.next());
+	}
+
+	public void testRoundTrip() throws IOException {
+		// more than one group
+		int rows = ColumnarWriter.ROWS_PER_GROUP * 2 + 5;
+		ColumnarReader reader = write(rows);
+		int vg = reader.getColumn("VG");
+		int stddev = reader.getColumn("VG.stddev");
+		int nom = reader.getColumn("NOM");
+		int count = 0;
+		while (reader.next()) {
+			assertEquals(count, reader.getInt(0));
+			assertEquals(count - 1, reader.getInt(1));
+			assertEquals(count % 6 + 1, reader.getByte(2));
+			assertEquals("name" + count, reader.getString(3));
+			assertEquals("=p/src<" + count, reader.getString(4));
+			assertTrue(reader.hasValue(vg));
+			assertEquals(count, reader.getDouble(vg), 0);
+			assertEquals(count % 3 == 0, reader.hasValue(stddev));
+			if (count % 3 == 0) {
+				assertEquals(count / 2.0, reader.getDouble(stddev), 0);
+			}
+			assertFalse(reader.hasValue(nom));
+			count++;
+		}
+		assertEquals(rows, count);
+		reader.close();
+	}
+
+	public void testAborted() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ColumnarWriter writer = new ColumnarWriter(bytes, ids);
+		for (int i = 0; i < ColumnarWriter.ROWS_PER_GROUP + 5; i++) {
+			writer.addRow(i, i - 1, 1, "name" + i, "path" + i);
+		}
+		writer.abort();
+		ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(bytes.toByteArray()));
+		try {
+			while (reader.next()) {
+				// the complete first group is readable
+			}
+			fail("should not read an aborted file as complete");
+		} catch (IOException e) {
+			// ok
+		}
+	}
+
+	public void testNotColumnar() {
+		try {
+			new ColumnarReader(new ByteArrayInputStream("<?xml".getBytes()));
+			fail("should not accept xml");
+		} catch (IOException e) {
+			// ok
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.internal.export.ColumnarReader;
+import net.sourceforge.metrics.internal.export.ColumnarWriter;
+import net.sourceforge.metrics.internal.export.DeltaExporter;
+
+/**
+ * Checks the comparison pass of DeltaExporter on random baselines and current metrics against the differences listed path by path. Absent values are NaN.
+ * 
+ * @author Metrics2 contributors
+ */
+public class DeltaExporterTests extends TestCase {
+
+	private static final int ROUNDS = 200;
+	private static final String[] IDS = new String[] { "VG", "NOM" };
+	private static final String[] COLUMNS = new String[] { "VG", "VG.avg", "VG.stddev", "VG.max", "NOM", "NOM.avg", "NOM.stddev", "NOM.max" };
+
+	/**
+	 * Constructor for DeltaExporterTests.
+	 * 
+	 * @param arg0
+	 */
+	public DeltaExporterTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(DeltaExporterTests.class);
+	}
+
+	public void testRandomChanges() throws IOException {
+		Random random = new Random(1);
+		for (int r = 0; r < ROUNDS; r++) {
+			Map<String, double[]> baseline = createState(random);
+			Map<String, double[]> current = createState(random);
+			if (random.nextBoolean()) {
+				// mostly unchanged
+				current = new TreeMap<String, double[]>(baseline);
+				current.put("=p/src<a{A" + random.nextInt(30) + ".java", createValues(random));
+			}
+			StringWriter out = new StringWriter();
+			DeltaExporter exporter = new DeltaExporter();
+			exporter.start(writeBaseline(baseline), IDS, out);
+			for (Map.Entry<String, double[]> entry : current.entrySet()) {
+				double[] values = entry.getValue();
+				boolean[] present = new boolean[values.length];
+				for (int c = 0; c < values.length; c++) {
+					present[c] = !Double.isNaN(values[c]);
+				}
+				exporter.next(entry.getKey(), "Type", getName(entry.getKey()), values, present);
+			}
+			exporter.finish();
+			List<String> expected = new ArrayList<String>();
+			int[] counts = compare(baseline, current, expected);
+			List<String> lines = new ArrayList<String>();
+			for (String line : out.toString().split("\n")) {
+				if (line.length() > 0) {
+					lines.add(line);
+				}
+			}
+			assertEquals("round " + r, expected, lines);
+			assertEquals(counts[0], exporter.getAdded());
+			assertEquals(counts[1], exporter.getRemoved());
+			assertEquals(counts[2], exporter.getChanged());
+		}
+	}
+
+	public void testUnsortedBaseline() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ColumnarWriter writer = new ColumnarWriter(bytes, IDS);
+		writer.addRow(0, -1, 2, "B", "=p/src<a{B.java");
+		writer.addRow(1, -1, 2, "A", "=p/src<a{A.java");
+		writer.close();
+		DeltaExporter exporter = new DeltaExporter();
+		try {
+			exporter.start(new ColumnarReader(new ByteArrayInputStream(bytes.toByteArray())), IDS, new StringWriter());
+			exporter.finish();
+			fail("should not accept a baseline out of path order");
+		} catch (IOException e) {
+			// ok
+		}
+	}
+
+	private static Map<String, double[]> createState(Random random) {
+		Map<String, double[]> result = new TreeMap<String, double[]>();
+		for (int p = 0; p < 30; p++) {
+			if (random.nextBoolean()) {
+				result.put("=p/src<a{A" + p + ".java", createValues(random));
+			}
+		}
+		return result;
+	}
+
+	private static double[] createValues(Random random) {
+		double[] result = new double[COLUMNS.length];
+		for (int c = 0; c < result.length; c++) {
+			// few distinct values, so that most cells stay the same
+			int value = random.nextInt(3);
+			result[c] = (value == 0) ? Double.NaN : value;
+		}
+		return result;
+	}
+
+	private static String getName(String path) {
+		return path.substring(path.indexOf('{') + 1);
+	}
+
+	private static ColumnarReader writeBaseline(Map<String, double[]> state) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ColumnarWriter writer = new ColumnarWriter(bytes, IDS);
+		int id = 0;
+		for (Map.Entry<String, double[]> entry : state.entrySet()) {
+			writer.addRow(id++, -1, 2, getName(entry.getKey()), entry.getKey());
+			double[] values = entry.getValue();
+			for (int c = 0; c < values.length; c++) {
+				if (!Double.isNaN(values[c])) {
+					writer.setValue(c, values[c]);
+				}
+			}
+		}
+		writer.close();
+		return new ColumnarReader(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	/**
+	 * @param baseline
+	 * @param current
+	 * @param lines
+	 *            receives the expected lines in path order
+	 * @return number of added, removed and changed elements
+	 */
+	private static int[] compare(Map<String, double[]> baseline, Map<String, double[]> current, List<String> lines) {
+		int[] counts = new int[3];
+		Set<String> paths = new TreeSet<String>(baseline.keySet());
+		paths.addAll(current.keySet());
+		for (String path : paths) {
+			double[] old = baseline.get(path);
+			double[] values = current.get(path);
+			String change = (old == null) ? "added" : (values == null) ? "removed" : "changed";
+			StringBuffer metrics = new StringBuffer();
+			for (int c = 0; c < COLUMNS.length; c++) {
+				double oldValue = (old == null) ? Double.NaN : old[c];
+				double newValue = (values == null) ? Double.NaN : values[c];
+				if (Double.compare(oldValue, newValue) == 0) {
+					continue;
+				}
+				metrics.append((metrics.length() == 0) ? "" : ",").append('"').append(COLUMNS[c]).append("\":{");
+				if (!Double.isNaN(oldValue)) {
+					metrics.append("\"old\":").append(oldValue);
+				}
+				if (!Double.isNaN(newValue)) {
+					metrics.append(Double.isNaN(oldValue) ? "" : ",").append("\"new\":").append(newValue);
+				}
+				metrics.append('}');
+			}
+			// an added or removed element is listed even without metrics
+			if ((metrics.length() > 0) || !"changed".equals(change)) {
+				lines.add("{\"change\":\"" + change + "\",\"path\":\"" + path + "\",\"type\":\"Type\",\"name\":\"" + getName(path) + "\",\"metrics\":{" + metrics + "}}");
+				counts[(old == null) ? 0 : (values == null) ? 1 : 2]++;
+			}
+		}
+		return counts;
+	}
+}
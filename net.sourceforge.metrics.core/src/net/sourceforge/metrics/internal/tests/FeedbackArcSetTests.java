@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.ui.dependencies.DependencyGraph;
+import net.sourceforge.metrics.ui.dependencies.FeedbackArcSet;
+import net.sourceforge.metrics.ui.dependencies.FeedbackArcSet.Cut;
+
+/**
+ * Checks the cuts of FeedbackArcSet on random package graphs: removing them must leave no cycle among the members, and no single cut may be restored without closing one, whatever the budget.
+ * 
+ * @author Metrics2 contributors
+ */
+public class FeedbackArcSetTests extends TestCase {
+
+	private static final int GRAPHS = 500;
+	private static final int[] BUDGETS = new int[] { 0, 3, Integer.MAX_VALUE };
+
+	/**
+	 * Constructor for FeedbackArcSetTests.
+	 * 
+	 * @param arg0
+	 */
+	public FeedbackArcSetTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(FeedbackArcSetTests.class);
+	}
+
+	public void testCheapestCut() {
+		Map<String, Set<String>> efferent = new HashMap<String, Set<String>>();
+		efferent.put("a", new HashSet<String>(Arrays.asList(new String[] { "b" })));
+		efferent.put("b", new HashSet<String>(Arrays.asList(new String[] { "a" })));
+		Map<String, Map<String, Integer>> counts = new HashMap<String, Map<String, Integer>>();
+		counts.put("b", new HashMap<String, Integer>());
+		counts.get("b").put("a", Integer.valueOf(5));
+		FeedbackArcSet cuts = new FeedbackArcSet(new DependencyGraph(efferent), efferent.keySet(), counts);
+		cuts.solve(Integer.MAX_VALUE);
+		assertTrue(cuts.isComplete());
+		assertEquals(1, cuts.getCuts().length);
+		assertEquals("a", cuts.getCuts()[0].getFrom());
+		assertEquals("b", cuts.getCuts()[0].getTo());
+		assertEquals(1, cuts.getWeight());
+	}
+
+	public void testRandomGraphs() {
+		Random random = new Random(1);
+		for (int g = 0; g < GRAPHS; g++) {
+			int size = 1 + random.nextInt(30);
+			Map<String, Set<String>> efferent = new HashMap<String, Set<String>>();
+			Map<String, Map<String, Integer>> counts = new HashMap<String, Map<String, Integer>>();
+			for (int v = 0; v < size; v++) {
+				efferent.put("p" + v, new HashSet<String>());
+				counts.put("p" + v, new HashMap<String, Integer>());
+			}
+			for (int i = random.nextInt(4 * size); i > 0; i--) {
+				String from = "p" + random.nextInt(size);
+				String to = "p" + random.nextInt(size);
+				efferent.get(from).add(to);
+				if (random.nextBoolean()) {
+					counts.get(from).put(to, Integer.valueOf(1 + random.nextInt(9)));
+				}
+			}
+			List<String> members = new ArrayList<String>();
+			for (int v = 0; v < size; v++) {
+				if ((g % 3 != 0) || random.nextBoolean()) {
+					members.add("p" + v);
+				}
+			}
+			DependencyGraph graph = new DependencyGraph(efferent);
+			for (int budget : BUDGETS) {
+				FeedbackArcSet cuts = new FeedbackArcSet(graph, members, counts);
+				cuts.solve(budget);
+				if (budget == 0) {
+					assertEquals(members.isEmpty(), cuts.isComplete());
+				} else if (budget == Integer.MAX_VALUE) {
+					assertTrue(cuts.isComplete());
+				}
+				check("graph " + g + ", budget " + budget, efferent, counts, members, cuts);
+				// the budget counts moves, the same graph always gets the same cuts
+				FeedbackArcSet again = new FeedbackArcSet(graph, members, counts);
+				again.solve(budget);
+				assertEquals(Arrays.asList(toStrings(cuts.getCuts())), Arrays.asList(toStrings(again.getCuts())));
+			}
+			// stopped by the time limit or not, the cuts must be valid
+			FeedbackArcSet timed = new FeedbackArcSet(graph, members, counts);
+			timed.solve(1, Integer.MAX_VALUE);
+			check("graph " + g + ", 1 ms", efferent, counts, members, timed);
+		}
+	}
+
+	private void check(String message, Map<String, Set<String>> efferent, Map<String, Map<String, Integer>> counts, List<String> members, FeedbackArcSet solution) {
+		Set<String> scope = new HashSet<String>(members);
+		Map<String, Set<String>> remaining = new HashMap<String, Set<String>>();
+		for (String from : members) {
+			remaining.put(from, new HashSet<String>());
+			for (String to : efferent.get(from)) {
+				if (scope.contains(to) && !to.equals(from)) {
+					remaining.get(from).add(to);
+				}
+			}
+		}
+		Cut[] cuts = solution.getCuts();
+		int weight = 0;
+		for (Cut cut : cuts) {
+			assertTrue(message + ", " + cut, remaining.get(cut.getFrom()).remove(cut.getTo()));
+			Integer count = counts.get(cut.getFrom()).get(cut.getTo());
+			assertEquals(message, (count == null) ? 1 : count.intValue(), cut.getReferences());
+			weight += cut.getReferences();
+		}
+		assertEquals(message, weight, solution.getWeight());
+		assertTrue(message + ", cycle left", isAcyclic(remaining));
+		for (Cut cut : cuts) {
+			assertTrue(message + ", " + cut + " is not needed", reaches(remaining, cut.getTo(), cut.getFrom()));
+		}
+	}
+
+	private static boolean isAcyclic(Map<String, Set<String>> arcs) {
+		Map<String, Integer> inDegree = new HashMap<String, Integer>();
+		for (String v : arcs.keySet()) {
+			inDegree.put(v, Integer.valueOf(0));
+		}
+		for (Set<String> heads : arcs.values()) {
+			for (String w : heads) {
+				inDegree.put(w, Integer.valueOf(inDegree.get(w).intValue() + 1));
+			}
+		}
+		List<String> ready = new ArrayList<String>();
+		for (String v : arcs.keySet()) {
+			if (inDegree.get(v).intValue() == 0) {
+				ready.add(v);
+			}
+		}
+		int removed = 0;
+		while (!ready.isEmpty()) {
+			String v = ready.remove(ready.size() - 1);
+			removed++;
+			for (String w : arcs.get(v)) {
+				int degree = inDegree.get(w).intValue() - 1;
+				inDegree.put(w, Integer.valueOf(degree));
+				if (degree == 0) {
+					ready.add(w);
+				}
+			}
+		}
+		return removed == arcs.size();
+	}
+
+	private static boolean reaches(Map<String, Set<String>> arcs, String from, String to) {
+		Set<String> reached = new HashSet<String>();
+		List<String> stack = new ArrayList<String>();
+		stack.add(from);
+		reached.add(from);
+		while (!stack.isEmpty()) {
+			String v = stack.remove(stack.size() - 1);
+			if (v.equals(to)) {
+				return true;
+			}
+			for (String w : arcs.get(v)) {
+				if (reached.add(w)) {
+					stack.add(w);
+				}
+			}
+		}
+		return false;
+	}
+
+	private static String[] toStrings(Cut[] cuts) {
+		String[] result = new String[cuts.length];
+		for (int i = 0; i < cuts.length; i++) {
+			result[i] = cuts[i].getFrom() + "->" + cuts[i].getTo();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.core.sources.HotspotIndex;
+
+/**
+ * Checks that the scope of a hotspot query only matches the element itself and its descendants, not elements whose handles merely start with the same characters.
+ * 
+ * @author Metrics2 contributors
+ */
+public class HotspotIndexTests extends TestCase {
+
+	/**
+	 * Constructor for HotspotIndexTests.
+	 * 
+	 * @param arg0
+	 */
+	public HotspotIndexTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(HotspotIndexTests.class);
+	}
+
+	public void testDescendants() {
+		assertTrue(HotspotIndex.isUnder("=p", "=p"));
+		assertTrue(HotspotIndex.isUnder("=p/src", "=p"));
+		assertTrue(HotspotIndex.isUnder("=p/src<com.foo", "=p/src"));
+		assertTrue(HotspotIndex.isUnder("=p/src<com.foo{A.java", "=p/src<com.foo"));
+		assertTrue(HotspotIndex.isUnder("=p/src<com.foo{A.java[A~m~I", "=p/src<com.foo{A.java[A"));
+		assertTrue(HotspotIndex.isUnder("=p/lib.jar<com.foo(A.class[A", "=p/lib.jar<com.foo"));
+	}
+
+	public void testPrefixesOfOtherElements() {
+		assertFalse(HotspotIndex.isUnder("=p2", "=p"));
+		assertFalse(HotspotIndex.isUnder("=p2/src<com.foo", "=p"));
+		assertFalse(HotspotIndex.isUnder("=p/src<com.foobar", "=p/src<com.foo"));
+		assertFalse(HotspotIndex.isUnder("=p/src<com.foobar{A.java", "=p/src<com.foo"));
+		assertFalse(HotspotIndex.isUnder("=p/src<com.foo{A.java[AB", "=p/src<com.foo{A.java[A"));
+		assertFalse(HotspotIndex.isUnder("=p/src<com.foo{A.java[A~mm", "=p/src<com.foo{A.java[A~m"));
+	}
+
+	public void testEscapedCharacters() {
+		// the source folder src/main, the slash is part of the name
+		assertFalse(HotspotIndex.isUnder("=p/src\\/main<com.foo", "=p/src"));
+		assertTrue(HotspotIndex.isUnder("=p/src\\/main<com.foo", "=p/src\\/main"));
+	}
+
+	public void testUnrelated() {
+		assertFalse(HotspotIndex.isUnder("=p", "=p/src"));
+		assertFalse(HotspotIndex.isUnder("=q/src", "=p"));
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.calculators.LackOfCohesion;
+
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IMethod;
+
+/**
+ * Calculates the LCOM of the random types of two projects at the same time and compares the values with a sequential run and with a count of the attribute accesses. The types are made of IMethod and IField proxies, no
+ * workspace is needed.
+ * 
+ * @author Metrics2 contributors
+ */
+public class LackOfCohesionTests extends TestCase {
+
+	private static final int TYPES = 200;
+	private static final int ROUNDS = 20;
+
+	/**
+	 * Constructor for LackOfCohesionTests.
+	 * 
+	 * @param arg0
+	 */
+	public LackOfCohesionTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(LackOfCohesionTests.class);
+	}
+
+	public void testKnownValue() {
+		// a and b used by m1, a by m2: avg(m(a)) = 1.5, m = 2, |(1.5 - 2) / (1 - 2)| = 0.5
+		IField[] fields = new IField[] { createField("a", 0), createField("b", 0) };
+		IMethod[] methods = new IMethod[] { createMethod("m1", 0, "void m1() { a = b; }"), createMethod("m2", 0, "int m2() { return a; }") };
+		assertEquals(0.5, LackOfCohesion.calculate(methods, fields, true, true), 1e-9);
+	}
+
+	public void testStatics() {
+		IField[] fields = new IField[] { createField("a", 0), createField("b", Flags.AccStatic), createField("c", 0) };
+		IMethod[] methods = new IMethod[] { createMethod("m1", 0, "void m1() { a = c; }"), createMethod("m2", Flags.AccStatic, "void m2() { b++; }") };
+		// a and c by m1 only, m2 is static
+		assertEquals(0.0, LackOfCohesion.calculate(methods, fields, false, false), 1e-9);
+		// m(a) = m(c) = 1, m(b) = 1, m = 2: |(1 - 2) / (1 - 2)| = 1
+		assertEquals(1.0, LackOfCohesion.calculate(methods, fields, true, true), 1e-9);
+	}
+
+	public void testRandomTypes() {
+		Random random = new Random(1);
+		for (int t = 0; t < TYPES; t++) {
+			Type type = new Type(random);
+			assertEquals(type.getExpected(), LackOfCohesion.calculate(type.methods, type.fields, true, true), 1e-9);
+		}
+	}
+
+	public void testConcurrentProjects() throws InterruptedException {
+		final List<Type> project1 = createProject(new Random(2));
+		final List<Type> project2 = createProject(new Random(3));
+		final double[] sequential1 = calculate(project1);
+		final double[] sequential2 = calculate(project2);
+		final List<String> failures = new ArrayList<String>();
+		Thread[] threads = new Thread[] { new Thread() {
+
+			@Override
+			public void run() {
+				compare("project1", project1, sequential1, failures);
+			}
+		}, new Thread() {
+
+			@Override
+			public void run() {
+				compare("project2", project2, sequential2, failures);
+			}
+		} };
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+		for (int t = 0; t < TYPES; t++) {
+			assertEquals(project1.get(t).getExpected(), sequential1[t], 1e-9);
+			assertEquals(project2.get(t).getExpected(), sequential2[t], 1e-9);
+		}
+	}
+
+	private static List<Type> createProject(Random random) {
+		List<Type> result = new ArrayList<Type>();
+		for (int t = 0; t < TYPES; t++) {
+			result.add(new Type(random));
+		}
+		return result;
+	}
+
+	private static double[] calculate(List<Type> project) {
+		double[] result = new double[project.size()];
+		for (int t = 0; t < result.length; t++) {
+			result[t] = LackOfCohesion.calculate(project.get(t).methods, project.get(t).fields, true, true);
+		}
+		return result;
+	}
+
+	private static void compare(String name, List<Type> project, double[] expected, List<String> failures) {
+		for (int r = 0; r < ROUNDS; r++) {
+			double[] values = calculate(project);
+			for (int t = 0; t < values.length; t++) {
+				if (Math.abs(values[t] - expected[t]) > 1e-9) {
+					synchronized (failures) {
+						failures.add(name + " type " + t + ": " + values[t] + " instead of " + expected[t]);
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	private static IField createField(String name, int flags) {
+		return (IField) createProxy(IField.class, name, flags, null);
+	}
+
+	private static IMethod createMethod(String name, int flags, String source) {
+		return (IMethod) createProxy(IMethod.class, name, flags, source);
+	}
+
+	private static Object createProxy(Class<?> type, final String name, final int flags, final String source) {
+		return Proxy.newProxyInstance(LackOfCohesionTests.class.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if ("getElementName".equals(method.getName())) {
+					return name;
+				}
+				if ("getFlags".equals(method.getName())) {
+					return new Integer(flags);
+				}
+				if ("getSource".equals(method.getName())) {
+					return source;
+				}
+				if ("toString".equals(method.getName())) {
+					return name;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	/**
+	 * A type with a few attributes and methods each using a random subset of them
+	 */
+	private static class Type {
+
+		IField[] fields;
+		IMethod[] methods;
+		boolean[][] uses;
+
+		Type(Random random) {
+			fields = new IField[2 + random.nextInt(6)];
+			for (int f = 0; f < fields.length; f++) {
+				fields[f] = createField("field" + f, 0);
+			}
+			methods = new IMethod[2 + random.nextInt(8)];
+			uses = new boolean[methods.length][fields.length];
+			for (int m = 0; m < methods.length; m++) {
+				StringBuffer source = new StringBuffer("void method" + m + "() {");
+				for (int f = 0; f < fields.length; f++) {
+					uses[m][f] = random.nextInt(3) == 0;
+					if (uses[m][f]) {
+						source.append(" field").append(f).append(" = local + 1;");
+					}
+				}
+				source.append(" }");
+				methods[m] = createMethod("method" + m, 0, source.toString());
+			}
+		}
+
+		/**
+		 * @return (avg(m(a)) - m)/(1 - m) from the uses, m counting the methods using any attribute
+		 */
+		double getExpected() {
+			int sum = 0;
+			int m = 0;
+			for (int i = 0; i < methods.length; i++) {
+				boolean any = false;
+				for (int f = 0; f < fields.length; f++) {
+					if (uses[i][f]) {
+						sum++;
+						any = true;
+					}
+				}
+				if (any) {
+					m++;
+				}
+			}
+			if (m == 1) {
+				return 0;
+			}
+			double avg = (double) sum / fields.length;
+			return Math.abs((avg - m) / (1 - m));
+		}
+	}
+}
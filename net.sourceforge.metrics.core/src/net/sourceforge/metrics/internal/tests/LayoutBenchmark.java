@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.util.Random;
+
+import net.sourceforge.metrics.ui.layeredpackagegraph.LayerRepulsion;
+
+import com.touchgraph.graphlayout.BarnesHutTree;
+import com.touchgraph.graphlayout.Node;
+
+/**
+ * Compares the Barnes-Hut node repulsion of the graph layouts with the pairwise loops they replaced on random graphs of 1000, 5000 and 20000 nodes. Prints the time per layout step and the root mean square error of the
+ * forces relative to their root mean square. Run it as a java application, an optional argument sets theta.
+ * 
+ * @author Metrics2 contributors
+ */
+public class LayoutBenchmark {
+
+	private static final int[] SIZES = new int[] { 1000, 5000, 20000 };
+	private static final int LAYERS = 20;
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) {
+		double theta = (args.length > 0) ? Double.parseDouble(args[0]) : -1;
+		// let the JIT compile both implementations before measuring
+		Node[] warmUp = createNodes(SIZES[0], new Random(0));
+		for (int i = 0; i < 10; i++) {
+			benchmarkStar(warmUp, theta);
+			benchmarkLayered(warmUp, theta);
+		}
+		System.out.println("nodes\tlayout\tpairwise ms\tbarnes-hut ms\terror");
+		for (int n : SIZES) {
+			Node[] nodes = createNodes(n, new Random(n));
+			System.out.println(benchmarkStar(nodes, theta));
+			System.out.println(benchmarkLayered(nodes, theta));
+		}
+	}
+
+	/**
+	 * Nodes spread over a square in which each node has a few dozen others within the repulsion range
+	 */
+	private static Node[] createNodes(int n, Random random) {
+		Node[] nodes = new Node[n];
+		double side = Math.sqrt(n) * 100;
+		for (int i = 0; i < n; i++) {
+			nodes[i] = new Node("package" + i);
+			nodes[i].x = random.nextDouble() * side;
+			nodes[i].y = random.nextDouble() * side;
+		}
+		return nodes;
+	}
+
+	private static String benchmarkStar(final Node[] nodes, double theta) {
+		final BarnesHutTree tree = new BarnesHutTree();
+		if (theta >= 0) {
+			tree.setTheta(theta);
+		}
+		double[][] exact = new double[2][];
+		long pairwise = time(nodes, exact, new Runnable() {
+
+			public void run() {
+				avoidLabels(nodes);
+			}
+		});
+		double[][] approximate = new double[2][];
+		long barnesHut = time(nodes, approximate, new Runnable() {
+
+			public void run() {
+				tree.build(nodes, nodes.length);
+				tree.repel(1);
+			}
+		});
+		return report(nodes.length, "star", pairwise, barnesHut, exact, approximate);
+	}
+
+	private static String benchmarkLayered(final Node[] nodes, double theta) {
+		final int[] layers = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			layers[i] = i % LAYERS;
+		}
+		final LayerRepulsion repulsion = new LayerRepulsion();
+		if (theta >= 0) {
+			repulsion.setTheta(theta);
+		}
+		double[][] exact = new double[2][];
+		long pairwise = time(nodes, exact, new Runnable() {
+
+			public void run() {
+				weakNodeForce(nodes, layers);
+			}
+		});
+		double[][] approximate = new double[2][];
+		long barnesHut = time(nodes, approximate, new Runnable() {
+
+			public void run() {
+				repulsion.build(nodes, layers, nodes.length);
+				repulsion.weak(1);
+			}
+		});
+		return report(nodes.length, "layered", pairwise, barnesHut, exact, approximate);
+	}
+
+	/**
+	 * @return the best time of a few runs in ms, the forces of the last run are stored in forces
+	 */
+	private static long time(Node[] nodes, double[][] forces, Runnable step) {
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			for (Node n : nodes) {
+				n.dx = 0;
+				n.dy = 0;
+			}
+			long start = System.nanoTime();
+			step.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		forces[0] = new double[nodes.length];
+		forces[1] = new double[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			forces[0][i] = nodes[i].dx;
+			forces[1][i] = nodes[i].dy;
+		}
+		return best / 1000000;
+	}
+
+	/**
+	 * @return a line of the result table
+	 */
+	private static String report(int n, String layout, long pairwise, long barnesHut, double[][] exact, double[][] approximate) {
+		double error = 0;
+		double norm = 0;
+		for (int d = 0; d < 2; d++) {
+			for (int i = 0; i < n; i++) {
+				double e = approximate[d][i] - exact[d][i];
+				error += e * e;
+				norm += exact[d][i] * exact[d][i];
+			}
+		}
+		double relative = (norm == 0) ? 0 : Math.sqrt(error / norm);
+		return n + "\t" + layout + "\t" + pairwise + "\t" + barnesHut + "\t" + (float) relative;
+	}
+
+	/**
+	 * The pairwise repulsion TGStarLayout used, for nodes that are not fading
+	 */
+	private static void avoidLabels(Node[] nodes) {
+		for (int i = 0; i < nodes.length; i++) {
+			Node n1 = nodes[i];
+			for (int j = i + 1; j < nodes.length; j++) {
+				Node n2 = nodes[j];
+				double vx = n1.x - n2.x;
+				double vy = n1.y - n2.y;
+				double len = vx * vx + vy * vy;
+				if ((len > 0) && (len < BarnesHutTree.RANGE * BarnesHutTree.RANGE)) {
+					// default repulsion 100 * 100 / 100
+					n1.dx += vx / len * 100;
+					n1.dy += vy / len * 100;
+					n2.dx -= vx / len * 100;
+					n2.dy -= vy / len * 100;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The pairwise weak node force LayeredTGLayout used, for nodes that are not fading
+	 */
+	private static void weakNodeForce(Node[] nodes, int[] layers) {
+		for (int i = 0; i < nodes.length; i++) {
+			Node n1 = nodes[i];
+			for (int j = i + 1; j < nodes.length; j++) {
+				if (layers[i] == layers[j]) {
+					Node n2 = nodes[j];
+					double vx = n1.x - n2.x;
+					if (vx != 0) {
+						double dx = 0.01 / (vx * Math.abs(vx));
+						n1.dx += dx;
+						n2.dx -= dx;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.internal.xml.MetricColumns;
+
+/**
+ * @author Metrics2 contributors
+ */
+public class MetricColumnsTests extends TestCase {
+
+	private static String[] ids = new String[] { "VG", "NOM", "PAR" };
+
+	/**
+	 * Constructor for MetricColumnsTests.
+	 * 
+	 * @param arg0
+	 */
+	public MetricColumnsTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(MetricColumnsTests.class);
+	}
+
+	/**
+	 * Add the same random elements to columns held in memory and to columns spilling small chunks, values of few distinct values so that the order of equal values is checked too
+	 */
+	private void compare(int elements, int chunkSize, long seed) throws IOException {
+		Random random = new Random(seed);
+		MetricColumns memory = new MetricColumns(ids, Integer.MAX_VALUE);
+		MetricColumns chunked = new MetricColumns(ids, chunkSize);
+		try {
+			double[] values = new double[ids.length];
+			boolean[] present = new boolean[ids.length];
+			for (int i = 0; i < elements; i++) {
+				for (int m = 0; m < ids.length; m++) {
+					present[m] = random.nextInt(4) != 0;
+					values[m] = random.nextInt(10);
+				}
+				String source = (i % 3 == 0) ? null : "Unit" + (i / 7) + ".java";
+				memory.add("element" + i, source, "pkg", values, present);
+				chunked.add("element" + i, source, "pkg", values, present);
+			}
+			assertEquals(elements, chunked.size());
+			assertEquals((elements - 1) / chunkSize, chunked.getRuns());
+			assertEquals(0, memory.getRuns());
+			for (int m = 0; m < ids.length; m++) {
+				MetricColumns.Values expected = memory.values(m);
+				MetricColumns.Values actual = chunked.values(m);
+				int count = 0;
+				double last = Double.MAX_VALUE;
+				while (expected.next()) {
+					assertTrue(actual.next());
+					assertEquals(expected.getName(), actual.getName());
+					assertEquals(expected.getSource(), actual.getSource());
+					assertEquals(expected.getPackage(), actual.getPackage());
+					assertEquals(expected.getValue(), actual.getValue(), 0);
+					assertTrue(expected.getValue() <= last);
+					last = expected.getValue();
+					count++;
+				}
+				assertFalse(actual.next());
+				assertTrue(count > elements / 2);
+			}
+		} finally {
+			memory.dispose();
+			chunked.dispose();
+		}
+	}
+
+	public void testInMemory() throws IOException {
+		compare(500, 1000, 1);
+	}
+
+	public void testSpilled() throws IOException {
+		compare(1000, 64, 2);
+	}
+
+	public void testSpilledExactChunks() throws IOException {
+		compare(640, 64, 3);
+	}
+
+	public void testEqualValuesInOrderOfAddition() throws IOException {
+		MetricColumns columns = new MetricColumns(ids, 2);
+		try {
+			double[] values = new double[] { 1, 0, 0 };
+			boolean[] present = new boolean[] { true, false, false };
+			for (int i = 0; i < 5; i++) {
+				columns.add("element" + i, null, null, values, present);
+			}
+			MetricColumns.Values sorted = columns.values(0);
+			for (int i = 0; i < 5; i++) {
+				assertTrue(sorted.next());
+				assertEquals("element" + i, sorted.getName());
+			}
+			assertFalse(sorted.next());
+			assertFalse(columns.values(1).next());
+		} finally {
+			columns.dispose();
+		}
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import net.sourceforge.metrics.internal.xml.MetricColumns;
+import net.sourceforge.metrics.internal.xml.MetricsFirstExporter;
+import net.sourceforge.metrics.internal.xml.XMLPrintStream;
+
+/**
+ * Compares the per metric loading and sorting the Metrics-First export used with the MetricColumns it uses now, on a synthetic project of 1000000 elements (by default). The elements are stored serialized, as in the jdbm
+ * store, and deserialized on every load. The old way loads the elements of the scope and sorts those of a level once per metric and level, the new way loads every element once and copies its values into primitive
+ * columns, either all in memory or keeping CHUNK_SIZE elements per level in memory and merging sorted runs from temporary files. All write the Value lines to a stream that discards them. Prints the time of each and
+ * the heap it holds on top of the store, measured where it holds the most. Run it as a java application with -Xmx1g, an optional argument sets the number of elements.
+ * 
+ * @author Metrics2 contributors
+ */
+public class MetricsFirstBenchmark {
+
+	private static final int METRICS = 10;
+	private static final int LEVELS = 3;
+
+	private static long base;
+	private static long peak;
+	private static long sampling;
+
+	public static void main(String[] args) throws IOException {
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		String[] ids = new String[METRICS];
+		for (int m = 0; m < METRICS; m++) {
+			ids[m] = "M" + m;
+		}
+		byte[][] store = createElements(n, new Random(n));
+		// let the JIT compile both implementations before measuring
+		byte[][] warmUp = new byte[Math.min(n, 20000)][];
+		System.arraycopy(store, 0, warmUp, 0, warmUp.length);
+		sortPerMetric(warmUp, ids);
+		collectColumns(warmUp, ids, 5000);
+		base = getUsedBytes();
+		System.out.println("elements\texport\tms\theap MB\truns");
+		start();
+		sortPerMetric(store, ids);
+		System.out.println(n + "\tper metric sort\t" + stop() + "\t" + (peak >> 20) + "\t0");
+		start();
+		int runs = collectColumns(store, ids, Integer.MAX_VALUE);
+		System.out.println(n + "\tcolumns in memory\t" + stop() + "\t" + (peak >> 20) + "\t" + runs);
+		start();
+		runs = collectColumns(store, ids, MetricsFirstExporter.CHUNK_SIZE);
+		System.out.println(n + "\tcolumns in chunks\t" + stop() + "\t" + (peak >> 20) + "\t" + runs);
+	}
+
+	private static void start() {
+		peak = 0;
+		sampling = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return ms since start, without the time spent in sample
+	 */
+	private static long stop() {
+		return System.currentTimeMillis() - sampling;
+	}
+
+	/**
+	 * Record the heap held on top of the store
+	 */
+	private static void sample() {
+		long start = System.currentTimeMillis();
+		peak = Math.max(peak, getUsedBytes() - base);
+		sampling += System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * A package, type or method. Handles are in store order, nine methods per type and nine types per package.
+	 */
+	private static class Element implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		String handle;
+		int level;
+		double[] values = new double[METRICS];
+		boolean[] present = new boolean[METRICS];
+
+		double getValue(int metric) {
+			return values[metric];
+		}
+	}
+
+	private static byte[][] createElements(int n, Random random) throws IOException {
+		byte[][] result = new byte[n][];
+		for (int i = 0; i < n; i++) {
+			Element e = new Element();
+			e.handle = "=p/src<pkg" + (i / 100) + "{Type" + (i / 10) + ".java[Type" + (i / 10) + "~method" + i;
+			e.level = (i % 100 == 0) ? 0 : ((i % 10 == 0) ? 1 : 2);
+			for (int m = 0; m < METRICS; m++) {
+				// the metrics of one level only
+				if (m % LEVELS == e.level) {
+					e.present[m] = true;
+					e.values[m] = random.nextInt(50);
+				}
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(e);
+			out.close();
+			result[i] = bytes.toByteArray();
+		}
+		return result;
+	}
+
+	private static Element load(byte[] stored) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(stored));
+		try {
+			return (Element) in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e.getMessage());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * For every metric and level, load the elements, list those of the level with a value and sort them by value and handle
+	 */
+	private static void sortPerMetric(byte[][] store, String[] ids) throws IOException {
+		XMLPrintStream out = new XMLPrintStream(new NullOutputStream());
+		NumberFormat nf = NumberFormat.getInstance();
+		for (int m = 0; m < ids.length; m++) {
+			final int metric = m;
+			for (int level = 0; level < LEVELS; level++) {
+				List<Element> values = new ArrayList<Element>();
+				for (byte[] stored : store) {
+					Element next = load(stored);
+					if ((next.level == level) && next.present[m]) {
+						values.add(next);
+					}
+				}
+				Collections.sort(values, new Comparator<Element>() {
+
+					public int compare(Element left, Element right) {
+						int result = Double.compare(right.getValue(metric), left.getValue(metric));
+						return (result != 0) ? result : left.handle.compareTo(right.handle);
+					}
+				});
+				if (!values.isEmpty()) {
+					sample();
+				}
+				for (Element next : values) {
+					print(out, next.handle, next.getValue(m), nf);
+				}
+			}
+		}
+		out.close();
+	}
+
+	/**
+	 * Load every element once and copy it into the columns of its level, then write each metric from the sorted columns
+	 * 
+	 * @return number of run files written
+	 */
+	private static int collectColumns(byte[][] store, String[] ids, int chunkSize) throws IOException {
+		XMLPrintStream out = new XMLPrintStream(new NullOutputStream());
+		NumberFormat nf = NumberFormat.getInstance();
+		MetricColumns[] columns = new MetricColumns[LEVELS];
+		for (int level = 0; level < LEVELS; level++) {
+			columns[level] = new MetricColumns(ids, chunkSize);
+		}
+		try {
+			for (byte[] stored : store) {
+				Element next = load(stored);
+				columns[next.level].add(next.handle, null, null, next.values, next.present);
+			}
+			sample();
+			int runs = 0;
+			for (int m = 0; m < ids.length; m++) {
+				for (int level = 0; level < LEVELS; level++) {
+					MetricColumns.Values values = columns[level].values(m);
+					while (values.next()) {
+						print(out, values.getName(), values.getValue(), nf);
+					}
+				}
+			}
+			for (MetricColumns next : columns) {
+				runs += next.getRuns();
+			}
+			return runs;
+		} finally {
+			for (MetricColumns next : columns) {
+				next.dispose();
+			}
+			out.close();
+		}
+	}
+
+	private static void print(XMLPrintStream out, String name, double value, NumberFormat nf) {
+		out.indent(3);
+		out.print("<Value name=\"");
+		out.print(name);
+		out.print("\" value =\"");
+		out.print(nf.format(value));
+		out.println("\"/>");
+	}
+
+	/**
+	 * @return the heap in use after a collection
+	 */
+	private static long getUsedBytes() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static class NullOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.ui.dependencies.PathFinder;
+import classycle.graph.Vertex;
+
+/**
+ * Checks the paths and cycles of the bidirectional PathFinder on random graphs against the distances of Floyd-Warshall. The finder only sees part of each graph, arcs leaving it must be ignored.
+ * 
+ * @author Metrics2 contributors
+ */
+public class PathFinderTests extends TestCase {
+
+	private static final int INFINITE = Integer.MAX_VALUE / 2;
+	private static final int GRAPHS = 300;
+
+	/**
+	 * Constructor for PathFinderTests.
+	 * 
+	 * @param arg0
+	 */
+	public PathFinderTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(PathFinderTests.class);
+	}
+
+	public void testShortestPaths() {
+		Random random = new Random(1);
+		for (int g = 0; g < GRAPHS; g++) {
+			Graph graph = new Graph(random);
+			int[][] d = StrongComponentTests.floydWarshall(graph.arcs);
+			PathFinder finder = new PathFinder(graph.vertices);
+			for (int s = 0; s < graph.size; s++) {
+				for (int t = 0; t < graph.size; t++) {
+					Vertex[] path = finder.findShortestPath(graph.vertices[s], graph.vertices[t]);
+					if (s == t) {
+						assertEquals(1, path.length);
+						assertSame(graph.vertices[s], path[0]);
+					} else if (d[s][t] == INFINITE) {
+						assertNull("graph " + g + ", " + s + " to " + t, path);
+					} else {
+						assertNotNull("graph " + g + ", " + s + " to " + t, path);
+						assertEquals("graph " + g + ", " + s + " to " + t, d[s][t] + 1, path.length);
+						assertSame(graph.vertices[s], path[0]);
+						assertSame(graph.vertices[t], path[path.length - 1]);
+						graph.checkArcs(path);
+					}
+				}
+			}
+		}
+	}
+
+	public void testCycles() {
+		Random random = new Random(2);
+		for (int g = 0; g < GRAPHS; g++) {
+			Graph graph = new Graph(random);
+			int[][] d = StrongComponentTests.floydWarshall(graph.arcs);
+			PathFinder finder = new PathFinder(graph.vertices);
+			for (int s = 0; s < graph.size; s++) {
+				Vertex[][] cycles = finder.findCycles(graph.vertices[s]);
+				assertEquals(graph.size, cycles.length);
+				for (int t = 0; t < graph.size; t++) {
+					if ((s == t) || (d[s][t] == INFINITE) || (d[t][s] == INFINITE)) {
+						assertNull(cycles[t]);
+					} else {
+						Vertex[] cycle = cycles[t];
+						assertEquals(d[s][t] + d[t][s] + 1, cycle.length);
+						assertSame(graph.vertices[s], cycle[0]);
+						assertSame(graph.vertices[t], cycle[d[s][t]]);
+						assertSame(graph.vertices[s], cycle[cycle.length - 1]);
+						graph.checkArcs(cycle);
+					}
+				}
+			}
+		}
+	}
+
+	public void testUnknownVertex() {
+		Vertex known = new Vertex(null);
+		PathFinder finder = new PathFinder(new Vertex[] { known });
+		assertNull(finder.findShortestPath(known, new Vertex(null)));
+		assertNull(finder.findCycles(new Vertex(null))[0]);
+	}
+
+	/**
+	 * A random graph, of which the finder only gets the first size vertices
+	 */
+	private class Graph {
+
+		private int size;
+		private Vertex[] vertices;
+		private boolean[][] arcs;
+		private Map<Vertex, Integer> index = new IdentityHashMap<Vertex, Integer>();
+
+		Graph(Random random) {
+			size = 1 + random.nextInt(25);
+			int outside = random.nextInt(5);
+			boolean[][] all = StrongComponentTests.createGraph(random, size + outside, random.nextInt(3 * (size + outside)));
+			Vertex[] created = new Vertex[size + outside];
+			for (int v = 0; v < created.length; v++) {
+				created[v] = new Vertex(null);
+			}
+			for (int v = 0; v < created.length; v++) {
+				for (int w = 0; w < created.length; w++) {
+					if (all[v][w]) {
+						created[v].addOutgoingArcTo(created[w]);
+					}
+				}
+			}
+			vertices = new Vertex[size];
+			arcs = new boolean[size][size];
+			for (int v = 0; v < size; v++) {
+				vertices[v] = created[v];
+				index.put(vertices[v], Integer.valueOf(v));
+				System.arraycopy(all[v], 0, arcs[v], 0, size);
+			}
+		}
+
+		void checkArcs(Vertex[] path) {
+			for (int i = 0; i + 1 < path.length; i++) {
+				assertTrue(arcs[index.get(path[i]).intValue()][index.get(path[i + 1]).intValue()]);
+			}
+		}
+	}
+}
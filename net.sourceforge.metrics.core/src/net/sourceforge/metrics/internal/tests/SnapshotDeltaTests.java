@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.internal.export.SnapshotDelta;
+
+/**
+ * Checks that merging two consecutive snapshot deltas gives the same cells as the delta written directly between the first and the last state, on random states. Absent values are NaN.
+ * 
+ * @author Metrics2 contributors
+ */
+public class SnapshotDeltaTests extends TestCase {
+
+	private static final int ROUNDS = 200;
+	private static final String[] COLUMNS = new String[] { "VG", "VG.avg", "NOM", "NOM.max" };
+
+	private List<File> files = new ArrayList<File>();
+
+	/**
+	 * Constructor for SnapshotDeltaTests.
+	 * 
+	 * @param arg0
+	 */
+	public SnapshotDeltaTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(SnapshotDeltaTests.class);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : files) {
+			file.delete();
+		}
+		files.clear();
+		super.tearDown();
+	}
+
+	public void testMerge() throws IOException {
+		Random random = new Random(1);
+		int[] all = new int[] { 0, 1, 2, 3 };
+		for (int r = 0; r < ROUNDS; r++) {
+			Map<String, double[]> first = createState(random, null, all);
+			Map<String, double[]> second = createState(random, first, all);
+			Map<String, double[]> third = createState(random, second, all);
+			File older = write(1000, COLUMNS, first, second, all);
+			File newer = write(2000, COLUMNS, second, third, all);
+			File merged = createFile();
+			SnapshotDelta.merge(older, newer, merged);
+			assertEquals("round " + r, read(write(2000, COLUMNS, first, third, all)), read(merged));
+			assertEquals(2000, new SnapshotDelta.Reader(merged).getTime());
+		}
+	}
+
+	public void testMergeOtherColumns() throws IOException {
+		Random random = new Random(2);
+		// the older delta only knows the first three columns, the newer only the last three
+		int[] head = new int[] { 0, 1, 2 };
+		int[] tail = new int[] { 1, 2, 3 };
+		for (int r = 0; r < ROUNDS; r++) {
+			Map<String, double[]> first = createState(random, null, new int[] { 0, 1, 2, 3 });
+			Map<String, double[]> second = createState(random, first, head);
+			Map<String, double[]> third = createState(random, second, tail);
+			File older = write(1000, select(head), first, second, head);
+			File newer = write(2000, select(tail), second, third, tail);
+			File merged = createFile();
+			SnapshotDelta.merge(older, newer, merged);
+			assertEquals("round " + r, read(write(2000, COLUMNS, first, third, new int[] { 0, 1, 2, 3 })), read(merged));
+		}
+	}
+
+	public void testMergeEmpty() throws IOException {
+		Map<String, double[]> state = createState(new Random(3), null, new int[] { 0, 1, 2, 3 });
+		File older = write(1000, COLUMNS, state, state, new int[] { 0, 1, 2, 3 });
+		File merged = createFile();
+		SnapshotDelta.merge(older, older, merged);
+		assertTrue(read(merged).isEmpty());
+	}
+
+	private static String[] select(int[] columns) {
+		String[] result = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			result[i] = COLUMNS[columns[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * @param random
+	 * @param previous
+	 *            the state to change, null for a new one
+	 * @param columns
+	 *            the columns that may change
+	 * @return path -> values, NaN for none
+	 */
+	private static Map<String, double[]> createState(Random random, Map<String, double[]> previous, int[] columns) {
+		Map<String, double[]> result = new TreeMap<String, double[]>();
+		for (int p = 0; p < 30; p++) {
+			String path = "=p/src<a{A" + p + ".java";
+			double[] old = (previous == null) ? null : previous.get(path);
+			if ((previous != null) && (random.nextInt(10) > 0)) {
+				// unchanged presence, some of the columns change
+				if (old != null) {
+					double[] values = old.clone();
+					for (int c : columns) {
+						if (random.nextInt(3) == 0) {
+							values[c] = randomValue(random);
+						}
+					}
+					result.put(path, values);
+				}
+			} else if (random.nextBoolean()) {
+				double[] values = new double[COLUMNS.length];
+				for (int c = 0; c < values.length; c++) {
+					if (contains(columns, c)) {
+						values[c] = randomValue(random);
+					} else {
+						values[c] = (old == null) ? Double.NaN : old[c];
+					}
+				}
+				result.put(path, values);
+			} else if ((old != null) && !isChangeable(old, columns)) {
+				// a removal would change columns the delta does not have
+				result.put(path, old);
+			}
+		}
+		return result;
+	}
+
+	private static boolean isChangeable(double[] values, int[] columns) {
+		for (int c = 0; c < values.length; c++) {
+			if (!Double.isNaN(values[c]) && !contains(columns, c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean contains(int[] columns, int column) {
+		for (int c : columns) {
+			if (c == column) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static double randomValue(Random random) {
+		// few distinct values, so that changes back to an old value happen
+		int value = random.nextInt(4);
+		return (value == 0) ? Double.NaN : value / 2.0;
+	}
+
+	private File createFile() throws IOException {
+		File file = File.createTempFile("metrics", ".delta");
+		files.add(file);
+		return file;
+	}
+
+	/**
+	 * Write the delta from one state to the next the way SnapshotStore does
+	 */
+	private File write(long time, String[] names, Map<String, double[]> from, Map<String, double[]> to, int[] columns) throws IOException {
+		File file = createFile();
+		SnapshotDelta.Writer writer = new SnapshotDelta.Writer(file, time, names);
+		Set<String> paths = new TreeSet<String>(from.keySet());
+		paths.addAll(to.keySet());
+		for (String path : paths) {
+			double[] old = from.get(path);
+			double[] current = to.get(path);
+			for (int i = 0; i < columns.length; i++) {
+				double oldValue = (old == null) ? Double.NaN : old[columns[i]];
+				double newValue = (current == null) ? Double.NaN : current[columns[i]];
+				writer.addCell(i, !Double.isNaN(oldValue), oldValue, !Double.isNaN(newValue), newValue);
+			}
+			writer.endElement(path, path.length() % 6 + 1, path.substring(path.indexOf('{') + 1));
+		}
+		writer.close();
+		return file;
+	}
+
+	/**
+	 * @return one line per element, its cells sorted by column name
+	 */
+	private static List<String> read(File file) throws IOException {
+		List<String> result = new ArrayList<String>();
+		SnapshotDelta.Reader reader = new SnapshotDelta.Reader(file);
+		String[] names = reader.getColumnNames();
+		String last = null;
+		while (reader.next()) {
+			if (last != null) {
+				assertTrue(last.compareTo(reader.getPath()) < 0);
+			}
+			last = reader.getPath();
+			List<String> cells = new ArrayList<String>();
+			for (int i = 0; i < reader.getCells(); i++) {
+				StringBuffer b = new StringBuffer(names[reader.getColumn(i)]);
+				b.append(reader.hasOld(i) ? " old " + reader.getOld(i) : " added");
+				b.append(reader.hasNew(i) ? " new " + reader.getNew(i) : " removed");
+				cells.add(b.toString());
+			}
+			Collections.sort(cells);
+			result.add(reader.getPath() + " " + reader.getType() + " " + reader.getName() + " " + cells);
+		}
+		reader.close();
+		return result;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.sourceforge.metrics.core.Constants;
+import net.sourceforge.metrics.standalone.SourceMetrics;
+import net.sourceforge.metrics.standalone.SourceMetrics.Element;
+
+/**
+ * Checks that SourceMetrics parses current syntax and measures local and anonymous types under the member they are declared in, without counting their lines twice.
+ * 
+ * @author Metrics2 contributors
+ */
+public class SourceMetricsTests extends TestCase implements Constants {
+
+	private static final String SOURCE = "package p;\n" //
+			+ "public class A {\n" //
+			+ "	private Runnable field = new Runnable() {\n" //
+			+ "		public void run() {\n" //
+			+ "			field = null;\n" //
+			+ "		}\n" //
+			+ "	};\n" //
+			+ "	static {\n" //
+			+ "		new Object() {\n" //
+			+ "		};\n" //
+			+ "	}\n" //
+			+ "	void m() throws Exception {\n" //
+			+ "		Runnable r = () -> {\n" //
+			+ "		};\n" //
+			+ "		new Thread(new Runnable() {\n" //
+			+ "			public void run() {\n" //
+			+ "			}\n" //
+			+ "		}).start();\n" //
+			+ "		new Object() {\n" //
+			+ "		};\n" //
+			+ "		class Local {\n" //
+			+ "			void n() {\n" //
+			+ "			}\n" //
+			+ "		}\n" //
+			+ "		try (java.io.StringReader in = new java.io.StringReader(\"\")) {\n" //
+			+ "			if (in.ready()) {\n" //
+			+ "				in.read();\n" //
+			+ "			}\n" //
+			+ "		}\n" //
+			+ "	}\n" //
+			+ "}\n";
+
+	private File dir;
+
+	/**
+	 * Constructor for SourceMetricsTests.
+	 * 
+	 * @param arg0
+	 */
+	public SourceMetricsTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(SourceMetricsTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		dir = File.createTempFile("metrics", ".src");
+		dir.delete();
+		new File(dir, "p").mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		new File(dir, "p/A.java").delete();
+		new File(dir, "p").delete();
+		dir.delete();
+		super.tearDown();
+	}
+
+	public void testAnonymousTypes() throws Exception {
+		Map<String, Element> elements = calculate();
+		assertTrue(elements.containsKey("=<p{A.java[A^field["));
+		assertTrue(elements.containsKey("=<p{A.java[A^field[~run"));
+		assertTrue(elements.containsKey("=<p{A.java[A|1["));
+		assertTrue(elements.containsKey("=<p{A.java[A~m["));
+		assertTrue(elements.containsKey("=<p{A.java[A~m[~run"));
+		assertTrue(elements.containsKey("=<p{A.java[A~m[!2"));
+		assertTrue(elements.containsKey("=<p{A.java[A~m[Local~n"));
+		assertEquals(TYPE, elements.get("=<p{A.java[A~m[!2").getLevel());
+	}
+
+	public void testNewerSyntax() throws Exception {
+		Map<String, Element> elements = calculate();
+		// the if in the try with resources after the lambda is only there if both parsed
+		assertEquals(2, elements.get("=<p{A.java[A~m").getValue(MCCABE, 0).intValue());
+		assertEquals(3, elements.get("=<p{A.java[A~m").getValue(NESTEDBLOCKDEPTH, 0).intValue());
+	}
+
+	public void testLinesNotCountedTwice() throws Exception {
+		Map<String, Element> elements = calculate();
+		double method = elements.get("=<p{A.java[A~m").getValue(MLOC, 0).doubleValue();
+		double field = elements.get("=<p{A.java[A^field[~run").getValue(MLOC, 0).doubleValue();
+		assertEquals(method + field, elements.get("=<p{A.java[A").getValue(MLOC, 0).doubleValue(), 0);
+		assertEquals(method, elements.get("=<p{A.java[A~m").getValue(MLOC, 0).doubleValue(), 0);
+	}
+
+	private Map<String, Element> calculate() throws IOException, InterruptedException {
+		File file = new File(dir, "p/A.java");
+		Writer out = new FileWriter(file);
+		try {
+			out.write(SOURCE);
+		} finally {
+			out.close();
+		}
+		SourceMetrics engine = new SourceMetrics(1);
+		engine.setRootName("src");
+		List<Element> result = engine.calculate(Collections.singletonList(file));
+		assertEquals(Collections.emptyList(), engine.getErrors());
+		Map<String, Element> elements = new HashMap<String, Element>();
+		for (Element next : result) {
+			elements.put(next.getPath(), next);
+		}
+		return elements;
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.tests;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import classycle.graph.AtomicVertex;
+import classycle.graph.Attributes;
+import classycle.graph.CompactGraph;
+import classycle.graph.GraphAttributes;
+import classycle.graph.StrongComponent;
+import classycle.graph.StrongComponentProcessor;
+import classycle.graph.Vertex;
+
+/**
+ * Checks the strong components of CompactGraph and the geometry of StrongComponent on random graphs against brute force: the transitive closure for the components, Floyd-Warshall for the distances.
+ * 
+ * @author Metrics2 contributors
+ */
+public class StrongComponentTests extends TestCase {
+
+	private static final int INFINITE = Integer.MAX_VALUE / 2;
+	private static final int GRAPHS = 500;
+
+	/**
+	 * Constructor for StrongComponentTests.
+	 * 
+	 * @param arg0
+	 */
+	public StrongComponentTests(String arg0) {
+		super(arg0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(StrongComponentTests.class);
+	}
+
+	/**
+	 * @param random
+	 * @param size
+	 * @param arcs
+	 *            number of random arcs, duplicates and loops included
+	 * @return adjacency matrix
+	 */
+	static boolean[][] createGraph(Random random, int size, int arcs) {
+		boolean[][] result = new boolean[size][size];
+		for (int i = 0; (size > 0) && (i < arcs); i++) {
+			result[random.nextInt(size)][random.nextInt(size)] = true;
+		}
+		return result;
+	}
+
+	static CompactGraph toCompactGraph(boolean[][] arcs) {
+		int size = arcs.length;
+		int[] offsets = new int[size + 1];
+		for (int v = 0; v < size; v++) {
+			offsets[v + 1] = offsets[v];
+			for (int w = 0; w < size; w++) {
+				if (arcs[v][w]) {
+					offsets[v + 1]++;
+				}
+			}
+		}
+		int[] heads = new int[offsets[size]];
+		for (int v = 0, a = 0; v < size; v++) {
+			for (int w = 0; w < size; w++) {
+				if (arcs[v][w]) {
+					heads[a++] = w;
+				}
+			}
+		}
+		return new CompactGraph(size, offsets, heads);
+	}
+
+	/**
+	 * @param arcs
+	 * @return shortest distances of at least one arc, d[v][v] being the shortest cycle through v, INFINITE if there is no path
+	 */
+	static int[][] floydWarshall(boolean[][] arcs) {
+		int size = arcs.length;
+		int[][] d = new int[size][size];
+		for (int v = 0; v < size; v++) {
+			for (int w = 0; w < size; w++) {
+				d[v][w] = arcs[v][w] ? 1 : INFINITE;
+			}
+		}
+		for (int k = 0; k < size; k++) {
+			for (int v = 0; v < size; v++) {
+				for (int w = 0; w < size; w++) {
+					if (d[v][k] + d[k][w] < d[v][w]) {
+						d[v][w] = d[v][k] + d[k][w];
+					}
+				}
+			}
+		}
+		return d;
+	}
+
+	public void testComponents() {
+		Random random = new Random(1);
+		for (int g = 0; g < GRAPHS; g++) {
+			int size = random.nextInt(40);
+			boolean[][] arcs = createGraph(random, size, random.nextInt(3 * size + 1));
+			CompactGraph graph = toCompactGraph(arcs);
+			CompactGraph.Components components = graph.calculateStrongComponents();
+			int[][] d = floydWarshall(arcs);
+			int members = 0;
+			for (int c = 0; c < components.getCount(); c++) {
+				for (int i = 0; i < components.getSize(c); i++) {
+					assertEquals(c, components.getComponent(components.getMember(c, i)));
+					members++;
+				}
+			}
+			assertEquals(size, members);
+			for (int v = 0; v < size; v++) {
+				for (int w = 0; w < size; w++) {
+					boolean mutual = (v == w) || ((d[v][w] < INFINITE) && (d[w][v] < INFINITE));
+					assertEquals("graph " + g + ", " + v + " and " + w, mutual, components.getComponent(v) == components.getComponent(w));
+					if (arcs[v][w] && !mutual) {
+						// reverse topological order, a component only depends on the ones found before it
+						assertTrue(components.getComponent(v) > components.getComponent(w));
+					}
+				}
+			}
+		}
+	}
+
+	public void testLongChain() {
+		// deep enough to overflow the stack of a recursive search
+		int size = 100000;
+		int[] offsets = new int[size + 1];
+		int[] heads = new int[size];
+		for (int v = 0; v < size; v++) {
+			offsets[v + 1] = v + 1;
+			heads[v] = (v + 1) % size;
+		}
+		CompactGraph.Components components = new CompactGraph(size, offsets, heads).calculateStrongComponents();
+		assertEquals(1, components.getCount());
+		assertEquals(size, components.getSize(0));
+	}
+
+	public void testProcessor() {
+		Random random = new Random(2);
+		for (int g = 0; g < GRAPHS / 10; g++) {
+			int size = 1 + random.nextInt(40);
+			boolean[][] arcs = createGraph(random, size, random.nextInt(3 * size));
+			CompactGraph graph = toCompactGraph(arcs);
+			AtomicVertex[] vertices = graph.createVertices(new Attributes[size]);
+			StrongComponentProcessor processor = new StrongComponentProcessor(true);
+			processor.process(vertices, graph);
+			StrongComponent[] components = processor.getStrongComponents();
+			CompactGraph.Components expected = graph.calculateStrongComponents();
+			assertEquals(expected.getCount(), components.length);
+			for (int v = 0; v < size; v++) {
+				StrongComponent component = components[processor.getComponentIndex(v)];
+				assertEquals(expected.getSize(expected.getComponent(v)), component.getNumberOfVertices());
+				boolean found = false;
+				for (int i = 0; i < component.getNumberOfVertices(); i++) {
+					found |= component.getVertex(i) == vertices[v];
+				}
+				assertTrue(found);
+			}
+		}
+	}
+
+	public void testGeometry() {
+		Random random = new Random(3);
+		for (int g = 0; g < GRAPHS; g++) {
+			int size = 1 + random.nextInt(30);
+			checkGeometry(random, size, g % 2 == 0);
+		}
+	}
+
+	public void testParallelGeometry() {
+		Random random = new Random(4);
+		checkGeometry(random, StrongComponent.PARALLEL_THRESHOLD + 44, true);
+		checkGeometry(random, 2 * StrongComponent.PARALLEL_THRESHOLD, false);
+	}
+
+	/**
+	 * @param random
+	 * @param size
+	 * @param ring
+	 *            add a ring through all vertices so they are strongly connected, otherwise some eccentricities are infinite
+	 */
+	private void checkGeometry(Random random, int size, boolean ring) {
+		boolean[][] arcs = createGraph(random, size, random.nextInt(2 * size + 1));
+		if (ring) {
+			for (int v = 0; v < size; v++) {
+				arcs[v][(v + 1) % size] = true;
+			}
+		}
+		AtomicVertex[] vertices = new AtomicVertex[size];
+		for (int v = 0; v < size; v++) {
+			vertices[v] = new AtomicVertex(null);
+		}
+		StrongComponent component = new StrongComponent();
+		for (int v = 0; v < size; v++) {
+			for (int w = 0; w < size; w++) {
+				if (arcs[v][w]) {
+					vertices[v].addOutgoingArcTo(vertices[w]);
+				}
+			}
+			component.addVertex(vertices[v]);
+		}
+		int[][] d = floydWarshall(arcs);
+		int girth = INFINITE;
+		int radius = INFINITE;
+		int diameter = 0;
+		int[] eccentricities = new int[size];
+		for (int v = 0; v < size; v++) {
+			girth = Math.min(girth, d[v][v]);
+			for (int w = 0; w < size; w++) {
+				if (w != v) {
+					eccentricities[v] = Math.max(eccentricities[v], d[v][w]);
+				}
+			}
+			radius = Math.min(radius, eccentricities[v]);
+			diameter = Math.max(diameter, eccentricities[v]);
+		}
+		Map<Vertex, Integer> index = new IdentityHashMap<Vertex, Integer>();
+		for (int v = 0; v < size; v++) {
+			index.put(vertices[v], Integer.valueOf(v));
+		}
+		Set<Integer> centers = new HashSet<Integer>();
+		for (int v = 0; v < size; v++) {
+			if (eccentricities[v] == radius) {
+				centers.add(Integer.valueOf(v));
+			}
+		}
+		GraphAttributes attributes = (GraphAttributes) component.getAttributes();
+		assertEquals(girth, attributes.getGirth());
+		assertEquals(radius, attributes.getRadius());
+		assertEquals(diameter, attributes.getDiameter());
+		Set<Integer> found = new HashSet<Integer>();
+		for (Vertex center : attributes.getCenterVertices()) {
+			found.add(index.get(center));
+		}
+		assertEquals(centers, found);
+	}
+}
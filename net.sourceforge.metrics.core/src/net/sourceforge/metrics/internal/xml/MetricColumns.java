@@ -0,0 +1,503 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import net.sourceforge.metrics.core.Metric;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+
+/**
+ * The values of all metrics for all elements of one level, stored per metric in a primitive array. Elements are identified by the order in which they were added, which MetricsFirstExporter makes the handle order. Columns
+ * of metrics without any value at this level are never allocated.
+ * <p>
+ * At most chunkSize elements are held in memory. When a chunk is full, each metric column is sorted and written with the names of its elements to a temporary run file, and values merges the runs of a metric when the
+ * elements are read back. Call dispose to delete the run files.
+ * 
+ * @author Metrics2 contributors
+ */
+public class MetricColumns {
+
+	private static final int BUFFER = 64 * 1024;
+
+	private String[] ids;
+	private int chunkSize;
+	// elements added in earlier chunks
+	private int offset;
+	private int size;
+	private String[] names;
+	private String[] sources;
+	private String[] packages;
+	private double[][] values;
+	private BitSet[] present;
+	private List<Run> runs = new ArrayList<Run>();
+
+	/**
+	 * @param ids
+	 *            metric ids
+	 * @param chunkSize
+	 *            maximum number of elements held in memory
+	 */
+	public MetricColumns(String[] ids, int chunkSize) {
+		this.ids = ids;
+		this.chunkSize = chunkSize;
+		int capacity = Math.min(16, chunkSize);
+		names = new String[capacity];
+		sources = new String[capacity];
+		packages = new String[capacity];
+		values = new double[ids.length][];
+		present = new BitSet[ids.length];
+	}
+
+	/**
+	 * Append an element, copying the values of its metrics
+	 * 
+	 * @param name
+	 * @param source
+	 *            name of the compilation unit or null
+	 * @param packageName
+	 *            name of the package fragment or null
+	 * @param s
+	 * @throws IOException
+	 *             writing a run
+	 */
+	void add(String name, String source, String packageName, AbstractMetricSource s) throws IOException {
+		int element = append(name, source, packageName);
+		for (int m = 0; m < ids.length; m++) {
+			Metric val = s.getValue(ids[m]);
+			if (val != null) {
+				set(m, element, val.doubleValue());
+			}
+		}
+	}
+
+	/**
+	 * Append an element
+	 * 
+	 * @param name
+	 * @param source
+	 *            name of the compilation unit or null
+	 * @param packageName
+	 *            name of the package fragment or null
+	 * @param elementValues
+	 *            indexed as the metric ids
+	 * @param elementPresent
+	 *            which of the values are set
+	 * @throws IOException
+	 *             writing a run
+	 */
+	public void add(String name, String source, String packageName, double[] elementValues, boolean[] elementPresent) throws IOException {
+		int element = append(name, source, packageName);
+		for (int m = 0; m < ids.length; m++) {
+			if (elementPresent[m]) {
+				set(m, element, elementValues[m]);
+			}
+		}
+	}
+
+	private int append(String name, String source, String packageName) throws IOException {
+		if (size == chunkSize) {
+			spill();
+		}
+		if (size == names.length) {
+			grow();
+		}
+		names[size] = name;
+		sources[size] = source;
+		packages[size] = packageName;
+		return size++;
+	}
+
+	private void set(int metric, int element, double value) {
+		if (values[metric] == null) {
+			values[metric] = new double[names.length];
+			present[metric] = new BitSet();
+		}
+		values[metric][element] = value;
+		present[metric].set(element);
+	}
+
+	private void grow() {
+		int capacity = Math.min(names.length * 2, chunkSize);
+		names = copy(names, capacity);
+		sources = copy(sources, capacity);
+		packages = copy(packages, capacity);
+		for (int m = 0; m < values.length; m++) {
+			if (values[m] != null) {
+				double[] grown = new double[capacity];
+				System.arraycopy(values[m], 0, grown, 0, size);
+				values[m] = grown;
+			}
+		}
+	}
+
+	private String[] copy(String[] array, int capacity) {
+		String[] grown = new String[capacity];
+		System.arraycopy(array, 0, grown, 0, size);
+		return grown;
+	}
+
+	/**
+	 * Write the sorted columns of the elements in memory to a run file and start a new chunk
+	 * 
+	 * @throws IOException
+	 */
+	private void spill() throws IOException {
+		Run run = new Run(File.createTempFile("metrics", ".run"), ids.length);
+		runs.add(run);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run.file), BUFFER));
+		try {
+			for (int m = 0; m < ids.length; m++) {
+				run.starts[m] = out.size();
+				int[] sorted = sort(m);
+				run.counts[m] = sorted.length;
+				for (int next : sorted) {
+					out.writeDouble(values[m][next]);
+					out.writeInt(offset + next);
+					out.writeUTF(names[next]);
+					writeOptional(out, sources[next]);
+					writeOptional(out, packages[next]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		offset += size;
+		size = 0;
+		for (int m = 0; m < ids.length; m++) {
+			if (present[m] != null) {
+				present[m].clear();
+			}
+		}
+	}
+
+	private static void writeOptional(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	private static String readOptional(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * @return number of elements added
+	 */
+	public int size() {
+		return offset + size;
+	}
+
+	/**
+	 * @return number of run files written
+	 */
+	public int getRuns() {
+		return runs.size();
+	}
+
+	/**
+	 * The elements that have a value for the metric, highest value first. Elements with equal values keep the order in which they were added.
+	 * 
+	 * @param metric
+	 *            index of the metric id
+	 * @return Values, positioned before the first element
+	 * @throws IOException
+	 *             opening the runs
+	 */
+	public Values values(int metric) throws IOException {
+		Values result = new Values(runs.size() + 1);
+		try {
+			for (Run run : runs) {
+				if (run.counts[metric] > 0) {
+					result.add(new RunCursor(run, metric));
+				}
+			}
+		} catch (IOException e) {
+			result.close();
+			throw e;
+		}
+		int[] sorted = sort(metric);
+		if (sorted.length > 0) {
+			result.add(new MemoryCursor(metric, sorted));
+		}
+		return result;
+	}
+
+	/**
+	 * Delete the run files
+	 */
+	public void dispose() {
+		for (Run run : runs) {
+			run.file.delete();
+		}
+		runs.clear();
+	}
+
+	/**
+	 * The elements of the chunk in memory that have a value for the metric, highest value first, as in values
+	 * 
+	 * @param metric
+	 * @return element indices
+	 */
+	private int[] sort(int metric) {
+		if (values[metric] == null) {
+			return new int[0];
+		}
+		BitSet set = present[metric];
+		int[] index = new int[set.cardinality()];
+		int n = 0;
+		for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+			index[n++] = i;
+		}
+		sort(index, values[metric]);
+		return index;
+	}
+
+	/**
+	 * Stable bottom-up merge sort of the indices by descending value
+	 * 
+	 * @param index
+	 * @param keys
+	 */
+	static void sort(int[] index, double[] keys) {
+		int[] from = index;
+		int[] to = new int[index.length];
+		for (int width = 1; width < index.length; width *= 2) {
+			for (int lo = 0; lo < index.length; lo += 2 * width) {
+				int mid = Math.min(lo + width, index.length);
+				int hi = Math.min(lo + 2 * width, index.length);
+				merge(from, to, keys, lo, mid, hi);
+			}
+			int[] swap = from;
+			from = to;
+			to = swap;
+		}
+		if (from != index) {
+			System.arraycopy(from, 0, index, 0, index.length);
+		}
+	}
+
+	private static void merge(int[] from, int[] to, double[] keys, int lo, int mid, int hi) {
+		int left = lo;
+		int right = mid;
+		for (int k = lo; k < hi; k++) {
+			if ((right >= hi) || ((left < mid) && !(keys[from[right]] > keys[from[left]]))) {
+				to[k] = from[left++];
+			} else {
+				to[k] = from[right++];
+			}
+		}
+	}
+
+	/**
+	 * The sorted elements of one metric, merged from the runs and the chunk in memory. The cursors are few (one per run), so the next one is found by a linear scan.
+	 */
+	public static class Values {
+
+		private Cursor[] cursors;
+		private int count;
+		private Cursor current;
+
+		Values(int capacity) {
+			cursors = new Cursor[capacity];
+		}
+
+		void add(Cursor cursor) throws IOException {
+			if (cursor.next()) {
+				cursors[count++] = cursor;
+			} else {
+				cursor.close();
+			}
+		}
+
+		/**
+		 * Move to the next element
+		 * 
+		 * @return false after the last element
+		 * @throws IOException
+		 */
+		public boolean next() throws IOException {
+			if (current != null) {
+				if (!current.next()) {
+					current.close();
+					remove(current);
+				}
+			}
+			current = null;
+			for (int i = 0; i < count; i++) {
+				Cursor c = cursors[i];
+				// equal values in the order of addition
+				if ((current == null) || (c.value > current.value) || ((c.value == current.value) && (c.element < current.element))) {
+					current = c;
+				}
+			}
+			return current != null;
+		}
+
+		private void remove(Cursor cursor) {
+			for (int i = 0; i < count; i++) {
+				if (cursors[i] == cursor) {
+					cursors[i] = cursors[--count];
+					cursors[count] = null;
+					return;
+				}
+			}
+		}
+
+		public double getValue() {
+			return current.value;
+		}
+
+		public String getName() {
+			return current.name;
+		}
+
+		/**
+		 * @return name of the compilation unit or null
+		 */
+		public String getSource() {
+			return current.source;
+		}
+
+		/**
+		 * @return name of the package fragment or null
+		 */
+		public String getPackage() {
+			return current.packageName;
+		}
+
+		/**
+		 * Close the runs, needed only when not reading to the end
+		 */
+		public void close() {
+			for (int i = 0; i < count; i++) {
+				cursors[i].close();
+			}
+			count = 0;
+			current = null;
+		}
+	}
+
+	private static class Run {
+
+		File file;
+		long[] starts;
+		int[] counts;
+
+		Run(File file, int metrics) {
+			this.file = file;
+			starts = new long[metrics];
+			counts = new int[metrics];
+		}
+	}
+
+	private abstract static class Cursor {
+
+		double value;
+		int element;
+		String name;
+		String source;
+		String packageName;
+
+		abstract boolean next() throws IOException;
+
+		void close() {
+		}
+	}
+
+	private class MemoryCursor extends Cursor {
+
+		private int metric;
+		private int[] sorted;
+		private int position;
+
+		MemoryCursor(int metric, int[] sorted) {
+			this.metric = metric;
+			this.sorted = sorted;
+		}
+
+		@Override
+		boolean next() {
+			if (position == sorted.length) {
+				return false;
+			}
+			int next = sorted[position++];
+			value = values[metric][next];
+			element = offset + next;
+			name = names[next];
+			source = sources[next];
+			packageName = packages[next];
+			return true;
+		}
+	}
+
+	private static class RunCursor extends Cursor {
+
+		private DataInputStream in;
+		private int remaining;
+
+		RunCursor(Run run, int metric) throws IOException {
+			FileInputStream file = new FileInputStream(run.file);
+			try {
+				file.getChannel().position(run.starts[metric]);
+			} catch (IOException e) {
+				file.close();
+				throw e;
+			}
+			in = new DataInputStream(new BufferedInputStream(file, BUFFER));
+			remaining = run.counts[metric];
+		}
+
+		@Override
+		boolean next() throws IOException {
+			if (remaining == 0) {
+				return false;
+			}
+			remaining--;
+			value = in.readDouble();
+			element = in.readInt();
+			name = in.readUTF();
+			source = readOptional(in);
+			packageName = readOptional(in);
+			return true;
+		}
+
+		@Override
+		void close() {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// only read
+			}
+		}
+	}
+}
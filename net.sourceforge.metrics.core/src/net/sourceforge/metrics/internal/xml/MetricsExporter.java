@@ -23,7 +23,6 @@ package net.sourceforge.metrics.internal.xml;
 import java.text.NumberFormat;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Properties;
 
 import net.sourceforge.metrics.core.Avg;
 import net.sourceforge.metrics.core.Constants;
@@ -41,20 +40,24 @@ import org.eclipse.jdt.core.IType;
  */
 public abstract class MetricsExporter implements Constants {
 
-	private static NumberFormat nf;
-	private static String[] attributeNames = new String[] { "id", "value", "avg", "stddev", "points", "max", "per", "maxhandle" };
+	// packages may be exported concurrently (see PackageExportPipeline), NumberFormat is not thread safe
+	private static ThreadLocal<NumberFormat> nf = new ThreadLocal<NumberFormat>() {
+
+		@Override
+		protected NumberFormat initialValue() {
+			NumberFormat result = NumberFormat.getInstance();
+			int decimals = MetricsPlugin.getDefault().getPreferences().getInt("METRICS.decimals");
+			result.setMaximumFractionDigits(decimals);
+			result.setGroupingUsed(false);
+			return result;
+		}
+	};
 
 	public MetricsExporter() {
 	}
 
 	private static String format(double value) {
-		if (nf == null) {
-			nf = NumberFormat.getInstance();
-			int decimals = MetricsPlugin.getDefault().getPreferenceStore().getInt("METRICS.decimals");
-			nf.setMaximumFractionDigits(decimals);
-			nf.setGroupingUsed(false);
-		}
-		return nf.format(value);
+		return nf.get().format(value);
 	}
 
 	protected void printMetrics(AbstractMetricSource source, XMLPrintStream out, int level) {
@@ -63,13 +66,7 @@ public abstract class MetricsExporter implements Constants {
 		MetricsPlugin plugin = MetricsPlugin.getDefault();
 		String[] names = plugin.getMetricIds();
 		for (String name : names) {
-			Properties attributes = getAttributes(source, name);
-			if (attributes != null) {
-				out.indent(level + 1);
-				out.print("<Metric");
-				printAttributes(out, attributes);
-				out.println("/>");
-			}
+			printMetric(source, name, out, level + 1);
 		}
 
 		out.indent(level);
@@ -77,63 +74,59 @@ public abstract class MetricsExporter implements Constants {
 	}
 
 	/**
-	 * @param out
-	 * @param attributes
-	 */
-	protected void printAttributes(XMLPrintStream out, Properties attributes) {
-		for (String name : attributeNames) {
-			String value = attributes.getProperty(name);
-			if (value != null) {
-				out.print(' ');
-				out.print(formatAttribut(name));
-				out.print(" =\"");
-				out.print(formatAttribut(value));
-				out.print('"');
-			}
-		}
-	}
-
-	protected String formatHandle(String handle) {
-		// the following is JDK1.4 specific
-		return handle.replaceAll("<", "&lt;").replaceAll(">", "&gt;");
-	}
-
-	protected String formatAttribut(String value) {
-		return formatHandle(value);
-	}
-
-	/**
+	 * print a Metric element with attributes id, value, avg, stddev, points, max, per and maxhandle (those present, in that order), nothing if the source has no value for the metric
+	 * 
 	 * @param source
 	 * @param name
+	 * @param out
+	 * @param level
 	 */
-	protected Properties getAttributes(AbstractMetricSource source, String name) {
-		Properties p = new Properties();
+	protected void printMetric(AbstractMetricSource source, String name, XMLPrintStream out, int level) {
 		Metric m = source.getValue(name);
-		if (m != null) {
-			p.put("value", format(m.doubleValue()));
-		}
-		for (String per : PER_ARRAY) {
-			Avg avg = source.getAverage(name, per);
-			Max max = source.getMaximum(name, per);
-			if ((avg != null) || (max != null)) {
-				p.put("per", per);
-				if (avg != null) {
-					p.put("avg", format(avg.doubleValue()));
-					p.put("stddev", format(avg.getStandardDeviation()));
-					p.put("points", String.valueOf(avg.getPoints()));
+		String per = null;
+		Avg avg = null;
+		Max max = null;
+		for (String next : PER_ARRAY) {
+			Avg a = source.getAverage(name, next);
+			Max x = source.getMaximum(name, next);
+			if ((a != null) || (x != null)) {
+				per = next;
+				if (a != null) {
+					avg = a;
 				}
-				if (max != null) {
-					p.put("max", format(max.doubleValue()));
-					p.put("maxhandle", formatHandle(max.getHandle()));
+				if (x != null) {
+					max = x;
 				}
 			}
 		}
-		if (p.size() > 0) {
-			p.put("id", name);
-			return p;
-		} /* else { */
-		return null;
-		/* } */
+		if ((m == null) && (per == null)) {
+			return;
+		}
+		out.indent(level);
+		out.print("<Metric");
+		out.printAttribute("id", name);
+		if (m != null) {
+			out.printAttribute("value", format(m.doubleValue()));
+		}
+		if (avg != null) {
+			out.printAttribute("avg", format(avg.doubleValue()));
+			out.printAttribute("stddev", format(avg.getStandardDeviation()));
+			out.printAttribute("points", String.valueOf(avg.getPoints()));
+		}
+		if (max != null) {
+			out.printAttribute("max", format(max.doubleValue()));
+		}
+		if (per != null) {
+			out.printAttribute("per", per);
+		}
+		if (max != null) {
+			out.printAttribute("maxhandle", max.getHandle());
+		}
+		out.println("/>");
+	}
+
+	protected String formatHandle(String handle) {
+		return XMLPrintStream.escape(handle);
 	}
 
 	/**
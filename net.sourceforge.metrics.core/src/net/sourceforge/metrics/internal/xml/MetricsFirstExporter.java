@@ -21,25 +21,19 @@
 package net.sourceforge.metrics.internal.xml;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.text.NumberFormat;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import net.sourceforge.metrics.core.Avg;
 import net.sourceforge.metrics.core.Constants;
-import net.sourceforge.metrics.core.IExporter;
 import net.sourceforge.metrics.core.Max;
 import net.sourceforge.metrics.core.Metric;
 import net.sourceforge.metrics.core.MetricDescriptor;
@@ -50,54 +44,83 @@ import net.sourceforge.metrics.core.sources.MethodMetrics;
 import net.sourceforge.metrics.core.sources.PackageFragmentMetrics;
 import net.sourceforge.metrics.core.sources.PackageFragmentRootMetrics;
 import net.sourceforge.metrics.core.sources.ProjectMetrics;
+import net.sourceforge.metrics.core.sources.TypeDependencies;
 import net.sourceforge.metrics.core.sources.TypeMetrics;
-import net.sourceforge.metrics.ui.dependencies.PackageAttributes;
+import net.sourceforge.metrics.internal.export.IObservableExporter;
+import net.sourceforge.metrics.ui.dependencies.DependencyGraph;
+import net.sourceforge.metrics.ui.dependencies.FeedbackArcSet;
+import net.sourceforge.metrics.ui.dependencies.FeedbackArcSet.Cut;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
 
-import classycle.graph.AtomicVertex;
 import classycle.graph.StrongComponent;
-import classycle.graph.StrongComponentProcessor;
-import classycle.graph.Vertex;
 
 /**
  * Export metrics in the http://metrics.sourceforge.net/2003/Metrics-First-Flat format (flat per metric data ideal for plotting graphs and histograms)
+ * <p>
+ * Unlike the tree exporters, this format cannot be streamed per package: every metric lists the elements of the whole scope sorted by value. The names and values of the packages, types and methods are collected in
+ * MetricColumns, which keep at most CHUNK_SIZE elements per level in memory and sort larger scopes through temporary run files. Only the handles of the scope, which the Cache holds anyway, are listed in memory.
  * 
  * @author Frank Sauer
  */
-public class MetricsFirstExporter implements IExporter, Constants {
+public class MetricsFirstExporter implements IObservableExporter, Constants {
+
+	// elements per level held in memory, about 300 bytes each with the default metrics
+	public static final int CHUNK_SIZE = 50000;
+	// the source and package names shared between elements, cleared when full
+	private static final int MAX_SHARED_NAMES = 10000;
 
-	private SoftCache<String, AbstractMetricSource> cache;
 	private MetricsPlugin plugin = MetricsPlugin.getDefault();
 	private String[] names = plugin.getMetricIds();
 	private String[] descriptions = plugin.getMetricDescriptions();
+	// per level (same order as PER_ARRAY), filled in a single pass over the store
+	private MetricColumns[] columns;
+	private IObserver observer;
 
 	public MetricsFirstExporter() {
-		cache = new SoftCache<String, AbstractMetricSource>();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.sourceforge.metrics.internal.export.IObservableExporter#setObserver(net.sourceforge.metrics.internal.export.IObservableExporter.IObserver)
+	 */
+	public void setObserver(IObserver observer) {
+		this.observer = observer;
 	}
 
 	protected String formatXMLStr(String handle) {
-		return handle.replaceAll("<", "&lt;").replaceAll(">", "&gt;");
+		return XMLPrintStream.escape(handle);
 	}
 
 	public void export(IJavaElement element, File outputFile, IProgressMonitor monitor) throws InvocationTargetException {
 		try {
-			FileOutputStream out = new FileOutputStream(outputFile);
-			XMLPrintStream pOut = new XMLPrintStream(out);
 			monitor.beginTask("Exporting metrics to flat per Metric XML format...", names.length);
 			AbstractMetricSource root = getData(element);
-			pOut.printXMLHeader();
 			NumberFormat nf = NumberFormat.getInstance();
-			int decimals = MetricsPlugin.getDefault().getPreferenceStore().getInt("METRICS.decimals");
+			int decimals = MetricsPlugin.getDefault().getPreferences().getInt("METRICS.decimals");
 			nf.setMaximumFractionDigits(decimals);
 			nf.setGroupingUsed(false);
+			monitor.subTask("Collecting metrics...");
+			// collected before the file is opened, an observer ending the export leaves no partial file
+			columns = collect(root);
+			FileOutputStream out = new FileOutputStream(outputFile);
+			XMLPrintStream pOut = new XMLPrintStream(out);
+			pOut.printXMLHeader();
 			printRoot(root, pOut, monitor, nf);
 			pOut.close();
-		} catch (FileNotFoundException e) {
+		} catch (IOException e) {
 			throw new InvocationTargetException(e);
+		} finally {
+			if (columns != null) {
+				for (MetricColumns next : columns) {
+					next.dispose();
+				}
+			}
+			columns = null;
 		}
 	}
 
@@ -105,19 +128,72 @@ public class MetricsFirstExporter implements IExporter, Constants {
 		return getData(element.getHandleIdentifier());
 	}
 
-	/*
-	 * BUG 756998 This extra caching helps a LOT!!!!!!!
-	 */
 	protected AbstractMetricSource getData(String handle) {
-		AbstractMetricSource s = cache.get(handle);
-		if (s == null) {
-			s = Cache.singleton.get(handle);
-			cache.put(handle, s);
+		return Cache.singleton.get(handle);
+	}
+
+	/**
+	 * Load every descendant of the root once and copy its names and values into the columns of its level. Handles are visited in sorted order so that elements with equal values are exported in handle order, as before.
+	 * (BUG 756998: the per metric reloading of all children was the bottleneck). The observer, if any, sees the root and every descendant.
+	 * 
+	 * @param root
+	 * @return columns per level
+	 * @throws IOException
+	 *             from the observer
+	 */
+	private MetricColumns[] collect(AbstractMetricSource root) throws IOException {
+		String handle = root.getHandle();
+		if (observer != null) {
+			observer.exported(root);
+		}
+		MetricColumns[] result = new MetricColumns[filters.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new MetricColumns(names, CHUNK_SIZE);
 		}
-		return s;
+		List<String> handles = Cache.singleton.getHandlesUnder(handle);
+		Collections.sort(handles);
+		// the same source and package names are repeated for many elements, share them
+		Map<String, String> shared = new HashMap<String, String>();
+		for (String next : handles) {
+			if (next.startsWith(handle) && (!next.equals(handle))) {
+				AbstractMetricSource p = getData(next);
+				if (p == null) {
+					continue;
+				}
+				if (observer != null) {
+					observer.exported(p);
+				}
+				for (int i = 0; i < filters.length; i++) {
+					if (filters[i].isInstance(p)) {
+						IJavaElement element = p.getJavaElement();
+						String source = getSharedName(element.getAncestor(IJavaElement.COMPILATION_UNIT), shared);
+						String packageF = getSharedName(element.getAncestor(IJavaElement.PACKAGE_FRAGMENT), shared);
+						result[i].add(getName(element), source, packageF, p);
+						break;
+					}
+				}
+			}
+		}
+		return result;
 	}
 
-	private void printRoot(AbstractMetricSource root, XMLPrintStream pOut, IProgressMonitor monitor, NumberFormat nf) {
+	private String getSharedName(IJavaElement element, Map<String, String> shared) {
+		if (element == null) {
+			return null;
+		}
+		String handle = element.getHandleIdentifier();
+		String name = shared.get(handle);
+		if (name == null) {
+			name = getName(element);
+			if (shared.size() == MAX_SHARED_NAMES) {
+				shared.clear();
+			}
+			shared.put(handle, name);
+		}
+		return name;
+	}
+
+	private void printRoot(AbstractMetricSource root, XMLPrintStream pOut, IProgressMonitor monitor, NumberFormat nf) throws IOException {
 		pOut.print("<Metrics scope=\"");
 		pOut.print(getName(root));
 		pOut.print("\" type=\"");
@@ -150,7 +226,7 @@ public class MetricsFirstExporter implements IExporter, Constants {
 				pOut.print("\"");
 			}
 			pOut.println(">");
-			if (!printValues(names[i], root, pOut, nf)) {
+			if (!printValues(i, root, pOut, nf)) {
 				Metric val = root.getValue(names[i]);
 				if (val != null) {
 					pOut.indent(2);
@@ -169,7 +245,7 @@ public class MetricsFirstExporter implements IExporter, Constants {
 	}
 
 	/**
-	 * If root is a source folder or a project, include any cyclic package dependencies in the xml
+	 * If root is a source folder or a project, include any cyclic package dependencies and the dependencies suggested to cut in the xml
 	 * 
 	 * @param root
 	 * @param pOut
@@ -177,19 +253,24 @@ public class MetricsFirstExporter implements IExporter, Constants {
 	 */
 	private void maybePrintCycles(AbstractMetricSource root, XMLPrintStream pOut, IProgressMonitor monitor) {
 		Map<String, Set<String>> dependencies = null;
+		TypeDependencies types = null;
 		if (root.getLevel() == Constants.PACKAGEROOT) {
 			PackageFragmentRootMetrics pfr = (PackageFragmentRootMetrics) root;
 			dependencies = pfr.getEfferent();
+			types = pfr.getTypeDependencies();
 		}
 		if (root.getLevel() == Constants.PROJECT) {
 			ProjectMetrics pm = (ProjectMetrics) root;
 			dependencies = pm.getEfferent();
+			types = pm.getTypeDependencies();
 		}
 		if (dependencies != null) {
 			monitor.subTask("Exporting cyclic dependencies...");
-			StrongComponent[] comps = calculateCycles(dependencies);
-			for (StrongComponent comp : comps) {
-				exportCycle(comp, pOut);
+			DependencyGraph graph = new DependencyGraph(dependencies);
+			int millis = plugin.getPreferences().getInt("METRICS.cutBudget");
+			int moves = plugin.getPreferences().getInt("METRICS.cutMoves");
+			for (StrongComponent comp : graph.getStrongComponents()) {
+				exportCycle(comp, graph, types, millis, moves, pOut);
 			}
 		}
 	}
@@ -198,9 +279,17 @@ public class MetricsFirstExporter implements IExporter, Constants {
 	 * Write a single cycle (if length > 1) to XML
 	 * 
 	 * @param component
+	 * @param graph
+	 *            the graph containing the component
+	 * @param types
+	 *            weights of the suggested cuts, may be null
+	 * @param millis
+	 *            milliseconds for improving the suggested cuts, 0 for no limit
+	 * @param moves
+	 *            moves for improving the suggested cuts, 0 for no limit. Set alone, the export gives the same cuts on every machine.
 	 * @param pOut
 	 */
-	private void exportCycle(StrongComponent component, XMLPrintStream pOut) {
+	private void exportCycle(StrongComponent component, DependencyGraph graph, TypeDependencies types, int millis, int moves, XMLPrintStream pOut) {
 		int nodes = component.getNumberOfVertices();
 		if (nodes > 1) {
 			int diameter = component.getDiameter();
@@ -220,47 +309,27 @@ public class MetricsFirstExporter implements IExporter, Constants {
 				pOut.print(packName);
 				pOut.println("</Package>");
 			}
+			for (Cut cut : FeedbackArcSet.solve(graph, component, types, millis, moves).getCuts()) {
+				pOut.indent(2);
+				pOut.print("<Cut from=\"");
+				pOut.print(cut.getFrom());
+				pOut.print("\" to=\"");
+				pOut.print(cut.getTo());
+				pOut.print("\" references=\"");
+				pOut.print(cut.getReferences());
+				pOut.println("\"/>");
+			}
 			pOut.indent(1);
 			pOut.println("</Cycle>");
 		}
 	}
 
-	// TODO refactor to common place between this and DependencyGraphPanel
-	private StrongComponent[] calculateCycles(Map<String, Set<String>> efferent) {
-		List<Vertex> graph = new ArrayList<Vertex>();
-		Map<String, Vertex> done = new HashMap<String, Vertex>();
-		for (Iterator<String> i = efferent.keySet().iterator(); i.hasNext();) {
-			String key = i.next();
-			Vertex from = done.get(key);
-			if (from == null) {
-				from = new AtomicVertex(new PackageAttributes(key));
-				done.put(key, from);
-				graph.add(from);
-			}
-			Set<String> deps = efferent.get(key);
-			for (Iterator<String> j = deps.iterator(); j.hasNext();) {
-				String dep = j.next();
-				Vertex to = done.get(dep);
-				if (to == null) {
-					to = new AtomicVertex(new PackageAttributes(dep));
-					done.put(dep, to);
-					graph.add(to);
-				}
-				from.addOutgoingArcTo(to);
-			}
-		}
-		Vertex[] vgraph = graph.toArray(new Vertex[] {});
-		StrongComponentProcessor scp = new StrongComponentProcessor();
-		scp.deepSearchFirst(vgraph);
-		StrongComponent[] comps = scp.getStrongComponents();
-		return comps;
-	}
-
 	@SuppressWarnings("unchecked")
 	private Class<? extends AbstractMetricSource>[] filters = new Class[] { PackageFragmentMetrics.class, TypeMetrics.class, MethodMetrics.class };
 
-	private boolean printValues(String id, AbstractMetricSource element, XMLPrintStream pOut, NumberFormat nf) {
+	private boolean printValues(int metric, AbstractMetricSource element, XMLPrintStream pOut, NumberFormat nf) throws IOException {
 		boolean result = false;
+		String id = names[metric];
 		for (int i = 0; i < PER_ARRAY.length; i++) {
 			Metric total = element.getValue(id);
 			MetricDescriptor md = plugin.getMetricDescriptor(id);
@@ -293,8 +362,7 @@ public class MetricsFirstExporter implements IExporter, Constants {
 					}
 				}
 				pOut.println(">");
-				List<AbstractMetricSource> values = getChildren(element.getHandle(), filters[i]);
-				printValues(values, id, pOut, md, nf);
+				printValues(columns[i], metric, pOut, md, nf);
 				pOut.indent(2);
 				pOut.println("</Values>");
 				result = true;
@@ -304,73 +372,40 @@ public class MetricsFirstExporter implements IExporter, Constants {
 	}
 
 	/**
-	 * @param values
-	 * @param id
+	 * @param level
+	 * @param metric
 	 * @param pOut
+	 * @throws IOException
+	 *             reading the runs of the level
 	 */
-	private void printValues(List<AbstractMetricSource> values, final String id, XMLPrintStream pOut, MetricDescriptor md, NumberFormat nf) {
-		// sort values first
-		Collections.sort(values, new Comparator<AbstractMetricSource>() {
-
-			public int compare(AbstractMetricSource left, AbstractMetricSource right) {
-				Metric lm = left.getValue(id);
-				Metric rm = right.getValue(id);
-				int result;
-				if (lm == null) { // BUG #826997
-					result = (rm == null) ? 0 : -1;
-				} else {
-					result = -lm.compareTo(rm); // BUG 746394
-				}
-				if (result != 0) {
-					return result;
-				}
-				return left.getHandle().compareTo(right.getHandle());
+	private void printValues(MetricColumns level, int metric, XMLPrintStream pOut, MetricDescriptor md, NumberFormat nf) throws IOException {
+		MetricColumns.Values sorted = level.values(metric);
+		while (sorted.next()) {
+			double val = sorted.getValue();
+			pOut.indent(3);
+			pOut.print("<Value name=\"");
+			pOut.print(sorted.getName());
+			pOut.print("\" ");
+			String source = sorted.getSource();
+			if (source != null) {
+				pOut.print("source =\"");
+				pOut.print(source);
+				pOut.print("\" ");
 			}
-
-		});
-		for (AbstractMetricSource next : values) {
-			IJavaElement element = next.getJavaElement();
-			Metric val = next.getValue(id);
-			if (val != null) {
-				pOut.indent(3);
-				pOut.print("<Value name=\"");
-				pOut.print(getName(element));
+			String packageF = sorted.getPackage();
+			if (packageF != null) {
+				pOut.print("package =\"");
+				pOut.print(packageF);
 				pOut.print("\" ");
-				IJavaElement source = element.getAncestor(IJavaElement.COMPILATION_UNIT);
-				if (source != null) {
-					pOut.print("source =\"");
-					pOut.print(getName(source));
-					pOut.print("\" ");
-				}
-				IJavaElement packageF = element.getAncestor(IJavaElement.PACKAGE_FRAGMENT);
-				if (packageF != null) {
-					pOut.print("package =\"");
-					pOut.print(getName(packageF));
-					pOut.print("\" ");
-				}
-				pOut.print("value =\"");
-				pOut.print(nf.format(val.doubleValue()));
-				pOut.print("\"");
-				if (!md.isValueInRange(val.doubleValue())) {
-					pOut.print(" inrange=\"false\"");
-				}
-				pOut.println("/>");
 			}
-		}
-	}
-
-	protected List<AbstractMetricSource> getChildren(String handle, Class<? extends AbstractMetricSource> filter) {
-		List<String> handles = new ArrayList<String>(Cache.singleton.getKeysForHandle(handle));
-		List<AbstractMetricSource> result = new ArrayList<AbstractMetricSource>();
-		for (String next : handles) {
-			if (next.startsWith(handle) && (!next.equals(handle))) {
-				AbstractMetricSource p = getData(next);
-				if (filter.isInstance(p)) {
-					result.add(p);
-				}
+			pOut.print("value =\"");
+			pOut.print(nf.format(val));
+			pOut.print("\"");
+			if (!md.isValueInRange(val)) {
+				pOut.print(" inrange=\"false\"");
 			}
+			pOut.println("/>");
 		}
-		return result;
 	}
 
 	public String getTagName() {
@@ -432,29 +467,4 @@ public class MetricsFirstExporter implements IExporter, Constants {
 		}
 		return l_strBuffer.toString();
 	}
-
-	/**
-	 * keys are strong, values are soft, strangely enough WeakHashMap does the opposite??? What good is that?
-	 * 
-	 * @author Frank Sauer
-	 */
-	static class SoftCache<K, V> {
-
-		private Map<K, Reference<V>> inner;
-
-		SoftCache() {
-			inner = new HashMap<K, Reference<V>>();
-		}
-
-		public V put(K key, V value) {
-			Reference<V> old = inner.put(key, new SoftReference<V>(value));
-			return old == null ? null : old.get();
-		}
-
-		public V get(K key) {
-			Reference<V> r = inner.get(key);
-			return r == null ? null : r.get();
-		}
-
-	}
 }
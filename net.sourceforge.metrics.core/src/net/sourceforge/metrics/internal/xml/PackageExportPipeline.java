@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.internal.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.MetricsPreferences;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Exports the packages of a source folder on a pool of worker threads. Each worker loads and renders one package subtree into a buffer and the calling thread writes the buffers in package order, so the result is the
+ * same as that of a sequential export. The number of packages rendered ahead of the writer is bounded by the number of threads and by a budget for the buffered bytes, counting both finished buffers and
+ * buffers still being rendered.
+ * 
+ * @author Metrics2 contributors
+ */
+class PackageExportPipeline {
+
+	private int threads;
+	private long budget;
+
+	/**
+	 * @param threads
+	 *            number of worker threads, 1 or less exports on the calling thread
+	 * @param budget
+	 *            no more packages are started while the unwritten buffers hold this many bytes (a single package may exceed it)
+	 */
+	PackageExportPipeline(int threads, long budget) {
+		this.threads = threads;
+		this.budget = budget;
+	}
+
+	/**
+	 * @return a pipeline configured by METRICS.exportThreads and METRICS.exportBufferKB
+	 */
+	static PackageExportPipeline fromPreferences() {
+		MetricsPreferences prefs = MetricsPlugin.getDefault().getPreferences();
+		return new PackageExportPipeline(prefs.getInt("METRICS.exportThreads"), prefs.getInt("METRICS.exportBufferKB") * 1024L);
+	}
+
+	void export(List<AbstractMetricSource> packages, XMLPrintStream out, int level, IProgressMonitor monitor) {
+		if ((threads <= 1) || (packages.size() <= 1)) {
+			for (AbstractMetricSource next : packages) {
+				next.getExporter().export(next, out, level, monitor);
+				monitor.worked(1);
+			}
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Metrics export");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		LinkedList<Render> window = new LinkedList<Render>();
+		try {
+			int next = 0;
+			while ((next < packages.size()) || !window.isEmpty()) {
+				while ((next < packages.size()) && (window.isEmpty() || ((window.size() < threads * 2) && (getBuffered(window) < budget)))) {
+					Render render = new Render(packages.get(next++), level);
+					render.future = executor.submit(render);
+					window.add(render);
+				}
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				Render rendered = window.removeFirst();
+				int work = rendered.future.get().intValue();
+				rendered.bytes.writeTo(out);
+				monitor.worked(work + 1);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error exporting package", e.getCause());
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing package", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @param window
+	 * @return size of the buffers not yet written, including those still being rendered
+	 */
+	private long getBuffered(List<Render> window) {
+		long result = 0;
+		for (Render next : window) {
+			result += next.bytes.size();
+		}
+		return result;
+	}
+
+	/**
+	 * Renders one package subtree. Workers must not report to the shared monitor, the work done is counted and returned to the writer. The buffer is read by the writer while rendering to account for it in the budget.
+	 */
+	private static class Render implements Callable<Integer> {
+
+		private AbstractMetricSource source;
+		private int level;
+		// ByteArrayOutputStream is synchronized, so its size can be read while it grows
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Future<Integer> future;
+
+		Render(AbstractMetricSource source, int level) {
+			this.source = source;
+			this.level = level;
+		}
+
+		public Integer call() throws Exception {
+			XMLPrintStream buffer = new XMLPrintStream(bytes);
+			final int[] work = new int[1];
+			source.getExporter().export(source, buffer, level, new NullProgressMonitor() {
+
+				@Override
+				public void worked(int worked) {
+					work[0] += worked;
+				}
+			});
+			buffer.close();
+			return Integer.valueOf(work[0]);
+		}
+	}
+}
@@ -20,6 +20,8 @@
  */
 package net.sourceforge.metrics.internal.xml;
 
+import java.util.List;
+
 import net.sourceforge.metrics.core.sources.AbstractMetricSource;
 import net.sourceforge.metrics.core.sources.PackageFragmentMetrics;
 
@@ -43,7 +45,8 @@ public class PackageRootXMLExporter extends MetricsExporter implements IXMLExpor
 	public void export(AbstractMetricSource source, XMLPrintStream out, int level, IProgressMonitor monitor) {
 		printOpeningTag(source, out, level);
 		printMetrics(source, out, level + 1);
-		exportChildren(out, source.getHandle(), level + 1, PackageFragmentMetrics.class, monitor);
+		List<AbstractMetricSource> packages = XMLSourceTreeExporter.getChildren(source.getHandle(), PackageFragmentMetrics.class);
+		PackageExportPipeline.fromPreferences().export(packages, out, level + 1, monitor);
 		printClosingTag(out, level);
 	}
 
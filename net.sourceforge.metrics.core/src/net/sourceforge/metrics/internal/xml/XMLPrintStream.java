@@ -20,24 +20,46 @@
  */
 package net.sourceforge.metrics.internal.xml;
 
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
+ * Buffered PrintStream with helpers for indentation and escaping of xml text and attribute values
+ * 
  * @author Frank Sauer
  */
 public class XMLPrintStream extends PrintStream {
 
 	public final static String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
 	private static SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String[] INDENTS = new String[16];
+
+	static {
+		StringBuffer b = new StringBuffer();
+		for (int i = 0; i < INDENTS.length; i++) {
+			INDENTS[i] = b.toString();
+			b.append("   ");
+		}
+	}
+
+	private CountingOutputStream counter;
 
 	/**
 	 * @param out
 	 */
 	public XMLPrintStream(OutputStream out) {
-		super(out);
+		this(new CountingOutputStream(out));
+	}
+
+	private XMLPrintStream(CountingOutputStream counter) {
+		super(new BufferedOutputStream(counter, BUFFER_SIZE));
+		this.counter = counter;
 	}
 
 	public void printXMLHeader() {
@@ -45,18 +67,123 @@ public class XMLPrintStream extends PrintStream {
 	}
 
 	public void indent(int level) {
-		if (level > 0) {
-			StringBuffer b = new StringBuffer("");
+		if (level < INDENTS.length) {
+			if (level > 0) {
+				print(INDENTS[level]);
+			}
+		} else {
 			for (int i = 0; i < level; i++) {
-				b.append("   ");
+				print(INDENTS[1]);
 			}
-			print(b.toString());
 		}
 	}
 
+	/**
+	 * print the value with the xml special characters escaped
+	 * 
+	 * @param value
+	 */
+	public void printEscaped(String value) {
+		print(escape(value));
+	}
+
+	/**
+	 * print name ="value" preceded by a space, with the value escaped
+	 * 
+	 * @param name
+	 * @param value
+	 */
+	public void printAttribute(String name, String value) {
+		print(' ');
+		print(name);
+		print(" =\"");
+		printEscaped(value);
+		print('"');
+	}
+
+	/**
+	 * @return number of bytes that reached the underlying stream so far (all of them after close)
+	 */
+	public long getBytesWritten() {
+		return counter.count;
+	}
+
 	public String formatXSDDate(Date d) {
 		synchronized (df) {
 			return df.format(d).toString();
 		}
 	}
+
+	/**
+	 * Escape &amp;, &lt;, &gt; and quotes in a single pass. Returns the value itself if there is nothing to escape.
+	 * 
+	 * @param value
+	 * @return escaped value
+	 */
+	public static String escape(String value) {
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			if (getEntity(value.charAt(i)) != null) {
+				return escape(value, i);
+			}
+		}
+		return value;
+	}
+
+	private static String escape(String value, int start) {
+		int length = value.length();
+		StringBuffer b = new StringBuffer(length + 16);
+		b.append(value, 0, start);
+		for (int i = start; i < length; i++) {
+			char c = value.charAt(i);
+			String entity = getEntity(c);
+			if (entity == null) {
+				b.append(c);
+			} else {
+				b.append(entity);
+			}
+		}
+		return b.toString();
+	}
+
+	private static String getEntity(char c) {
+		switch (c) {
+		case '&':
+			return "&amp;";
+		case '<':
+			return "&lt;";
+		case '>':
+			return "&gt;";
+		case '"':
+			return "&quot;";
+		case '\'':
+			return "&apos;";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Counts the bytes written to the file, for throughput reporting
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
 }
@@ -23,10 +23,10 @@ package net.sourceforge.metrics.internal.xml;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 import net.sourceforge.metrics.core.IExporter;
 import net.sourceforge.metrics.core.MetricsPlugin;
@@ -53,6 +53,7 @@ public class XMLSourceTreeExporter implements IExporter {
 	 */
 	public void export(IJavaElement element, File outputFile, IProgressMonitor monitor) throws InvocationTargetException {
 		try {
+			long start = System.currentTimeMillis();
 			this.handle = element.getHandleIdentifier();
 			FileOutputStream out = new FileOutputStream(outputFile);
 			XMLPrintStream pOut = new XMLPrintStream(out);
@@ -66,6 +67,7 @@ public class XMLSourceTreeExporter implements IExporter {
 			monitor.worked(1);
 			pOut.println("</Metrics>");
 			pOut.close();
+			monitor.subTask(getThroughput(pOut.getBytesWritten(), System.currentTimeMillis() - start));
 		} catch (Throwable e) {
 			throw new InvocationTargetException(e);
 		}
@@ -82,39 +84,55 @@ public class XMLSourceTreeExporter implements IExporter {
 		pOut.println("<MetricDescriptions>");
 		for (int i = 0; i < names.length; i++) {
 			pOut.indent(2);
-			StringBuffer b = new StringBuffer("<MetricDescription ");
-			b.append("id = \"").append(names[i]).append("\" ");
-			b.append("description =\"").append(descriptions[i]).append("\"/>");
-			pOut.println(b.toString());
+			pOut.print("<MetricDescription id = \"");
+			pOut.print(names[i]);
+			pOut.print("\" description =\"");
+			pOut.print(descriptions[i]);
+			pOut.println("\"/>");
 			monitor.worked(1);
 		}
 		pOut.indent(1);
 		pOut.println("</MetricDescriptions>");
 	}
 
-	private int calculateTotalWork(String handle) {
-		int result = 0;
-		Set<String> handles = Cache.singleton.getKeysForHandle(handle);
-		for (Iterator<String> i = handles.iterator(); i.hasNext();) {
-			String next = i.next();
-			if (next.startsWith(handle)) {
-				result++;
-			}
+	/**
+	 * @param bytes
+	 * @param millis
+	 * @return size, time and MB/s of an export
+	 */
+	public static String getThroughput(long bytes, long millis) {
+		double mb = bytes / (1024.0 * 1024.0);
+		NumberFormat nf = NumberFormat.getInstance();
+		nf.setMaximumFractionDigits(2);
+		nf.setGroupingUsed(false);
+		StringBuffer b = new StringBuffer("Exported ");
+		b.append(nf.format(mb)).append(" MB in ").append(millis).append(" ms");
+		if (millis > 0) {
+			b.append(" (").append(nf.format(mb * 1000 / millis)).append(" MB/s)");
 		}
+		return b.toString();
+	}
+
+	private int calculateTotalWork(String handle) {
+		int result = Cache.singleton.getHandlesUnder(handle).size();
 		MetricsPlugin plugin = MetricsPlugin.getDefault();
 		return result + plugin.getMetricIds().length;
 	}
 
+	/**
+	 * @param handle
+	 * @param filter
+	 * @return the descendants of the given type, sorted by handle so that exports are repeatable
+	 */
 	protected static List<AbstractMetricSource> getChildren(String handle, Class<? extends AbstractMetricSource> filter) {
-		Set<String> handles = Cache.singleton.getKeysForHandle(handle);
+		List<String> matches = Cache.singleton.getHandlesUnder(handle);
+		matches.remove(handle);
+		Collections.sort(matches);
 		List<AbstractMetricSource> result = new ArrayList<AbstractMetricSource>();
-		for (Iterator<String> i = handles.iterator(); i.hasNext();) {
-			String next = i.next();
-			if (next.startsWith(handle) && (!next.equals(handle))) {
-				AbstractMetricSource p = Cache.singleton.get(next);
-				if (filter.isInstance(p)) {
-					result.add(p);
-				}
+		for (String next : matches) {
+			AbstractMetricSource p = Cache.singleton.get(next);
+			if (filter.isInstance(p)) {
+				result.add(p);
 			}
 		}
 		return result;
@@ -0,0 +1,773 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.standalone;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.sourceforge.metrics.calculators.LackOfCohesion;
+import net.sourceforge.metrics.calculators.McCabe;
+import net.sourceforge.metrics.calculators.MethodLinesOfCode;
+import net.sourceforge.metrics.calculators.NestedBlockDepth;
+import net.sourceforge.metrics.calculators.TotalLinesOfCode;
+import net.sourceforge.metrics.core.Constants;
+import net.sourceforge.metrics.internal.export.ColumnarWriter;
+import net.sourceforge.metrics.internal.export.JsonLinesExporter;
+
+import org.eclipse.jdt.core.Signature;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+/**
+ * Calculates the metrics that only need the syntax tree of a single compilation unit (VG, NBD, PAR, MLOC, TLOC and LCOM) for plain source files, without OSGi, a workspace or a Java model. Meant for quick checks of a few
+ * files, e.g. in a pre-commit hook. The build puts a runnable jar in target/standalone, with the jars of JDT it needs in lib/ next to it:
+ * 
+ * <pre>
+ * java -jar metrics-standalone.jar [-output file] [-format jsonl|columnar] [-threads n] [-name rootName] (dir | file.java | @listfile)*
+ * </pre>
+ * 
+ * Files are parsed in source-only mode (no bindings) at the newest language level of the JDT on the classpath, on a pool of threads using the same code as the calculators of the plugin. The result is a tree source root /
+ * package / compilation unit / type / method written in the JSON Lines (the default, on standard output if no file is given) or columnar format of the exporters. Paths follow the syntax of Java model handles, relative to
+ * the source root. Local and anonymous types are children of the method, field or initializer they are declared in, as in the plugin. Elements above the method level get the average, standard deviation and maximum of the
+ * method metrics and LCOM below them, MLOC and TLOC are summed. Static fields and methods are left out of LCOM, as in the default preferences.
+ * 
+ * @author Metrics2 contributors
+ */
+public class SourceMetrics implements Constants {
+
+	public static final String[] IDS = new String[] { MCCABE, NESTEDBLOCKDEPTH, PARMS, MLOC, TLOC, LCOM };
+
+	private static final String[] TYPES = new String[] { "", "Method", "Type", "CompilationUnit", "Package", "PackageRoot", "Project" };
+	private static final int SUFFIXES = ColumnarWriter.METRIC_SUFFIXES.length;
+	private static final int VG_INDEX = 0;
+	private static final int NBD_INDEX = 1;
+	private static final int PAR_INDEX = 2;
+	private static final int MLOC_INDEX = 3;
+	private static final int TLOC_INDEX = 4;
+	private static final int LCOM_INDEX = 5;
+	private static final String ANONYMOUS = "(anonymous)";
+
+	/**
+	 * the newest AST level of the JDT on the classpath, looked up by name so a newer JDT parses newer syntax without a rebuild
+	 */
+	static final int LEVEL = getNewestLevel();
+
+	/**
+	 * the Java version of LEVEL, for the source and compliance options of the parser
+	 */
+	static final String VERSION = getVersion(LEVEL);
+
+	private int threads;
+	private String rootName = "sources";
+	private List<String> errors = new ArrayList<String>();
+
+	/**
+	 * @param threads
+	 *            number of files parsed at the same time
+	 */
+	public SourceMetrics(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public void setRootName(String rootName) {
+		this.rootName = rootName;
+	}
+
+	/**
+	 * @return the files that could not be read
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Parse and measure the files
+	 * 
+	 * @param files
+	 * @return all elements in path order, the source root first
+	 * @throws InterruptedException
+	 */
+	public List<Element> calculate(List<File> files) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Metrics parser");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		List<Element> result = new ArrayList<Element>();
+		Element root = new Element(PACKAGEROOT, rootName, "=", null);
+		result.add(root);
+		Map<String, Element> packages = new HashMap<String, Element>();
+		try {
+			List<Future<List<Element>>> futures = new ArrayList<Future<List<Element>>>();
+			for (File file : files) {
+				futures.add(executor.submit(new Measure(file)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				List<Element> unit;
+				try {
+					unit = futures.get(i).get();
+				} catch (ExecutionException e) {
+					errors.add(files.get(i) + ": " + e.getCause());
+					continue;
+				}
+				// the unit comes first, its parent is the name of its package until linked here
+				Element cu = unit.get(0);
+				String packageName = cu.path;
+				Element pack = packages.get(packageName);
+				if (pack == null) {
+					pack = new Element(PACKAGEFRAGMENT, packageName.length() == 0 ? "(default package)" : packageName, root.path + "<" + packageName, root);
+					packages.put(packageName, pack);
+					result.add(pack);
+				}
+				cu.parent = pack;
+				cu.path = pack.path + "{" + cu.name;
+				for (Element next : unit) {
+					if (next != cu) {
+						next.path = next.parent.path + next.path;
+					}
+					result.add(next);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		aggregate(result);
+		Collections.sort(result, new Comparator<Element>() {
+
+			public int compare(Element a, Element b) {
+				return a.path.compareTo(b.path);
+			}
+		});
+		for (int i = 0; i < result.size(); i++) {
+			result.get(i).id = i;
+		}
+		return result;
+	}
+
+	/**
+	 * Add the values below each element to its averages and maxima, sum MLOC and TLOC
+	 * 
+	 * @param elements
+	 *            parents before children
+	 */
+	private void aggregate(List<Element> elements) {
+		int metrics = IDS.length;
+		Map<Element, double[]> stats = new HashMap<Element, double[]>();
+		for (Element next : elements) {
+			for (int m = 0; m < metrics; m++) {
+				if (!next.present[m * SUFFIXES]) {
+					continue;
+				}
+				double value = next.cells[m * SUFFIXES];
+				// the lines of a method already include the types declared in it
+				boolean inMethod = false;
+				for (Element ancestor = next.parent; ancestor != null; ancestor = ancestor.parent) {
+					inMethod |= (ancestor.level == METHOD);
+					double[] s = stats.get(ancestor);
+					if (s == null) {
+						// points, sum, sum of squares, max per metric
+						s = new double[metrics * 4];
+						stats.put(ancestor, s);
+					}
+					if (((m == MLOC_INDEX) || (m == TLOC_INDEX)) && !inMethod) {
+						ancestor.set(m, 0, ancestor.present[m * SUFFIXES] ? ancestor.cells[m * SUFFIXES] + value : value);
+					}
+					if (m == TLOC_INDEX) {
+						continue;
+					}
+					s[m * 4] += 1;
+					s[m * 4 + 1] += value;
+					s[m * 4 + 2] += value * value;
+					s[m * 4 + 3] = (s[m * 4] == 1) ? value : Math.max(s[m * 4 + 3], value);
+				}
+			}
+		}
+		for (Map.Entry<Element, double[]> entry : stats.entrySet()) {
+			Element element = entry.getKey();
+			double[] s = entry.getValue();
+			for (int m = 0; m < metrics; m++) {
+				double points = s[m * 4];
+				if (points > 0) {
+					double avg = s[m * 4 + 1] / points;
+					element.set(m, 1, avg);
+					element.set(m, 2, Math.sqrt(Math.max(0, s[m * 4 + 2] / points - avg * avg)));
+					element.set(m, 3, s[m * 4 + 3]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the elements as JSON Lines, gzip compressed if the file name ends with .gz
+	 * 
+	 * @param elements
+	 * @param out
+	 * @param gzip
+	 * @throws IOException
+	 */
+	public static void writeJsonLines(List<Element> elements, OutputStream out, boolean gzip) throws IOException {
+		JsonLinesExporter.ChunkedOutput lines = new JsonLinesExporter.ChunkedOutput(out, gzip);
+		try {
+			for (Element next : elements) {
+				StringBuffer b = new StringBuffer(256);
+				b.append("{\"id\":").append(next.id);
+				b.append(",\"parent\":").append(next.parent == null ? -1 : next.parent.id);
+				b.append(",\"type\":");
+				JsonLinesExporter.quote(TYPES[next.level], b);
+				b.append(",\"name\":");
+				JsonLinesExporter.quote(next.name, b);
+				b.append(",\"path\":");
+				JsonLinesExporter.quote(next.path, b);
+				b.append(",\"metrics\":{");
+				boolean first = true;
+				for (int m = 0; m < IDS.length; m++) {
+					String separator = "";
+					for (int s = 0; s < SUFFIXES; s++) {
+						if (!next.present[m * SUFFIXES + s]) {
+							continue;
+						}
+						if (separator.length() == 0) {
+							if (!first) {
+								b.append(',');
+							}
+							first = false;
+							JsonLinesExporter.quote(IDS[m], b);
+							b.append(":{");
+						}
+						b.append(separator).append('"').append(s == 0 ? "value" : ColumnarWriter.METRIC_SUFFIXES[s].substring(1)).append("\":");
+						JsonLinesExporter.number(next.cells[m * SUFFIXES + s], b);
+						separator = ",";
+					}
+					if (separator.length() > 0) {
+						b.append('}');
+					}
+				}
+				b.append("}}");
+				lines.writeLine(b.toString());
+			}
+		} finally {
+			lines.close();
+		}
+	}
+
+	/**
+	 * Write the elements in the columnar format
+	 * 
+	 * @param elements
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeColumnar(List<Element> elements, OutputStream out) throws IOException {
+		ColumnarWriter writer = new ColumnarWriter(out, IDS);
+		try {
+			for (Element next : elements) {
+				writer.addRow(next.id, next.parent == null ? -1 : next.parent.id, next.level, next.name, next.path);
+				for (int c = 0; c < next.cells.length; c++) {
+					if (next.present[c]) {
+						writer.setValue(c, next.cells[c]);
+					}
+				}
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Exit code 0 if all files were measured, 1 otherwise
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		long start = System.currentTimeMillis();
+		String output = null;
+		String format = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String name = null;
+		List<File> files = new ArrayList<File>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.startsWith("-") && (i + 1 == args.length)) {
+					throw new IllegalArgumentException("Missing value for " + arg);
+				}
+				if ("-output".equals(arg)) {
+					output = args[++i];
+				} else if ("-format".equals(arg)) {
+					format = args[++i];
+				} else if ("-threads".equals(arg)) {
+					threads = Integer.parseInt(args[++i]);
+				} else if ("-name".equals(arg)) {
+					name = args[++i];
+				} else if (arg.startsWith("@")) {
+					readList(new File(arg.substring(1)), files);
+				} else {
+					collect(new File(arg), files);
+				}
+			}
+			if (format == null) {
+				format = ((output != null) && output.endsWith(".mcol")) ? "columnar" : "jsonl";
+			}
+			if (!"jsonl".equals(format) && !"columnar".equals(format)) {
+				throw new IllegalArgumentException("Unknown format " + format + ", use jsonl or columnar");
+			}
+			SourceMetrics engine = new SourceMetrics(threads);
+			if (name != null) {
+				engine.setRootName(name);
+			}
+			List<Element> elements = engine.calculate(files);
+			OutputStream out = (output == null) ? System.out : new FileOutputStream(output);
+			if ("columnar".equals(format)) {
+				writeColumnar(elements, out);
+			} else {
+				writeJsonLines(elements, out, (output != null) && output.endsWith(".gz"));
+			}
+			for (String error : engine.getErrors()) {
+				System.err.println(error);
+			}
+			System.err.println(files.size() + " files, " + elements.size() + " elements in " + (System.currentTimeMillis() - start) + " ms");
+			System.exit(engine.getErrors().isEmpty() ? 0 : 1);
+		} catch (Throwable e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Add the file, or the .java files below the directory in name order
+	 * 
+	 * @param file
+	 * @param files
+	 */
+	private static void collect(File file, List<File> files) {
+		if (!file.isDirectory()) {
+			if (!file.exists()) {
+				throw new IllegalArgumentException(file + " not found");
+			}
+			files.add(file);
+			return;
+		}
+		File[] children = file.listFiles();
+		if (children == null) {
+			return;
+		}
+		List<File> sorted = new ArrayList<File>();
+		Collections.addAll(sorted, children);
+		Collections.sort(sorted);
+		for (File child : sorted) {
+			if (child.isDirectory() || child.getName().endsWith(".java")) {
+				collect(child, files);
+			}
+		}
+	}
+
+	/**
+	 * Add the files or directories listed one per line
+	 * 
+	 * @param list
+	 * @param files
+	 * @throws IOException
+	 */
+	private static void readList(File list, List<File> files) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(list));
+		try {
+			String line = in.readLine();
+			while (line != null) {
+				if (line.trim().length() > 0) {
+					collect(new File(line.trim()), files);
+				}
+				line = in.readLine();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return the highest JLS level constant of AST
+	 */
+	private static int getNewestLevel() {
+		int level = AST.JLS3;
+		for (Field field : AST.class.getFields()) {
+			if (field.getName().matches("JLS[0-9]+") && (field.getType() == int.class)) {
+				try {
+					level = Math.max(level, field.getInt(null));
+				} catch (IllegalAccessException e) {
+					// public constants
+				}
+			}
+		}
+		return level;
+	}
+
+	/**
+	 * @param level
+	 *            JLS level, JLS3 and JLS4 are Java 5 and 7, the later levels are numbered by their version
+	 * @return the version as the compiler options name it
+	 */
+	private static String getVersion(int level) {
+		if (level >= 9) {
+			return Integer.toString(level);
+		}
+		if (level == 8) {
+			return "1.8";
+		}
+		return (level == 4) ? "1.7" : "1.5";
+	}
+
+	/**
+	 * One measured element. Until the unit is linked into the tree by calculate, paths are relative to the parent and the unit path is its package name.
+	 */
+	public static class Element {
+
+		int id;
+		int level;
+		String name;
+		String path;
+		Element parent;
+		double[] cells = new double[IDS.length * SUFFIXES];
+		boolean[] present = new boolean[IDS.length * SUFFIXES];
+
+		Element(int level, String name, String path, Element parent) {
+			this.level = level;
+			this.name = name;
+			this.path = path;
+			this.parent = parent;
+		}
+
+		void set(int metric, int suffix, double value) {
+			cells[metric * SUFFIXES + suffix] = value;
+			present[metric * SUFFIXES + suffix] = true;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		/**
+		 * @return one of the level constants (METHOD to PACKAGEROOT)
+		 */
+		public int getLevel() {
+			return level;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public Element getParent() {
+			return parent;
+		}
+
+		/**
+		 * @param id
+		 *            metric id
+		 * @param suffix
+		 *            index in ColumnarWriter.METRIC_SUFFIXES
+		 * @return the value or null
+		 */
+		public Double getValue(String id, int suffix) {
+			for (int m = 0; m < IDS.length; m++) {
+				if (IDS[m].equals(id) && present[m * SUFFIXES + suffix]) {
+					return new Double(cells[m * SUFFIXES + suffix]);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Parses one file and measures its types and methods
+	 */
+	private static class Measure implements Callable<List<Element>> {
+
+		private File file;
+		private String source;
+		private List<Element> result = new ArrayList<Element>();
+		private Map<Element, Map<String, Integer>> occurrences = new HashMap<Element, Map<String, Integer>>();
+		private MethodLinesOfCode mloc = new MethodLinesOfCode();
+
+		Measure(File file) {
+			this.file = file;
+		}
+
+		public List<Element> call() throws Exception {
+			source = read(file);
+			ASTParser parser = ASTParser.newParser(LEVEL);
+			parser.setKind(ASTParser.K_COMPILATION_UNIT);
+			parser.setResolveBindings(false);
+			Map<String, String> options = new HashMap<String, String>();
+			options.put("org.eclipse.jdt.core.compiler.source", VERSION);
+			options.put("org.eclipse.jdt.core.compiler.compliance", VERSION);
+			options.put("org.eclipse.jdt.core.compiler.codegen.targetPlatform", VERSION);
+			parser.setCompilerOptions(options);
+			parser.setSource(source.toCharArray());
+			CompilationUnit unit = (CompilationUnit) parser.createAST(null);
+			String packageName = (unit.getPackage() == null) ? "" : unit.getPackage().getName().getFullyQualifiedName();
+			Element cu = new Element(COMPILATIONUNIT, file.getName(), packageName, null);
+			cu.set(TLOC_INDEX, 0, new TotalLinesOfCode().calculateNumberOfLines(getSource(unit)));
+			result.add(cu);
+			for (Object next : unit.types()) {
+				measure((ASTNode) next, cu, "");
+			}
+			return result;
+		}
+
+		/**
+		 * Measure a type and the types declared in it
+		 * 
+		 * @param type
+		 *            a type declaration or an anonymous class
+		 * @param parent
+		 *            the element the type is declared in
+		 * @param container
+		 *            handle of the field or initializer of the parent the type is declared in, empty if none
+		 * @throws Exception
+		 */
+		private void measure(ASTNode type, Element parent, String container) throws Exception {
+			String name = "";
+			List<?> declarations;
+			if (type instanceof AnonymousClassDeclaration) {
+				declarations = ((AnonymousClassDeclaration) type).bodyDeclarations();
+			} else {
+				name = ((AbstractTypeDeclaration) type).getName().getIdentifier();
+				declarations = ((AbstractTypeDeclaration) type).bodyDeclarations();
+			}
+			// as in the Java model, types with the same name in the same container are told apart by their occurrence
+			String path = container + "[" + name;
+			Map<String, Integer> counts = occurrences.get(parent);
+			if (counts == null) {
+				counts = new HashMap<String, Integer>();
+				occurrences.put(parent, counts);
+			}
+			Integer count = counts.get(path);
+			int occurrence = (count == null) ? 1 : count.intValue() + 1;
+			counts.put(path, occurrence);
+			if (occurrence > 1) {
+				path += "!" + occurrence;
+			}
+			Element element = new Element(TYPE, (name.length() == 0) ? ANONYMOUS : name, path, parent);
+			result.add(element);
+			Map<String, Set<String>> buckets = new HashMap<String, Set<String>>();
+			List<MethodDeclaration> methods = new ArrayList<MethodDeclaration>();
+			int fields = 0;
+			for (Object next : declarations) {
+				BodyDeclaration declaration = (BodyDeclaration) next;
+				if (declaration instanceof FieldDeclaration) {
+					for (Object fragment : ((FieldDeclaration) declaration).fragments()) {
+						fields++;
+						if (!Modifier.isStatic(declaration.getModifiers())) {
+							buckets.put(((VariableDeclarationFragment) fragment).getName().getIdentifier(), new HashSet<String>());
+						}
+					}
+				} else if (declaration instanceof MethodDeclaration) {
+					methods.add((MethodDeclaration) declaration);
+				}
+			}
+			for (ASTNode next : findTypes(type)) {
+				measure(next, element, getContainer(next, type, declarations));
+			}
+			for (MethodDeclaration method : methods) {
+				measure(method, element);
+			}
+			double lcom = 0;
+			if ((fields > 1) && (methods.size() > 1) && (buckets.size() > 0)) {
+				for (MethodDeclaration method : methods) {
+					if (!Modifier.isStatic(method.getModifiers())) {
+						LackOfCohesion.scan(buckets, method.getName().getIdentifier(), getSource(method));
+					}
+				}
+				lcom = LackOfCohesion.calculateResult(buckets);
+			}
+			element.set(LCOM_INDEX, 0, lcom);
+		}
+
+		private void measure(MethodDeclaration method, Element parent) {
+			StringBuffer path = new StringBuffer("~").append(method.getName().getIdentifier());
+			for (Object next : method.parameters()) {
+				SingleVariableDeclaration parameter = (SingleVariableDeclaration) next;
+				String type = parameter.getType().toString();
+				for (int i = 0; i < parameter.getExtraDimensions(); i++) {
+					type += "[]";
+				}
+				if (parameter.isVarargs()) {
+					type += "[]";
+				}
+				path.append('~').append(Signature.createTypeSignature(type, false));
+			}
+			Element element = new Element(METHOD, method.getName().getIdentifier(), path.toString(), parent);
+			element.set(VG_INDEX, 0, McCabe.getComplexity(method, source));
+			element.set(NBD_INDEX, 0, NestedBlockDepth.getDepth(method));
+			element.set(PAR_INDEX, 0, method.parameters().size());
+			element.set(MLOC_INDEX, 0, mloc.calculateNumberOfLines(getSource(method)));
+			result.add(element);
+			for (ASTNode next : findTypes(method)) {
+				measure(next, element, "");
+			}
+		}
+
+		/**
+		 * @param start
+		 *            a type or method
+		 * @return the local, member and anonymous types declared directly in start, in source order. Types in the methods of a type belong to the method and are left out.
+		 */
+		private static List<ASTNode> findTypes(final ASTNode start) {
+			final List<ASTNode> types = new ArrayList<ASTNode>();
+			start.accept(new ASTVisitor() {
+
+				@Override
+				public boolean visit(TypeDeclaration node) {
+					return add(node);
+				}
+
+				@Override
+				public boolean visit(AnnotationTypeDeclaration node) {
+					return add(node);
+				}
+
+				@Override
+				public boolean visit(EnumDeclaration node) {
+					return add(node);
+				}
+
+				@Override
+				public boolean visit(AnonymousClassDeclaration node) {
+					return add(node);
+				}
+
+				@Override
+				public boolean visit(MethodDeclaration node) {
+					return node == start;
+				}
+
+				private boolean add(ASTNode node) {
+					if (node == start) {
+						return true;
+					}
+					types.add(node);
+					return false;
+				}
+			});
+			return types;
+		}
+
+		/**
+		 * @param node
+		 *            a type found in type
+		 * @param type
+		 * @param declarations
+		 *            the body declarations of type
+		 * @return the handle of the field, enum constant or initializer of type that node is declared in, empty for member types
+		 */
+		private static String getContainer(ASTNode node, ASTNode type, List<?> declarations) {
+			ASTNode previous = null;
+			ASTNode declaration = node;
+			while (declaration.getParent() != type) {
+				previous = declaration;
+				declaration = declaration.getParent();
+			}
+			if ((declaration instanceof FieldDeclaration) && (previous instanceof VariableDeclarationFragment)) {
+				return "^" + ((VariableDeclarationFragment) previous).getName().getIdentifier();
+			}
+			if (declaration instanceof EnumConstantDeclaration) {
+				return "^" + ((EnumConstantDeclaration) declaration).getName().getIdentifier();
+			}
+			if (declaration instanceof Initializer) {
+				int occurrence = 0;
+				for (Object next : declarations) {
+					if (next instanceof Initializer) {
+						occurrence++;
+					}
+					if (next == declaration) {
+						break;
+					}
+				}
+				return "|" + occurrence;
+			}
+			return "";
+		}
+
+		private String getSource(ASTNode node) {
+			return source.substring(node.getStartPosition(), node.getStartPosition() + node.getLength());
+		}
+
+		private static String read(File file) throws IOException {
+			Reader in = new InputStreamReader(new FileInputStream(file));
+			try {
+				StringBuffer b = new StringBuffer((int) file.length());
+				char[] buffer = new char[8192];
+				int read = in.read(buffer);
+				while (read != -1) {
+					b.append(buffer, 0, read);
+					read = in.read(buffer);
+				}
+				return b.toString();
+			} finally {
+				in.close();
+			}
+		}
+	}
+}
@@ -115,6 +115,7 @@ public class DependencyGraphView extends ViewPart implements ArmListener {
 	 */
 	public void widgetArmed(ArmEvent e) {
 		Map<String, Set<String>> deps = MetricsView.getDependencies();
+		glPanel.setTypeDependencies(MetricsView.getTypeDependencies());
 		setDependencies(deps);
 	}
 
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ui;
+
+import java.text.NumberFormat;
+import java.util.List;
+
+import net.sourceforge.metrics.core.Constants;
+import net.sourceforge.metrics.core.Log;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.HotspotIndex;
+import net.sourceforge.metrics.core.sources.HotspotIndex.Hotspot;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.ui.JavaUI;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.ISelectionListener;
+import org.eclipse.ui.IWorkbenchPart;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Lists the elements with the highest values of a metric, across the workspace or below the current selection, using the HotspotIndex
+ * 
+ * @author Metrics2 contributors
+ */
+public class HotspotsView extends ViewPart implements ISelectionListener {
+
+	private static final String[] LEVELS = new String[] { "Any", "Method", "Type", "Compilation unit", "Package", "Source folder", "Project" };
+
+	private String[] ids;
+	private Combo metric;
+	private Combo level;
+	private Text packagePrefix;
+	private Button outOfRange;
+	private Button selectionOnly;
+	private Spinner count;
+	private Label status;
+	private Table table;
+	private IJavaElement selection;
+	private Job queryJob;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.ui.IWorkbenchPart#createPartControl(org.eclipse.swt.widgets .Composite)
+	 */
+	@Override
+	public void createPartControl(Composite parent) {
+		Composite c = new Composite(parent, SWT.NONE);
+		c.setLayout(new GridLayout(12, false));
+		new Label(c, SWT.NONE).setText("Metric");
+		metric = new Combo(c, SWT.READ_ONLY);
+		MetricsPlugin plugin = MetricsPlugin.getDefault();
+		ids = plugin.getMetricIds();
+		metric.setItems(plugin.getMetricDescriptions());
+		metric.select(0);
+		new Label(c, SWT.NONE).setText("Level");
+		level = new Combo(c, SWT.READ_ONLY);
+		level.setItems(LEVELS);
+		level.select(Constants.METHOD);
+		new Label(c, SWT.NONE).setText("Package");
+		packagePrefix = new Text(c, SWT.BORDER);
+		packagePrefix.setLayoutData(new GridData(120, SWT.DEFAULT));
+		new Label(c, SWT.NONE).setText("Top");
+		count = new Spinner(c, SWT.BORDER);
+		count.setValues(50, 1, 10000, 0, 10, 100);
+		outOfRange = new Button(c, SWT.CHECK);
+		outOfRange.setText("Out of range only");
+		selectionOnly = new Button(c, SWT.CHECK);
+		selectionOnly.setText("Within selection");
+		Button find = new Button(c, SWT.PUSH);
+		find.setText("Find");
+		find.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				runQuery();
+			}
+		});
+		status = new Label(c, SWT.NONE);
+		status.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		table = new Table(c, SWT.FULL_SELECTION | SWT.BORDER);
+		GridData data = new GridData(GridData.FILL_BOTH);
+		data.horizontalSpan = 12;
+		table.setLayoutData(data);
+		table.setLinesVisible(true);
+		table.setHeaderVisible(true);
+		createColumn("Value", SWT.RIGHT, 70);
+		createColumn("Element", SWT.LEFT, 250);
+		createColumn("Resource", SWT.LEFT, 400);
+		table.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetDefaultSelected(SelectionEvent e) {
+				open((String) e.item.getData());
+			}
+		});
+		getViewSite().getPage().addSelectionListener(this);
+	}
+
+	private void createColumn(String name, int style, int width) {
+		TableColumn column = new TableColumn(table, style);
+		column.setText(name);
+		column.setWidth(width);
+	}
+
+	/**
+	 * Run the query in a background job, the first query after startup has to index the stored metrics first
+	 */
+	private void runQuery() {
+		final HotspotIndex.Query query = new HotspotIndex.Query(ids[Math.max(0, metric.getSelectionIndex())]);
+		query.setCount(count.getSelection());
+		query.setLevel(level.getSelectionIndex());
+		query.setPackagePrefix(packagePrefix.getText().trim());
+		query.setOutOfRange(outOfRange.getSelection());
+		if (selectionOnly.getSelection() && (selection != null)) {
+			query.setScope(selection.getHandleIdentifier());
+		}
+		status.setText("Searching...");
+		if (queryJob != null) {
+			queryJob.cancel();
+		}
+		queryJob = new Job("Finding metric hotspots") {
+
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				long start = System.currentTimeMillis();
+				final List<Hotspot> result = HotspotIndex.singleton.query(query, monitor);
+				final long time = System.currentTimeMillis() - start;
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				final String[][] rows = createRows(result);
+				table.getDisplay().asyncExec(new Runnable() {
+
+					public void run() {
+						if (!table.isDisposed()) {
+							showRows(result, rows);
+							status.setText(result.size() + " elements (" + time + " ms)");
+						}
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		queryJob.schedule();
+	}
+
+	/**
+	 * @param result
+	 * @return the texts for each row, created outside of the UI thread
+	 */
+	private String[][] createRows(List<Hotspot> result) {
+		NumberFormat nf = MetricsTableRow.getNumberFormat();
+		String[][] rows = new String[result.size()][];
+		for (int i = 0; i < rows.length; i++) {
+			Hotspot next = result.get(i);
+			IJavaElement element = JavaCore.create(next.getHandle());
+			String name = (element == null) ? next.getHandle() : element.getElementName();
+			String path = (element == null) ? "" : element.getPath().toString();
+			rows[i] = new String[] { nf.format(next.getValue()), name, path };
+		}
+		return rows;
+	}
+
+	private void showRows(List<Hotspot> result, String[][] rows) {
+		table.removeAll();
+		for (int i = 0; i < rows.length; i++) {
+			TableItem item = new TableItem(table, SWT.NONE);
+			item.setText(rows[i]);
+			item.setData(result.get(i).getHandle());
+		}
+	}
+
+	private void open(String handle) {
+		if (handle == null) {
+			return;
+		}
+		try {
+			IJavaElement element = JavaCore.create(handle);
+			if (element != null) {
+				IEditorPart javaEditor = JavaUI.openInEditor(element);
+				if (element instanceof IMember) {
+					JavaUI.revealInEditor(javaEditor, element);
+				}
+			}
+		} catch (Throwable t) {
+			Log.logError("Error selecting " + handle, t);
+		}
+	}
+
+	/**
+	 * remember the selected java element as scope for "Within selection"
+	 * 
+	 * @see org.eclipse.ui.ISelectionListener#selectionChanged(org.eclipse.ui.IWorkbenchPart, org.eclipse.jface.viewers.ISelection)
+	 */
+	public void selectionChanged(IWorkbenchPart part, ISelection sel) {
+		if ((part != this) && (sel instanceof IStructuredSelection) && (((IStructuredSelection) sel).size() == 1)) {
+			Object first = ((IStructuredSelection) sel).getFirstElement();
+			if (first instanceof IJavaElement) {
+				selection = (IJavaElement) first;
+			}
+		}
+	}
+
+	@Override
+	public void setFocus() {
+		table.setFocus();
+	}
+
+	@Override
+	public void dispose() {
+		getViewSite().getPage().removeSelectionListener(this);
+		if (queryJob != null) {
+			queryJob.cancel();
+		}
+		super.dispose();
+	}
+}
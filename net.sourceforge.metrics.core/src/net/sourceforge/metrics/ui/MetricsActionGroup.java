@@ -22,7 +22,6 @@ package net.sourceforge.metrics.ui;
 
 import net.sourceforge.metrics.builder.MetricsBuilder;
 import net.sourceforge.metrics.core.Log;
-import net.sourceforge.metrics.core.MetricsPlugin;
 
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jface.action.Action;
@@ -94,7 +93,7 @@ public class MetricsActionGroup extends ActionGroup {
 
 	private class GraphAction extends Action {
 		public GraphAction() {
-			super("&Dependency Graph", MetricsPlugin.createImage("gview.gif"));
+			super("&Dependency Graph", MetricsUI.createImage("gview.gif"));
 			setToolTipText("&Open the Dependency Graph View");
 		}
 
@@ -113,7 +112,7 @@ public class MetricsActionGroup extends ActionGroup {
 
 	private class ExportAction extends Action {
 		public ExportAction() {
-			super("&Export XML...", MetricsPlugin.createImage("export_xml.gif"));
+			super("&Export XML...", MetricsUI.createImage("export_xml.gif"));
 			setToolTipText("&Export XML...");
 		}
 
@@ -132,7 +131,7 @@ public class MetricsActionGroup extends ActionGroup {
 
 	private class AbortAllAction extends Action {
 		public AbortAllAction() {
-			super("&Abort All Calculations...", MetricsPlugin.createImage("abort.gif"));
+			super("&Abort All Calculations...", MetricsUI.createImage("abort.gif"));
 			setToolTipText("&Abort all ongoing and pending calculations");
 		}
 
@@ -151,7 +150,7 @@ public class MetricsActionGroup extends ActionGroup {
 
 	private class PauseAction extends Action {
 		public PauseAction() {
-			super("&Pause Calculations...", MetricsPlugin.createImage("pause.gif"));
+			super("&Pause Calculations...", MetricsUI.createImage("pause.gif"));
 			setToolTipText("&Temporarily pause all calculations");
 		}
 
@@ -172,7 +171,7 @@ public class MetricsActionGroup extends ActionGroup {
 
 	private class ResumeAction extends Action {
 		public ResumeAction() {
-			super("&Resume Calculations...", MetricsPlugin.createImage("resume.gif"));
+			super("&Resume Calculations...", MetricsUI.createImage("resume.gif"));
 			setToolTipText("&Resume previously paused calculations");
 		}
 
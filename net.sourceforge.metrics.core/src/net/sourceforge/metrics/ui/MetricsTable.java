@@ -21,22 +21,18 @@
 package net.sourceforge.metrics.ui;
 
 import java.text.NumberFormat;
-import java.util.Arrays;
-import java.util.Comparator;
 
-import net.sourceforge.metrics.core.Avg;
 import net.sourceforge.metrics.core.Constants;
 import net.sourceforge.metrics.core.Log;
-import net.sourceforge.metrics.core.Max;
-import net.sourceforge.metrics.core.Metric;
-import net.sourceforge.metrics.core.MetricDescriptor;
 import net.sourceforge.metrics.core.MetricsPlugin;
 import net.sourceforge.metrics.core.sources.AbstractMetricSource;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
-import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jface.preference.PreferenceConverter;
@@ -48,6 +44,9 @@ import org.eclipse.swt.events.TreeListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeColumn;
 import org.eclipse.swt.widgets.TreeItem;
@@ -56,7 +55,8 @@ import org.eclipse.ui.IMemento;
 import org.eclipse.ui.PartInitException;
 
 /**
- * TableTree specialized for metrics display. Specializations include lazy child creation and child sorting in descending metric value
+ * TableTree specialized for metrics display. Specializations include lazy child creation and child sorting in descending metric value. The tree is virtual, rows are kept in MetricsTableRow objects and only turned
+ * into TreeItems when scrolled into view, and the children of a row are created in a background job when it is first expanded.
  * 
  * @author Frank Sauer
  */
@@ -65,6 +65,7 @@ public class MetricsTable extends Tree implements Constants, SelectionListener,
 	private Color lastDefaultColor;
 	private Color lastInRangeColor;
 	private Color lastOutofRangeColor;
+	private int colorsVersion;
 	private TreeColumn description;
 	private TreeColumn value;
 	private TreeColumn average;
@@ -72,6 +73,11 @@ public class MetricsTable extends Tree implements Constants, SelectionListener,
 	private TreeColumn max;
 	private TreeColumn path;
 	private TreeColumn method;
+	private MetricsTableRow[] roots = new MetricsTableRow[0];
+	// incremented whenever other metrics are shown
+	private int generation;
+
+	private static final String LOADING = "Loading...";
 
 	/**
 	 * Constructor for MetricsTable.
@@ -80,7 +86,7 @@ public class MetricsTable extends Tree implements Constants, SelectionListener,
 	 * @param style
 	 */
 	public MetricsTable(Composite parent, int style) {
-		super(parent, style);
+		super(parent, style | SWT.VIRTUAL);
 		setLinesVisible(true);
 		setHeaderVisible(true);
 		description = new TreeColumn(this, SWT.LEFT);
@@ -99,6 +105,12 @@ public class MetricsTable extends Tree implements Constants, SelectionListener,
 		method.setText("Method");
 		addSelectionListener(this);
 		addTreeListener(this);
+		addListener(SWT.SetData, new Listener() {
+
+			public void handleEvent(Event event) {
+				fill((TreeItem) event.item, event.index);
+			}
+		});
 	}
 
 	/**
@@ -108,286 +120,143 @@ public class MetricsTable extends Tree implements Constants, SelectionListener,
 	 */
 	public void setMetrics(final AbstractMetricSource ms) {
 		try {
-			removeAll();
-			if (ms == null) {
-				return;
-			}
-			MetricsPlugin plugin = MetricsPlugin.getDefault();
-			String[] names = plugin.getMetricIds();
-			String[] descriptions = plugin.getMetricDescriptions();
-			for (int i = 0; i < names.length; i++) {
-				boolean rowNeeded = false;
-				String name = names[i];
-				String[] cols = new String[] { descriptions[i], "", "", "", "", "", "" };
-				Metric m = ms.getValue(name);
-				if (m != null) {
-					rowNeeded = true;
-					cols[1] = format(m.doubleValue());
-				}
-				for (String per : PER_ARRAY) {
-					Avg avg = ms.getAverage(name, per);
-					Max max = ms.getMaximum(name, per);
-					if ((avg != null) || (max != null)) {
-						TreeItem row = createNewRow();
-						cols[0] = descriptions[i] + " (avg/max per " + per + ")";
-						if (avg != null) {
-							cols[2] = format(avg.doubleValue());
-							cols[3] = format(avg.getStandardDeviation());
-						}
-						if (max != null) {
-							cols[4] = format(max.doubleValue());
-							String handle = max.getHandle();
-							if (handle != null) {
-								IJavaElement element = JavaCore.create(handle);
-								cols[5] = getPath(element);
-								setForeground(max, row);
-								cols[6] = getMethodName(element);
-								row.setData("handle", handle);
-								row.setData("element", element);
-							}
-						} else {
-							setForeground(m, row);
-						}
-						setText(row, cols);
-						addChildren(row, ms, name, per);
-						rowNeeded = false;
-					}
-				}
-				if (rowNeeded) {
-					TreeItem row = createNewRow();
-					setForeground(m, row);
-					setText(row, cols);
-					addChildren(row, ms, name, "");
-				}
-			}
+			setRows(MetricsTableRow.createRoots(ms, MetricsTableRow.getNumberFormat()));
 		} catch (Throwable e) {
 			Log.logError("MetricsTable::setMetrics", e);
 		}
 	}
 
-	private void setForeground(Metric metric, TreeItem row) {
-		if (metric == null) {
-			row.setForeground(getDefaultForeground());
-		} else {
-			MetricDescriptor md = MetricsPlugin.getDefault().getMetricDescriptor(metric.getName());
-			Color c = md.isValueInRange(metric.doubleValue()) ? getInRangeForeground() : getOutOfRangeForeground();
-			row.setForeground(c);
-		}
-	}
-
-	/**
-	 * create a new root row
-	 * 
-	 * @return
-	 */
-	private TreeItem createNewRow() {
-		TreeItem item = new TreeItem(this, SWT.NONE);
-		item.setForeground(getDefaultForeground());
-		return item;
-	}
-
 	/**
-	 * create a new child row
+	 * Show the given rows. Only the rows scrolled into view get a TreeItem with its texts (see fill), children are created when their parent is first expanded.
 	 * 
-	 * @param parent
-	 * @return
+	 * @param rows
 	 */
-	private TreeItem createNewRow(TreeItem parent) {
-		TreeItem item = new TreeItem(parent, SWT.NONE);
-		item.setForeground(getDefaultForeground());
-		return item;
+	void setRows(MetricsTableRow[] rows) {
+		generation++;
+		removeAll();
+		roots = rows;
+		setItemCount(rows.length);
 	}
 
 	/**
-	 * Get the default color (for metrics without a max and within range)
+	 * Materialize a row scrolled into view (SWT.SetData)
 	 * 
-	 * @return
+	 * @param item
+	 * @param index
 	 */
-	private Color getDefaultForeground() {
-		RGB color = PreferenceConverter.getColor(MetricsPlugin.getDefault().getPreferenceStore(), "METRICS.defaultColor");
-		if (lastDefaultColor == null) {
-			lastDefaultColor = new Color(getDisplay(), color);
-		} else if (!lastDefaultColor.getRGB().equals(color)) {
-			lastDefaultColor.dispose();
-			lastDefaultColor = new Color(getDisplay(), color);
+	private void fill(TreeItem item, int index) {
+		TreeItem parentItem = item.getParentItem();
+		MetricsTableRow[] rows = roots;
+		if (parentItem != null) {
+			MetricsTableRow parent = (MetricsTableRow) parentItem.getData();
+			rows = (parent == null) ? null : parent.children;
 		}
-		return lastDefaultColor;
-	}
-
-	/**
-	 * Get the in range color (for metrics with a max and within range)
-	 * 
-	 * @return
-	 */
-	private Color getInRangeForeground() {
-		RGB color = PreferenceConverter.getColor(MetricsPlugin.getDefault().getPreferenceStore(), "METRICS.linkedColor");
-		if (lastInRangeColor == null) {
-			lastInRangeColor = new Color(getDisplay(), color);
-		} else if (!lastInRangeColor.getRGB().equals(color)) {
-			lastInRangeColor.dispose();
-			lastInRangeColor = new Color(getDisplay(), color);
+		if ((rows == null) || (index >= rows.length)) {
+			// children not loaded yet
+			item.setText(LOADING);
+			return;
+		}
+		MetricsTableRow row = rows[index];
+		item.setData(row);
+		item.setText(row.texts);
+		item.setForeground(getForeground(row.color));
+		if (row.mayHaveChildren()) {
+			item.setItemCount((row.children == null) ? 1 : row.children.length);
 		}
-		return lastInRangeColor;
 	}
 
 	/**
-	 * Get the out of range color (for metrics with a max and out of range)
-	 * 
-	 * @return
+	 * @param color
+	 *            MetricsTableRow.DEFAULT, IN_RANGE or OUT_OF_RANGE
+	 * @return the color set in the preferences
 	 */
-	private Color getOutOfRangeForeground() {
-		RGB color = PreferenceConverter.getColor(MetricsPlugin.getDefault().getPreferenceStore(), "METRICS.outOfRangeColor");
-		if (lastOutofRangeColor == null) {
-			lastOutofRangeColor = new Color(getDisplay(), color);
-		} else if (!lastOutofRangeColor.getRGB().equals(color)) {
-			lastOutofRangeColor.dispose();
-			lastOutofRangeColor = new Color(getDisplay(), color);
+	private Color getForeground(int color) {
+		updateColors();
+		switch (color) {
+		case MetricsTableRow.IN_RANGE:
+			return lastInRangeColor;
+		case MetricsTableRow.OUT_OF_RANGE:
+			return lastOutofRangeColor;
+		default:
+			return lastDefaultColor;
 		}
-		return lastOutofRangeColor;
 	}
 
 	/**
-	 * first time simply adds a dummy child if there should be any children. When such a dummy child is already rpesent, replaces it with the real children. This spreads the work load across expansion events instead of constructing the
-	 * entire tree up front, which could be very time consuming in large projects.
+	 * Create the children of the row in a background job and show them when done. Loads that finish after the table shows other metrics are dropped.
 	 * 
+	 * @param item
 	 * @param row
-	 *            parent TreeItem
-	 * @param ms
-	 *            AbstractMetricSource containing the metrics
-	 * @param metric
-	 *            Name of the Metric
-	 * @param per
-	 *            name of the avg/max type
 	 */
-	private void addChildren(TreeItem row, AbstractMetricSource ms, String metric, String per) {
-		AbstractMetricSource[] children = ms.getChildrenHaving(per, metric);
-		// don't have to do anything if there are no child metrics
-		if ((children != null) && (children.length > 0)) {
-			if (row.getData("source") != null) {
-				// dummy already present, replace it with the real thing
-				row.setData("source", null);
-				row.getItems()[0].dispose();
-				sort(children, metric, per);
-				for (AbstractMetricSource element : children) {
-					TreeItem child = createNewRow(row);
-					child.setText(getElementName(element.getJavaElement()));
-					Metric val = element.getValue(metric);
-					child.setText(1, (val != null) ? format(val.doubleValue()) : "");
-					Avg avg = element.getAverage(metric, per);
-					child.setText(2, (avg != null) ? format(avg.doubleValue()) : "");
-					child.setText(3, (avg != null) ? format(avg.getStandardDeviation()) : "");
-					Max max = element.getMaximum(metric, per);
-					child.setText(4, (max != null) ? format(max.doubleValue()) : "");
-					if (max != null) {
-						IJavaElement maxElm = JavaCore.create(max.getHandle());
-						child.setText(5, getPath(maxElm));
-						child.setText(6, getMethodName(maxElm));
-						setForeground(max, child);
-					} else {
-						child.setText(5, "");
-						child.setText(6, "");
-						if (val != null) {
-							setForeground(val, row);
-						}
-					}
-					child.setData("handle", element.getHandle());
-					child.setData("element", element.getJavaElement());
-					// recurse
-					addChildren(child, element, metric, per);
-				}
-			} else { // add dummy
-				createNewRow(row);
-				row.setData("metric", metric);
-				row.setData("per", per);
-				row.setData("source", ms);
-			}
-		} else {
-			Max max = ms.getMaximum(metric, per);
-			if (max != null) {
-				setForeground(max, row);
-			} else {
-				setForeground(ms.getValue(metric), row);
-			}
+	private void loadChildren(final TreeItem item, final MetricsTableRow row) {
+		if ((row.children != null) || row.loading) {
+			return;
 		}
-	}
-
-	private String getElementName(IJavaElement element) {
-		String candidate = element.getElementName();
-		if ("".equals(candidate)) {
-			if (element instanceof IType) {
-				return "anonymous";
-			}
-			return "(default package)";
-		}
-		return candidate;
-	}
-
-	/**
-	 * Sort the metrics in descending max/value order, giving preference to max over value (if max exists, use it, otherwise use value)
-	 * 
-	 * @param children
-	 * @param metric
-	 * @param per
-	 * @return
-	 */
-	private void sort(AbstractMetricSource[] children, final String metric, final String per) {
-		Comparator<AbstractMetricSource> c = new Comparator<AbstractMetricSource>() {
+		row.loading = true;
+		final int current = generation;
+		final NumberFormat nf = MetricsTableRow.getNumberFormat();
+		final Display display = getDisplay();
+		Job job = new Job("Loading metrics") {
 
-			public int compare(AbstractMetricSource o1, AbstractMetricSource o2) {
-				Max max1 = o1.getMaximum(metric, per);
-				Max max2 = o2.getMaximum(metric, per);
-				if ((max1 != null) && (max2 != null)) {
-					return -max1.compareTo(max2);
-				} /* else { */
-				Metric m1 = o1.getValue(metric);
-				Metric m2 = o2.getValue(metric);
-				if ((m1 != null) && (m2 != null)) {
-					return -m1.compareTo(m2);
-				} /* else { */
-				if ((max1 != null) && (max2 == null)) {
-					return -1;
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				MetricsTableRow[] loaded = null;
+				try {
+					loaded = row.createChildren(nf);
+				} catch (RuntimeException e) {
+					Log.logError("Could not load the metrics of " + row.texts[0], e);
 				}
-				if ((m1 != null) && (m2 == null)) {
-					return -1; // change from if ((m2 != null)&&(m2 ==
-					// null)) return -1;
+				final MetricsTableRow[] children = loaded;
+				if (display.isDisposed()) {
+					return Status.OK_STATUS;
 				}
-				return 1;
-				/* } */
-				/* } */
+				display.asyncExec(new Runnable() {
+
+					public void run() {
+						row.loading = false;
+						if (isDisposed() || item.isDisposed() || (current != generation)) {
+							return;
+						}
+						if (children == null) {
+							// collapsed, expanding the row again retries
+							item.setExpanded(false);
+							return;
+						}
+						row.children = children;
+						item.setItemCount(children.length);
+						item.clearAll(true);
+					}
+				});
+				return Status.OK_STATUS;
 			}
 		};
-		Arrays.sort(children, c);
-	}
-
-	private void setText(TreeItem row, String[] columns) {
-		row.setText(columns[0]);
-		for (int i = 1; i < columns.length; i++) {
-			row.setText(i, columns[i]);
-		}
+		job.setSystem(true);
+		job.schedule();
 	}
 
 	/**
-	 * @param handle
-	 * @return String
+	 * Reread the colors if the preferences changed since they were last read
 	 */
-	private String getMethodName(IJavaElement element) {
-		return (element.getElementType() == IJavaElement.METHOD) ? element.getElementName() : "";
-	}
-
-	/**
-	 * @param handle
-	 * @return String
-	 */
-	private String getPath(IJavaElement element) {
-		return element.getPath().toString();
+	private void updateColors() {
+		int version = MetricsPlugin.getPreferenceVersion();
+		if ((lastDefaultColor == null) || (version != colorsVersion)) {
+			colorsVersion = version;
+			lastDefaultColor = updateColor(lastDefaultColor, "METRICS.defaultColor");
+			lastInRangeColor = updateColor(lastInRangeColor, "METRICS.linkedColor");
+			lastOutofRangeColor = updateColor(lastOutofRangeColor, "METRICS.outOfRangeColor");
+		}
 	}
 
-	private String format(double value) {
-		NumberFormat nf = NumberFormat.getInstance();
-		int decimals = MetricsPlugin.getDefault().getPreferenceStore().getInt("METRICS.decimals");
-		nf.setMaximumFractionDigits(decimals);
-		nf.setGroupingUsed(false);
-		return nf.format(value);
+	private Color updateColor(Color last, String preference) {
+		RGB color = PreferenceConverter.getColor(MetricsUI.getPreferenceStore(), preference);
+		if (last == null) {
+			return new Color(getDisplay(), color);
+		}
+		if (!last.getRGB().equals(color)) {
+			last.dispose();
+			return new Color(getDisplay(), color);
+		}
+		return last;
 	}
 
 	/**
@@ -406,9 +275,12 @@ public class MetricsTable extends Tree implements Constants, SelectionListener,
 	 * @see org.eclipse.swt.events.SelectionListener#widgetDefaultSelected(SelectionEvent)
 	 */
 	public void widgetDefaultSelected(SelectionEvent e) {
-		TreeItem row = (TreeItem) e.item;
-		IJavaElement element = (IJavaElement) row.getData("element");
-		String handle = (String) row.getData("handle");
+		MetricsTableRow row = (MetricsTableRow) ((TreeItem) e.item).getData();
+		if (row == null) {
+			return;
+		}
+		IJavaElement element = row.getElement();
+		String handle = row.handle;
 		try {
 			if (element != null) {
 				IEditorPart javaEditor = JavaUI.openInEditor(element);
@@ -466,15 +338,13 @@ public class MetricsTable extends Tree implements Constants, SelectionListener,
 	}
 
 	/**
-	 * replaces dummy child nodes with the real children if needed
+	 * loads the children of the expanded row if needed
 	 */
 	public void treeExpanded(TreeEvent e) {
 		TreeItem item = (TreeItem) e.item;
-		if (item.getData("source") != null) {
-			AbstractMetricSource source = (AbstractMetricSource) item.getData("source");
-			String metric = (String) item.getData("metric");
-			String per = (String) item.getData("per");
-			addChildren(item, source, metric, per);
+		MetricsTableRow row = (MetricsTableRow) item.getData();
+		if (row != null) {
+			loadChildren(item, row);
 		}
 	}
 
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ui;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sourceforge.metrics.core.Avg;
+import net.sourceforge.metrics.core.Constants;
+import net.sourceforge.metrics.core.Max;
+import net.sourceforge.metrics.core.Metric;
+import net.sourceforge.metrics.core.MetricDescriptor;
+import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * The data behind one row of the (virtual) MetricsTable. Rows are created without any widget, so they can be prepared outside of the UI thread, and the children of a row are only created when it is expanded.
+ * 
+ * @author Metrics2 contributors
+ */
+class MetricsTableRow implements Constants {
+
+	static final int DEFAULT = 0;
+	static final int IN_RANGE = 1;
+	static final int OUT_OF_RANGE = 2;
+
+	private static final MetricsTableRow[] NONE = new MetricsTableRow[0];
+
+	private static NumberFormat format;
+	private static int formatVersion;
+
+	String[] texts;
+	int color = DEFAULT;
+	String handle;
+	private IJavaElement element;
+	// the source whose children are shown below this row, null if none
+	private AbstractMetricSource source;
+	private String metric;
+	private String per;
+	// null until loaded
+	MetricsTableRow[] children;
+	boolean loading;
+
+	private MetricsTableRow(String[] texts) {
+		this.texts = texts;
+	}
+
+	/**
+	 * @return the element causing the maximum (for a root row) or shown by this row, null if none
+	 */
+	IJavaElement getElement() {
+		if ((element == null) && (handle != null)) {
+			element = JavaCore.create(handle);
+		}
+		return element;
+	}
+
+	/**
+	 * @return true if the row may have children, the children themselves are only known after createChildren
+	 */
+	boolean mayHaveChildren() {
+		return (children != null) ? children.length > 0 : (source != null) && !source.getChildHandles().isEmpty();
+	}
+
+	/**
+	 * Create the rows shown for an element, one per metric value and one per metric and avg/max level
+	 * 
+	 * @param ms
+	 * @param nf
+	 * @return MetricsTableRow[]
+	 */
+	static MetricsTableRow[] createRoots(AbstractMetricSource ms, NumberFormat nf) {
+		if (ms == null) {
+			return NONE;
+		}
+		List<MetricsTableRow> result = new ArrayList<MetricsTableRow>();
+		MetricsPlugin plugin = MetricsPlugin.getDefault();
+		String[] names = plugin.getMetricIds();
+		String[] descriptions = plugin.getMetricDescriptions();
+		for (int i = 0; i < names.length; i++) {
+			boolean rowNeeded = false;
+			String name = names[i];
+			String[] cols = new String[] { descriptions[i], "", "", "", "", "", "" };
+			Metric m = ms.getValue(name);
+			if (m != null) {
+				rowNeeded = true;
+				cols[1] = nf.format(m.doubleValue());
+			}
+			for (String per : PER_ARRAY) {
+				Avg avg = ms.getAverage(name, per);
+				Max max = ms.getMaximum(name, per);
+				if ((avg != null) || (max != null)) {
+					cols[0] = descriptions[i] + " (avg/max per " + per + ")";
+					if (avg != null) {
+						cols[2] = nf.format(avg.doubleValue());
+						cols[3] = nf.format(avg.getStandardDeviation());
+					}
+					MetricsTableRow row = new MetricsTableRow(cols.clone());
+					if (max != null) {
+						row.texts[4] = nf.format(max.doubleValue());
+						row.handle = max.getHandle();
+						if (row.handle != null) {
+							IJavaElement element = row.getElement();
+							row.texts[5] = getPath(element);
+							row.texts[6] = getMethodName(element);
+						}
+						row.color = getColor(max);
+					} else {
+						row.color = getColor(m);
+					}
+					row.setSource(ms, name, per);
+					result.add(row);
+					rowNeeded = false;
+				}
+			}
+			if (rowNeeded) {
+				MetricsTableRow row = new MetricsTableRow(cols);
+				row.color = getColor(m);
+				row.setSource(ms, name, "");
+				result.add(row);
+			}
+		}
+		return result.toArray(NONE);
+	}
+
+	private void setSource(AbstractMetricSource ms, String metric, String per) {
+		this.metric = metric;
+		this.per = per;
+		if (!ms.getChildHandles().isEmpty()) {
+			source = ms;
+		}
+	}
+
+	/**
+	 * Create the rows for the children of the source of this row that have a value for its metric, sorted in descending max/value order. Expensive, every child is fetched from the Cache.
+	 * 
+	 * @param nf
+	 * @return MetricsTableRow[]
+	 */
+	MetricsTableRow[] createChildren(NumberFormat nf) {
+		if (source == null) {
+			return NONE;
+		}
+		AbstractMetricSource[] sources = source.getChildrenHaving(per, metric);
+		sort(sources, metric, per);
+		MetricsTableRow[] result = new MetricsTableRow[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			AbstractMetricSource next = sources[i];
+			MetricsTableRow child = new MetricsTableRow(new String[7]);
+			child.element = next.getJavaElement();
+			child.handle = next.getHandle();
+			child.texts[0] = getElementName(child.element);
+			Metric val = next.getValue(metric);
+			child.texts[1] = (val != null) ? nf.format(val.doubleValue()) : "";
+			Avg avg = next.getAverage(metric, per);
+			child.texts[2] = (avg != null) ? nf.format(avg.doubleValue()) : "";
+			child.texts[3] = (avg != null) ? nf.format(avg.getStandardDeviation()) : "";
+			Max max = next.getMaximum(metric, per);
+			child.texts[4] = (max != null) ? nf.format(max.doubleValue()) : "";
+			if (max != null) {
+				IJavaElement maxElm = JavaCore.create(max.getHandle());
+				child.texts[5] = getPath(maxElm);
+				child.texts[6] = getMethodName(maxElm);
+				child.color = getColor(max);
+			} else {
+				child.texts[5] = "";
+				child.texts[6] = "";
+				child.color = getColor(val);
+			}
+			child.setSource(next, metric, per);
+			result[i] = child;
+		}
+		return result;
+	}
+
+	/**
+	 * The format for the METRICS.decimals preference is only created again after the preferences changed. Formats are not thread safe, so every caller gets its own copy.
+	 * 
+	 * @return NumberFormat
+	 */
+	static synchronized NumberFormat getNumberFormat() {
+		int version = MetricsPlugin.getPreferenceVersion();
+		if ((format == null) || (version != formatVersion)) {
+			format = NumberFormat.getInstance();
+			format.setMaximumFractionDigits(MetricsPlugin.getDefault().getPreferences().getInt("METRICS.decimals"));
+			format.setGroupingUsed(false);
+			formatVersion = version;
+		}
+		return (NumberFormat) format.clone();
+	}
+
+	private static int getColor(Metric metric) {
+		if (metric == null) {
+			return DEFAULT;
+		}
+		MetricDescriptor md = MetricsPlugin.getDefault().getMetricDescriptor(metric.getName());
+		return md.isValueInRange(metric.doubleValue()) ? IN_RANGE : OUT_OF_RANGE;
+	}
+
+	private static String getElementName(IJavaElement element) {
+		String candidate = element.getElementName();
+		if ("".equals(candidate)) {
+			if (element instanceof IType) {
+				return "anonymous";
+			}
+			return "(default package)";
+		}
+		return candidate;
+	}
+
+	private static String getMethodName(IJavaElement element) {
+		return (element.getElementType() == IJavaElement.METHOD) ? element.getElementName() : "";
+	}
+
+	private static String getPath(IJavaElement element) {
+		return element.getPath().toString();
+	}
+
+	/**
+	 * Sort the metrics in descending max/value order, giving preference to max over value (if max exists, use it, otherwise use value)
+	 * 
+	 * @param children
+	 * @param metric
+	 * @param per
+	 */
+	private static void sort(AbstractMetricSource[] children, final String metric, final String per) {
+		Comparator<AbstractMetricSource> c = new Comparator<AbstractMetricSource>() {
+
+			public int compare(AbstractMetricSource o1, AbstractMetricSource o2) {
+				Max max1 = o1.getMaximum(metric, per);
+				Max max2 = o2.getMaximum(metric, per);
+				if ((max1 != null) && (max2 != null)) {
+					return -max1.compareTo(max2);
+				}
+				Metric m1 = o1.getValue(metric);
+				Metric m2 = o2.getValue(metric);
+				if ((m1 != null) && (m2 != null)) {
+					return -m1.compareTo(m2);
+				}
+				if ((max1 != null) && (max2 == null)) {
+					return -1;
+				}
+				if ((m1 != null) && (m2 == null)) {
+					return -1;
+				}
+				return 1;
+			}
+		};
+		Arrays.sort(children, c);
+	}
+}
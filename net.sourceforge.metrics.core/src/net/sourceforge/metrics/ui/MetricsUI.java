@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ui;
+
+import java.io.IOException;
+import java.net.URL;
+
+import net.sourceforge.metrics.core.Log;
+import net.sourceforge.metrics.core.MetricsPlugin;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.preferences.ScopedPreferenceStore;
+
+/**
+ * UI access to the plugin: its images and a preference store for the preference pages and the color preferences. MetricsPlugin needs no UI bundle, so these live here. The store edits the same instance scope node that
+ * MetricsPlugin.getPreferences() reads, so a value changed on a page reaches the calculators through their preference change listeners.
+ * 
+ * @author Metrics2 contributors
+ */
+public class MetricsUI {
+
+	private static IPreferenceStore preferenceStore;
+
+	private MetricsUI() {
+	}
+
+	public static synchronized IPreferenceStore getPreferenceStore() {
+		if (preferenceStore == null) {
+			preferenceStore = new ScopedPreferenceStore(InstanceScope.INSTANCE, MetricsPlugin.getDefault().getBundle().getSymbolicName());
+		}
+		return preferenceStore;
+	}
+
+	public static ImageDescriptor createImage(String name) {
+		return ImageDescriptor.createFromURL(makeImageURL(name));
+	}
+
+	private static URL makeImageURL(String name) {
+		try {
+			return FileLocator.resolve(FileLocator.find(MetricsPlugin.getDefault().getBundle(), new Path("icons/" + name), null));
+		} catch (IOException e) {
+			Log.logError("Can't find image with name " + name, e);
+			return null;
+		}
+	}
+}
@@ -25,26 +25,32 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.Map;
 import java.util.Set;
 
-import net.sourceforge.metrics.builder.IMetricsProgressListener;
+import net.sourceforge.metrics.builder.IMetricsBatchListener;
 import net.sourceforge.metrics.builder.MetricsBuilder;
+import net.sourceforge.metrics.builder.ProgressBatch;
 import net.sourceforge.metrics.core.IExporter;
 import net.sourceforge.metrics.core.Log;
 import net.sourceforge.metrics.core.MetricsPlugin;
 import net.sourceforge.metrics.core.sources.AbstractMetricSource;
+import net.sourceforge.metrics.core.sources.ContentCache;
 import net.sourceforge.metrics.core.sources.Dispatcher;
 import net.sourceforge.metrics.core.sources.IGraphContributor;
+import net.sourceforge.metrics.core.sources.TypeDependencies;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.dialogs.ProgressMonitorDialog;
 import org.eclipse.jface.operation.IRunnableWithProgress;
-import org.eclipse.jface.util.IPropertyChangeListener;
-import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.swt.SWT;
@@ -78,7 +84,7 @@ import org.eclipse.ui.part.ViewPart;
  * 
  * @author Frank Sauer
  */
-public class MetricsView extends ViewPart implements ISelectionListener, IMetricsProgressListener, IPropertyChangeListener {
+public class MetricsView extends ViewPart implements ISelectionListener, IMetricsBatchListener, IPreferenceChangeListener {
 
 	// FIXME GB 04/15/2005 move that const to the approriate place
 	private static String pluginId = MetricsPlugin.getDefault().getBundle().getSymbolicName();
@@ -97,12 +103,15 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 	private Label progressText;
 	private static ArmListener armListener;
 	private static Map<String, Set<String>> currentDependencies;
+	private static TypeDependencies currentTypeDependencies;
 	private IMemento memento;
 	private MetricsActionGroup mActions;
 	private MetricsTable table;
 	private Cursor wait;
 	private Cursor normal;
-	private IJavaElement selection;
+	private volatile IJavaElement selection;
+	// loads the metrics of the selection, see setSelection
+	private Job loadJob;
 
 	/**
 	 * The constructor.
@@ -133,7 +142,7 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 		mActions = new MetricsActionGroup(this);
 		IActionBars actionBars = getViewSite().getActionBars();
 		mActions.fillActionBars(actionBars);
-		MetricsPlugin.getDefault().addPropertyChangeListener(this);
+		MetricsPlugin.getDefault().addPreferenceChangeListener(this);
 		MetricsBuilder.addMetricsProgressListener(this);
 	}
 
@@ -250,15 +259,36 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 		});
 	}
 
+	/**
+	 * Prepare the rows for the metrics in the calling thread and show them
+	 * 
+	 * @param ms
+	 * @param selection
+	 */
 	private void refreshTable(final AbstractMetricSource ms, final IJavaElement selection) {
-		final Display display = Display.getDefault();
-		display.asyncExec(new Runnable() {
+		showRows(MetricsTableRow.createRoots(ms, MetricsTableRow.getNumberFormat()), selection);
+	}
+
+	/**
+	 * Show rows prepared outside of the UI thread, in a single runnable, unless another element was selected in the mean time
+	 * 
+	 * @param rows
+	 * @param element
+	 */
+	private void showRows(final MetricsTableRow[] rows, final IJavaElement element) {
+		Display.getDefault().asyncExec(new Runnable() {
 			public void run() {
-				if (!table.isDisposed()) {
-					table.setMetrics(ms);
-					table.setCursor(getNormalCursor(table.getDisplay()));
-					setPartName(getTitlePrefix(selection).toString());
+				if (table.isDisposed() || (element != selection)) {
+					return;
+				}
+				table.setRows(rows);
+				table.setCursor(getNormalCursor(table.getDisplay()));
+				setPartName(getTitlePrefix(element).toString());
+				if (pageSelector.topControl != tablePage) {
+					pageSelector.topControl = tablePage;
+					cards.layout();
 				}
+				mActions.enable();
 			}
 		});
 	}
@@ -372,17 +402,40 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 		return selection;
 	}
 
+	/**
+	 * Load the metrics of the element in a background job and show them. A load still running for a previous selection is canceled, and its result dropped if it completes anyway.
+	 * 
+	 * @param elm
+	 */
 	protected void setSelection(IJavaElement elm) {
 		if (elm != null) {
 			selection = elm;
 		}
-		AbstractMetricSource ms = Dispatcher.getAbstractMetricSource(selection);
-		if (ms != null) {
-			refreshTable(ms, selection);
-			showTablePage();
-		} else {
-			showExplanationPage();
+		final IJavaElement current = selection;
+		Job job = new Job("Loading metrics") {
+
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				AbstractMetricSource ms = Dispatcher.getAbstractMetricSource(current);
+				if (monitor.isCanceled() || (current != selection)) {
+					return Status.CANCEL_STATUS;
+				}
+				if (ms != null) {
+					showRows(MetricsTableRow.createRoots(ms, MetricsTableRow.getNumberFormat()), current);
+				} else {
+					showExplanationPage();
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		synchronized (this) {
+			if (loadJob != null) {
+				loadJob.cancel();
+			}
+			loadJob = job;
 		}
+		job.schedule();
 	}
 
 	/**
@@ -399,20 +452,6 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 		});
 	}
 
-	/**
-	 * 
-	 */
-	private void showTablePage() {
-		Display.getDefault().asyncExec(new Runnable() {
-
-			public void run() {
-				pageSelector.topControl = tablePage;
-				cards.layout();
-				mActions.enable();
-			}
-		});
-	}
-
 	/**
 	 * display dependency graph as embedded workbench view on Windows, in a separate AWT frame on all other platforms. As of 4/30/04, only 3.0M8+ and embedded style on all platforms
 	 */
@@ -423,6 +462,7 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 		 */
 		// now works the same on all platforms
 		IGraphContributor source = (IGraphContributor) Dispatcher.getAbstractMetricSource(selection);
+		currentTypeDependencies = source.getTypeDependencies();
 		displayDependencyGraphSWT(source.getEfferent());
 	}
 
@@ -462,6 +502,13 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 		return currentDependencies;
 	}
 
+	/**
+	 * @return the type dependencies of the packages in getDependencies(), null if calculated by an older version
+	 */
+	public static TypeDependencies getTypeDependencies() {
+		return currentTypeDependencies;
+	}
+
 	/**
 	 * export the selected metrics to an XML report
 	 */
@@ -528,9 +575,9 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see org.eclipse.jface.util.IPropertyChangeListener#propertyChange(org.eclipse .jface.util.PropertyChangeEvent)
+	 * @see org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener#preferenceChange(org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent)
 	 */
-	public void propertyChange(PropertyChangeEvent event) {
+	public void preferenceChange(PreferenceChangeEvent event) {
 		if (selection != null) {
 			setJavaElement(selection, true);
 		}
@@ -570,13 +617,13 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 		});
 	}
 
-	private void incProgressBar() {
+	private void incProgressBar(final int work) {
 		Display d = Display.getDefault();
 		d.asyncExec(new Runnable() {
 
 			public void run() {
 				if (!progressBar.isDisposed()) {
-					progressBar.setSelection(progressBar.getSelection() + 1);
+					progressBar.setSelection(progressBar.getSelection() + work);
 				}
 			}
 		});
@@ -605,7 +652,32 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 			refreshTable(ms, selection);
 		}
 		queued--;
-		incProgressBar();
+		incProgressBar(1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.sourceforge.metrics.builder.IMetricsBatchListener#progress(net.sourceforge.metrics.builder.ProgressBatch)
+	 */
+	public void progress(ProgressBatch batch) {
+		queued -= batch.getCompletedCount();
+		IJavaElement current = batch.getLatestPending();
+		IJavaElement last = batch.getLatestCompleted();
+		if ((current != null) && !current.equals(last)) {
+			setStatus("Queued: " + queued + "\tCalculating now: " + current.getElementName(), shouldBeBusy(current));
+		} else if (last != null) {
+			setStatus("completed " + last.getElementName(), shouldBeBusy(last));
+		}
+		if (selection != null) {
+			Object data = batch.getData(selection);
+			if (data != null) {
+				refreshTable((AbstractMetricSource) data, selection);
+			}
+		}
+		if (batch.getCompletedCount() > 0) {
+			incProgressBar(batch.getCompletedCount());
+		}
 	}
 
 	public void queued(int count) {
@@ -616,7 +688,9 @@ public class MetricsView extends ViewPart implements ISelectionListener, IMetric
 	public void projectComplete(IJavaProject project, boolean aborted) {
 		// Log.logMessage("Got projectComplete event.");
 		queued = 0;
-		setStatus("", false);
+		ContentCache contents = ContentCache.singleton;
+		// show how many units could be restored instead of recalculated
+		setStatus((contents.getHits() + contents.getMisses() > 0) ? contents.getStatistics() : "", false);
 		resetProgressBar();
 		// force rendering of completed project
 		boolean showProject = MetricsPlugin.getDefault().showProjectOnCompletion();
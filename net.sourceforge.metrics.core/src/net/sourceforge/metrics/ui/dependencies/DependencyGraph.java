@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ui.dependencies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+
+import classycle.graph.AtomicVertex;
+import classycle.graph.Attributes;
+import classycle.graph.CompactGraph;
+import classycle.graph.StrongComponent;
+import classycle.graph.StrongComponentProcessor;
+
+/**
+ * The graph of a dependency map (name to the names it depends on) as used by the dependency views and the XML export. Names are numbered in the order they are first seen and the arcs are kept in a CompactGraph. The
+ * {@link AtomicVertex} form and the strong components are only created when asked for.
+ * 
+ * @author Metrics2 contributors
+ */
+public class DependencyGraph {
+
+	private String[] names;
+	private Map<String, Integer> index;
+	private CompactGraph graph;
+	private AtomicVertex[] vertices;
+	private StrongComponentProcessor components;
+
+	/**
+	 * @param efferent
+	 *            name -> names it depends on
+	 */
+	public DependencyGraph(Map<String, Set<String>> efferent) {
+		index = new HashMap<String, Integer>();
+		List<String> order = new ArrayList<String>();
+		List<Integer> degrees = new ArrayList<Integer>();
+		int arcs = 0;
+		for (Entry<String, Set<String>> entry : efferent.entrySet()) {
+			int from = getOrAdd(entry.getKey(), order, degrees);
+			degrees.set(from, Integer.valueOf(entry.getValue().size()));
+			arcs += entry.getValue().size();
+			for (String dep : entry.getValue()) {
+				getOrAdd(dep, order, degrees);
+			}
+		}
+		int size = order.size();
+		names = order.toArray(new String[size]);
+		int[] offsets = new int[size + 1];
+		for (int v = 0; v < size; v++) {
+			offsets[v + 1] = offsets[v] + degrees.get(v).intValue();
+		}
+		int[] heads = new int[arcs];
+		for (Entry<String, Set<String>> entry : efferent.entrySet()) {
+			int next = offsets[index.get(entry.getKey()).intValue()];
+			for (String dep : entry.getValue()) {
+				heads[next++] = index.get(dep).intValue();
+			}
+		}
+		graph = new CompactGraph(size, offsets, heads);
+	}
+
+	private int getOrAdd(String name, List<String> order, List<Integer> degrees) {
+		Integer result = index.get(name);
+		if (result == null) {
+			result = Integer.valueOf(order.size());
+			index.put(name, result);
+			order.add(name);
+			degrees.add(Integer.valueOf(0));
+		}
+		return result.intValue();
+	}
+
+	/**
+	 * @return number of names
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int vertex) {
+		return names[vertex];
+	}
+
+	/**
+	 * @param name
+	 * @return vertex number of the name or -1 if it is not in the graph
+	 */
+	public int getIndex(String name) {
+		Integer result = index.get(name);
+		return (result == null) ? -1 : result.intValue();
+	}
+
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the graph as vertices with PackageAttributes, in vertex number order
+	 */
+	public synchronized AtomicVertex[] getVertices() {
+		if (vertices == null) {
+			Attributes[] attributes = new Attributes[names.length];
+			for (int v = 0; v < names.length; v++) {
+				attributes[v] = new PackageAttributes(names[v]);
+			}
+			vertices = graph.createVertices(attributes);
+		}
+		return vertices;
+	}
+
+	/**
+	 * @return the strongly connected components, a cycle being a component with more than one vertex
+	 */
+	public synchronized StrongComponent[] getStrongComponents() {
+		return getComponents().getStrongComponents();
+	}
+
+	/**
+	 * @param name
+	 * @return index in getStrongComponents() of the component containing the name, -1 if it is not in the graph
+	 */
+	public int getComponentIndex(String name) {
+		int vertex = getIndex(name);
+		return (vertex == -1) ? -1 : getComponents().getComponentIndex(vertex);
+	}
+
+	private synchronized StrongComponentProcessor getComponents() {
+		if (components == null) {
+			// the geometry of a tangle is only calculated when it is displayed or exported
+			components = new StrongComponentProcessor(true);
+			components.process(getVertices(), graph);
+		}
+		return components;
+	}
+}
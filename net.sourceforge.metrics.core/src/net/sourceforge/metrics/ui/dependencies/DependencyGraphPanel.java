@@ -26,25 +26,21 @@ import java.awt.MenuItem;
 import java.awt.PopupMenu;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 
 import net.sourceforge.metrics.core.Log;
-import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.core.sources.TypeDependencies;
+import net.sourceforge.metrics.ui.MetricsUI;
 
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jface.preference.PreferenceConverter;
 import org.eclipse.swt.graphics.RGB;
 
-import classycle.graph.AtomicVertex;
 import classycle.graph.StrongComponent;
-import classycle.graph.StrongComponentProcessor;
 import classycle.graph.Vertex;
 
 import com.touchgraph.graphlayout.Edge;
@@ -61,8 +57,10 @@ public class DependencyGraphPanel extends GLPanel {
 	private static final long serialVersionUID = 4131385063548963525L;
 	private MenuItem topo;
 	private Vertex[] vgraph;
+	private DependencyGraph dependencyGraph;
 	private Menu tangleMenu;
 	private boolean showDetailMenu = true;
+	private TypeDependencies typeDependencies;
 
 	public DependencyGraphPanel() {
 		super();
@@ -151,6 +149,28 @@ public class DependencyGraphPanel extends GLPanel {
 		}
 	}
 
+	/**
+	 * @return the graph currently shown
+	 */
+	public DependencyGraph getDependencyGraph() {
+		return dependencyGraph;
+	}
+
+	/**
+	 * @return the type dependencies used to analyze the details of a tangle
+	 */
+	public TypeDependencies getTypeDependencies() {
+		return typeDependencies;
+	}
+
+	/**
+	 * @param typeDependencies
+	 *            the type dependencies of the packages shown next
+	 */
+	public void setTypeDependencies(TypeDependencies typeDependencies) {
+		this.typeDependencies = typeDependencies;
+	}
+
 	/**
 	 * @param dependencies
 	 * @param packages
@@ -216,34 +236,9 @@ public class DependencyGraphPanel extends GLPanel {
 	 * @return
 	 */
 	private StrongComponent[] calculateCycles(Map<String, Set<String>> efferent) {
-		List<Vertex> graph = new ArrayList<Vertex>();
-		Map<String, Vertex> done = new HashMap<String, Vertex>();
-		for( Iterator<Entry<String, Set<String>>> iterEntry = efferent.entrySet().iterator(); iterEntry.hasNext();){
-			Entry<String, Set<String>> entry= iterEntry.next();
-			String key = entry.getKey();
-			Vertex from = done.get(key);
-			if (from == null) {
-				from = new AtomicVertex(new PackageAttributes(key));
-				done.put(key, from);
-				graph.add(from);
-			}
-			Set<String> deps = entry.getValue();
-			for (Iterator<String> j = deps.iterator(); j.hasNext();) {
-				String dep = j.next();
-				Vertex to = done.get(dep);
-				if (to == null) {
-					to = new AtomicVertex(new PackageAttributes(dep));
-					done.put(dep, to);
-					graph.add(to);
-				}
-				from.addOutgoingArcTo(to);
-			}
-		}
-		vgraph = graph.toArray(new Vertex[] {});
-		StrongComponentProcessor scp = new StrongComponentProcessor();
-		scp.deepSearchFirst(vgraph);
-		StrongComponent[] comps = scp.getStrongComponents();
-		return comps;
+		dependencyGraph = new DependencyGraph(efferent);
+		vgraph = dependencyGraph.getVertices();
+		return dependencyGraph.getStrongComponents();
 	}
 
 	/**
@@ -350,20 +345,9 @@ public class DependencyGraphPanel extends GLPanel {
 	 * @return index of component if one exists, otherwise -1
 	 */
 	private int isStrong(Node from, Node to, StrongComponent[] comps) {
-		for (int i = 0; i < comps.length; i++) {
-			int count = 0;
-			for (int j = 0; j < comps[i].getNumberOfVertices(); j++) {
-				Vertex v = comps[i].getVertex(j);
-				if (v.getAttributes().equals(from.getID())) {
-					count++;
-				}
-				if (v.getAttributes().equals(to.getID())) {
-					count++;
-				}
-			}
-			if (count == 2) {
-				return i;
-			}
+		int strong = dependencyGraph.getComponentIndex(from.getID());
+		if ((strong >= 0) && (strong == dependencyGraph.getComponentIndex(to.getID()))) {
+			return strong;
 		}
 		return -1;
 	}
@@ -393,7 +377,7 @@ public class DependencyGraphPanel extends GLPanel {
 	}
 
 	private Color getGraphBackground() {
-		RGB color = PreferenceConverter.getColor(MetricsPlugin.getDefault().getPreferenceStore(), "METRICS.depGR_background");
+		RGB color = PreferenceConverter.getColor(MetricsUI.getPreferenceStore(), "METRICS.depGR_background");
 		return new Color(color.red, color.green, color.blue);
 	}
 }
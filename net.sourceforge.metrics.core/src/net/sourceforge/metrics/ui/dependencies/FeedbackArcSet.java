@@ -0,0 +1,562 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ui.dependencies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.metrics.core.sources.TypeDependencies;
+
+import classycle.graph.CompactGraph;
+import classycle.graph.StrongComponent;
+
+/**
+ * Suggests the package dependencies to cut to break all cycles of a tangle, a heuristic minimum weight feedback arc set. Each dependency weighs the number of type dependencies it stands for, so cheap cuts are preferred.
+ * <p>
+ * The packages are first ordered by the weighted heuristic of Eades, Lin and Smyth (sinks last, sources first, otherwise the package with the largest surplus of outgoing over incoming weight), the dependencies pointing
+ * backwards in that order break all cycles. The order is then improved by moving single packages to their best position until no move helps, and finally every cut that can be restored without closing a cycle is restored.
+ * The local search stops when its time is up or, if a number of moves is set as well, when the moves are used up; the cuts found so far remain valid. Only a search limited by moves alone always gives the same cuts
+ * for the same graph.
+ * 
+ * @author Metrics2 contributors
+ */
+public class FeedbackArcSet {
+
+	private String[] names;
+	private int size;
+	private int[] offsets;
+	private int[] heads;
+	private int[] weights;
+	private int[] inOffsets;
+	private int[] tails;
+	private int[] inWeights;
+	private int[] order;
+	private boolean[] cut;
+	private boolean complete;
+	private int moves;
+	private long deadline;
+
+	/**
+	 * @param graph
+	 *            the package dependency graph
+	 * @param members
+	 *            the packages of the tangle
+	 * @param counts
+	 *            from package -> to package -> number of type dependencies, dependencies not in it weigh 1
+	 */
+	public FeedbackArcSet(DependencyGraph graph, Collection<String> members, Map<String, Map<String, Integer>> counts) {
+		int[] local = new int[graph.size()];
+		Arrays.fill(local, -1);
+		List<String> found = new ArrayList<String>();
+		for (String name : members) {
+			int vertex = graph.getIndex(name);
+			if ((vertex != -1) && (local[vertex] == -1)) {
+				local[vertex] = found.size();
+				found.add(name);
+			}
+		}
+		size = found.size();
+		names = found.toArray(new String[size]);
+		CompactGraph g = graph.getGraph();
+		offsets = new int[size + 1];
+		inOffsets = new int[size + 1];
+		for (int v = 0; v < size; v++) {
+			int vertex = graph.getIndex(names[v]);
+			for (int a = g.getFirstArc(vertex); a < g.getEndArc(vertex); a++) {
+				int head = local[g.getHead(a)];
+				if ((head != -1) && (head != v)) {
+					offsets[v + 1]++;
+					inOffsets[head + 1]++;
+				}
+			}
+		}
+		for (int v = 0; v < size; v++) {
+			offsets[v + 1] += offsets[v];
+			inOffsets[v + 1] += inOffsets[v];
+		}
+		heads = new int[offsets[size]];
+		weights = new int[heads.length];
+		tails = new int[heads.length];
+		inWeights = new int[heads.length];
+		int[] nextIn = new int[size];
+		System.arraycopy(inOffsets, 0, nextIn, 0, size);
+		int next = 0;
+		for (int v = 0; v < size; v++) {
+			int vertex = graph.getIndex(names[v]);
+			Map<String, Integer> from = (counts == null) ? null : counts.get(names[v]);
+			for (int a = g.getFirstArc(vertex); a < g.getEndArc(vertex); a++) {
+				int head = local[g.getHead(a)];
+				if ((head != -1) && (head != v)) {
+					Integer count = (from == null) ? null : from.get(names[head]);
+					int weight = ((count == null) || (count.intValue() < 1)) ? 1 : count.intValue();
+					heads[next] = head;
+					weights[next++] = weight;
+					tails[nextIn[head]] = v;
+					inWeights[nextIn[head]++] = weight;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the cuts for a tangle of the graph, weighted by the type dependencies between its packages
+	 * 
+	 * @param graph
+	 * @param tangle
+	 *            a strong component of graph.getStrongComponents()
+	 * @param types
+	 *            may be null, all dependencies then weigh 1
+	 * @param millis
+	 *            milliseconds available for the local search, 0 for no limit
+	 * @param moves
+	 *            number of moves available for the local search, 0 for no limit
+	 * @return the solved FeedbackArcSet
+	 */
+	public static FeedbackArcSet solve(DependencyGraph graph, StrongComponent tangle, TypeDependencies types, int millis, int moves) {
+		List<String> members = new ArrayList<String>();
+		for (int i = 0; i < tangle.getNumberOfVertices(); i++) {
+			members.add(tangle.getVertex(i).getAttributes().toString());
+		}
+		Map<String, Map<String, Integer>> counts = (types == null) ? null : types.countReferences(members);
+		FeedbackArcSet result = new FeedbackArcSet(graph, members, counts);
+		result.solve(millis, (moves > 0) ? moves : Integer.MAX_VALUE);
+		return result;
+	}
+
+	/**
+	 * Improve the initial order for at most the given number of moves, without a time limit
+	 * 
+	 * @param budget
+	 *            number of single package moves tried for improving the initial order
+	 */
+	public void solve(int budget) {
+		solve(0, budget);
+	}
+
+	/**
+	 * @param millis
+	 *            milliseconds available for improving the initial order, 0 for no limit
+	 * @param budget
+	 *            number of single package moves tried for improving the initial order
+	 */
+	public void solve(long millis, int budget) {
+		moves = budget;
+		deadline = (millis > 0) ? System.currentTimeMillis() + millis : Long.MAX_VALUE;
+		order = orderByDegrees();
+		complete = sift();
+		restore();
+	}
+
+	/**
+	 * @return false if the time or the moves ran out before the local search was done
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return the suggested cuts, fewest type dependencies first
+	 */
+	public Cut[] getCuts() {
+		List<Cut> result = new ArrayList<Cut>();
+		for (int v = 0; v < size; v++) {
+			for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+				if (cut[a]) {
+					result.add(new Cut(names[v], names[heads[a]], weights[a]));
+				}
+			}
+		}
+		Cut[] cuts = result.toArray(new Cut[result.size()]);
+		Arrays.sort(cuts, new Comparator<Cut>() {
+
+			public int compare(Cut c1, Cut c2) {
+				if (c1.references != c2.references) {
+					return (c1.references < c2.references) ? -1 : 1;
+				}
+				int from = c1.from.compareTo(c2.from);
+				return (from != 0) ? from : c1.to.compareTo(c2.to);
+			}
+		});
+		return cuts;
+	}
+
+	/**
+	 * @return the sum of the weights of all cuts
+	 */
+	public int getWeight() {
+		int result = 0;
+		for (int a = 0; a < heads.length; a++) {
+			if (cut[a]) {
+				result += weights[a];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Eades, Lin and Smyth with weighted degrees: sinks are prepended to the tail, sources appended to the head, otherwise the vertex with the largest outgoing minus incoming weight is appended to the head
+	 * 
+	 * @return vertices in order
+	 */
+	private int[] orderByDegrees() {
+		int[] outDegree = new int[size];
+		int[] inDegree = new int[size];
+		int[] delta = new int[size];
+		for (int v = 0; v < size; v++) {
+			outDegree[v] = offsets[v + 1] - offsets[v];
+			inDegree[v] = inOffsets[v + 1] - inOffsets[v];
+			for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+				delta[v] += weights[a];
+			}
+			for (int a = inOffsets[v]; a < inOffsets[v + 1]; a++) {
+				delta[v] -= inWeights[a];
+			}
+		}
+		Heap heap = new Heap(delta);
+		boolean[] removed = new boolean[size];
+		int[] sinks = new int[size];
+		int[] sources = new int[size];
+		int sinkCount = 0;
+		int sourceCount = 0;
+		for (int v = 0; v < size; v++) {
+			if (outDegree[v] == 0) {
+				sinks[sinkCount++] = v;
+			} else if (inDegree[v] == 0) {
+				sources[sourceCount++] = v;
+			}
+		}
+		int[] result = new int[size];
+		int head = 0;
+		int tail = size;
+		while (head < tail) {
+			int v;
+			boolean last = false;
+			if (sinkCount > 0) {
+				v = sinks[--sinkCount];
+				last = true;
+			} else if (sourceCount > 0) {
+				v = sources[--sourceCount];
+			} else {
+				v = heap.top();
+			}
+			if (removed[v]) {
+				continue;
+			}
+			removed[v] = true;
+			heap.remove(v);
+			if (last) {
+				result[--tail] = v;
+			} else {
+				result[head++] = v;
+			}
+			for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+				int w = heads[a];
+				if (!removed[w]) {
+					delta[w] += weights[a];
+					heap.update(w);
+					if (--inDegree[w] == 0) {
+						sources[sourceCount++] = w;
+					}
+				}
+			}
+			for (int a = inOffsets[v]; a < inOffsets[v + 1]; a++) {
+				int w = tails[a];
+				if (!removed[w]) {
+					delta[w] -= inWeights[a];
+					heap.update(w);
+					if (--outDegree[w] == 0) {
+						sinks[sinkCount++] = w;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Move single vertices to the position with the least weight of backward arcs until no move improves the order
+	 * 
+	 * @return false if the time or the moves ran out
+	 */
+	private boolean sift() {
+		int[] position = new int[size];
+		int[] out = new int[size];
+		int[] in = new int[size];
+		int[] rest = new int[size];
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			for (int v = 0; v < size; v++) {
+				if ((moves-- <= 0) || (System.currentTimeMillis() > deadline)) {
+					markBackwardArcs();
+					return false;
+				}
+				for (int i = 0; i < size; i++) {
+					position[order[i]] = i;
+				}
+				for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+					out[heads[a]] += weights[a];
+				}
+				int cost = 0;
+				for (int a = inOffsets[v]; a < inOffsets[v + 1]; a++) {
+					in[tails[a]] += inWeights[a];
+					cost += inWeights[a];
+				}
+				// rest is the order without v, gap g puts v in front of rest[g]
+				int at = position[v];
+				System.arraycopy(order, 0, rest, 0, at);
+				System.arraycopy(order, at + 1, rest, at, size - at - 1);
+				int best = at;
+				int bestCost = Integer.MAX_VALUE;
+				int current = 0;
+				for (int g = 0; g < size; g++) {
+					if (g == at) {
+						current = cost;
+					}
+					if (cost < bestCost) {
+						best = g;
+						bestCost = cost;
+					}
+					if (g < size - 1) {
+						int x = rest[g];
+						cost += out[x] - in[x];
+					}
+				}
+				if (bestCost < current) {
+					System.arraycopy(rest, 0, order, 0, best);
+					order[best] = v;
+					System.arraycopy(rest, best, order, best + 1, size - best - 1);
+					improved = true;
+				}
+				for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+					out[heads[a]] = 0;
+				}
+				for (int a = inOffsets[v]; a < inOffsets[v + 1]; a++) {
+					in[tails[a]] = 0;
+				}
+			}
+		}
+		markBackwardArcs();
+		return true;
+	}
+
+	private void markBackwardArcs() {
+		int[] position = new int[size];
+		for (int i = 0; i < size; i++) {
+			position[order[i]] = i;
+		}
+		cut = new boolean[heads.length];
+		for (int v = 0; v < size; v++) {
+			for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+				cut[a] = position[heads[a]] < position[v];
+			}
+		}
+	}
+
+	/**
+	 * Restore the cuts, heaviest first, whose head does not reach their tail without them. This always runs, most redundant cuts are left when the local search was stopped early.
+	 */
+	private void restore() {
+		List<Integer> cuts = new ArrayList<Integer>();
+		final int[] tailOf = new int[heads.length];
+		for (int v = 0; v < size; v++) {
+			for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+				tailOf[a] = v;
+				if (cut[a]) {
+					cuts.add(Integer.valueOf(a));
+				}
+			}
+		}
+		Collections.sort(cuts, new Comparator<Integer>() {
+
+			public int compare(Integer a1, Integer a2) {
+				return weights[a2.intValue()] - weights[a1.intValue()];
+			}
+		});
+		int[] visited = new int[size];
+		int[] queue = new int[size];
+		int stamp = 0;
+		for (Integer next : cuts) {
+			int a = next.intValue();
+			stamp++;
+			if (!reaches(heads[a], tailOf[a], visited, stamp, queue)) {
+				cut[a] = false;
+			}
+		}
+	}
+
+	/**
+	 * Breadth first search over the arcs not cut
+	 */
+	private boolean reaches(int from, int to, int[] visited, int stamp, int[] queue) {
+		int first = 0;
+		int last = 0;
+		queue[last++] = from;
+		visited[from] = stamp;
+		while (first < last) {
+			int v = queue[first++];
+			if (v == to) {
+				return true;
+			}
+			for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+				int w = heads[a];
+				if (!cut[a] && (visited[w] != stamp)) {
+					visited[w] = stamp;
+					queue[last++] = w;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A package dependency suggested for removal
+	 */
+	public static class Cut {
+
+		private String from;
+		private String to;
+		private int references;
+
+		Cut(String from, String to, int references) {
+			this.from = from;
+			this.to = to;
+			this.references = references;
+		}
+
+		public String getFrom() {
+			return from;
+		}
+
+		public String getTo() {
+			return to;
+		}
+
+		/**
+		 * @return number of type dependencies from the from package to the to package
+		 */
+		public int getReferences() {
+			return references;
+		}
+
+		@Override
+		public String toString() {
+			return from + " -> " + to + " (" + references + ")";
+		}
+	}
+
+	/**
+	 * Indexed binary max-heap of vertices by key, lower vertex numbers first on equal keys
+	 */
+	private static class Heap {
+
+		private int[] keys;
+		private int[] heap;
+		private int[] at;
+		private int count;
+
+		Heap(int[] keys) {
+			this.keys = keys;
+			count = keys.length;
+			heap = new int[count];
+			at = new int[count];
+			for (int v = 0; v < count; v++) {
+				heap[v] = v;
+				at[v] = v;
+			}
+			for (int i = count / 2 - 1; i >= 0; i--) {
+				down(i);
+			}
+		}
+
+		int top() {
+			return heap[0];
+		}
+
+		void remove(int v) {
+			int i = at[v];
+			if (i == -1) {
+				return;
+			}
+			at[v] = -1;
+			count--;
+			if (i < count) {
+				heap[i] = heap[count];
+				at[heap[i]] = i;
+				down(i);
+				up(i);
+			}
+		}
+
+		/**
+		 * restore the heap order after the key of v changed
+		 */
+		void update(int v) {
+			int i = at[v];
+			if (i != -1) {
+				up(i);
+				down(at[v]);
+			}
+		}
+
+		private boolean above(int v, int w) {
+			return (keys[v] > keys[w]) || ((keys[v] == keys[w]) && (v < w));
+		}
+
+		private void up(int i) {
+			int v = heap[i];
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (!above(v, heap[parent])) {
+					break;
+				}
+				heap[i] = heap[parent];
+				at[heap[i]] = i;
+				i = parent;
+			}
+			heap[i] = v;
+			at[v] = i;
+		}
+
+		private void down(int i) {
+			int v = heap[i];
+			while (2 * i + 1 < count) {
+				int child = 2 * i + 1;
+				if ((child + 1 < count) && above(heap[child + 1], heap[child])) {
+					child++;
+				}
+				if (!above(heap[child], v)) {
+					break;
+				}
+				heap[i] = heap[child];
+				at[heap[i]] = i;
+				i = child;
+			}
+			heap[i] = v;
+			at[v] = i;
+		}
+	}
+}
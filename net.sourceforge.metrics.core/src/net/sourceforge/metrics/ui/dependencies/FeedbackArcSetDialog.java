@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ui.dependencies;
+
+import net.sourceforge.metrics.ui.dependencies.FeedbackArcSet.Cut;
+
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.dialogs.IMessageProvider;
+import org.eclipse.jface.dialogs.TitleAreaDialog;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.ListViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.dnd.Clipboard;
+import org.eclipse.swt.dnd.TextTransfer;
+import org.eclipse.swt.dnd.Transfer;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+/**
+ * Dialog to show the package dependencies suggested for removal to break a tangle
+ * 
+ * @author Metrics2 contributors
+ */
+public class FeedbackArcSetDialog extends TitleAreaDialog {
+
+	private static final int COLUMN_WIDTH = 60;
+
+	private FeedbackArcSet feedbackArcSet;
+	private Cut[] cuts;
+	private ListViewer cutsV;
+
+	public static void showUI(final FeedbackArcSet feedbackArcSet) {
+		final Display d = Display.getDefault();
+		d.syncExec(new Runnable() {
+
+			public void run() {
+				Shell shell = new Shell(d);
+				FeedbackArcSetDialog fd = new FeedbackArcSetDialog(shell, feedbackArcSet);
+				fd.open();
+			}
+		});
+	}
+
+	public FeedbackArcSetDialog(Shell parent, FeedbackArcSet feedbackArcSet) {
+		super(parent);
+		this.feedbackArcSet = feedbackArcSet;
+		this.cuts = feedbackArcSet.getCuts();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.dialogs.Dialog#createDialogArea(org.eclipse.swt.widgets .Composite)
+	 */
+	@Override
+	protected Control createDialogArea(Composite parent) {
+		Composite composite = (Composite) super.createDialogArea(parent);
+		Composite c = new Composite(composite, SWT.NONE);
+		c.setLayout(new GridLayout());
+		cutsV = createListViewer(parent, c);
+		cutsV.setLabelProvider(new CutLabelProvider());
+		cutsV.add(cuts);
+		setTitle("Removing these " + cuts.length + " dependencies (" + feedbackArcSet.getWeight() + " type dependencies) breaks all cycles.");
+		if (!feedbackArcSet.isComplete()) {
+			setMessage("The local search ran out of time or moves, fewer or cheaper cuts may exist.", IMessageProvider.WARNING);
+		}
+		return composite;
+	}
+
+	private ListViewer createListViewer(Composite parent, Composite c) {
+		ListViewer v = new ListViewer(c, SWT.MULTI | SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL);
+		v.getList().setFont(parent.getFont());
+		GridData data = new GridData(GridData.FILL_BOTH);
+		data.heightHint = convertHeightInCharsToPixels(20);
+		data.widthHint = convertWidthInCharsToPixels(COLUMN_WIDTH);
+		data.grabExcessHorizontalSpace = true;
+		v.getList().setLayoutData(data);
+		return v;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.window.Window#configureShell(org.eclipse.swt.widgets .Shell)
+	 */
+	@Override
+	protected void configureShell(Shell newShell) {
+		super.configureShell(newShell);
+		newShell.setText("Suggested Cuts");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.dialogs.Dialog#createButtonsForButtonBar(org.eclipse .swt.widgets.Composite)
+	 */
+	@Override
+	protected void createButtonsForButtonBar(Composite parent) {
+		Button copyButton = createButton(parent, IDialogConstants.DETAILS_ID, "Copy to Clipboard", false);
+		createButton(parent, IDialogConstants.OK_ID, "OK", true);
+		copyButton.addSelectionListener(new SelectionListener() {
+
+			public void widgetSelected(SelectionEvent e) {
+				copyToClipboard();
+			}
+
+			public void widgetDefaultSelected(SelectionEvent e) {
+			}
+		});
+		copyButton.setEnabled(cuts.length > 0);
+	}
+
+	protected void copyToClipboard() {
+		Clipboard clipboard = new Clipboard(getShell().getDisplay());
+		StringBuffer b = new StringBuffer();
+		CutLabelProvider clp = new CutLabelProvider();
+		for (Cut element : cuts) {
+			b.append(clp.getText(element)).append("\n");
+		}
+		TextTransfer textTransfer = TextTransfer.getInstance();
+		clipboard.setContents(new Object[] { b.toString() }, new Transfer[] { textTransfer });
+		clipboard.dispose();
+	}
+
+	static class CutLabelProvider extends LabelProvider {
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.eclipse.jface.viewers.ILabelProvider#getText(java.lang.Object)
+		 */
+		@Override
+		public String getText(Object element) {
+			if (element instanceof Cut) {
+				Cut cut = (Cut) element;
+				return getLabel(cut.getFrom()) + " -> " + getLabel(cut.getTo()) + " (" + cut.getReferences() + ")";
+			}
+			return super.getText(element);
+		}
+
+		private String getLabel(String packageName) {
+			return (packageName.length() == 0) ? "(Default Package)" : packageName;
+		}
+	}
+}
@@ -29,6 +29,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import net.sourceforge.metrics.core.MetricsPlugin;
+
 import classycle.graph.StrongComponent;
 
 import com.touchgraph.graphlayout.Node;
@@ -109,7 +111,8 @@ public class Knot extends Node {
 			}
 		});
 
-		if (showDetail) {
+		// the details and cuts need the dependency panel, the layered view has none
+		if (showDetail && (panel != null)) {
 			final MenuItem analyze = new MenuItem("Analyze Details");
 			nodePopup.add(analyze);
 			analyze.addActionListener(new ActionListener() {
@@ -118,17 +121,28 @@ public class Knot extends Node {
 					analyze();
 				}
 			});
+			final MenuItem cuts = new MenuItem("Suggest Cuts");
+			nodePopup.add(cuts);
+			cuts.addActionListener(new ActionListener() {
+
+				public void actionPerformed(ActionEvent e) {
+					suggestCuts();
+				}
+			});
 		}
 	}
 
 	private void analyze() {
+		if (panel == null) {
+			return;
+		}
 		Thread t = new Thread(new Runnable() {
 
 			public void run() {
 				Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
 				Map<String, Set<String>> packages = new HashMap<String, Set<String>>();
-				new TangleAnalyzer(cycle, dependencies, packages).analyze();
-				if (dependencies.size() > 0) { // 0 if cancelled by user
+				new TangleAnalyzer(cycle, panel.getTypeDependencies(), dependencies, packages).analyze();
+				if (dependencies.size() > 0) { // 0 if the types are not known
 					try {
 						panel.createDependencies(dependencies, packages);
 					} catch (TGException e) {
@@ -140,6 +154,22 @@ public class Knot extends Node {
 		t.start();
 	}
 
+	private void suggestCuts() {
+		if (panel == null) {
+			return;
+		}
+		Thread t = new Thread(new Runnable() {
+
+			public void run() {
+				int millis = MetricsPlugin.getDefault().getPreferences().getInt("METRICS.cutBudget");
+				int moves = MetricsPlugin.getDefault().getPreferences().getInt("METRICS.cutMoves");
+				FeedbackArcSet cuts = FeedbackArcSet.solve(panel.getDependencyGraph(), cycle, panel.getTypeDependencies(), millis, moves);
+				FeedbackArcSetDialog.showUI(cuts);
+			}
+		});
+		t.start();
+	}
+
 	private void findShortestPath() {
 		Thread t = new Thread(new Runnable() {
 
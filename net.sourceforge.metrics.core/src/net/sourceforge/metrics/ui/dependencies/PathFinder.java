@@ -1,9 +1,6 @@
 package net.sourceforge.metrics.ui.dependencies;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 
 import org.eclipse.swt.widgets.Display;
@@ -13,13 +10,29 @@ import classycle.graph.StrongComponent;
 import classycle.graph.Vertex;
 
 /**
- * Finds shortest paths in a strong component
+ * Finds shortest paths in a strong component. The vertices are numbered in the order of getVertices() and their arcs copied into arrays once, arcs leaving the given vertices are ignored. The searches reuse the same
+ * parent and distance arrays, so a PathFinder is not meant to be shared between threads without the synchronization provided here.
  * 
  * @author Frank Sauer
  */
 public class PathFinder {
 
 	private Vertex[] graph;
+	private Map<Vertex, Integer> index;
+	private int[] offsets;
+	private int[] heads;
+	private int[] inOffsets;
+	private int[] tails;
+	// search state, a vertex is reached by a search if its stamp is the current one
+	private int stamp;
+	private int[] forwardStamp;
+	private int[] backwardStamp;
+	private int[] forwardDistance;
+	private int[] backwardDistance;
+	private int[] parent;
+	private int[] next;
+	private int[] forwardQueue;
+	private int[] backwardQueue;
 
 	public PathFinder(StrongComponent cycle) {
 		this(getVerticesFromCycle(cycle));
@@ -27,6 +40,51 @@ public class PathFinder {
 
 	public PathFinder(Vertex[] graph) {
 		this.graph = graph;
+		int size = graph.length;
+		index = new HashMap<Vertex, Integer>();
+		for (int v = 0; v < size; v++) {
+			index.put(graph[v], Integer.valueOf(v));
+		}
+		offsets = new int[size + 1];
+		inOffsets = new int[size + 1];
+		int[] targets = new int[16];
+		int arcs = 0;
+		for (int v = 0; v < size; v++) {
+			for (int a = 0; a < graph[v].getNumberOfOutgoingArcs(); a++) {
+				Integer head = index.get(graph[v].getHeadVertex(a));
+				if (head != null) {
+					if (arcs == targets.length) {
+						int[] grown = new int[arcs * 2];
+						System.arraycopy(targets, 0, grown, 0, arcs);
+						targets = grown;
+					}
+					targets[arcs++] = head.intValue();
+					inOffsets[head.intValue() + 1]++;
+				}
+			}
+			offsets[v + 1] = arcs;
+		}
+		heads = new int[arcs];
+		System.arraycopy(targets, 0, heads, 0, arcs);
+		for (int v = 0; v < size; v++) {
+			inOffsets[v + 1] += inOffsets[v];
+		}
+		tails = new int[arcs];
+		int[] fill = new int[size];
+		System.arraycopy(inOffsets, 0, fill, 0, size);
+		for (int v = 0; v < size; v++) {
+			for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+				tails[fill[heads[a]]++] = v;
+			}
+		}
+		forwardStamp = new int[size];
+		backwardStamp = new int[size];
+		forwardDistance = new int[size];
+		backwardDistance = new int[size];
+		parent = new int[size];
+		next = new int[size];
+		forwardQueue = new int[size];
+		backwardQueue = new int[size];
 	}
 
 	public Vertex[] getVertices() {
@@ -44,7 +102,7 @@ public class PathFinder {
 	/**
 	 * Should only be called with from and to as vertices of the strong component used to create this TangleAnalyzer, otherwise no guarantee exists that a path can be found. Since all vertices in a strong component are reachable from each
 	 * other, there must be a shortest path from every vertex of the tangle to every other vertex of the tangle, and this method should therefore never return null. Just in case, if no path is found, this method returns null. This method
-	 * implements the breadth-first search from Cormen et al page 470
+	 * implements a bidirectional breadth-first search, growing the smaller of the two frontiers one level at a time until they meet
 	 * 
 	 * @param from
 	 *            starting vertex
@@ -52,87 +110,132 @@ public class PathFinder {
 	 *            target vertex
 	 * @return arrsy of Vertex starting with from, ending with to
 	 */
-	public Vertex[] findShortestPath(Vertex from, Vertex to) {
-		// reset all vertices to WHITE
-		int length = graph.length;
-		for (int i = 0; i < length; i++) {
-			graph[i].reset();
+	public synchronized Vertex[] findShortestPath(Vertex from, Vertex to) {
+		int source = indexOf(from);
+		int target = indexOf(to);
+		if ((source == -1) || (target == -1)) {
+			return null;
 		}
-		// BFS from Cormen et al, page 470
-		Queue<Vertex> q = new Queue<Vertex>();
-		Map<Vertex, Vertex> p = new HashMap<Vertex, Vertex>();
-		from.visit();
-		q.enqueue(from);
-		while (q.size() != 0) {
-			Vertex u = q.head();
-			int arcs = u.getNumberOfOutgoingArcs();
-			for (int a = 0; a < arcs; a++) {
-				Vertex v = u.getHeadVertex(a);
-				if (!v.isVisited()) {
-					v.visit();
-					p.put(v, u);
-					q.enqueue(v);
+		if (source == target) {
+			return new Vertex[] { from };
+		}
+		stamp++;
+		int forwardFirst = 0;
+		int forwardLast = 0;
+		int backwardFirst = 0;
+		int backwardLast = 0;
+		reach(forwardStamp, forwardDistance, parent, forwardQueue, forwardLast++, source, 0, -1);
+		reach(backwardStamp, backwardDistance, next, backwardQueue, backwardLast++, target, 0, -1);
+		int meet = -1;
+		int best = Integer.MAX_VALUE;
+		while ((meet == -1) && (forwardFirst < forwardLast) && (backwardFirst < backwardLast)) {
+			if (forwardLast - forwardFirst <= backwardLast - backwardFirst) {
+				// expand one level of the forward search over the outgoing arcs
+				int level = forwardLast;
+				for (; forwardFirst < level; forwardFirst++) {
+					int v = forwardQueue[forwardFirst];
+					for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+						int w = heads[a];
+						if (forwardStamp[w] != stamp) {
+							reach(forwardStamp, forwardDistance, parent, forwardQueue, forwardLast++, w, forwardDistance[v] + 1, v);
+							if ((backwardStamp[w] == stamp) && (forwardDistance[w] + backwardDistance[w] < best)) {
+								meet = w;
+								best = forwardDistance[w] + backwardDistance[w];
+							}
+						}
+					}
+				}
+			} else {
+				// expand one level of the backward search over the incoming arcs
+				int level = backwardLast;
+				for (; backwardFirst < level; backwardFirst++) {
+					int v = backwardQueue[backwardFirst];
+					for (int a = inOffsets[v]; a < inOffsets[v + 1]; a++) {
+						int w = tails[a];
+						if (backwardStamp[w] != stamp) {
+							reach(backwardStamp, backwardDistance, next, backwardQueue, backwardLast++, w, backwardDistance[v] + 1, v);
+							if ((forwardStamp[w] == stamp) && (forwardDistance[w] + backwardDistance[w] < best)) {
+								meet = w;
+								best = forwardDistance[w] + backwardDistance[w];
+							}
+						}
+					}
 				}
 			}
-			q.dequeue();
 		}
-		List<Vertex> result = new ArrayList<Vertex>();
-		try {
-			buildPath(from, to, p, result);
-			return result.toArray(new Vertex[] {});
-		} catch (IllegalArgumentException e) {
+		if (meet == -1) {
 			return null; // no path found
 		}
+		Vertex[] result = new Vertex[best + 1];
+		for (int v = meet, i = forwardDistance[meet]; i >= 0; v = parent[v], i--) {
+			result[i] = graph[v];
+		}
+		for (int v = next[meet], i = forwardDistance[meet] + 1; i <= best; v = next[v], i++) {
+			result[i] = graph[v];
+		}
+		return result;
 	}
 
 	/**
-	 * recursively build the path from the precedence map calculated by the BFS
+	 * Find the shortest cycles through from and every other vertex with one breadth-first search over the outgoing and one over the incoming arcs of from. Each cycle is the shortest path from from to the other vertex followed by
+	 * the shortest path back to from.
 	 * 
 	 * @param from
 	 *            starting vertex
-	 * @param to
-	 *            target vertex
-	 * @param p
-	 *            precedence map from BFS
-	 * @param result
-	 *            path is collected in here
-	 * @throws IllegalArgumentException
-	 *             if path cannot be constructed
+	 * @return cycles in the order of getVertices(), starting and ending with from, null for from itself and for vertices not on a cycle with it
 	 */
-	private void buildPath(Vertex from, Vertex to, Map<Vertex, Vertex> p, List<Vertex> result) throws IllegalArgumentException {
-		if (from == to) {
-			result.add(from);
-		} else {
-			Vertex pv = p.get(to);
-			if (pv == null) {
-				throw new IllegalArgumentException("No path found");
+	public synchronized Vertex[][] findCycles(Vertex from) {
+		Vertex[][] result = new Vertex[graph.length][];
+		int source = indexOf(from);
+		if (source == -1) {
+			return result;
+		}
+		stamp++;
+		search(source, forwardStamp, forwardDistance, parent, forwardQueue, offsets, heads);
+		search(source, backwardStamp, backwardDistance, next, backwardQueue, inOffsets, tails);
+		for (int t = 0; t < graph.length; t++) {
+			if ((t != source) && (forwardStamp[t] == stamp) && (backwardStamp[t] == stamp)) {
+				Vertex[] cycle = new Vertex[forwardDistance[t] + backwardDistance[t] + 1];
+				for (int v = t, i = forwardDistance[t]; i >= 0; v = parent[v], i--) {
+					cycle[i] = graph[v];
+				}
+				for (int v = next[t], i = forwardDistance[t] + 1; i < cycle.length; v = next[v], i++) {
+					cycle[i] = graph[v];
+				}
+				result[t] = cycle;
 			}
-			// recurse
-			buildPath(from, pv, p, result);
-			result.add(to);
 		}
+		return result;
 	}
 
 	/**
-	 * Simple Queue interface derived from LinkedList to make BFS more readable and related to pseudocode in the textbook.
-	 * 
-	 * @author Frank Sauer
+	 * Breadth-first search from Cormen et al, page 470, over the given arcs
 	 */
-	static class Queue<V> extends LinkedList<V> {
-
-		private static final long serialVersionUID = 7410776876637784785L;
-
-		public void enqueue(V v) {
-			super.addFirst(v);
+	private void search(int source, int[] reached, int[] distance, int[] previous, int[] queue, int[] first, int[] targets) {
+		int head = 0;
+		int tail = 0;
+		reach(reached, distance, previous, queue, tail++, source, 0, -1);
+		while (head < tail) {
+			int v = queue[head++];
+			for (int a = first[v]; a < first[v + 1]; a++) {
+				int w = targets[a];
+				if (reached[w] != stamp) {
+					reach(reached, distance, previous, queue, tail++, w, distance[v] + 1, v);
+				}
+			}
 		}
+	}
 
-		public V dequeue() {
-			return super.removeLast();
-		}
+	private void reach(int[] reached, int[] distance, int[] previous, int[] queue, int at, int v, int d, int from) {
+		reached[v] = stamp;
+		distance[v] = d;
+		previous[v] = from;
+		queue[at] = v;
+	}
 
-		public V head() {
-			return super.getLast();
-		}
+	private int indexOf(Vertex v) {
+		Integer result = index.get(v);
+		return (result == null) ? -1 : result.intValue();
 	}
 
 	public static void showPathFinderUI(StrongComponent cycle) {
@@ -9,8 +9,6 @@ package net.sourceforge.metrics.ui.dependencies;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.List;
 
 import net.sourceforge.metrics.internal.xml.XMLPrintStream;
 
@@ -282,12 +280,12 @@ public class PathFinderDialog extends TitleAreaDialog {
 		x.printXMLHeader();
 		x.println("<cycles>");
 		Vertex[] from = finder.getVertices();
-		Vertex[] to = finder.getVertices();
 		monitor.beginTask("Exporting cycles to XML", from.length);
 		for (int f = 0; f < from.length; f++) {
-			for (int t = 0; t < to.length; t++) {
-				if (f != t) {
-					Vertex[] path = findCycle(from[f], to[t]);
+			Vertex[][] cycles = finder.findCycles(from[f]);
+			for (int t = 0; t < cycles.length; t++) {
+				if (cycles[t] != null) {
+					Vertex[] path = cycles[t];
 					x.indent(1);
 					x.print("<cycle length=\"");
 					x.print(path.length);
@@ -319,34 +317,6 @@ public class PathFinderDialog extends TitleAreaDialog {
 		x.println("</cycles>");
 	}
 
-	/**
-	 * Find a cycle by calculating the path from from to to and the reverse path from to to from and appending them.
-	 * 
-	 * @param vertex
-	 * @param vertex2
-	 * @return String[] containing a full walk from from to to and back to from
-	 */
-	private Vertex[] findCycle(Vertex from, Vertex to) {
-		Vertex[] forward = finder.findShortestPath(from, to);
-		Vertex[] reverse = finder.findShortestPath(to, from);
-		List<Vertex> result = new ArrayList<Vertex>();
-		for (Vertex element : forward) {
-			result.add(element);
-		}
-		Vertex pivot = forward[forward.length - 1];
-		int index = -1;
-		for (int i = 0; i < reverse.length; i++) {
-			if (reverse[i] == pivot) {
-				index = i;
-				break;
-			}
-		}
-		for (int i = index + 1; i < reverse.length; i++) {
-			result.add(reverse[i]);
-		}
-		return result.toArray(new Vertex[] {});
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -43,7 +43,7 @@ public class TopoSort extends GraphProcessor {
 	 * return the graph topologically sorted, or null if the graph has cycles and no topological sort order is possible
 	 */
 	public Vertex[] sort(Vertex[] graph) {
-		StrongComponentProcessor cycleTest = new StrongComponentProcessor();
+		StrongComponentProcessor cycleTest = new StrongComponentProcessor(true);
 		cycleTest.deepSearchFirst(graph);
 		StrongComponent[] comps = cycleTest.getStrongComponents();
 		if (comps.length == graph.length) {
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ui.layeredpackagegraph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.touchgraph.graphlayout.Node;
+
+/**
+ * The forces LayeredTGLayout uses to push nodes in the same layer apart. Both only act along x, so instead of visiting all pairs of nodes the nodes are sorted by layer and x once per step:
+ * <ul>
+ * <li>the strong force only reaches DESIRED_SEPARATION plus the label widths, a sweep over the sorted nodes only visits the pairs that close together;</li>
+ * <li>the weak force falls off with the square of the distance and reaches the whole layer. It is calculated with the one dimensional form of Barnes-Hut: a run of neighbouring nodes whose width is below theta times its
+ * distance pushes as a single node of their combined mass at their centre, and prefix sums give mass and centre of any run in constant time.</li>
+ * </ul>
+ * A step costs O(n log n) instead of O(n^2). A theta of 0 gives the exact pairwise sum.
+ * 
+ * @author Metrics2 contributors
+ */
+public class LayerRepulsion {
+
+	private double theta = 0.5;
+
+	private int count;
+	private Node[] nodes = new Node[0];
+	// per position in layer and x order
+	private int[] layer = new int[0];
+	private double[] x = new double[0];
+	private double[] mass = new double[0];
+	private int[] labels = new int[0];
+	// mass and mass * x of the nodes before each position
+	private double[] prefixMass = new double[1];
+	private double[] prefixMoment = new double[1];
+
+	/**
+	 * @return the opening criterion
+	 */
+	public double getTheta() {
+		return theta;
+	}
+
+	/**
+	 * @param theta
+	 *            runs of nodes narrower than theta times their distance act as a whole, 0 calculates the exact sum
+	 */
+	public void setTheta(double theta) {
+		this.theta = Math.max(0, theta);
+	}
+
+	/**
+	 * Sort the current positions of the nodes by layer and x
+	 * 
+	 * @param all
+	 * @param layers
+	 *            the layer of each node
+	 * @param n
+	 *            number of nodes to use
+	 */
+	public void build(final Node[] all, final int[] layers, int n) {
+		Integer[] sorted = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			sorted[i] = new Integer(i);
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() {
+
+			public int compare(Integer i1, Integer i2) {
+				int l1 = layers[i1.intValue()];
+				int l2 = layers[i2.intValue()];
+				if (l1 != l2) {
+					return (l1 < l2) ? -1 : 1;
+				}
+				return Double.compare(all[i1.intValue()].x, all[i2.intValue()].x);
+			}
+		});
+		if (nodes.length < n) {
+			nodes = new Node[n];
+			layer = new int[n];
+			x = new double[n];
+			mass = new double[n];
+			labels = new int[n];
+			prefixMass = new double[n + 1];
+			prefixMoment = new double[n + 1];
+		}
+		count = n;
+		for (int k = 0; k < n; k++) {
+			int i = sorted[k].intValue();
+			Node node = all[i];
+			nodes[k] = node;
+			layer[k] = layers[i];
+			x[k] = node.x;
+			// as felt by a node that is not fading itself
+			mass[k] = fade(node);
+			labels[k] = node.getID().length();
+			prefixMass[k + 1] = prefixMass[k] + mass[k];
+			prefixMoment[k + 1] = prefixMoment[k] + mass[k] * x[k];
+		}
+	}
+
+	/**
+	 * Push apart nodes in the same layer that are closer than the desired separation plus their label widths
+	 * 
+	 * @param scale
+	 *            factor applied to all forces
+	 */
+	public void strong(double scale) {
+		for (int from = 0; from < count;) {
+			int to = endOfLayer(from);
+			int widest = 0;
+			for (int k = from; k < to; k++) {
+				widest = Math.max(widest, labels[k]);
+			}
+			for (int k = from; k < to; k++) {
+				double reach = LayeredTGLayout.DESIRED_SEPARATION + (labels[k] + widest) * 4;
+				for (int m = k + 1; (m < to) && (x[m] - x[k] < reach); m++) {
+					Node n1 = nodes[k];
+					Node n2 = nodes[m];
+					double dx;
+					double vx = x[k] - x[m];
+					double len = Math.abs(vx);
+					double separation = LayeredTGLayout.DESIRED_SEPARATION + (labels[k] + labels[m]) * 4;
+					if (len == 0) {
+						dx = Math.random();
+					} else if (len < separation) {
+						dx = vx > 0 ? (separation - len) : -(separation - len);
+					} else {
+						dx = 0;
+					}
+					dx *= fade(n1, n2) * scale;
+					n1.dx += dx;
+					n2.dx -= dx;
+				}
+			}
+			from = to;
+		}
+	}
+
+	/**
+	 * Push apart all nodes in the same layer with a force that falls off with the square of their distance
+	 * 
+	 * @param scale
+	 *            factor applied to all forces
+	 */
+	public void weak(double scale) {
+		for (int from = 0; from < count;) {
+			int to = endOfLayer(from);
+			for (int k = from; k < to; k++) {
+				Node n = nodes[k];
+				double dx;
+				if (n.justMadeLocal || n.markedForRemoval) {
+					// rare, the others push a fading node depending on both of them
+					dx = 0;
+					for (int m = from; m < to; m++) {
+						if (m != k) {
+							dx += push(x[k] - x[m]) * fade(n, nodes[m]);
+						}
+					}
+				} else {
+					dx = push(k, from, k) + push(k, k + 1, to);
+				}
+				n.dx += dx * scale;
+			}
+			from = to;
+		}
+	}
+
+	/**
+	 * The weak force of the nodes in positions from..to on the node at position k, which is not in the run
+	 */
+	private double push(int k, int from, int to) {
+		if (to - from == 1) {
+			return push(x[k] - x[from]) * mass[from];
+		}
+		if (to <= from) {
+			return 0;
+		}
+		double m = prefixMass[to] - prefixMass[from];
+		if (m <= 0) {
+			// only nodes that faded away completely
+			return 0;
+		}
+		double d = x[k] - (prefixMoment[to] - prefixMoment[from]) / m;
+		if ((d != 0) && (x[to - 1] - x[from] < theta * Math.abs(d))) {
+			return push(d) * m;
+		}
+		int middle = (from + to) >>> 1;
+		return push(k, from, middle) + push(k, middle, to);
+	}
+
+	/**
+	 * @param vx
+	 *            distance of the pushed node to the pushing node
+	 * @return force of a single node
+	 */
+	private static double push(double vx) {
+		if (vx == 0) {
+			return Math.random() - 0.5;
+		}
+		return 0.01 / (vx * Math.abs(vx));
+	}
+
+	private int endOfLayer(int from) {
+		int to = from + 1;
+		while ((to < count) && (layer[to] == layer[from])) {
+			to++;
+		}
+		return to;
+	}
+
+	/**
+	 * @return how strongly a node that is not fading in or out feels n
+	 */
+	private static double fade(Node n) {
+		if (n.justMadeLocal || n.markedForRemoval) {
+			double massfade = (n.markedForRemoval ? n.massfade : 1 - n.massfade);
+			return massfade * massfade;
+		}
+		return 1;
+	}
+
+	/**
+	 * @return how strongly n1 and n2 push each other when either of them is fading in or out
+	 */
+	private static double fade(Node n1, Node n2) {
+		double result = 1;
+		if (!n1.justMadeLocal && !n1.markedForRemoval) {
+			result *= fade(n2);
+		}
+		if (!n2.markedForRemoval) {
+			result *= fade(n1);
+		}
+		return result;
+	}
+}
@@ -15,7 +15,7 @@ package net.sourceforge.metrics.ui.layeredpackagegraph;
 
 import net.sourceforge.metrics.builder.MetricsBuilder;
 import net.sourceforge.metrics.core.Log;
-import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.ui.MetricsUI;
 
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jface.action.Action;
@@ -87,7 +87,7 @@ public class LayeredPackageGraphActionGroup extends ActionGroup {
 
 	private class GraphAction extends Action {
 		public GraphAction() {
-			super("&Dependency Graph", MetricsPlugin.createImage("gview.gif"));
+			super("&Dependency Graph", MetricsUI.createImage("gview.gif"));
 			setToolTipText("&Open the Dependency Graph View");
 		}
 
@@ -106,7 +106,7 @@ public class LayeredPackageGraphActionGroup extends ActionGroup {
 
 	private class ExportAction extends Action {
 		public ExportAction() {
-			super("&Export XML...", MetricsPlugin.createImage("export_xml.gif"));
+			super("&Export XML...", MetricsUI.createImage("export_xml.gif"));
 			setToolTipText("&Export XML...");
 		}
 
@@ -125,7 +125,7 @@ public class LayeredPackageGraphActionGroup extends ActionGroup {
 
 	private class AbortAllAction extends Action {
 		public AbortAllAction() {
-			super("&Abort All Calculations...", MetricsPlugin.createImage("abort.gif"));
+			super("&Abort All Calculations...", MetricsUI.createImage("abort.gif"));
 			setToolTipText("&Abort all ongoing and pending calculations");
 		}
 
@@ -144,7 +144,7 @@ public class LayeredPackageGraphActionGroup extends ActionGroup {
 
 	private class PauseAction extends Action {
 		public PauseAction() {
-			super("&Pause Calculations...", MetricsPlugin.createImage("pause.gif"));
+			super("&Pause Calculations...", MetricsUI.createImage("pause.gif"));
 			setToolTipText("&Temporarily pause all calculations");
 		}
 
@@ -165,7 +165,7 @@ public class LayeredPackageGraphActionGroup extends ActionGroup {
 
 	private class ResumeAction extends Action {
 		public ResumeAction() {
-			super("&Resume Calculations...", MetricsPlugin.createImage("resume.gif"));
+			super("&Resume Calculations...", MetricsUI.createImage("resume.gif"));
 			setToolTipText("&Resume previously paused calculations");
 		}
 
@@ -20,19 +20,15 @@ import java.awt.MenuItem;
 import java.awt.PopupMenu;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.Map.Entry;
 
 import net.sourceforge.metrics.core.Log;
-import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.ui.MetricsUI;
+import net.sourceforge.metrics.ui.dependencies.DependencyGraph;
 import net.sourceforge.metrics.ui.dependencies.EclipseNode;
 import net.sourceforge.metrics.ui.dependencies.Knot;
-import net.sourceforge.metrics.ui.dependencies.PackageAttributes;
 import net.sourceforge.metrics.ui.dependencies.PathFinder;
 import net.sourceforge.metrics.ui.dependencies.TopoSortDialog;
 
@@ -41,9 +37,7 @@ import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jface.preference.PreferenceConverter;
 import org.eclipse.swt.graphics.RGB;
 
-import classycle.graph.AtomicVertex;
 import classycle.graph.StrongComponent;
-import classycle.graph.StrongComponentProcessor;
 import classycle.graph.Vertex;
 
 import com.touchgraph.graphlayout.Edge;
@@ -59,13 +53,16 @@ public class LayeredPackageGraphPanel extends GLPanel {
 	private static final long serialVersionUID = -7819387876080769093L;
 	private MenuItem topo;
 	private Vertex[] vgraph;
+	private DependencyGraph dependencyGraph;
+	private LayeredTGLayout layout;
 	private Menu tangleMenu;
 	private boolean showDetailMenu = true;
 
 	public LayeredPackageGraphPanel() {
 		super();
 		this.tgPanel.tgLayout.stop();
-		this.tgPanel.setTGLayout(new LayeredTGLayout(this.tgPanel));
+		layout = new LayeredTGLayout(this.tgPanel);
+		this.tgPanel.setTGLayout(layout);
 		this.getHyperScroll().getHyperSB().setValue(0);
 		this.tgPanel.tgLayout.start();
 	}
@@ -141,14 +138,16 @@ public class LayeredPackageGraphPanel extends GLPanel {
 		}
 	}
 
-	public void createDependencies(List<Set<PackageStats>> layers) throws TGException {
+	public void createDependencies(PackageLayers packageLayers) throws TGException {
 		initTGPanel();
+		layout.setLayers(packageLayers);
 		tangleMenu.removeAll();
 		topo.setEnabled(true);
 		int max = -1;
 		Node center = null;
 		// showDetailMenu = (packages == null);
-		StrongComponent[] components = calculateCycles(LayeredPackageTableView.getDependencies());
+		StrongComponent[] components = calculateCycles(packageLayers.getDependencyGraph());
+		List<Set<PackageStats>> layers = packageLayers.getLayers();
 		int layer = 0;
 		for (Iterator<Set<PackageStats>> i = layers.iterator(); i.hasNext(); layer++) {
 			Set<PackageStats> packageStats = i.next();
@@ -160,10 +159,10 @@ public class LayeredPackageGraphPanel extends GLPanel {
 					max = stats.getLayer();
 					center = from;
 				}
-				Set<String> deps = LayeredPackageTableView.getDependencies().get(stats.getPackageName());
+				Set<String> deps = packageLayers.getDependencies().get(stats.getPackageName());
 				for (Iterator<String> d2 = deps.iterator(); d2.hasNext();) {
 					String depPackageName = d2.next();
-					int depLayer = LayeredPackageTableView.getLayer(depPackageName);
+					int depLayer = packageLayers.getLayer(depPackageName);
 					Node to = addNode(depPackageName, depLayer, ++layerWidth[depLayer]);
 					addEdge(from, to, components);
 				}
@@ -180,38 +179,13 @@ public class LayeredPackageGraphPanel extends GLPanel {
 	/**
 	 * Calculate strongly connected components in dependency graph, basically adaper code to map different graph representations
 	 * 
-	 * @param efferent
+	 * @param graph
 	 * @return
 	 */
-	private StrongComponent[] calculateCycles(Map<String, Set<String>> efferent) {
-		List<Vertex> graph = new ArrayList<Vertex>();
-		Map<String, Vertex> done = new HashMap<String, Vertex>();
-		for (Iterator<Entry<String, Set<String>>> iterEntry = efferent.entrySet().iterator(); iterEntry.hasNext();) {
-			Entry<String, Set<String>> entry = iterEntry.next();
-			String key = entry.getKey();
-			Vertex from = done.get(key);
-			if (from == null) {
-				from = new AtomicVertex(new PackageAttributes(key));
-				done.put(key, from);
-				graph.add(from);
-			}
-			Set<String> deps = entry.getValue();
-			for (Iterator<String> j = deps.iterator(); j.hasNext();) {
-				String dep = j.next();
-				Vertex to = done.get(dep);
-				if (to == null) {
-					to = new AtomicVertex(new PackageAttributes(dep));
-					done.put(dep, to);
-					graph.add(to);
-				}
-				from.addOutgoingArcTo(to);
-			}
-		}
-		vgraph = graph.toArray(new Vertex[] {});
-		StrongComponentProcessor scp = new StrongComponentProcessor();
-		scp.deepSearchFirst(vgraph);
-		StrongComponent[] comps = scp.getStrongComponents();
-		return comps;
+	private StrongComponent[] calculateCycles(DependencyGraph graph) {
+		dependencyGraph = graph;
+		vgraph = dependencyGraph.getVertices();
+		return dependencyGraph.getStrongComponents();
 	}
 
 	/**
@@ -313,20 +287,9 @@ public class LayeredPackageGraphPanel extends GLPanel {
 	 * @return index of component if one exists, otherwise -1
 	 */
 	private int isStrong(Node from, Node to, StrongComponent[] comps) {
-		for (int i = 0; i < comps.length; i++) {
-			int count = 0;
-			for (int j = 0; j < comps[i].getNumberOfVertices(); j++) {
-				Vertex v = comps[i].getVertex(j);
-				if (v.getAttributes().equals(from.getID())) {
-					count++;
-				}
-				if (v.getAttributes().equals(to.getID())) {
-					count++;
-				}
-			}
-			if (count == 2) {
-				return i;
-			}
+		int strong = dependencyGraph.getComponentIndex(from.getID());
+		if ((strong >= 0) && (strong == dependencyGraph.getComponentIndex(to.getID()))) {
+			return strong;
 		}
 		return -1;
 	}
@@ -358,7 +321,7 @@ public class LayeredPackageGraphPanel extends GLPanel {
 	}
 
 	private Color getGraphBackground() {
-		RGB color = PreferenceConverter.getColor(MetricsPlugin.getDefault().getPreferenceStore(), "METRICS.depGR_background");
+		RGB color = PreferenceConverter.getColor(MetricsUI.getPreferenceStore(), "METRICS.depGR_background");
 		return new Color(color.red, color.green, color.blue);
 	}
 }
@@ -3,8 +3,6 @@ package net.sourceforge.metrics.ui.layeredpackagegraph;
 import java.awt.BorderLayout;
 import java.awt.Frame;
 import java.lang.reflect.Method;
-import java.util.List;
-import java.util.Set;
 
 import net.sourceforge.metrics.core.Log;
 
@@ -66,7 +64,7 @@ public class LayeredPackageGraphView extends ViewPart implements ArmListener {
 		}
 	}
 
-	public void setDependencies(final List<Set<PackageStats>> layers) {
+	public void setDependencies(final PackageLayers layers) {
 		try {
 			glPanel.createDependencies(layers);
 		} catch (TGException e) {
@@ -79,7 +77,9 @@ public class LayeredPackageGraphView extends ViewPart implements ArmListener {
 	}
 
 	public void widgetArmed(ArmEvent e) {
-		setDependencies(LayeredPackageTableView.getLayers());
+		if ((e != null) && (e.data instanceof PackageLayers)) {
+			setDependencies((PackageLayers) e.data);
+		}
 	}
 
 	@Override
@@ -15,10 +15,8 @@
 package net.sourceforge.metrics.ui.layeredpackagegraph;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +33,7 @@ import net.sourceforge.metrics.core.MetricDescriptor;
 import net.sourceforge.metrics.core.MetricsPlugin;
 import net.sourceforge.metrics.core.sources.AbstractMetricSource;
 import net.sourceforge.metrics.core.sources.IGraphContributor;
+import net.sourceforge.metrics.ui.MetricsUI;
 
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
@@ -71,8 +70,7 @@ public class LayeredPackageTable extends Tree implements Constants, SelectionLis
 	private TreeColumn value;
 	private TreeColumn dependencies;
 	private Map<String, Set<String>> deps;
-	private static List<Set<PackageStats>> layers;
-	private static Set<PackageStats> external;
+	private PackageLayers packageLayers;
 
 	public LayeredPackageTable(Composite parent, int style) {
 		super(parent, style);
@@ -100,10 +98,11 @@ public class LayeredPackageTable extends Tree implements Constants, SelectionLis
 			}
 			deps = ((IGraphContributor) ms).getEfferent();
 			if (deps != null) {
-				external = new TreeSet<PackageStats>();
-				calculateLayers(deps, external);
-				displayInternalPackages(deps, layers);
-				displayExternalPackages(external);
+				if ((packageLayers == null) || !packageLayers.isFor(deps)) {
+					packageLayers = new PackageLayers(deps);
+				}
+				displayInternalPackages(deps, packageLayers.getLayers());
+				displayExternalPackages(packageLayers.getExternal());
 			}
 		} catch (Throwable e) {
 			Log.logError("MetricsTable::setMetrics", e);
@@ -156,64 +155,6 @@ public class LayeredPackageTable extends Tree implements Constants, SelectionLis
 		}
 	}
 
-	private static void calculateLayers(Map<String, Set<String>> deps, Set<PackageStats> external) {
-		layers = new ArrayList<Set<PackageStats>>();
-		for (Object element : deps.keySet()) {
-			String packageName = (String) element;
-			PackageStats stats = calculatePackageStat(packageName, deps, new ArrayList<String>(), new HashSet<String>(), external);
-			addStat(stats);
-		}
-	}
-
-	private static void addStat(PackageStats packageStats) {
-		while (layers.size() < packageStats.getLayer() + 1) {
-			layers.add(new TreeSet<PackageStats>());
-		}
-		layers.get(packageStats.getLayer()).add(packageStats);
-	}
-
-	static PackageStats calculatePackageStat(String packageName, Map<String, Set<String>> deps, List<String> stack, Set<String> tangleStarts, Set<PackageStats> external) {
-		PackageStats stats = getStat(packageName);
-		// if (stats != null) {
-		// return stats;
-		// }
-		stats = new PackageStats(packageName);
-		Set<String> dependecies = deps.get(packageName);
-		if (dependecies != null) {
-			stack.add(packageName);
-			for (Object element : dependecies) {
-				String dependentPackageName = (String) element;
-				if (!dependentPackageName.equals(packageName)) {
-					if (stack.contains(dependentPackageName)) {
-						// Tangle!!
-						// Mark the start package
-						tangleStarts.add(dependentPackageName);
-					} else {
-						Set<String> childTangles = new HashSet<String>();
-						PackageStats childStat = calculatePackageStat(dependentPackageName, deps, stack, childTangles, external);
-						if (childTangles.isEmpty()) {
-							stats.raiseTo(childStat.getLayer() + 1);
-						} else {
-							// Child and this node are in the same tangle
-							// Do not add 1 for this child
-							tangleStarts.addAll(childTangles);
-							stats.setTangle();
-							stats.raiseTo(childStat.getLayer());
-							if (tangleStarts.contains(packageName)) {
-								// This package is the start of a tangle
-								tangleStarts.remove(packageName);
-							}
-						}
-					}
-				}
-			}
-			stack.remove(stack.size() - 1);
-		} else {
-			external.add(stats);
-		}
-		return stats;
-	}
-
 	private void setForeground(Metric metric, TreeItem row) {
 		if (metric == null) {
 			row.setForeground(getDefaultForeground());
@@ -253,7 +194,7 @@ public class LayeredPackageTable extends Tree implements Constants, SelectionLis
 	 * @return
 	 */
 	private Color getDefaultForeground() {
-		RGB color = PreferenceConverter.getColor(MetricsPlugin.getDefault().getPreferenceStore(), "METRICS.defaultColor");
+		RGB color = PreferenceConverter.getColor(MetricsUI.getPreferenceStore(), "METRICS.defaultColor");
 		if (lastDefaultColor == null) {
 			lastDefaultColor = new Color(getDisplay(), color);
 		} else if (!lastDefaultColor.getRGB().equals(color)) {
@@ -269,7 +210,7 @@ public class LayeredPackageTable extends Tree implements Constants, SelectionLis
 	 * @return
 	 */
 	private Color getInRangeForeground() {
-		RGB color = PreferenceConverter.getColor(MetricsPlugin.getDefault().getPreferenceStore(), "METRICS.linkedColor");
+		RGB color = PreferenceConverter.getColor(MetricsUI.getPreferenceStore(), "METRICS.linkedColor");
 		if (lastInRangeColor == null) {
 			lastInRangeColor = new Color(getDisplay(), color);
 		} else if (!lastInRangeColor.getRGB().equals(color)) {
@@ -285,7 +226,7 @@ public class LayeredPackageTable extends Tree implements Constants, SelectionLis
 	 * @return
 	 */
 	private Color getOutOfRangeForeground() {
-		RGB color = PreferenceConverter.getColor(MetricsPlugin.getDefault().getPreferenceStore(), "METRICS.outOfRangeColor");
+		RGB color = PreferenceConverter.getColor(MetricsUI.getPreferenceStore(), "METRICS.outOfRangeColor");
 		if (lastOutofRangeColor == null) {
 			lastOutofRangeColor = new Color(getDisplay(), color);
 		} else if (!lastOutofRangeColor.getRGB().equals(color)) {
@@ -442,7 +383,7 @@ public class LayeredPackageTable extends Tree implements Constants, SelectionLis
 
 	private String format(double value) {
 		NumberFormat nf = NumberFormat.getInstance();
-		int decimals = MetricsPlugin.getDefault().getPreferenceStore().getInt("METRICS.decimals");
+		int decimals = MetricsPlugin.getDefault().getPreferences().getInt("METRICS.decimals");
 		nf.setMaximumFractionDigits(decimals);
 		nf.setGroupingUsed(false);
 		return nf.format(value);
@@ -542,39 +483,11 @@ public class LayeredPackageTable extends Tree implements Constants, SelectionLis
 		}
 	}
 
-	public static List<Set<PackageStats>> getLayers() {
-		return layers;
-	}
-
-	public static int getLayer(String depPackageName) {
-		PackageStats stats = getStat(depPackageName);
-
-		if (stats != null) {
-			return stats.getLayer();
-		}
-		if (depPackageName.startsWith("knot")) {
-			return 0;
-		}
-		throw new RuntimeException("Unknown package: \"" + depPackageName + "\"");
-	}
-
-	private static PackageStats getStat(String packageName) {
-		for (Set<PackageStats> packageSet : layers) {
-			for (Iterator<PackageStats> j = packageSet.iterator(); j.hasNext();) {
-				PackageStats stats = j.next();
-				if (stats.getPackageName().equals(packageName)) {
-					return stats;
-				}
-			}
-		}
-
-		for (PackageStats stats : external) {
-			if (stats.getPackageName().equals(packageName)) {
-				return stats;
-			}
-		}
-
-		return null;
+	/**
+	 * @return the layers of the packages displayed, null if none are
+	 */
+	public PackageLayers getPackageLayers() {
+		return packageLayers;
 	}
 
 }
\ No newline at end of file
@@ -15,12 +15,12 @@ package net.sourceforge.metrics.ui.layeredpackagegraph;
 
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import net.sourceforge.metrics.builder.IMetricsProgressListener;
+import net.sourceforge.metrics.builder.IMetricsBatchListener;
 import net.sourceforge.metrics.builder.MetricsBuilder;
+import net.sourceforge.metrics.builder.ProgressBatch;
 import net.sourceforge.metrics.core.IExporter;
 import net.sourceforge.metrics.core.Log;
 import net.sourceforge.metrics.core.MetricsPlugin;
@@ -30,18 +30,19 @@ import net.sourceforge.metrics.core.sources.IGraphContributor;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.dialogs.ProgressMonitorDialog;
 import org.eclipse.jface.operation.IRunnableWithProgress;
-import org.eclipse.jface.util.IPropertyChangeListener;
-import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StackLayout;
 import org.eclipse.swt.widgets.TreeItem;
+import org.eclipse.swt.events.ArmEvent;
 import org.eclipse.swt.events.ArmListener;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
@@ -50,6 +51,7 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.ProgressBar;
@@ -70,7 +72,7 @@ import org.eclipse.ui.part.ViewPart;
  * 
  * @author Frank Sauer
  */
-public class LayeredPackageTableView extends ViewPart implements ISelectionListener, IMetricsProgressListener, IPropertyChangeListener {
+public class LayeredPackageTableView extends ViewPart implements ISelectionListener, IMetricsBatchListener, IPreferenceChangeListener {
 
 	private final static String[] EXPLANATION = { "No metrics available for selection. To calculate and display metrics:", "", "    1) ensure you are in a java perspective using the package explorer,",
 			"    2) select a project and enable the metrics from its context menu,", "    3) perform a full rebuild on the project.", "",
@@ -86,7 +88,7 @@ public class LayeredPackageTableView extends ViewPart implements ISelectionListe
 	private Label progressText;
 	// private List pending;
 	private static ArmListener armListener;
-	private static Map<String, Set<String>> currentDependencies;
+	private PackageLayers currentLayers;
 	private IMemento memento;
 	private LayeredPackageGraphActionGroup mActions;
 	private LayeredPackageTable table;
@@ -123,7 +125,7 @@ public class LayeredPackageTableView extends ViewPart implements ISelectionListe
 		mActions = new LayeredPackageGraphActionGroup(this);
 		IActionBars actionBars = getViewSite().getActionBars();
 		mActions.fillActionBars(actionBars);
-		MetricsPlugin.getDefault().addPropertyChangeListener(this);
+		MetricsPlugin.getDefault().addPreferenceChangeListener(this);
 		MetricsBuilder.addMetricsProgressListener(this);
 	}
 
@@ -419,7 +421,8 @@ public class LayeredPackageTableView extends ViewPart implements ISelectionListe
 				e.printStackTrace();
 			}
 			// }
-			currentDependencies = graph;
+			PackageLayers layers = table.getPackageLayers();
+			currentLayers = ((layers != null) && layers.isFor(graph)) ? layers : new PackageLayers(graph);
 			fireArmEvent();
 		}
 	}
@@ -431,16 +434,22 @@ public class LayeredPackageTableView extends ViewPart implements ISelectionListe
 	 */
 
 	/**
-     *  
-     */
-	private static void fireArmEvent() {
+	 * tell the graph view to display the current layers, which are passed as the data of the event
+	 */
+	private void fireArmEvent() {
 		if (armListener != null) {
-			armListener.widgetArmed(null);
+			Event event = new Event();
+			event.widget = table;
+			event.data = currentLayers;
+			armListener.widgetArmed(new ArmEvent(event));
 		}
 	}
 
-	public static Map<String, Set<String>> getDependencies() {
-		return currentDependencies;
+	/**
+	 * @return the layers of the dependency graph last requested for display in this view
+	 */
+	public PackageLayers getPackageLayers() {
+		return currentLayers;
 	}
 
 	/**
@@ -509,9 +518,9 @@ public class LayeredPackageTableView extends ViewPart implements ISelectionListe
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see org.eclipse.jface.util.IPropertyChangeListener#propertyChange(org.eclipse .jface.util.PropertyChangeEvent)
+	 * @see org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener#preferenceChange(org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent)
 	 */
-	public void propertyChange(PropertyChangeEvent event) {
+	public void preferenceChange(PreferenceChangeEvent event) {
 		if (selection != null) {
 			setJavaElement(selection, true);
 		}
@@ -551,13 +560,13 @@ public class LayeredPackageTableView extends ViewPart implements ISelectionListe
 		});
 	}
 
-	private void incProgressBar() {
+	private void incProgressBar(final int work) {
 		Display d = Display.getDefault();
 		d.asyncExec(new Runnable() {
 
 			public void run() {
 				if (!progressBar.isDisposed()) {
-					progressBar.setSelection(progressBar.getSelection() + 1);
+					progressBar.setSelection(progressBar.getSelection() + work);
 				}
 			}
 		});
@@ -586,7 +595,32 @@ public class LayeredPackageTableView extends ViewPart implements ISelectionListe
 			refreshTable(ms, selection);
 		}
 		queued--;
-		incProgressBar();
+		incProgressBar(1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.sourceforge.metrics.builder.IMetricsBatchListener#progress(net.sourceforge.metrics.builder.ProgressBatch)
+	 */
+	public void progress(ProgressBatch batch) {
+		queued -= batch.getCompletedCount();
+		IJavaElement current = batch.getLatestPending();
+		IJavaElement last = batch.getLatestCompleted();
+		if ((current != null) && !current.equals(last)) {
+			setStatus("Queued: " + queued + "\tCalculating now: " + current.getElementName(), shouldBeBusy(current));
+		} else if (last != null) {
+			setStatus("completed " + last.getElementName(), shouldBeBusy(last));
+		}
+		if (selection != null) {
+			Object data = batch.getData(selection);
+			if (data != null) {
+				refreshTable((AbstractMetricSource) data, selection);
+			}
+		}
+		if (batch.getCompletedCount() > 0) {
+			incProgressBar(batch.getCompletedCount());
+		}
 	}
 
 	public void queued(int count) {
@@ -629,12 +663,4 @@ public class LayeredPackageTableView extends ViewPart implements ISelectionListe
 		setStatus("Paused. " + queued + " items in the queue.", false);
 	}
 
-	static List<Set<PackageStats>> getLayers() {
-		return LayeredPackageTable.getLayers();
-	}
-
-	public static int getLayer(String depPackageName) {
-		return LayeredPackageTable.getLayer(depPackageName);
-	}
-
 }
\ No newline at end of file
@@ -6,30 +6,39 @@ import com.touchgraph.graphlayout.TGLayout;
 import com.touchgraph.graphlayout.TGPanel;
 import com.touchgraph.graphlayout.graphelements.TGForEachEdge;
 import com.touchgraph.graphlayout.graphelements.TGForEachNode;
-import com.touchgraph.graphlayout.graphelements.TGForEachNodePair;
 
 /**
  * Implements TGLayout and is the thread responsible for graph layout. It updates the real coordinates of the nodes in the graphEltSet object. TGPanel sends it resetDamper commands whenever the layout needs to be adjusted. After every
  * adjustment cycle, we trigger a repaint of the TGPanel. In moving the nodes, we try to mimick physical objects with mass that are moved by forces depending on the distance between the nodes. All this happens in an environment that dampens
- * movement, like a container of stiffening glue.
+ * movement, like a container of stiffening glue. Once the mean squared motion of the nodes drops below MIN_ENERGY the thread waits until the damper is reset.
  */
 public class LayeredTGLayout implements TGLayout {
 	private TGPanel tgPanel;
-	private Thread relaxer;
+	private volatile Thread relaxer;
 	// A low damper value causes the graph to move slowly
-	private double damper = 0.0;
+	private volatile double damper = 0.0;
 	// Keep an eye on the fastest moving node to see if the graph is stabilizing
 	private double maxMotion = 0;
 	// private double lastMaxMotion = 0;
 	// It's sort of a ratio, equal to lastMaxMotion/maxMotion-1
 	// private double motionRatio = 0;
 	// When damping is true, the damper value decreases
-	private boolean damping = true;
+	private volatile boolean damping = true;
+	// Mean squared motion of the nodes in the last step
+	private volatile double energy = Double.MAX_VALUE;
+	private static final double MIN_ENERGY = 0.1 * 0.1;
+	// The relaxer waits here while the graph is at rest
+	private final Object idle = new Object();
 
 	// Rigidity has the same effect as the damper, except that it's a constant a
 	// low EDGE_FORCE value causes things to go slowly. A value that's too high
 	// will cause oscillation
 	private Node dragNode = null;
+	private PackageLayers layers = null;
+	private LayerRepulsion repulsion = new LayerRepulsion();
+	private Node[] nodes = new Node[16];
+	private int[] nodeLayers = new int[16];
+	private int nodeCount;
 	protected static final double DESIRED_SEPARATION = 50;
 
 	public LayeredTGLayout(TGPanel tgp) {
@@ -38,8 +47,58 @@ public class LayeredTGLayout implements TGLayout {
 		relaxer = null;
 	}
 
+	/**
+	 * @param layers
+	 *            the layers of the packages shown, nodes are only pushed apart from nodes in the same layer
+	 */
+	public void setLayers(PackageLayers layers) {
+		this.layers = layers;
+	}
+
+	private int getLayer(Node n) {
+		return (layers == null) ? 0 : layers.getLayer(n.getID());
+	}
+
 	public void setDragNode(Node n) {
 		dragNode = n;
+		wakeUp();
+	}
+
+	/**
+	 * @param theta
+	 *            Barnes-Hut opening criterion for the weak node force, 0 is exact
+	 * @see LayerRepulsion#setTheta(double)
+	 */
+	public void setTheta(double theta) {
+		repulsion.setTheta(theta);
+	}
+
+	public double getTheta() {
+		return repulsion.getTheta();
+	}
+
+	/**
+	 * Sort the current positions of the nodes for the node forces
+	 */
+	private void collectNodes() {
+		nodeCount = 0;
+		tgPanel.getGES().forAllNodes(new TGForEachNode() {
+			@Override
+			public void forEachNode(Node n) {
+				if (nodeCount == nodes.length) {
+					Node[] grown = new Node[nodeCount * 2];
+					System.arraycopy(nodes, 0, grown, 0, nodeCount);
+					nodes = grown;
+					int[] grownLayers = new int[nodeCount * 2];
+					System.arraycopy(nodeLayers, 0, grownLayers, 0, nodeCount);
+					nodeLayers = grownLayers;
+				}
+				nodes[nodeCount] = n;
+				nodeLayers[nodeCount] = getLayer(n);
+				nodeCount++;
+			}
+		});
+		repulsion.build(nodes, nodeLayers, nodeCount);
 	}
 
 	// relaxEdges is more like tense edges up. All edges pull nodes closer
@@ -64,49 +123,11 @@ public class LayeredTGLayout implements TGLayout {
 		tgPanel.getGES().forAllEdges(fee);
 	}
 
+	/**
+	 * Pushes apart nodes in the same layer that are closer than DESIRED_SEPARATION plus their label widths. It is a short reaching, strong force that grows towards the end of the layout cycle.
+	 */
 	private synchronized void strongNodeForce() {
-		TGForEachNodePair fenp = new TGForEachNodePair() {
-			@Override
-			public void forEachNodePair(Node n1, Node n2) {
-				if (LayeredPackageTableView.getLayer(n1.getID()) == LayeredPackageTableView.getLayer(n2.getID())) {
-					double dx;
-					double vx = n1.x - n2.x;
-					double len = Math.abs(vx);
-					double labelWidth = ((n1.getID().length() + n2.getID().length()) * 4);
-					if (len == 0) {
-						dx = Math.random();
-					} else if (len < getDesiredSeparation(labelWidth)) {
-						dx = vx > 0 ? (getDesiredSeparation(labelWidth) - len) : -(getDesiredSeparation(labelWidth) - len);
-					} else {
-						dx = 0;
-					}
-
-					if (!n1.justMadeLocal && !n1.markedForRemoval && (n2.justMadeLocal || n2.markedForRemoval)) {
-						double massfade = (n2.markedForRemoval ? n2.massfade : 1 - n2.massfade);
-						massfade *= massfade;
-						dx *= massfade;
-					}
-					if (!n2.markedForRemoval // replaced from (!false ||
-							// !n2.justMadeLocal) &&
-							// !n2.markedForRemoval
-							&& (n1.justMadeLocal || n1.markedForRemoval)) {
-						double massfade2 = (n1.markedForRemoval ? n1.massfade : 1 - n1.massfade);
-						massfade2 *= massfade2;
-						dx *= massfade2;
-					}
-
-					dx *= 1.1 * (1 - damper);
-					n1.dx += dx;
-					n2.dx -= dx;
-				}
-			}
-
-			private double getDesiredSeparation(double labelWidth) {
-				return (DESIRED_SEPARATION + labelWidth); // * (1 - damper);
-			}
-		};
-
-		tgPanel.getGES().forAllNodePairs(fenp);
+		repulsion.strong(1.1 * (1 - damper));
 	}
 
 	public void startDamper() {
@@ -116,12 +137,14 @@ public class LayeredTGLayout implements TGLayout {
 	public void stopDamper() {
 		damping = false;
 		damper = 1.0; // A value of 1.0 means no damping
+		wakeUp();
 	}
 
-	public synchronized void resetDamper() { // reset the damper, but don't keep
+	public void resetDamper() { // reset the damper, but don't keep
 		// damping.
 		damping = true;
 		damper = 1.0;
+		wakeUp();
 	}
 
 	public void stopMotion() { // stabilize the graph, but do so gently by
@@ -154,6 +177,7 @@ public class LayeredTGLayout implements TGLayout {
 		// lastMaxMotion = maxMotion;
 		final double[] maxMotionA = new double[1];
 		maxMotionA[0] = 0;
+		final double[] energyA = new double[2];
 
 		TGForEachNode fen = new TGForEachNode() {
 			@Override
@@ -176,6 +200,8 @@ public class LayeredTGLayout implements TGLayout {
 						n.dx = 0;
 					}
 					maxMotionA[0] = Math.max(distMoved, maxMotionA[0]);
+					energyA[0] += distMoved * distMoved;
+					energyA[1]++;
 
 					if (!n.justMadeLocal && !n.markedForRemoval) {
 						n.massfade = 1;
@@ -192,6 +218,7 @@ public class LayeredTGLayout implements TGLayout {
 		tgPanel.getGES().forAllNodes(fen);
 
 		maxMotion = maxMotionA[0];
+		energy = (energyA[1] == 0) ? 0 : energyA[0] / energyA[1];
 		// if (maxMotion > 0) motionRatio = lastMaxMotion / maxMotion - 1;
 		// else motionRatio = 0;
 
@@ -201,6 +228,7 @@ public class LayeredTGLayout implements TGLayout {
 
 	private synchronized void relax() {
 		for (int i = 0; i < 1; i++) {
+			collectNodes();
 			centerForce();
 			tenseEdges();
 			weakNodeForce();
@@ -247,53 +275,19 @@ public class LayeredTGLayout implements TGLayout {
 	 * Adds movement that repels the nodes depending on their proximity. It is a long reaching, but weak force. It is an early force that diminishes towards the end of the layout cycle.
 	 */
 	private void weakNodeForce() {
-		TGForEachNodePair fenp = new TGForEachNodePair() {
-			@Override
-			public void forEachNodePair(Node n1, Node n2) {
-				if (LayeredPackageTableView.getLayer(n1.getID()) == LayeredPackageTableView.getLayer(n2.getID())) {
-					double dx;
-					double vx = n1.x - n2.x;
-					double len = Math.abs(vx);
-					if (len == 0) {
-						dx = Math.random();
-					} else {
-						dx = 0.01 / (vx * len);
-					}
-
-					if (!n1.justMadeLocal && !n1.markedForRemoval && (n2.justMadeLocal || n2.markedForRemoval)) {
-						double massfade = (n2.markedForRemoval ? n2.massfade : 1 - n2.massfade);
-						massfade *= massfade;
-						dx *= massfade;
-					}
-					if (!n2.markedForRemoval // replaced from (!false ||
-							// !n2.justMadeLocal) &&
-							// !n2.markedForRemoval
-							&& (n1.justMadeLocal || n1.markedForRemoval)) {
-						double massfade2 = (n1.markedForRemoval ? n1.massfade : 1 - n1.massfade);
-						massfade2 *= massfade2;
-						dx *= massfade2;
-					}
-
-					dx *= damper;
-					n1.dx += dx;
-					n2.dx -= dx;
-				}
-			}
-
-			// private double getDesiredSeparation(double labelWidth) {
-			// return (DESIRED_SEPARATION + labelWidth); //* (1 - damper);
-			// }
-		};
+		repulsion.weak(damper);
+	}
 
-		tgPanel.getGES().forAllNodePairs(fenp);
+	/**
+	 * @return true if the graph came to rest and relaxing it further is a waste of time
+	 */
+	private boolean isConverged() {
+		return damping && damper < 0.1 && energy < MIN_ENERGY;
 	}
 
-	private void myWait() { // I think it was Netscape that caused me not to use
-		// Wait, or was it java 1.1?
-		try {
-			Thread.sleep(100);
-		} catch (InterruptedException e) {
-			// break;
+	private void wakeUp() {
+		synchronized (idle) {
+			idle.notifyAll();
 		}
 	}
 
@@ -306,8 +300,10 @@ public class LayeredTGLayout implements TGLayout {
 			try {
 				Thread.sleep(20); // Delay to wait for the prior repaint
 				// command to finish.
-				while (damper < 0.1 && damping && maxMotion < 0.1) {
-					myWait();
+				synchronized (idle) {
+					while (relaxer == me && isConverged()) {
+						idle.wait(); // until the damper is reset or we are stopped
+					}
 				}
 			} catch (InterruptedException e) {
 				break;
@@ -322,6 +318,7 @@ public class LayeredTGLayout implements TGLayout {
 
 	public void stop() {
 		relaxer = null;
+		wakeUp();
 	}
 
 } // end com.touchgraph.graphlayout.TGStarLayout
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Licenced under CPL 1.0 (Common Public License Version 1.0).
+ * The licence is available at http://www.eclipse.org/legal/cpl-v10.html.
+ *
+ *
+ * DISCLAIMER OF WARRANTIES AND LIABILITY:
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS".  THE AUTHOR MAKES  NO REPRESENTATIONS OR WARRANTIES,
+ * EITHER EXPRESS OR IMPLIED.  TO THE EXTENT NOT PROHIBITED BY LAW, IN NO EVENT WILL THE
+ * AUTHOR  BE LIABLE FOR ANY DAMAGES, INCLUDING WITHOUT LIMITATION, LOST REVENUE,  PROFITS
+ * OR DATA, OR FOR SPECIAL, INDIRECT, CONSEQUENTIAL, INCIDENTAL  OR PUNITIVE DAMAGES,
+ * HOWEVER CAUSED AND REGARDLESS OF THE THEORY OF  LIABILITY, ARISING OUT OF OR RELATED TO
+ * ANY FURNISHING, PRACTICING, MODIFYING OR ANY USE OF THE SOFTWARE, EVEN IF THE AUTHOR
+ * HAVE BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ *
+ *
+ * $id$
+ */
+package net.sourceforge.metrics.ui.layeredpackagegraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.sourceforge.metrics.ui.dependencies.DependencyGraph;
+
+import classycle.graph.CompactGraph;
+
+/**
+ * The layers of a package dependency graph. Packages that do not depend on anything are in layer 0 and every other package is one layer above the highest package it depends on. Packages in a tangle depend on each
+ * other, they share a layer and are marked as tangled. Layers are assigned to the strong components of the graph in the reverse topological order Tarjan's algorithm finds them in, so the whole calculation is O(V+E).
+ * <p>
+ * The result only depends on the dependency map, so it is calculated once per map and shared by the table, the graph and its layout.
+ * 
+ * @author Metrics2 contributors
+ */
+public class PackageLayers {
+
+	private final Map<String, Set<String>> dependencies;
+	private final DependencyGraph graph;
+	private final List<Set<PackageStats>> layers = new ArrayList<Set<PackageStats>>();
+	private final Set<PackageStats> external = new TreeSet<PackageStats>();
+	private final Map<String, PackageStats> stats = new HashMap<String, PackageStats>();
+
+	/**
+	 * @param dependencies
+	 *            package -> packages it depends on, packages that are not a key are external
+	 */
+	public PackageLayers(Map<String, Set<String>> dependencies) {
+		this.dependencies = dependencies;
+		graph = new DependencyGraph(dependencies);
+		CompactGraph arcs = graph.getGraph();
+		CompactGraph.Components components = arcs.calculateStrongComponents();
+		// each component only depends on components found before it
+		int[] layer = new int[components.getCount()];
+		for (int c = 0; c < layer.length; c++) {
+			for (int i = 0, n = components.getSize(c); i < n; i++) {
+				int v = components.getMember(c, i);
+				for (int a = arcs.getFirstArc(v), end = arcs.getEndArc(v); a < end; a++) {
+					int d = components.getComponent(arcs.getHead(a));
+					if ((d != c) && (layer[d] >= layer[c])) {
+						layer[c] = layer[d] + 1;
+					}
+				}
+			}
+		}
+		for (int v = 0; v < graph.size(); v++) {
+			String name = graph.getName(v);
+			int c = components.getComponent(v);
+			PackageStats next = new PackageStats(name);
+			next.raiseTo(layer[c]);
+			if (components.getSize(c) > 1) {
+				next.setTangle();
+			}
+			stats.put(name, next);
+			if (dependencies.get(name) == null) {
+				external.add(next);
+			} else {
+				while (layers.size() <= layer[c]) {
+					layers.add(new TreeSet<PackageStats>());
+				}
+				layers.get(layer[c]).add(next);
+			}
+		}
+	}
+
+	/**
+	 * @param dependencies
+	 * @return true if these layers were calculated for an equal dependency map, a source read back from the cache has a new map with the same contents
+	 */
+	public boolean isFor(Map<String, Set<String>> dependencies) {
+		return (this.dependencies == dependencies) || ((dependencies != null) && this.dependencies.equals(dependencies));
+	}
+
+	public Map<String, Set<String>> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * @return the dependency graph the layers were calculated on, for finding its tangles
+	 */
+	public DependencyGraph getDependencyGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the packages that are not external, by layer
+	 */
+	public List<Set<PackageStats>> getLayers() {
+		return layers;
+	}
+
+	/**
+	 * @return the packages depended on that are not part of the graph
+	 */
+	public Set<PackageStats> getExternal() {
+		return external;
+	}
+
+	/**
+	 * @param packageName
+	 * @return the layer of the package, 0 for the knots of the graph view
+	 */
+	public int getLayer(String packageName) {
+		PackageStats result = stats.get(packageName);
+		if (result != null) {
+			return result.getLayer();
+		}
+		if (packageName.startsWith("knot")) {
+			return 0;
+		}
+		throw new RuntimeException("Unknown package: \"" + packageName + "\"");
+	}
+}
@@ -21,7 +21,7 @@
 package net.sourceforge.metrics.ui.preferences;
 
 import net.sourceforge.metrics.core.Constants;
-import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.ui.MetricsUI;
 
 import org.eclipse.jface.preference.ColorFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
@@ -40,7 +40,7 @@ public class ColorPreferencePage extends FieldEditorPreferencePage implements IW
 	 */
 	public ColorPreferencePage() {
 		super(GRID);
-		setPreferenceStore(MetricsPlugin.getDefault().getPreferenceStore());
+		setPreferenceStore(MetricsUI.getPreferenceStore());
 		setDescription("Color preferences for metrics and dependency graph view");
 	}
 
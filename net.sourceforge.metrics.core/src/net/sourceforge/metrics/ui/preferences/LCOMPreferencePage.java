@@ -20,7 +20,7 @@
  */
 package net.sourceforge.metrics.ui.preferences;
 
-import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.ui.MetricsUI;
 
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
@@ -41,7 +41,7 @@ public class LCOMPreferencePage extends FieldEditorPreferencePage implements IWo
 	 */
 	public LCOMPreferencePage() {
 		super(GRID);
-		setPreferenceStore(MetricsPlugin.getDefault().getPreferenceStore());
+		setPreferenceStore(MetricsUI.getPreferenceStore());
 		setDescription("Settings for LCOM* (Lack of Cohesion of Methods)\nWARNING: changes invalidate cache and force recalculation!");
 	}
 
@@ -24,13 +24,14 @@ import java.util.StringTokenizer;
 
 import net.sourceforge.metrics.core.Constants;
 import net.sourceforge.metrics.core.Log;
-import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.ui.MetricsUI;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.DirectoryFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.PreferencePage;
@@ -53,7 +54,7 @@ public class MetricsPreferencePage extends FieldEditorPreferencePage implements
 
 	public MetricsPreferencePage() {
 		super(GRID);
-		setPreferenceStore(MetricsPlugin.getDefault().getPreferenceStore());
+		setPreferenceStore(MetricsUI.getPreferenceStore());
 		setDescription("General preferences for metrics");
 	}
 
@@ -62,6 +63,12 @@ public class MetricsPreferencePage extends FieldEditorPreferencePage implements
 		addField(new IntegerFieldEditor("METRICS.decimals", "Number of decimal places for Average and Standard Deviation", getFieldEditorParent()));
 		addField(new BooleanFieldEditor("METRICS.showProject", "Display project level metrics after a build completes", getFieldEditorParent()));
 		addField(new BooleanFieldEditor("METRICS.enablewarnings", "Enable out-of-range warnings", getFieldEditorParent()));
+		addField(new DirectoryFieldEditor("METRICS.packDirectory", "Import shared result packs from:", getFieldEditorParent()));
+		addField(new BooleanFieldEditor("METRICS.snapshots", "Keep a history snapshot of each completed project build", getFieldEditorParent()));
+		addField(new IntegerFieldEditor("METRICS.snapshotRetentionDays", "Delete snapshots older than (days, 0 = never)", getFieldEditorParent()));
+		addField(new IntegerFieldEditor("METRICS.snapshotDailyAfterDays", "Keep one snapshot per day after (days, 0 = never)", getFieldEditorParent()));
+		addField(new IntegerFieldEditor("METRICS.cutBudget", "Milliseconds spent improving the cuts suggested for a tangle (0 = no limit)", getFieldEditorParent()));
+		addField(new IntegerFieldEditor("METRICS.cutMoves", "Package moves tried to improve the cuts, for the same cuts on every run (0 = no limit)", getFieldEditorParent()));
 		addField(new ListUpDownEditor("METRICS.displayOrder", "Display metrics in this order:", getFieldEditorParent()) {
 			@Override
 			protected String createList(String[] items) {
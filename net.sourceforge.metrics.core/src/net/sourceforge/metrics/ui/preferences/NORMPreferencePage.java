@@ -22,7 +22,7 @@ package net.sourceforge.metrics.ui.preferences;
 
 import java.util.StringTokenizer;
 
-import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.ui.MetricsUI;
 
 import org.eclipse.jface.dialogs.InputDialog;
 import org.eclipse.jface.preference.BooleanFieldEditor;
@@ -46,7 +46,7 @@ public class NORMPreferencePage extends FieldEditorPreferencePage implements IWo
 	 */
 	public NORMPreferencePage() {
 		super(GRID);
-		setPreferenceStore(MetricsPlugin.getDefault().getPreferenceStore());
+		setPreferenceStore(MetricsUI.getPreferenceStore());
 		setDescription("Settings for NORM (Number of Overridden Methods)\nWARNING: changes invalidate cache and force recalculation!");
 	}
 
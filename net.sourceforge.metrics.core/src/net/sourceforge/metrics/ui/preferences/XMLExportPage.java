@@ -22,8 +22,10 @@ package net.sourceforge.metrics.ui.preferences;
 
 import net.sourceforge.metrics.core.ExportDescriptor;
 import net.sourceforge.metrics.core.MetricsPlugin;
+import net.sourceforge.metrics.ui.MetricsUI;
 
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.RadioGroupFieldEditor;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.ui.IWorkbench;
@@ -38,7 +40,7 @@ public class XMLExportPage extends FieldEditorPreferencePage implements IWorkben
 
 	public XMLExportPage() {
 		super(GRID);
-		setPreferenceStore(MetricsPlugin.getDefault().getPreferenceStore());
+		setPreferenceStore(MetricsUI.getPreferenceStore());
 	}
 
 	@Override
@@ -54,6 +56,8 @@ public class XMLExportPage extends FieldEditorPreferencePage implements IWorkben
 			editor = new RadioGroupFieldEditor("METRICS.xmlformat", "XML Export format", 1, labels, getFieldEditorParent(), true);
 			addField(editor);
 		}
+		addField(new IntegerFieldEditor("METRICS.exportThreads", "Threads used to export packages (XML source tree format)", getFieldEditorParent()));
+		addField(new IntegerFieldEditor("METRICS.exportBufferKB", "Maximum KB of rendered packages waiting to be written", getFieldEditorParent()));
 	}
 
 	/*
@@ -0,0 +1,394 @@
+/*
+ * TouchGraph LLC. Apache-Style Software License
+ *
+ *
+ * Copyright (c) 2026 Metrics2 contributors. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer. 
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution,
+ *    if any, must include the following acknowledgment:  
+ *       "This product includes software developed by 
+ *        TouchGraph LLC (http://www.touchgraph.com/)."
+ *    Alternately, this acknowledgment may appear in the software itself,
+ *    if and wherever such third-party acknowledgments normally appear.
+ *
+ * 4. The names "TouchGraph" or "TouchGraph LLC" must not be used to endorse 
+ *    or promote products derived from this software without prior written 
+ *    permission.  For written permission, please contact 
+ *    alex@touchgraph.com
+ *
+ * 5. Products derived from this software may not be called "TouchGraph",
+ *    nor may "TouchGraph" appear in their name, without prior written
+ *    permission of alex@touchgraph.com.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL TOUCHGRAPH OR ITS CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR 
+ * BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * ====================================================================
+ *
+ */
+
+package com.touchgraph.graphlayout;
+
+import com.touchgraph.graphlayout.graphelements.ImmutableGraphEltSet;
+import com.touchgraph.graphlayout.graphelements.TGForEachNode;
+
+/**
+ * Barnes-Hut approximation of the repulsion TGStarLayout applies between all pairs of nodes. The nodes are sorted into a quadtree whose cells know the total repulsion of the nodes inside and its centre. A cell that
+ * looks small from a node, its width divided by the distance to its centre below theta, repels that node as a whole instead of node by node, so a pass costs O(n log n) instead of O(n^2). A theta of 0 opens every cell
+ * and gives the exact pairwise sum.
+ * <p>
+ * Nodes repel each other with a force of repulsion1 * repulsion2 / 100 over their distance, up to a distance of RANGE. A node that is not fading in or out feels a fading node in proportion to its massfade.
+ * 
+ * @author Metrics2 contributors
+ */
+public class BarnesHutTree {
+
+	// 600, because we don't want deleted nodes to fly too far away
+	public static final double RANGE = 600;
+	// cells with this many nodes are not split, nodes in a leaf are visited one by one
+	private static final int LEAF_SIZE = 8;
+	// coinciding nodes share a leaf below this depth
+	private static final int MAX_DEPTH = 32;
+
+	private double theta = 0.8;
+
+	private Node[] nodes = new Node[16];
+	private int count;
+	private double[] x = new double[16];
+	private double[] y = new double[16];
+	private double[] charge = new double[16];
+	private double[] faded = new double[16];
+	private boolean[] fading = new boolean[16];
+	// node indices, every cell owns the range from its first to its last
+	private int[] order = new int[16];
+	private int[] scratch = new int[16];
+
+	private int cells;
+	private int[] first = new int[16];
+	private int[] last = new int[16];
+	// four per cell, -1 for an empty quadrant or a leaf
+	private int[] children = new int[64];
+	private boolean[] leaf = new boolean[16];
+	private double[] left = new double[16];
+	private double[] top = new double[16];
+	private double[] width = new double[16];
+	private double[] centerX = new double[16];
+	private double[] centerY = new double[16];
+	private double[] cellCharge = new double[16];
+	private double[] cellFaded = new double[16];
+
+	private int[] stack = new int[4 * MAX_DEPTH + 4];
+
+	/**
+	 * @return the opening criterion
+	 */
+	public double getTheta() {
+		return theta;
+	}
+
+	/**
+	 * @param theta
+	 *            cells narrower than theta times their distance act as a whole, 0 calculates the exact sum. Values up to 1 keep the error small.
+	 */
+	public void setTheta(double theta) {
+		this.theta = Math.max(0, theta);
+	}
+
+	/**
+	 * @return number of nodes in the tree
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Sort the current positions of the nodes into the tree
+	 * 
+	 * @param ges
+	 */
+	public void build(ImmutableGraphEltSet ges) {
+		count = 0;
+		ges.forAllNodes(new TGForEachNode() {
+			@Override
+			public void forEachNode(Node n) {
+				add(n);
+			}
+		});
+		build();
+	}
+
+	/**
+	 * Sort the current positions of the given nodes into the tree
+	 * 
+	 * @param all
+	 * @param n
+	 *            number of nodes to use
+	 */
+	public void build(Node[] all, int n) {
+		count = 0;
+		for (int i = 0; i < n; i++) {
+			add(all[i]);
+		}
+		build();
+	}
+
+	private void add(Node n) {
+		if (count == nodes.length) {
+			growNodes(count * 2);
+		}
+		nodes[count] = n;
+		x[count] = n.x;
+		y[count] = n.y;
+		charge[count] = n.repulsion;
+		fading[count] = n.justMadeLocal || n.markedForRemoval;
+		if (fading[count]) {
+			double massfade = (n.markedForRemoval ? n.massfade : 1 - n.massfade);
+			faded[count] = n.repulsion * massfade * massfade;
+		} else {
+			faded[count] = n.repulsion;
+		}
+		count++;
+	}
+
+	private void build() {
+		cells = 0;
+		if (count == 0) {
+			return;
+		}
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		build(0, count, minX, minY, Math.max(maxX - minX, maxY - minY), 0);
+	}
+
+	/**
+	 * Create the cell for the nodes in order[from..to) and its descendants
+	 * 
+	 * @return the new cell
+	 */
+	private int build(int from, int to, double l, double t, double s, int depth) {
+		if (cells == first.length) {
+			growCells(cells * 2);
+		}
+		int cell = cells++;
+		first[cell] = from;
+		last[cell] = to;
+		left[cell] = l;
+		top[cell] = t;
+		width[cell] = s;
+		double q = 0;
+		double f = 0;
+		double cx = 0;
+		double cy = 0;
+		for (int k = from; k < to; k++) {
+			int i = order[k];
+			q += charge[i];
+			f += faded[i];
+			cx += x[i] * charge[i];
+			cy += y[i] * charge[i];
+		}
+		cellCharge[cell] = q;
+		cellFaded[cell] = f;
+		centerX[cell] = (q == 0) ? l + s / 2 : cx / q;
+		centerY[cell] = (q == 0) ? t + s / 2 : cy / q;
+		for (int c = 0; c < 4; c++) {
+			children[cell * 4 + c] = -1;
+		}
+		leaf[cell] = (to - from <= LEAF_SIZE) || (depth == MAX_DEPTH) || (s == 0);
+		if (leaf[cell]) {
+			return cell;
+		}
+		// partition the range by quadrant: 0 top left, 1 top right, 2 bottom left, 3 bottom right
+		double h = s / 2;
+		int[] counts = new int[5];
+		for (int k = from; k < to; k++) {
+			counts[quadrant(order[k], l + h, t + h) + 1]++;
+		}
+		for (int c = 1; c < 5; c++) {
+			counts[c] += counts[c - 1];
+		}
+		int[] starts = new int[] { counts[0], counts[1], counts[2], counts[3] };
+		for (int k = from; k < to; k++) {
+			int i = order[k];
+			scratch[from + counts[quadrant(i, l + h, t + h)]++] = i;
+		}
+		System.arraycopy(scratch, from, order, from, to - from);
+		for (int c = 0; c < 4; c++) {
+			int start = from + starts[c];
+			int end = from + counts[c];
+			if (end > start) {
+				int child = build(start, end, ((c & 1) == 0) ? l : l + h, ((c & 2) == 0) ? t : t + h, h, depth + 1);
+				children[cell * 4 + c] = child;
+			}
+		}
+		return cell;
+	}
+
+	private int quadrant(int i, double midX, double midY) {
+		return ((x[i] < midX) ? 0 : 1) + ((y[i] < midY) ? 0 : 2);
+	}
+
+	/**
+	 * Add the repulsion of all other nodes to the dx and dy of every node in the tree
+	 * 
+	 * @param scale
+	 *            factor applied to all forces
+	 */
+	public void repel(double scale) {
+		int[] position = new int[count];
+		for (int k = 0; k < count; k++) {
+			position[order[k]] = k;
+		}
+		double[] force = new double[2];
+		for (int i = 0; i < count; i++) {
+			force(i, position[i], force);
+			double factor = charge[i] / 100 * scale;
+			nodes[i].dx += force[0] * factor;
+			nodes[i].dy += force[1] * factor;
+		}
+	}
+
+	/**
+	 * The sum of the repulsion of all other nodes divided by the charge of node i
+	 * 
+	 * @param i
+	 * @param position
+	 *            index of i in order
+	 * @param force
+	 *            receives x and y
+	 */
+	private void force(int i, int position, double[] force) {
+		double fx = 0;
+		double fy = 0;
+		double xi = x[i];
+		double yi = y[i];
+		// a fading node feels the others at full strength
+		double[] q = fading[i] ? charge : faded;
+		double[] qCell = fading[i] ? cellCharge : cellFaded;
+		double range2 = RANGE * RANGE;
+		double theta2 = theta * theta;
+		int sp = 0;
+		stack[sp++] = 0;
+		while (sp > 0) {
+			int cell = stack[--sp];
+			double nearX = Math.max(0, Math.max(left[cell] - xi, xi - left[cell] - width[cell]));
+			double nearY = Math.max(0, Math.max(top[cell] - yi, yi - top[cell] - width[cell]));
+			if (nearX * nearX + nearY * nearY >= range2) {
+				// nothing in the cell is in range
+				continue;
+			}
+			boolean inside = (position >= first[cell]) && (position < last[cell]);
+			double farX = Math.max(Math.abs(xi - left[cell]), Math.abs(xi - left[cell] - width[cell]));
+			double farY = Math.max(Math.abs(yi - top[cell]), Math.abs(yi - top[cell] - width[cell]));
+			// a cell partly out of range is opened
+			if (!leaf[cell] && !inside && (farX * farX + farY * farY < range2)) {
+				double vx = xi - centerX[cell];
+				double vy = yi - centerY[cell];
+				double len = vx * vx + vy * vy;
+				if (width[cell] * width[cell] < theta2 * len) {
+					fx += vx / len * qCell[cell];
+					fy += vy / len * qCell[cell];
+					continue;
+				}
+			}
+			if (leaf[cell]) {
+				for (int k = first[cell]; k < last[cell]; k++) {
+					int j = order[k];
+					if (j == i) {
+						continue;
+					}
+					double vx = xi - x[j];
+					double vy = yi - y[j];
+					double len = vx * vx + vy * vy; // so it's length squared
+					if (len == 0) {
+						// right on top of each other, randomly separate
+						fx += (Math.random() - 0.5) * q[j];
+						fy += (Math.random() - 0.5) * q[j];
+					} else if (len < range2) {
+						fx += vx / len * q[j];
+						fy += vy / len * q[j];
+					}
+				}
+			} else {
+				for (int c = cell * 4; c < cell * 4 + 4; c++) {
+					if (children[c] >= 0) {
+						stack[sp++] = children[c];
+					}
+				}
+			}
+		}
+		force[0] = fx;
+		force[1] = fy;
+	}
+
+	private void growNodes(int capacity) {
+		Node[] n = new Node[capacity];
+		System.arraycopy(nodes, 0, n, 0, count);
+		nodes = n;
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		charge = grow(charge, capacity);
+		faded = grow(faded, capacity);
+		boolean[] f = new boolean[capacity];
+		System.arraycopy(fading, 0, f, 0, count);
+		fading = f;
+		order = new int[capacity];
+		scratch = new int[capacity];
+	}
+
+	private void growCells(int capacity) {
+		first = grow(first, capacity);
+		last = grow(last, capacity);
+		children = grow(children, capacity * 4);
+		boolean[] l = new boolean[capacity];
+		System.arraycopy(leaf, 0, l, 0, cells);
+		leaf = l;
+		left = grow(left, capacity);
+		top = grow(top, capacity);
+		width = grow(width, capacity);
+		centerX = grow(centerX, capacity);
+		centerY = grow(centerY, capacity);
+		cellCharge = grow(cellCharge, capacity);
+		cellFaded = grow(cellFaded, capacity);
+	}
+
+	private static double[] grow(double[] array, int capacity) {
+		double[] result = new double[capacity];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, capacity));
+		return result;
+	}
+
+	private static int[] grow(int[] array, int capacity) {
+		int[] result = new int[capacity];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, capacity));
+		return result;
+	}
+}
@@ -51,11 +51,10 @@ package com.touchgraph.graphlayout;
 
 import com.touchgraph.graphlayout.graphelements.TGForEachEdge;
 import com.touchgraph.graphlayout.graphelements.TGForEachNode;
-import com.touchgraph.graphlayout.graphelements.TGForEachNodePair;
 
 /**
  * TGStarLayout is the thread responsible for graph layout. It updates the real coordinates of the nodes in the graphEltSet object. TGPanel sends it resetDamper commands whenever the layout needs to be adjusted. After every adjustment
- * cycle, TGStarLayout triggers a repaint of the TGPanel.
+ * cycle, TGStarLayout triggers a repaint of the TGPanel. Once the mean squared motion of the nodes drops below MIN_ENERGY the thread waits until the damper is reset.
  * 
  * ******************************************************************** This is the heart of the TouchGraph application. Please provide a Reference to TouchGraph.com if you are influenced by what you see below. Your cooperation will insure
  * that this code remains opensource ********************************************************************
@@ -71,16 +70,21 @@ public class TGStarLayout implements TGLayout {
 
 	// private ImmutableGraphEltSet graphEltSet;
 	private TGPanel tgPanel;
-	private Thread relaxer;
-	private double damper = 0.0; // A low damper value causes the graph to move
+	private volatile Thread relaxer;
+	private volatile double damper = 0.0; // A low damper value causes the graph to move
 	// slowly
 	private double maxMotion = 0; // Keep an eye on the fastest moving node to
 	// see if the graph is stabilizing
 	private double lastMaxMotion = 0;
 	private double motionRatio = 0; // It's sort of a ratio, equal to
 	// lastMaxMotion/maxMotion-1
-	private boolean damping = true; // When damping is true, the damper value
+	private volatile boolean damping = true; // When damping is true, the damper value
 	// decreases
+	private volatile double energy = Double.MAX_VALUE; // mean squared motion of the
+	// nodes in the last step
+	private static final double MIN_ENERGY = 0.001 * 0.001;
+	private final Object idle = new Object(); // the relaxer waits here while the
+	// graph is at rest
 
 	private double rigidity = 1; // Rigidity has the same effect as the damper,
 	// except that it's a constant
@@ -90,6 +94,8 @@ public class TGStarLayout implements TGLayout {
 
 	Node dragNode = null;
 
+	private BarnesHutTree repulsion = new BarnesHutTree();
+
 	// ............
 
 	/**
@@ -107,6 +113,20 @@ public class TGStarLayout implements TGLayout {
 
 	public void setDragNode(Node n) {
 		dragNode = n;
+		wakeUp();
+	}
+
+	/**
+	 * @param theta
+	 *            Barnes-Hut opening criterion for the node repulsion, 0 is exact
+	 * @see BarnesHutTree#setTheta(double)
+	 */
+	public void setTheta(double theta) {
+		repulsion.setTheta(theta);
+	}
+
+	public double getTheta() {
+		return repulsion.getTheta();
 	}
 
 	// relaxEdges is more like tense edges up. All edges pull nodes closes
@@ -173,55 +193,14 @@ public class TGStarLayout implements TGLayout {
 	 */
 
 	private synchronized void avoidLabels() {
-		TGForEachNodePair fenp = new TGForEachNodePair() {
-			@Override
-			public void forEachNodePair(Node n1, Node n2) {
-				double dx = 0;
-				double dy = 0;
-				double vx = n1.x - n2.x;
-				double vy = n1.y - n2.y;
-				double len = vx * vx + vy * vy; // so it's length squared
-				if (len == 0) {
-					dx = Math.random(); // If two nodes are right on top of each
-					// other, randomly separate
-					dy = Math.random();
-				} else if (len < 600 * 600) { // 600, because we don't want
-					// deleted nodes to fly too far
-					// away
-					dx = vx / len; // If it was sqrt(len) then a single node
-					// surrounded by many others will
-					dy = vy / len; // always look like a circle. This might look
-					// good at first, but I think
-					// it makes large graphs look ugly + it contributes to
-					// oscillation. A
-					// linear function does not fall off fast enough, so you get
-					// rough edges
-					// in the 'force field'
-				}
-
-				int repSum = n1.repulsion * n2.repulsion / 100;
-				if (n1.justMadeLocal || n1.markedForRemoval || (!n2.justMadeLocal && !n2.markedForRemoval)) {
-					n1.dx += dx * repSum * rigidity;
-					n1.dy += dy * repSum * rigidity;
-				} else {
-					double massfade = (n2.markedForRemoval ? n2.massfade : 1 - n2.massfade);
-					massfade *= massfade;
-					n1.dx += dx * repSum * rigidity * massfade;
-					n1.dy += dy * repSum * rigidity * massfade;
-				}
-				if (n2.justMadeLocal || n2.markedForRemoval || (!n1.justMadeLocal && !n1.markedForRemoval)) {
-					n2.dx -= dx * repSum * rigidity;
-					n2.dy -= dy * repSum * rigidity;
-				} else {
-					double massfade = (n1.markedForRemoval ? n1.massfade : 1 - n1.massfade);
-					massfade *= massfade;
-					n2.dx -= dx * repSum * rigidity * massfade;
-					n2.dy -= dy * repSum * rigidity * massfade;
-				}
-			}
-		};
-
-		tgPanel.getGES().forAllNodePairs(fenp);
+		// Every pair of nodes repels with vx / len, len being the squared distance,
+		// the Barnes-Hut tree sums it up in O(n log n). If it was sqrt(len) then a
+		// single node surrounded by many others will always look like a circle. This
+		// might look good at first, but I think it makes large graphs look ugly + it
+		// contributes to oscillation. A linear function does not fall off fast
+		// enough, so you get rough edges in the 'force field'
+		repulsion.build(tgPanel.getGES());
+		repulsion.repel(rigidity);
 	}
 
 	public void startDamper() {
@@ -231,11 +210,13 @@ public class TGStarLayout implements TGLayout {
 	public void stopDamper() {
 		damping = false;
 		damper = 1.0; // A value of 1.0 means no damping
+		wakeUp();
 	}
 
 	public void resetDamper() { // reset the damper, but don't keep damping.
 		damping = true;
 		damper = 1.0;
+		wakeUp();
 	}
 
 	public void stopMotion() { // stabilize the graph, but do so gently by
@@ -281,6 +262,7 @@ public class TGStarLayout implements TGLayout {
 		lastMaxMotion = maxMotion;
 		final double[] maxMotionA = new double[1];
 		maxMotionA[0] = 0;
+		final double[] energyA = new double[2];
 
 		TGForEachNode fen = new TGForEachNode() {
 			@Override
@@ -316,6 +298,8 @@ public class TGStarLayout implements TGLayout {
 					// flying away?
 				}
 				maxMotionA[0] = Math.max(distMoved, maxMotionA[0]);
+				energyA[0] += distMoved * distMoved;
+				energyA[1]++;
 
 				if (!n.justMadeLocal && !n.markedForRemoval) {
 					n.massfade = 1;
@@ -331,6 +315,7 @@ public class TGStarLayout implements TGLayout {
 		tgPanel.getGES().forAllNodes(fen);
 
 		maxMotion = maxMotionA[0];
+		energy = (energyA[1] == 0) ? 0 : energyA[0] / energyA[1];
 		if (maxMotion > 0) {
 			motionRatio = lastMaxMotion / maxMotion - 1; // subtract 1 to make a
 			// positive value
@@ -355,12 +340,16 @@ public class TGStarLayout implements TGLayout {
 		tgPanel.repaintAfterMove();
 	}
 
-	private void myWait() { // I think it was Netscape that caused me not to use
-		// Wait, or was it java 1.1?
-		try {
-			Thread.sleep(100);
-		} catch (InterruptedException e) {
-			// break;
+	/**
+	 * @return true if the graph came to rest and relaxing it further is a waste of time
+	 */
+	private boolean isConverged() {
+		return damping && damper < 0.1 && energy < MIN_ENERGY;
+	}
+
+	private void wakeUp() {
+		synchronized (idle) {
+			idle.notifyAll();
 		}
 	}
 
@@ -373,11 +362,10 @@ public class TGStarLayout implements TGLayout {
 			try {
 				Thread.sleep(20); // Delay to wait for the prior repaint command
 				// to finish.
-				while (damper < 0.1 && damping && maxMotion < 0.001) {
-					myWait();
-					// System.out.println("damping " + damping + " damp " +
-					// damper + "  maxM " + maxMotion + "  motR " + motionRatio
-					// );
+				synchronized (idle) {
+					while (relaxer == me && isConverged()) {
+						idle.wait(); // until the damper is reset or we are stopped
+					}
 				}
 			} catch (InterruptedException e) {
 				break;
@@ -392,6 +380,7 @@ public class TGStarLayout implements TGLayout {
 
 	public void stop() {
 		relaxer = null;
+		wakeUp();
 	}
 
 } // end com.touchgraph.graphlayout.TGStarLayout